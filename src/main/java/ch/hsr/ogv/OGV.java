@@ -0,0 +1,35 @@
+package ch.hsr.ogv;
+
+import ch.hsr.ogv.dataaccess.ObjectCapture;
+
+import java.util.Collections;
+
+/**
+ * Entry point for programs using OGV as library. Captures the object graph of the calling program as object diagram,
+ * which can be saved and opened in OGV, e.g. from a test:
+ * <pre>
+ * OGV.capture(order, 5, "java.time.*").serialize(new File("order.ogv"));
+ * </pre>
+ */
+public final class OGV {
+
+    private OGV() {
+    }
+
+    /**
+     * Captures the objects reachable from root within {@link ObjectCapture#DEFAULT_MAX_DEPTH} references.
+     */
+    public static ObjectCapture capture(Object root) {
+        return capture(root, ObjectCapture.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxDepth        maximum number of references between root and a captured object
+     * @param excludedClasses class name patterns, '*' matches any text and '?' a single character; objects of these
+     *                        classes are shown as attribute values
+     */
+    public static ObjectCapture capture(Object root, int maxDepth, String... excludedClasses) {
+        return new ObjectCapture(maxDepth, ObjectCapture.DEFAULT_MAX_OBJECTS, String.join(",", excludedClasses)).capture(Collections.singletonList(root));
+    }
+
+}
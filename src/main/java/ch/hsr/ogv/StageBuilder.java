@@ -6,6 +6,7 @@ import ch.hsr.ogv.dataaccess.UserPreferences;
 import ch.hsr.ogv.util.FXMLResourceUtil;
 import ch.hsr.ogv.util.ResourceLocator;
 import ch.hsr.ogv.util.ResourceLocator.Resource;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
 import ch.hsr.ogv.view.SubSceneAdapter;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -37,6 +38,7 @@ public class StageBuilder {
     private ModelViewConnector mvConnector;
     private ObjectGraph objectGraph;
     private Persistence persistence;
+    private TimeSlicedScheduler scheduler = new TimeSlicedScheduler(); // shared, so graph building and loading never run in the same frame
 
     private ViewController viewController = new ViewController();
     private SelectionController selectionController = new SelectionController();
@@ -44,9 +46,14 @@ public class StageBuilder {
     private TextFieldController textFieldController = new TextFieldController();
     private MouseMoveController mouseMoveController = new MouseMoveController();
     private CameraController cameraController = new CameraController();
+    private LevelOfDetailController levelOfDetailController = new LevelOfDetailController();
     private DragMoveController dragMoveController = new DragMoveController();
     private DragResizeController dragResizeController = new DragResizeController();
     private RelationCreationController relationCreationController = new RelationCreationController();
+    private ReferenceQueryController referenceQueryController = new ReferenceQueryController();
+    private LiveGraphController liveGraphController = new LiveGraphController();
+    private LayoutController layoutController = new LayoutController();
+    private ArrowRoutingController arrowRoutingController = new ArrowRoutingController();
 
     private ModelController stageManager = new ModelController();
 
@@ -68,6 +75,7 @@ public class StageBuilder {
         initContextMenuController();
         initMouseMoveController();
         initCameraController();
+        initLevelOfDetailController();
         initDragController();
         initRelationCreationController();
 
@@ -114,12 +122,12 @@ public class StageBuilder {
     }
 
     private void initObjectGraph() {
-        this.objectGraph = new ObjectGraph(this.mvConnector, this.subSceneAdapter);
+        this.objectGraph = new ObjectGraph(this.mvConnector, this.subSceneAdapter, this.scheduler);
     }
 
     private void initPersistancy() {
         UserPreferences.setOGVFilePath(null); // reset user preferences of file path
-        persistence = new Persistence(this.mvConnector.getModelManager());
+        persistence = new Persistence(this.mvConnector.getModelManager(), this.scheduler);
     }
 
     private void initViewController() {
@@ -130,7 +138,18 @@ public class StageBuilder {
         this.viewController.setPersistence(this.persistence);
         this.viewController.setSelectionController(this.selectionController);
         this.viewController.setCameraController(this.cameraController);
+        this.viewController.setLevelOfDetailController(this.levelOfDetailController);
         this.viewController.setRelationCreationController(this.relationCreationController);
+        this.liveGraphController.setMVConnector(this.mvConnector);
+        this.liveGraphController.setScheduler(this.scheduler);
+        this.viewController.setLiveGraphController(this.liveGraphController);
+        this.viewController.setCommandServer(new CommandServer(this.mvConnector.getModelManager(), this.scheduler));
+        this.layoutController.setMVConnector(this.mvConnector);
+        this.layoutController.setScheduler(this.scheduler);
+        this.viewController.setLayoutController(this.layoutController);
+        this.arrowRoutingController.setMVConnector(this.mvConnector);
+        this.arrowRoutingController.setScheduler(this.scheduler);
+        this.viewController.setArrowRoutingController(this.arrowRoutingController);
     }
 
     private void initSelectionController() {
@@ -143,6 +162,8 @@ public class StageBuilder {
         this.contextMenuController.enableActionEvents(this.selectionController, this.subSceneAdapter);
         this.contextMenuController.setMVConnector(this.mvConnector);
         this.contextMenuController.setRelationCreationController(this.relationCreationController);
+        this.referenceQueryController.setMVConnector(this.mvConnector);
+        this.contextMenuController.setReferenceQueryController(this.referenceQueryController);
         this.contextMenuController.enableContextMenu(this.subSceneAdapter);
     }
 
@@ -155,6 +176,13 @@ public class StageBuilder {
         this.cameraController.enableCamera(this.subSceneAdapter);
     }
 
+    private void initLevelOfDetailController() {
+        this.levelOfDetailController.setMVConnector(this.mvConnector);
+        this.levelOfDetailController.setObjectGraph(this.objectGraph);
+        this.levelOfDetailController.setSelectionController(this.selectionController);
+        this.levelOfDetailController.enableLevelOfDetail(this.subSceneAdapter);
+    }
+
     private void initDragController() {
         this.dragMoveController.addObserver(this.cameraController);
         this.dragMoveController.addObserver(this.viewController);
@@ -0,0 +1,83 @@
+package ch.hsr.ogv.agent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary protocol between the agent and OGV. A stream starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * frames. A frame is a sequence of operations, one byte opcode each, and ends with {@link #OP_END_FRAME} and the frame
+ * number. Ids and indexes are unsigned variable length integers, 7 bits per byte. Class and field names are sent once
+ * with {@link #OP_DEFINE_NAME} and then referred to by their index in the order they were defined.
+ */
+public final class DeltaProtocol {
+
+    public final static int MAGIC = 0x4F47564C; // "OGVL"
+    public final static int VERSION = 1;
+    public final static int DEFAULT_PORT = 7788;
+
+    final static int OP_DEFINE_NAME = 0; // text
+    final static int OP_REMOVE_REFERENCE = 1; // from id, field name, to id
+    final static int OP_REMOVE_OBJECT = 2; // id
+    final static int OP_ADD_OBJECT = 3; // id, class name
+    final static int OP_SET_VALUE = 4; // id, field name, text
+    final static int OP_ADD_REFERENCE = 5; // from id, field name, to id
+    final static int OP_END_FRAME = 6; // frame number
+
+    private DeltaProtocol() {
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed variable length integer");
+    }
+
+    static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readText(DataInputStream in, int maxLength) throws IOException {
+        long length = readVarLong(in);
+        if (length > maxLength) {
+            throw new IOException("text of " + length + " bytes exceeds " + maxLength);
+        }
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void checkHeader(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not an OGV live stream");
+            }
+        }
+        catch (EOFException e) {
+            throw new IOException("stream closed before the header");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported protocol version " + version);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package ch.hsr.ogv.agent;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.hsr.ogv.agent.DeltaProtocol.*;
+
+/**
+ * Reads the frames written by a {@link DeltaWriter}.
+ */
+public class DeltaReader {
+
+    private final static int MAX_TEXT_LENGTH = 1 << 20;
+
+    private final DataInputStream in;
+    private final List<String> names = new ArrayList<String>();
+    private long frameNumber = -1;
+
+    public DeltaReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        checkHeader(this.in);
+    }
+
+    /**
+     * Blocks until a whole frame was read.
+     *
+     * @return the changes of the next frame, or null if the stream ended between frames
+     */
+    public GraphDelta read() throws IOException {
+        GraphDelta delta = new GraphDelta();
+        int op;
+        try {
+            op = this.in.readUnsignedByte();
+        }
+        catch (EOFException e) {
+            return null;
+        }
+        while (op != OP_END_FRAME) {
+            switch (op) {
+                case OP_DEFINE_NAME:
+                    this.names.add(readText(this.in, MAX_TEXT_LENGTH));
+                    break;
+                case OP_REMOVE_REFERENCE:
+                    delta.removeReference(new GraphSnapshot.Reference(readVarLong(this.in), name(), readVarLong(this.in)));
+                    break;
+                case OP_REMOVE_OBJECT:
+                    delta.removeObject(readVarLong(this.in));
+                    break;
+                case OP_ADD_OBJECT:
+                    delta.addObject(readVarLong(this.in), name());
+                    break;
+                case OP_SET_VALUE:
+                    delta.setValue(readVarLong(this.in), name(), readText(this.in, MAX_TEXT_LENGTH));
+                    break;
+                case OP_ADD_REFERENCE:
+                    delta.addReference(new GraphSnapshot.Reference(readVarLong(this.in), name(), readVarLong(this.in)));
+                    break;
+                default:
+                    throw new IOException("unknown operation " + op);
+            }
+            op = this.in.readUnsignedByte();
+        }
+        this.frameNumber = readVarLong(this.in);
+        return delta;
+    }
+
+    private String name() throws IOException {
+        long index = readVarLong(this.in);
+        if (index >= this.names.size()) {
+            throw new IOException("undefined name " + index);
+        }
+        return this.names.get((int) index);
+    }
+
+    /**
+     * @return the number of the last frame read, -1 before the first
+     */
+    public long getFrameNumber() {
+        return this.frameNumber;
+    }
+
+}
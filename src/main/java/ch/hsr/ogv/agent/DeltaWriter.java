@@ -0,0 +1,89 @@
+package ch.hsr.ogv.agent;
+
+import ch.hsr.ogv.agent.GraphDelta.ValueChange;
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static ch.hsr.ogv.agent.DeltaProtocol.*;
+
+/**
+ * Writes {@link GraphDelta}s as frames of the {@link DeltaProtocol}. Writes block while the receiver does not keep up,
+ * which is the back-pressure on the sender.
+ */
+public class DeltaWriter {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> names = new HashMap<String, Integer>(); // k: class or field name, v: index
+    private long frameCount = 0;
+
+    public DeltaWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    /**
+     * Writes one frame and flushes it.
+     */
+    public void write(GraphDelta delta) throws IOException {
+        for (Reference reference : delta.getRemovedReferences()) {
+            writeReference(OP_REMOVE_REFERENCE, reference);
+        }
+        for (long id : delta.getRemovedObjects()) {
+            this.out.writeByte(OP_REMOVE_OBJECT);
+            writeVarLong(this.out, id);
+        }
+        for (Map.Entry<Long, String> entry : delta.getAddedObjects().entrySet()) {
+            int className = name(entry.getValue());
+            this.out.writeByte(OP_ADD_OBJECT);
+            writeVarLong(this.out, entry.getKey());
+            writeVarLong(this.out, className);
+        }
+        for (ValueChange value : delta.getValues()) {
+            int field = name(value.field);
+            this.out.writeByte(OP_SET_VALUE);
+            writeVarLong(this.out, value.id);
+            writeVarLong(this.out, field);
+            writeText(this.out, value.value);
+        }
+        for (Reference reference : delta.getAddedReferences()) {
+            writeReference(OP_ADD_REFERENCE, reference);
+        }
+        this.out.writeByte(OP_END_FRAME);
+        writeVarLong(this.out, this.frameCount++);
+        this.out.flush();
+    }
+
+    private void writeReference(int op, Reference reference) throws IOException {
+        int field = name(reference.field);
+        this.out.writeByte(op);
+        writeVarLong(this.out, reference.from);
+        writeVarLong(this.out, field);
+        writeVarLong(this.out, reference.to);
+    }
+
+    /**
+     * @return the index of a name, defines it first if it was not sent yet
+     */
+    private int name(String name) throws IOException {
+        Integer index = this.names.get(name);
+        if (index == null) {
+            index = this.names.size();
+            this.names.put(name, index);
+            this.out.writeByte(OP_DEFINE_NAME);
+            writeText(this.out, name);
+        }
+        return index;
+    }
+
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+}
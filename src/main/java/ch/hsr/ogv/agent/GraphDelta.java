@@ -0,0 +1,114 @@
+package ch.hsr.ogv.agent;
+
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes between two {@link GraphSnapshot}s. They are applied in the order removed references, removed objects, added
+ * objects, values and added references, so every reference is added after both of its objects.
+ */
+public class GraphDelta {
+
+    private final List<Reference> removedReferences = new ArrayList<Reference>();
+    private final Set<Long> removedObjects = new LinkedHashSet<Long>();
+    private final Map<Long, String> addedObjects = new LinkedHashMap<Long, String>(); // k: object id, v: class name
+    private final List<ValueChange> values = new ArrayList<ValueChange>();
+    private final List<Reference> addedReferences = new ArrayList<Reference>();
+
+    public void removeReference(Reference reference) {
+        this.removedReferences.add(reference);
+    }
+
+    public void removeObject(long id) {
+        this.removedObjects.add(id);
+    }
+
+    public boolean isRemovedObject(long id) {
+        return this.removedObjects.contains(id);
+    }
+
+    public void addObject(long id, String className) {
+        this.addedObjects.put(id, className);
+    }
+
+    public void setValue(long id, String field, String value) {
+        this.values.add(new ValueChange(id, field, value));
+    }
+
+    public void addReference(Reference reference) {
+        this.addedReferences.add(reference);
+    }
+
+    public List<Reference> getRemovedReferences() {
+        return Collections.unmodifiableList(this.removedReferences);
+    }
+
+    public Set<Long> getRemovedObjects() {
+        return Collections.unmodifiableSet(this.removedObjects);
+    }
+
+    public Map<Long, String> getAddedObjects() {
+        return Collections.unmodifiableMap(this.addedObjects);
+    }
+
+    public List<ValueChange> getValues() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    public List<Reference> getAddedReferences() {
+        return Collections.unmodifiableList(this.addedReferences);
+    }
+
+    /**
+     * @return the number of single changes
+     */
+    public int size() {
+        return this.removedReferences.size() + this.removedObjects.size() + this.addedObjects.size() + this.values.size() + this.addedReferences.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void applyTo(GraphSnapshot snapshot) {
+        for (Reference reference : this.removedReferences) {
+            snapshot.removeReference(reference);
+        }
+        for (long id : this.removedObjects) {
+            snapshot.removeObject(id);
+        }
+        for (Map.Entry<Long, String> entry : this.addedObjects.entrySet()) {
+            snapshot.addObject(entry.getKey(), entry.getValue());
+        }
+        for (ValueChange value : this.values) {
+            snapshot.setValue(value.id, value.field, value.value);
+        }
+        for (Reference reference : this.addedReferences) {
+            snapshot.addReference(reference.from, reference.field, reference.to);
+        }
+    }
+
+    /**
+     * New value of one field of an object, formatted as text.
+     */
+    public static final class ValueChange {
+
+        public final long id;
+        public final String field;
+        public final String value;
+
+        public ValueChange(long id, String field, String value) {
+            this.id = id;
+            this.field = field;
+            this.value = value;
+        }
+    }
+
+}
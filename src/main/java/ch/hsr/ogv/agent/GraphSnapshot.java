@@ -0,0 +1,155 @@
+package ch.hsr.ogv.agent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * State of an object graph as plain data: objects by id with their class name and field values, and the references
+ * between them. Two snapshots are compared with {@link #diff(GraphSnapshot)}, which yields the changes to send.
+ */
+public class GraphSnapshot {
+
+    private final Map<Long, String> classNames = new LinkedHashMap<Long, String>(); // k: object id
+    private final Map<Long, Map<String, String>> values = new HashMap<Long, Map<String, String>>(); // k: object id
+    private final Set<Reference> references = new LinkedHashSet<Reference>();
+
+    public void addObject(long id, String className) {
+        this.classNames.put(id, className);
+    }
+
+    /**
+     * Removes an object and its values, references from and to it are kept.
+     */
+    public void removeObject(long id) {
+        this.classNames.remove(id);
+        this.values.remove(id);
+    }
+
+    public boolean containsObject(long id) {
+        return this.classNames.containsKey(id);
+    }
+
+    public String getClassName(long id) {
+        return this.classNames.get(id);
+    }
+
+    public Set<Long> getObjectIds() {
+        return Collections.unmodifiableSet(this.classNames.keySet());
+    }
+
+    public int getObjectCount() {
+        return this.classNames.size();
+    }
+
+    public void setValue(long id, String field, String value) {
+        this.values.computeIfAbsent(id, k -> new LinkedHashMap<String, String>()).put(field, value);
+    }
+
+    /**
+     * @return the field values of an object in the order they were set, empty if it has none
+     */
+    public Map<String, String> getValues(long id) {
+        Map<String, String> objectValues = this.values.get(id);
+        return objectValues != null ? Collections.unmodifiableMap(objectValues) : Collections.<String, String>emptyMap();
+    }
+
+    public void addReference(long from, String field, long to) {
+        this.references.add(new Reference(from, field, to));
+    }
+
+    public void removeReference(Reference reference) {
+        this.references.remove(reference);
+    }
+
+    public Set<Reference> getReferences() {
+        return Collections.unmodifiableSet(this.references);
+    }
+
+    public GraphSnapshot copy() {
+        GraphSnapshot copy = new GraphSnapshot();
+        copy.classNames.putAll(this.classNames);
+        for (Map.Entry<Long, Map<String, String>> entry : this.values.entrySet()) {
+            copy.values.put(entry.getKey(), new LinkedHashMap<String, String>(entry.getValue()));
+        }
+        copy.references.addAll(this.references);
+        return copy;
+    }
+
+    /**
+     * @return the changes that turn this snapshot into the given one
+     */
+    public GraphDelta diff(GraphSnapshot next) {
+        GraphDelta delta = new GraphDelta();
+        for (Reference reference : this.references) {
+            if (!next.references.contains(reference)) {
+                delta.removeReference(reference);
+            }
+        }
+        for (Long id : this.classNames.keySet()) {
+            if (!Objects.equals(this.classNames.get(id), next.classNames.get(id))) {
+                delta.removeObject(id); // gone, or a new object that got the same id
+            }
+        }
+        for (Map.Entry<Long, String> entry : next.classNames.entrySet()) {
+            long id = entry.getKey();
+            boolean added = !entry.getValue().equals(this.classNames.get(id));
+            if (added) {
+                delta.addObject(id, entry.getValue());
+            }
+            Map<String, String> previousValues = added ? Collections.<String, String>emptyMap() : getValues(id);
+            for (Map.Entry<String, String> value : next.getValues(id).entrySet()) {
+                if (!value.getValue().equals(previousValues.get(value.getKey()))) {
+                    delta.setValue(id, value.getKey(), value.getValue());
+                }
+            }
+        }
+        for (Reference reference : next.references) {
+            if (!this.references.contains(reference) || delta.isRemovedObject(reference.from) || delta.isRemovedObject(reference.to)) {
+                delta.addReference(reference);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Reference from a field of one object to another. Fields holding several references, like arrays and
+     * collections, have one reference per distinct element.
+     */
+    public static final class Reference {
+
+        public final long from;
+        public final String field;
+        public final long to;
+
+        public Reference(long from, String field, long to) {
+            this.from = from;
+            this.field = field;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Reference)) {
+                return false;
+            }
+            Reference other = (Reference) obj;
+            return this.from == other.from && this.to == other.to && this.field.equals(other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(this.from) * 31 + this.field.hashCode()) * 31 + Long.hashCode(this.to);
+        }
+
+        @Override
+        public String toString() {
+            return this.from + "." + this.field + " -> " + this.to;
+        }
+    }
+
+}
@@ -0,0 +1,355 @@
+package ch.hsr.ogv.agent;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Walks the objects reachable from a set of roots with reflection and describes them as {@link GraphSnapshot}. Objects
+ * are compared by identity, so cycles and shared objects are walked once. An object keeps its id over consecutive walks
+ * as long as it is reachable, so the snapshots of two walks can be diffed.
+ * <p>
+ * Strings, boxed primitives, enums and primitive arrays are shown as field values, not as objects. Collections and maps
+ * are walked through their public interface, their elements are referenced by the fields {@link #ELEMENTS_FIELD},
+ * {@link #KEYS_FIELD} and {@link #VALUES_FIELD}. Fields of classes that are not open to reflection are left out.
+ * <p>
+ * The walk goes layer by layer, one layer per reference distance from the roots. Given a pool, the fields of the
+ * objects of a layer are read in parallel, only assigning ids and adding to the snapshot is sequential, so the result
+ * does not depend on the pool. The walk reads the objects while their program may change them, so a snapshot need not
+ * be consistent. A walker is not thread safe.
+ */
+public class HeapWalker {
+
+    public final static int DEFAULT_MAX_OBJECTS = 2000;
+    public final static int DEFAULT_MAX_DEPTH = 20;
+    public final static String ELEMENTS_FIELD = "elements";
+    public final static String KEYS_FIELD = "keys";
+    public final static String VALUES_FIELD = "values";
+    public final static String SIZE_FIELD = "size";
+
+    private final static int MAX_VALUE_LENGTH = 60;
+    private final static int MAX_PREVIEW_ELEMENTS = 8;
+    private final static int SEQUENTIAL_THRESHOLD = 256; // objects read by one task without splitting further
+
+    private final int maxObjects;
+    private final int maxDepth;
+    private final Predicate<Class<?>> excluded;
+    private final Map<Class<?>, Field[]> fields = new ConcurrentHashMap<Class<?>, Field[]>(); // accessible instance fields per class
+    private IdentityHashMap<Object, Long> ids = new IdentityHashMap<Object, Long>(); // objects of the last walk
+    private long nextId = 1;
+
+    public HeapWalker() {
+        this(DEFAULT_MAX_OBJECTS, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxObjects objects beyond are shown as field values only
+     * @param maxDepth   maximum number of references between a root and a walked object
+     */
+    public HeapWalker(int maxObjects, int maxDepth) {
+        this(maxObjects, maxDepth, type -> false);
+    }
+
+    /**
+     * @param excluded classes whose objects are never walked, unless they are roots; they are shown as field values
+     */
+    public HeapWalker(int maxObjects, int maxDepth, Predicate<Class<?>> excluded) {
+        this.maxObjects = maxObjects;
+        this.maxDepth = maxDepth;
+        this.excluded = excluded;
+    }
+
+    public GraphSnapshot walk(Collection<?> roots) {
+        return walk(roots, null);
+    }
+
+    /**
+     * @param pool reads the objects of a layer in parallel, null reads them on the calling thread
+     */
+    public GraphSnapshot walk(Collection<?> roots, ForkJoinPool pool) {
+        GraphSnapshot snapshot = new GraphSnapshot();
+        IdentityHashMap<Object, Long> walked = new IdentityHashMap<Object, Long>();
+        List<Object> layer = new ArrayList<Object>();
+        for (Object root : roots) {
+            if (root != null && !isValue(root) && !walked.containsKey(root) && walked.size() < this.maxObjects) {
+                walked.put(root, idOf(root));
+                layer.add(root);
+            }
+        }
+        for (int depth = 0; !layer.isEmpty(); depth++) {
+            List<Object> nextLayer = new ArrayList<Object>();
+            boolean expand = depth < this.maxDepth;
+            for (Content content : read(layer, pool)) {
+                describe(content, snapshot, walked, expand ? nextLayer : null);
+            }
+            layer = nextLayer;
+        }
+        this.ids = walked;
+        return snapshot;
+    }
+
+    private long idOf(Object object) {
+        Long id = this.ids.get(object);
+        return id != null ? id : this.nextId++;
+    }
+
+    private Content[] read(List<Object> layer, ForkJoinPool pool) {
+        Content[] contents = new Content[layer.size()];
+        if (pool == null || contents.length <= SEQUENTIAL_THRESHOLD) {
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = read(layer.get(i));
+            }
+        }
+        else {
+            pool.invoke(new ReadTask(layer, contents, 0, contents.length));
+        }
+        return contents;
+    }
+
+    /**
+     * Reads an object without looking at the state of the walk, so objects can be read in parallel.
+     */
+    private Content read(Object object) {
+        Content content = new Content(object);
+        if (object instanceof Object[]) {
+            content.references = ((Object[]) object).clone();
+        }
+        else if (object instanceof Collection) {
+            content.references = toArray((Collection<?>) object);
+        }
+        else if (object instanceof Map) {
+            Object[] entries = toArray(((Map<?, ?>) object).entrySet());
+            content.references = new Object[entries.length];
+            content.mapValues = new Object[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                content.references[i] = ((Map.Entry<?, ?>) entries[i]).getKey();
+                content.mapValues[i] = ((Map.Entry<?, ?>) entries[i]).getValue();
+            }
+        }
+        else {
+            content.fields = fieldsOf(object.getClass());
+            content.references = new Object[content.fields.length];
+            content.values = new String[content.fields.length];
+            for (int i = 0; i < content.fields.length; i++) {
+                Field field = content.fields[i];
+                Object value;
+                try {
+                    value = field.get(object);
+                }
+                catch (IllegalAccessException e) {
+                    continue;
+                }
+                if (value == null || field.getType().isPrimitive() || isValue(value)) {
+                    content.values[i] = format(value);
+                }
+                else {
+                    content.references[i] = value;
+                }
+            }
+        }
+        return content;
+    }
+
+    private void describe(Content content, GraphSnapshot snapshot, IdentityHashMap<Object, Long> walked, List<Object> nextLayer) {
+        Object object = content.object;
+        long id = walked.get(object);
+        snapshot.addObject(id, object.getClass().getTypeName());
+        if (content.fields != null) {
+            for (int i = 0; i < content.fields.length; i++) {
+                String name = content.fields[i].getName();
+                if (content.values[i] != null) {
+                    snapshot.setValue(id, name, content.values[i]);
+                }
+                else if (content.references[i] != null && !reference(id, name, content.references[i], snapshot, walked, nextLayer)) {
+                    snapshot.setValue(id, name, describeShort(content.references[i]));
+                }
+            }
+        }
+        else if (content.mapValues != null) {
+            snapshot.setValue(id, SIZE_FIELD, String.valueOf(content.references.length));
+            describeElements(id, KEYS_FIELD, content.references, snapshot, walked, nextLayer);
+            describeElements(id, VALUES_FIELD, content.mapValues, snapshot, walked, nextLayer);
+        }
+        else {
+            snapshot.setValue(id, object.getClass().isArray() ? "length" : SIZE_FIELD, String.valueOf(content.references.length));
+            describeElements(id, ELEMENTS_FIELD, content.references, snapshot, walked, nextLayer);
+        }
+    }
+
+    /**
+     * References the walked elements, values and elements beyond the limits are listed in a preview value.
+     */
+    private void describeElements(long id, String field, Object[] elements, GraphSnapshot snapshot, IdentityHashMap<Object, Long> walked, List<Object> nextLayer) {
+        StringBuilder preview = new StringBuilder();
+        int previewCount = 0;
+        for (Object element : elements) {
+            if (element != null && !isValue(element) && reference(id, field, element, snapshot, walked, nextLayer)) {
+                continue;
+            }
+            if (previewCount++ < MAX_PREVIEW_ELEMENTS) {
+                preview.append(preview.length() > 0 ? ", " : "").append(element == null || isValue(element) ? format(element) : describeShort(element));
+            }
+        }
+        if (previewCount > 0) {
+            snapshot.setValue(id, field, "[" + preview + (previewCount > MAX_PREVIEW_ELEMENTS ? ", ..." : "") + "]");
+        }
+    }
+
+    /**
+     * @return false if the target is neither walked nor can be walked any more
+     */
+    private boolean reference(long id, String field, Object target, GraphSnapshot snapshot, IdentityHashMap<Object, Long> walked, List<Object> nextLayer) {
+        Long targetId = walked.get(target);
+        if (targetId == null) {
+            if (nextLayer == null || walked.size() >= this.maxObjects || this.excluded.test(target.getClass())) {
+                return false;
+            }
+            targetId = idOf(target);
+            walked.put(target, targetId);
+            nextLayer.add(target);
+        }
+        snapshot.addReference(id, field, targetId);
+        return true;
+    }
+
+    private static Object[] toArray(Collection<?> collection) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            try {
+                return collection.toArray();
+            }
+            catch (RuntimeException e) { // changed concurrently by the walked program
+                continue;
+            }
+        }
+        return new Object[0];
+    }
+
+    /**
+     * @return the instance fields of a class and its super classes that are open to reflection, hidden fields left out
+     */
+    public Field[] fieldsOf(Class<?> type) {
+        Field[] typeFields = this.fields.get(type);
+        if (typeFields == null) { // may be computed twice by parallel readers, both are equal
+            List<Field> accessible = new ArrayList<Field>();
+            Set<String> names = new HashSet<String>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || !names.add(field.getName())) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        accessible.add(field);
+                    }
+                    catch (RuntimeException e) { // not opened by its module
+                        continue;
+                    }
+                }
+            }
+            typeFields = accessible.toArray(new Field[0]);
+            this.fields.put(type, typeFields);
+        }
+        return typeFields;
+    }
+
+    public static boolean isValue(Object object) {
+        return object instanceof String || object instanceof Number || object instanceof Boolean || object instanceof Character || object instanceof Enum
+               || object instanceof Class || (object.getClass().isArray() && object.getClass().getComponentType().isPrimitive());
+    }
+
+    /**
+     * Formats a value without calling methods of the walked program.
+     */
+    public static String format(Object value) {
+        String text;
+        if (value == null) {
+            return "null";
+        }
+        else if (value instanceof String) {
+            text = "\"" + value + "\"";
+        }
+        else if (value instanceof Character) {
+            text = "'" + value + "'";
+        }
+        else if (value instanceof Enum) {
+            text = ((Enum<?>) value).name();
+        }
+        else if (value instanceof Class) {
+            text = ((Class<?>) value).getName();
+        }
+        else if (value.getClass().isArray()) {
+            StringBuilder elements = new StringBuilder("[");
+            int length = Array.getLength(value);
+            for (int i = 0; i < length && i < MAX_PREVIEW_ELEMENTS; i++) {
+                elements.append(i > 0 ? ", " : "").append(Array.get(value, i));
+            }
+            text = elements.append(length > MAX_PREVIEW_ELEMENTS ? ", ...]" : "]").toString();
+        }
+        else {
+            text = String.valueOf(value);
+        }
+        return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH - 3) + "..." : text;
+    }
+
+    private static String describeShort(Object object) {
+        return object.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(object));
+    }
+
+    /**
+     * What was read from an object: for plain objects the formatted value or referenced object per field, for arrays
+     * and collections the elements, for maps the keys and values.
+     */
+    private static class Content {
+
+        private final Object object;
+        private Field[] fields;
+        private String[] values;
+        private Object[] references;
+        private Object[] mapValues;
+
+        Content(Object object) {
+            this.object = object;
+        }
+    }
+
+    private class ReadTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object> layer;
+        private final Content[] contents;
+        private final int from;
+        private final int to;
+
+        ReadTask(List<Object> layer, Content[] contents, int from, int to) {
+            this.layer = layer;
+            this.contents = contents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.contents[i] = read(this.layer.get(i));
+                }
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new ReadTask(this.layer, this.contents, this.from, mid), new ReadTask(this.layer, this.contents, mid, this.to));
+        }
+    }
+
+}
\ No newline at end of file
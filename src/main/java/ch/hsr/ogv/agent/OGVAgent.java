@@ -0,0 +1,194 @@
+package ch.hsr.ogv.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java agent that streams the object graph of a running program to OGV. Start the program with
+ * <pre>
+ * java -javaagent:ogv.jar=roots=com.example.App.registry+com.example.Cache.INSTANCE,port=7788 ...
+ * </pre>
+ * or load it into a running JVM as agent. The roots are static fields, given as class name and field name and
+ * separated by '+'. The agent listens on the loopback interface; once OGV connects it walks the roots every
+ * {@code interval} milliseconds and sends what changed since the last walk.
+ * <p>
+ * A walk only starts after the previous changes were written. If OGV reads slower than the program changes, writes
+ * block and the agent walks less often, intermediate states are never queued. Only one OGV is served at a time. OGV
+ * sends nothing, the agent waits for the next walk by reading from the connection, so it notices a closed connection
+ * even while nothing changes and the next OGV can connect.
+ * <p>
+ * Options, separated by ',': {@code roots}, {@code port} (default {@value DeltaProtocol#DEFAULT_PORT}),
+ * {@code interval} in milliseconds (default 100), {@code maxObjects} and {@code maxDepth}.
+ */
+public class OGVAgent implements Runnable {
+
+    private final static Logger logger = Logger.getLogger(OGVAgent.class.getName());
+
+    private final Instrumentation instrumentation;
+    private final List<String> roots = new ArrayList<String>();
+    private int port = DeltaProtocol.DEFAULT_PORT;
+    private long intervalMillis = 100;
+    private int maxObjects = HeapWalker.DEFAULT_MAX_OBJECTS;
+    private int maxDepth = HeapWalker.DEFAULT_MAX_DEPTH;
+    private final Map<String, Field> rootFields = new LinkedHashMap<String, Field>(); // resolved once their class is loaded
+    private final Set<String> invalidRoots = new HashSet<String>();
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        start(args, instrumentation);
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        start(args, instrumentation);
+    }
+
+    private static void start(String args, Instrumentation instrumentation) {
+        OGVAgent agent = new OGVAgent(args, instrumentation);
+        Thread thread = new Thread(agent, "OGV agent");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    OGVAgent(String args, Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        if (args == null) {
+            return;
+        }
+        for (String option : args.split(",")) {
+            int separator = option.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = option.substring(0, separator).trim();
+            String value = option.substring(separator + 1).trim();
+            try {
+                switch (key) {
+                    case "roots":
+                        for (String root : value.split("\\+")) {
+                            if (!root.trim().isEmpty()) {
+                                this.roots.add(root.trim());
+                            }
+                        }
+                        break;
+                    case "port":
+                        this.port = Integer.parseInt(value);
+                        break;
+                    case "interval":
+                        this.intervalMillis = Long.parseLong(value);
+                        break;
+                    case "maxObjects":
+                        this.maxObjects = Integer.parseInt(value);
+                        break;
+                    case "maxDepth":
+                        this.maxDepth = Integer.parseInt(value);
+                        break;
+                    default:
+                        logger.warning("Unknown OGV agent option: " + key);
+                }
+            }
+            catch (NumberFormatException e) {
+                logger.warning("Invalid OGV agent option: " + option);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try (ServerSocket serverSocket = new ServerSocket(this.port, 1, InetAddress.getLoopbackAddress())) {
+            logger.info("OGV agent listening on port " + serverSocket.getLocalPort());
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.setTcpNoDelay(true);
+                    stream(socket);
+                }
+                catch (IOException e) {
+                    logger.log(Level.FINE, "OGV disconnected", e);
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "OGV agent could not listen on port " + this.port, e);
+        }
+    }
+
+    private void stream(Socket socket) throws IOException {
+        DeltaWriter writer = new DeltaWriter(socket.getOutputStream());
+        InputStream in = socket.getInputStream();
+        HeapWalker walker = new HeapWalker(this.maxObjects, this.maxDepth);
+        GraphSnapshot sent = new GraphSnapshot();
+        while (!Thread.currentThread().isInterrupted()) {
+            long start = System.nanoTime();
+            GraphSnapshot next = walker.walk(resolveRoots());
+            GraphDelta delta = sent.diff(next);
+            if (!delta.isEmpty()) {
+                writer.write(delta); // blocks while OGV is behind
+            }
+            sent = next;
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, Math.max(1, this.intervalMillis - elapsedMillis)));
+            try {
+                if (in.read() < 0) {
+                    return; // OGV closed the connection
+                }
+            }
+            catch (SocketTimeoutException e) {
+                // still connected, time for the next walk
+            }
+        }
+    }
+
+    private List<Object> resolveRoots() {
+        if (this.rootFields.size() + this.invalidRoots.size() < this.roots.size()) {
+            for (Class<?> loadedClass : this.instrumentation.getAllLoadedClasses()) {
+                for (String root : this.roots) {
+                    int separator = root.lastIndexOf('.');
+                    if (!this.rootFields.containsKey(root) && !this.invalidRoots.contains(root) && separator > 0 && loadedClass.getName().equals(root.substring(0, separator))) {
+                        resolveRoot(root, loadedClass, root.substring(separator + 1));
+                    }
+                }
+            }
+        }
+        List<Object> rootObjects = new ArrayList<Object>();
+        for (Field field : this.rootFields.values()) {
+            try {
+                rootObjects.add(field.get(null));
+            }
+            catch (IllegalAccessException e) {
+                continue;
+            }
+        }
+        return rootObjects;
+    }
+
+    private void resolveRoot(String root, Class<?> rootClass, String fieldName) {
+        try {
+            Field field = rootClass.getDeclaredField(fieldName);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                logger.warning("OGV agent root is not static: " + root);
+                this.invalidRoots.add(root);
+                return;
+            }
+            field.setAccessible(true);
+            this.rootFields.put(root, field);
+        }
+        catch (NoSuchFieldException | RuntimeException e) {
+            logger.warning("OGV agent root not found: " + root);
+            this.invalidRoots.add(root);
+        }
+    }
+
+}
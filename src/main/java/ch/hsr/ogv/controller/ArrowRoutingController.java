@@ -0,0 +1,326 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelBox;
+import ch.hsr.ogv.model.ModelBox.ModelBoxChange;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.Relation.RelationChange;
+import ch.hsr.ogv.util.OrthogonalRouter;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import ch.hsr.ogv.view.Arrow;
+import javafx.application.Platform;
+import javafx.geometry.Point3D;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Draws the arrows between classes as orthogonal routes around the other classes, see {@link OrthogonalRouter}. The
+ * router lives on its own thread: changes of the classes and relations are collected on the FX thread and handed over
+ * in one go, so a class dragged over many frames is routed for its latest position only. Only the routes the change
+ * touches are routed again, the new routes are applied to the arrows as batches on the {@link TimeSlicedScheduler}.
+ */
+public class ArrowRoutingController implements Observer {
+
+    private final static int ARROWS_PER_TASK = 100;
+    private final static double[] REMOVED_BOX = {};
+    private final static int[] REMOVED_ROUTE = {};
+
+    private ModelViewConnector mvConnector;
+    private TimeSlicedScheduler scheduler;
+    private boolean enabled = false;
+    private volatile int generation = 0; // routes of an earlier generation are outdated, the routing was disabled since
+
+    // FX thread
+    private final Map<ModelClass, Integer> boxIds = new HashMap<ModelClass, Integer>();
+    private final Map<Relation, Integer> routeIds = new HashMap<Relation, Integer>();
+    private final Map<Integer, Relation> relations = new HashMap<Integer, Relation>();
+    private int nextId = 0;
+
+    // handed over to the routing thread
+    private final Map<Integer, double[]> pendingBoxes = new ConcurrentHashMap<Integer, double[]>(); // v: center x, z, width, height
+    private final Map<Integer, int[]> pendingRoutes = new ConcurrentHashMap<Integer, int[]>(); // v: start box, end box, number, count
+    private final AtomicBoolean routingQueued = new AtomicBoolean(false);
+    private final ExecutorService routingThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "arrow-routing");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private OrthogonalRouter router = new OrthogonalRouter(); // routing thread
+    private int routerGeneration = 0;
+
+    public void setMVConnector(ModelViewConnector mvConnector) {
+        this.mvConnector = mvConnector;
+    }
+
+    public void setScheduler(TimeSlicedScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Starts routing all arrows between classes, and keeps them routed while the classes change, or draws them
+     * straight again.
+     */
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        ModelManager modelManager = this.mvConnector.getModelManager();
+        if (enabled) {
+            modelManager.addObserver(this);
+            for (ModelClass modelClass : modelManager.getClasses()) {
+                addClass(modelClass);
+            }
+            for (Relation relation : modelManager.getRelations()) {
+                addRelation(relation);
+            }
+            queueRouting();
+            return;
+        }
+        this.generation++;
+        modelManager.deleteObserver(this);
+        for (ModelClass modelClass : this.boxIds.keySet()) {
+            modelClass.deleteObserver(this);
+        }
+        List<Arrow> arrows = new ArrayList<Arrow>();
+        for (Relation relation : this.routeIds.keySet()) {
+            relation.deleteObserver(this);
+            Arrow arrow = this.mvConnector.getArrow(relation);
+            if (arrow != null && arrow.isRouted()) {
+                arrows.add(arrow);
+            }
+        }
+        this.boxIds.clear();
+        this.routeIds.clear();
+        this.relations.clear();
+        this.pendingBoxes.clear();
+        this.pendingRoutes.clear();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int from = 0; from < arrows.size(); from += ARROWS_PER_TASK) {
+            List<Arrow> batch = arrows.subList(from, Math.min(from + ARROWS_PER_TASK, arrows.size()));
+            tasks.add(() -> {
+                for (Arrow arrow : batch) {
+                    arrow.setRoute(null);
+                }
+            });
+        }
+        this.scheduler.submit(tasks);
+    }
+
+    private void addClass(ModelClass modelClass) {
+        if (this.boxIds.containsKey(modelClass)) {
+            return;
+        }
+        int id = this.nextId++;
+        this.boxIds.put(modelClass, id);
+        modelClass.addObserver(this);
+        putBox(modelClass);
+    }
+
+    private void putBox(ModelClass modelClass) {
+        Integer id = this.boxIds.get(modelClass);
+        if (id != null) {
+            this.pendingBoxes.put(id, new double[]{modelClass.getX(), modelClass.getZ(), modelClass.getWidth(), modelClass.getHeight()});
+        }
+    }
+
+    private void removeClass(ModelClass modelClass) {
+        Integer id = this.boxIds.remove(modelClass);
+        if (id != null) {
+            modelClass.deleteObserver(this);
+            this.pendingBoxes.put(id, REMOVED_BOX);
+        }
+    }
+
+    private void addRelation(Relation relation) {
+        ModelBox start = relation.getStart().getAppendant();
+        ModelBox end = relation.getEnd().getAppendant();
+        if (!(start instanceof ModelClass) || !(end instanceof ModelClass) || start == end || this.routeIds.containsKey(relation)) {
+            return; // reflexive arrows are already drawn around their class
+        }
+        int id = this.nextId++;
+        this.routeIds.put(relation, id);
+        this.relations.put(id, relation);
+        relation.addObserver(this);
+        putParallelRoutes(start, end);
+    }
+
+    private void putRoute(Relation relation, int number, int count) {
+        Integer id = this.routeIds.get(relation);
+        Integer start = this.boxIds.get(relation.getStart().getAppendant());
+        Integer end = this.boxIds.get(relation.getEnd().getAppendant());
+        if (id != null && start != null && end != null) {
+            this.pendingRoutes.put(id, new int[]{start, end, number, count});
+        }
+    }
+
+    /**
+     * Puts the routes between the two classes with their number among them, as the straight arrows are arranged, see
+     * {@link ModelViewConnector#arrangeArrowNumbers(ModelBox, ModelBox)}.
+     */
+    private void putParallelRoutes(ModelBox start, ModelBox end) {
+        List<Relation> parallel = new ArrayList<Relation>();
+        for (Relation relation : this.mvConnector.getModelManager().getRelationsBetween(start, end)) {
+            if (this.routeIds.containsKey(relation)) {
+                parallel.add(relation);
+            }
+        }
+        for (int i = 0; i < parallel.size(); i++) {
+            putRoute(parallel.get(i), i + 1, parallel.size());
+        }
+    }
+
+    private void removeRelation(Relation relation) {
+        Integer id = this.routeIds.remove(relation);
+        if (id != null) {
+            relation.deleteObserver(this);
+            this.relations.remove(id);
+            this.pendingRoutes.put(id, REMOVED_ROUTE);
+            putParallelRoutes(relation.getStart().getAppendant(), relation.getEnd().getAppendant());
+        }
+    }
+
+    private void queueRouting() {
+        if (!this.routingQueued.compareAndSet(false, true)) {
+            return; // the queued routing takes these changes as well
+        }
+        this.routingThread.execute(() -> {
+            this.routingQueued.set(false);
+            int routingGeneration = this.generation;
+            if (this.routerGeneration != routingGeneration) { // disabled since, start over
+                this.router = new OrthogonalRouter();
+                this.routerGeneration = routingGeneration;
+            }
+            Map<Integer, double[]> routes = route();
+            if (!routes.isEmpty()) {
+                Platform.runLater(() -> applyRoutes(routes, routingGeneration));
+            }
+        });
+    }
+
+    /**
+     * Hands the pending changes over to the router and routes what they touch, on the routing thread.
+     *
+     * @return the new routes, k: route, v: polyline or null to draw straight
+     */
+    private Map<Integer, double[]> route() {
+        Set<Integer> affected = new TreeSet<Integer>();
+        List<Integer> removedBoxes = new ArrayList<Integer>();
+        for (Integer id : new ArrayList<Integer>(this.pendingBoxes.keySet())) {
+            double[] box = this.pendingBoxes.remove(id);
+            if (box == REMOVED_BOX) {
+                removedBoxes.add(id);
+            }
+            else if (box != null) {
+                affected.addAll(this.router.putBox(id, box[0], box[1], box[2], box[3]));
+            }
+        }
+        for (Integer id : new ArrayList<Integer>(this.pendingRoutes.keySet())) {
+            int[] route = this.pendingRoutes.remove(id);
+            if (route == REMOVED_ROUTE) {
+                this.router.removeRoute(id);
+                affected.remove(id);
+            }
+            else if (route != null) {
+                this.router.addRoute(id, route[0], route[1], route[2], route[3]);
+                affected.add(id);
+            }
+        }
+        for (Integer id : removedBoxes) {
+            affected.addAll(this.router.removeBox(id));
+        }
+        Map<Integer, double[]> routes = new HashMap<Integer, double[]>();
+        for (Integer id : affected) {
+            routes.put(id, this.router.route(id));
+        }
+        return routes;
+    }
+
+    private void applyRoutes(Map<Integer, double[]> routes, int routingGeneration) {
+        if (routingGeneration != this.generation) {
+            return;
+        }
+        List<Map.Entry<Integer, double[]>> entries = new ArrayList<Map.Entry<Integer, double[]>>(routes.entrySet());
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int from = 0; from < entries.size(); from += ARROWS_PER_TASK) {
+            List<Map.Entry<Integer, double[]>> batch = entries.subList(from, Math.min(from + ARROWS_PER_TASK, entries.size()));
+            tasks.add(() -> {
+                if (routingGeneration != this.generation) {
+                    return;
+                }
+                for (Map.Entry<Integer, double[]> entry : batch) {
+                    Relation relation = this.relations.get(entry.getKey());
+                    Arrow arrow = relation != null ? this.mvConnector.getArrow(relation) : null;
+                    if (arrow != null) {
+                        arrow.setRoute(toPoints(entry.getValue(), arrow.getStartPoint().getY()));
+                    }
+                }
+            });
+        }
+        this.scheduler.submit(tasks);
+    }
+
+    private static List<Point3D> toPoints(double[] polyline, double y) {
+        if (polyline == null) {
+            return null;
+        }
+        List<Point3D> points = new ArrayList<Point3D>(polyline.length / 2);
+        for (int i = 0; i < polyline.length; i += 2) {
+            points.add(new Point3D(polyline[i], y, polyline[i + 1]));
+        }
+        return points;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        if (o instanceof ModelManager && arg instanceof ModelClass) {
+            ModelClass modelClass = (ModelClass) arg;
+            if (this.mvConnector.getModelManager().getClasses().contains(modelClass)) {
+                addClass(modelClass);
+            }
+            else {
+                removeClass(modelClass);
+            }
+            queueRouting();
+        }
+        else if (o instanceof ModelManager && arg instanceof Relation) {
+            Relation relation = (Relation) arg;
+            if (this.mvConnector.getModelManager().getRelations().contains(relation)) {
+                addRelation(relation);
+            }
+            else {
+                removeRelation(relation);
+            }
+            queueRouting();
+        }
+        else if (o instanceof ModelClass && arg instanceof ModelBoxChange) {
+            ModelBoxChange change = (ModelBoxChange) arg;
+            if (ModelBoxChange.COORDINATES.equals(change) || ModelBoxChange.WIDTH.equals(change) || ModelBoxChange.HEIGHT.equals(change)) {
+                putBox((ModelClass) o);
+                queueRouting();
+            }
+        }
+        else if (o instanceof Relation && RelationChange.DIRECTION.equals(arg)) {
+            Relation relation = (Relation) o;
+            putParallelRoutes(relation.getStart().getAppendant(), relation.getEnd().getAppendant()); // start and end may have been swapped
+            queueRouting();
+        }
+    }
+
+}
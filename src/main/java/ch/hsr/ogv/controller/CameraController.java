@@ -3,12 +3,17 @@ package ch.hsr.ogv.controller;
 import ch.hsr.ogv.view.SubSceneAdapter;
 import ch.hsr.ogv.view.SubSceneCamera;
 import ch.hsr.ogv.view.Xform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.scene.PerspectiveCamera;
 
 import java.util.Observable;
 import java.util.Observer;
 
 public class CameraController implements Observer {
 
+    private final static double MIN_FIT_DISTANCE = 300.0;
+
     private RotationCamera rotationCamera = new RotationCamera();
 
     private CameraBase baseCamera = rotationCamera;
@@ -35,6 +40,34 @@ public class CameraController implements Observer {
         ssCamera.get().setTranslateZ(-SubSceneCamera.CAMERA_DISTANCE);
     }
 
+    /**
+     * Moves the camera along its current orientation, so that the given bounds fill the view.
+     *
+     * @param ssCamera the camera to move
+     * @param bounds bounds in world coordinates
+     * @param aspectRatio width divided by height of the subscene
+     */
+    public void handleZoomToFit(SubSceneCamera ssCamera, Bounds bounds, double aspectRatio) {
+        PerspectiveCamera camera = ssCamera.get();
+        Point3D center = new Point3D((bounds.getMinX() + bounds.getMaxX()) / 2, (bounds.getMinY() + bounds.getMaxY()) / 2, (bounds.getMinZ() + bounds.getMaxZ()) / 2);
+        double radius = new Point3D(bounds.getWidth(), bounds.getHeight(), bounds.getDepth()).magnitude() / 2;
+        double halfFov = Math.toRadians(camera.getFieldOfView() / 2);
+        double otherHalfFov = camera.isVerticalFieldOfView() ? Math.atan(Math.tan(halfFov) * aspectRatio) : Math.atan(Math.tan(halfFov) / aspectRatio);
+        double distance = Math.max(radius / Math.sin(Math.min(halfFov, otherHalfFov)), MIN_FIT_DISTANCE);
+
+        Point3D eye = camera.localToScene(0, 0, 0);
+        Point3D forward = camera.localToScene(0, 0, 1).subtract(eye);
+        Point3D targetEye = center.subtract(forward.multiply(distance));
+
+        // express the eye movement in the rotated frame, in which the camera is translated
+        Xform cameraXform = ssCamera.getCameraXform();
+        Point3D delta = cameraXform.sceneToLocal(targetEye).subtract(cameraXform.sceneToLocal(eye));
+        Xform cameraXform2 = ssCamera.getCameraXform2();
+        cameraXform2.t.setX(cameraXform2.t.getX() + delta.getX());
+        cameraXform2.t.setY(cameraXform2.t.getY() + delta.getY());
+        camera.setTranslateZ(camera.getTranslateZ() + delta.getZ());
+    }
+
     public void handleLockedTopView(SubSceneCamera ssCamera, boolean isLockedTopView) {
         Xform cameraXform = ssCamera.getCameraXform();
         if (isLockedTopView) {
@@ -0,0 +1,350 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelBox;
+import ch.hsr.ogv.model.ModelBox.ModelBoxChange;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.view.Arrow;
+import ch.hsr.ogv.view.PaneBox;
+import javafx.geometry.Point3D;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+
+/**
+ * Executes the text commands of the {@link CommandServer} on the {@link ModelManager}. One command per line, tokens
+ * separated by white space:
+ * <pre>
+ * create class &lt;class&gt; [&lt;x&gt; &lt;z&gt;]
+ * create object &lt;class&gt; &lt;object&gt;
+ * create attribute &lt;class&gt; &lt;attribute&gt;
+ * delete class &lt;class&gt;
+ * delete object &lt;class&gt; &lt;object&gt;
+ * set &lt;class&gt; &lt;object&gt; &lt;attribute&gt; &lt;value, rest of the line&gt;
+ * connect &lt;relation type&gt; &lt;class or class:object&gt; &lt;class or class:object&gt; [&lt;end role&gt;]
+ * clear
+ * </pre>
+ * Every command is answered with one line, "ok" or "error" followed by the reason. Classes and objects are found by
+ * name through an index, so a command takes constant time no matter how large the model is. The index is rebuilt when
+ * boxes are created, deleted or renamed in the UI.
+ * <p>
+ * Must be used on the FX thread.
+ */
+public class CommandInterpreter implements Observer {
+
+    private final static Logger logger = LoggerFactory.getLogger(CommandInterpreter.class);
+
+    private final static double CLASS_SPACING = 300.0;
+    private final static int CLASS_COLUMNS = 10;
+
+    private final ModelManager modelManager;
+    private final Map<String, ModelClass> classes = new HashMap<String, ModelClass>(); // k: class name
+    private final Map<ModelClass, Map<String, ModelObject>> objects = new HashMap<ModelClass, Map<String, ModelObject>>(); // k: object name
+    private boolean executing = false;
+    private boolean indexStale = true;
+    private int createdClasses = 0;
+
+    public CommandInterpreter(ModelManager modelManager) {
+        this.modelManager = modelManager;
+        this.modelManager.addObserver(this);
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        if (o instanceof ModelBox) {
+            if (arg == ModelBoxChange.NAME && !this.executing) {
+                this.indexStale = true; // renamed in the UI
+            }
+            return;
+        }
+        if (arg instanceof ModelBox) {
+            ModelBox modelBox = (ModelBox) arg;
+            if (modelBox.hasGeometryId()) { // added, deleted boxes have none
+                modelBox.addObserver(this);
+            }
+            else {
+                modelBox.deleteObserver(this);
+            }
+        }
+        if (!this.executing) {
+            this.indexStale = true; // changed in the UI, names may no longer match
+        }
+    }
+
+    /**
+     * @return the response line, without line break
+     */
+    public String execute(String line) {
+        this.executing = true;
+        try {
+            return run(line);
+        }
+        catch (CommandException e) {
+            return "error " + e.getMessage();
+        }
+        catch (RuntimeException e) {
+            logger.warn("Command failed: " + line, e);
+            return "error " + oneLine(e);
+        }
+        finally {
+            this.executing = false;
+        }
+    }
+
+    /**
+     * Executes the commands in order and stops at the first failing one. Commands before it stay executed.
+     *
+     * @return "ok" with the number of commands, or "error" with the number of the failing command and the reason
+     */
+    public String executeBatch(List<String> lines) {
+        this.executing = true;
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                try {
+                    run(lines.get(i));
+                }
+                catch (CommandException e) {
+                    return "error " + (i + 1) + ": " + e.getMessage();
+                }
+                catch (RuntimeException e) {
+                    logger.warn("Command failed: " + lines.get(i), e);
+                    return "error " + (i + 1) + ": " + oneLine(e);
+                }
+            }
+            return "ok " + lines.size();
+        }
+        finally {
+            this.executing = false;
+        }
+    }
+
+    private String run(String line) throws CommandException {
+        String[] tokens = line.trim().split("\\s+");
+        switch (tokens[0].toLowerCase(Locale.ENGLISH)) {
+            case "create":
+                expect(tokens, 3, "create class|object|attribute ...");
+                return create(tokens);
+            case "delete":
+                expect(tokens, 3, "delete class|object ...");
+                return delete(tokens);
+            case "set":
+                return set(line);
+            case "connect":
+                expect(tokens, 4, "connect <relation type> <start> <end> [<end role>]");
+                return connect(tokens);
+            case "clear":
+                this.modelManager.clearClasses();
+                this.modelManager.clearRelations();
+                this.classes.clear();
+                this.objects.clear();
+                return "ok";
+            default:
+                throw new CommandException("unknown command: " + tokens[0]);
+        }
+    }
+
+    private static void expect(String[] tokens, int minimum, String usage) throws CommandException {
+        if (tokens.length < minimum) {
+            throw new CommandException("usage: " + usage);
+        }
+    }
+
+    private String create(String[] tokens) throws CommandException {
+        switch (tokens[1]) {
+            case "class":
+                if (findClass(tokens[2]) != null) {
+                    throw new CommandException("class exists: " + tokens[2]);
+                }
+                Point3D position;
+                if (tokens.length >= 5) {
+                    position = new Point3D(parseDouble(tokens[3]), ModelViewConnector.BASE_BOX_DEPTH, parseDouble(tokens[4]));
+                }
+                else {
+                    position = new Point3D((this.createdClasses % CLASS_COLUMNS) * CLASS_SPACING, ModelViewConnector.BASE_BOX_DEPTH, (this.createdClasses / CLASS_COLUMNS) * CLASS_SPACING);
+                }
+                this.createdClasses++;
+                ModelClass modelClass = this.modelManager.createClass(position, PaneBox.MIN_WIDTH, PaneBox.MIN_HEIGHT, PaneBox.DEFAULT_COLOR);
+                modelClass.setName(tokens[2]);
+                this.classes.put(tokens[2], modelClass);
+                return "ok";
+            case "object":
+                expect(tokens, 4, "create object <class> <object>");
+                ModelClass objectClass = getClass(tokens[2]);
+                if (findObject(objectClass, tokens[3]) != null) {
+                    throw new CommandException("object exists: " + tokens[2] + ":" + tokens[3]);
+                }
+                ModelObject modelObject = this.modelManager.createObject(objectClass);
+                modelObject.setName(tokens[3]);
+                objectsOf(objectClass).put(tokens[3], modelObject);
+                return "ok";
+            case "attribute":
+                expect(tokens, 4, "create attribute <class> <attribute>");
+                ModelClass attributeClass = getClass(tokens[2]);
+                if (this.modelManager.isAttributeNameTaken(attributeClass, tokens[3])) {
+                    throw new CommandException("attribute exists: " + tokens[2] + "." + tokens[3]);
+                }
+                attributeClass.createAttribute(tokens[3]);
+                return "ok";
+            default:
+                throw new CommandException("cannot create " + tokens[1]);
+        }
+    }
+
+    private String delete(String[] tokens) throws CommandException {
+        switch (tokens[1]) {
+            case "class":
+                ModelClass modelClass = getClass(tokens[2]);
+                this.modelManager.deleteClass(modelClass);
+                this.classes.remove(tokens[2]);
+                this.objects.remove(modelClass);
+                return "ok";
+            case "object":
+                expect(tokens, 4, "delete object <class> <object>");
+                ModelClass objectClass = getClass(tokens[2]);
+                this.modelManager.deleteObject(getObject(objectClass, tokens[3]));
+                objectsOf(objectClass).remove(tokens[3]);
+                return "ok";
+            default:
+                throw new CommandException("cannot delete " + tokens[1]);
+        }
+    }
+
+    private String set(String line) throws CommandException {
+        String[] tokens = line.trim().split("\\s+", 5);
+        expect(tokens, 4, "set <class> <object> <attribute> <value>");
+        ModelClass modelClass = getClass(tokens[1]);
+        ModelObject modelObject = getObject(modelClass, tokens[2]);
+        if (!this.modelManager.isAttributeNameTaken(modelClass, tokens[3])) {
+            modelClass.createAttribute(tokens[3]);
+        }
+        modelObject.changeAttributeValue(tokens[3], tokens.length > 4 ? tokens[4] : "");
+        return "ok";
+    }
+
+    private String connect(String[] tokens) throws CommandException {
+        RelationType relationType;
+        try {
+            relationType = RelationType.valueOf(tokens[1].toUpperCase(Locale.ENGLISH));
+        }
+        catch (IllegalArgumentException e) {
+            throw new CommandException("unknown relation type: " + tokens[1]);
+        }
+        ModelBox start = getBox(tokens[2]);
+        ModelBox end = getBox(tokens[3]);
+        if ((start instanceof ModelObject) != (end instanceof ModelObject)) {
+            throw new CommandException("cannot connect a class with an object");
+        }
+        if (!RelationCreationController.checkRelation(this.modelManager, start, end, relationType)) {
+            throw new CommandException("relation not allowed: " + tokens[1] + " " + tokens[2] + " " + tokens[3]);
+        }
+        Relation relation = this.modelManager.createRelation(start, end, relationType, Arrow.DEFAULT_COLOR);
+        if (tokens.length > 4) {
+            relation.setEndRoleName(tokens[4]);
+        }
+        return "ok";
+    }
+
+    private ModelBox getBox(String name) throws CommandException {
+        int separator = name.indexOf(':');
+        if (separator < 0) {
+            return getClass(name);
+        }
+        return getObject(getClass(name.substring(0, separator)), name.substring(separator + 1));
+    }
+
+    private ModelClass getClass(String name) throws CommandException {
+        ModelClass modelClass = findClass(name);
+        if (modelClass == null) {
+            throw new CommandException("no class " + name);
+        }
+        return modelClass;
+    }
+
+    private ModelObject getObject(ModelClass modelClass, String name) throws CommandException {
+        ModelObject modelObject = findObject(modelClass, name);
+        if (modelObject == null) {
+            throw new CommandException("no object " + modelClass.getName() + ":" + name);
+        }
+        return modelObject;
+    }
+
+    private ModelClass findClass(String name) {
+        refreshIndex();
+        ModelClass modelClass = this.classes.get(name);
+        if (modelClass != null && !name.equals(modelClass.getName())) { // renamed in the UI
+            this.indexStale = true;
+            refreshIndex();
+            modelClass = this.classes.get(name);
+        }
+        return modelClass;
+    }
+
+    private ModelObject findObject(ModelClass modelClass, String name) {
+        refreshIndex();
+        ModelObject modelObject = objectsOf(modelClass).get(name);
+        if (modelObject != null && !name.equals(modelObject.getName())) {
+            this.indexStale = true;
+            refreshIndex();
+            modelObject = objectsOf(modelClass).get(name);
+        }
+        return modelObject;
+    }
+
+    private Map<String, ModelObject> objectsOf(ModelClass modelClass) {
+        return this.objects.computeIfAbsent(modelClass, k -> new HashMap<String, ModelObject>());
+    }
+
+    /**
+     * Rebuilds the index after the model was changed other than through commands.
+     */
+    private void refreshIndex() {
+        if (!this.indexStale) {
+            return;
+        }
+        this.classes.clear();
+        this.objects.clear();
+        for (ModelClass modelClass : this.modelManager.getClasses()) {
+            this.classes.putIfAbsent(modelClass.getName(), modelClass);
+            modelClass.addObserver(this); // only once, also for boxes added without a notification, e.g. loaded objects
+            Map<String, ModelObject> classObjects = objectsOf(modelClass);
+            for (ModelObject modelObject : modelClass.getModelObjects()) {
+                classObjects.putIfAbsent(modelObject.getName(), modelObject);
+                modelObject.addObserver(this);
+            }
+        }
+        this.createdClasses = this.modelManager.getClasses().size();
+        this.indexStale = false;
+    }
+
+    private static String oneLine(RuntimeException e) {
+        return e.toString().replaceAll("\\s+", " ");
+    }
+
+    private static double parseDouble(String text) throws CommandException {
+        try {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e) {
+            throw new CommandException("not a number: " + text);
+        }
+    }
+
+    private static class CommandException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        CommandException(String message) {
+            super(message);
+        }
+    }
+
+}
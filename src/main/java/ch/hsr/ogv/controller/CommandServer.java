@@ -0,0 +1,422 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets scripts remote control OGV over a line based protocol on the loopback interface, see
+ * {@link CommandInterpreter} for the commands. Lines between "batch" and "end" form a batch, which is applied in a
+ * single frame and answered with a single line.
+ * <p>
+ * Clients may send commands without waiting for the responses, which come back in the same order. Commands are read
+ * on one thread per connection and run as tasks of the {@link TimeSlicedScheduler}, as many per frame as fit the time
+ * budget. The responses of a frame are written in one go after it. While the FX thread is behind, reading stops once
+ * {@link #MAX_WAITING_REQUESTS} requests wait, and reading from a client stops once {@link #MAX_UNSENT_RESPONSES} of
+ * its responses are not written yet, so the clients are slowed down by TCP flow control. Lines longer than
+ * {@link #MAX_LINE_LENGTH} characters and batches of more than {@link #MAX_BATCH_LINES} lines are answered with an
+ * error instead of being run.
+ */
+public class CommandServer {
+
+    private final static Logger logger = LoggerFactory.getLogger(CommandServer.class);
+
+    public final static int DEFAULT_PORT = 7789;
+    public final static String BATCH_START = "batch";
+    public final static String BATCH_END = "end";
+    private final static int MAX_WAITING_REQUESTS = 10000;
+    private final static int MAX_SCHEDULED_REQUESTS = 5000; // handed to the scheduler at once
+    private final static int MAX_UNSENT_RESPONSES = 10000; // per connection
+    public final static int MAX_LINE_LENGTH = 8192;
+    public final static int MAX_BATCH_LINES = 10000;
+
+    private final CommandInterpreter interpreter;
+    private final TimeSlicedScheduler scheduler;
+    private final Executor fxExecutor;
+    private final BlockingQueue<Request> requests = new ArrayBlockingQueue<Request>(MAX_WAITING_REQUESTS);
+    private final AtomicBoolean transferQueued = new AtomicBoolean(false);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Connection> answered = new LinkedHashSet<Connection>(); // connections with unsent responses
+    private ServerSocket serverSocket;
+    private int scheduled = 0; // requests handed to the scheduler and not run yet, FX thread only
+
+    public CommandServer(ModelManager modelManager, TimeSlicedScheduler scheduler) {
+        this(new CommandInterpreter(modelManager), scheduler, Platform::runLater);
+    }
+
+    /**
+     * @param fxExecutor runs tasks on the thread of the scheduler
+     */
+    CommandServer(CommandInterpreter interpreter, TimeSlicedScheduler scheduler, Executor fxExecutor) {
+        this.interpreter = interpreter;
+        this.scheduler = scheduler;
+        this.fxExecutor = fxExecutor;
+    }
+
+    public boolean isRunning() {
+        return this.serverSocket != null;
+    }
+
+    public int getPort() {
+        return this.serverSocket != null ? this.serverSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * Starts accepting connections, 0 picks a free port.
+     */
+    public void start(int port) throws IOException {
+        stop();
+        ServerSocket newServerSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.serverSocket = newServerSocket;
+        Thread acceptor = new Thread(() -> {
+            while (!newServerSocket.isClosed()) {
+                try {
+                    Socket socket = newServerSocket.accept();
+                    socket.setTcpNoDelay(true);
+                    new Connection(socket).start();
+                }
+                catch (IOException e) {
+                    logger.debug(e.getMessage());
+                }
+            }
+        }, "OGV command server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Closes all connections, commands not run yet are dropped.
+     */
+    public void stop() {
+        if (this.serverSocket == null) {
+            return;
+        }
+        try {
+            this.serverSocket.close();
+        }
+        catch (IOException e) {
+            logger.debug(e.getMessage());
+        }
+        this.serverSocket = null;
+        for (Connection connection : this.connections) {
+            connection.close();
+        }
+        this.requests.clear(); // scheduled requests of closed connections are skipped
+    }
+
+    private void requestTransfer() {
+        if (this.transferQueued.compareAndSet(false, true)) {
+            this.fxExecutor.execute(this::transfer);
+        }
+    }
+
+    /**
+     * Moves waiting requests to the scheduler as one job, on the FX thread. Called again after every slice, so the
+     * scheduler never holds more than {@link #MAX_SCHEDULED_REQUESTS} requests.
+     */
+    private void transfer() {
+        this.transferQueued.set(false);
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        Request request;
+        while (this.scheduled + tasks.size() < MAX_SCHEDULED_REQUESTS && (request = this.requests.poll()) != null) {
+            Request scheduledRequest = request;
+            tasks.add(() -> run(scheduledRequest));
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        this.scheduled += tasks.size();
+        this.scheduler.submit(tasks).setOnProgress(job -> {
+            flushResponses();
+            transfer();
+        }).setOnDone(() -> {
+            flushResponses();
+            transfer();
+        });
+    }
+
+    private void run(Request request) {
+        this.scheduled--;
+        if (request.connection.closed) {
+            return;
+        }
+        this.answered.add(request.connection);
+        if (request.lines == null) {
+            request.connection.inputEnded = true;
+            return;
+        }
+        String response;
+        if (request.error != null) {
+            response = "error " + request.error;
+        }
+        else {
+            response = request.batch ? this.interpreter.executeBatch(request.lines) : this.interpreter.execute(request.lines.get(0));
+        }
+        request.connection.responses.append(response).append('\n');
+        request.connection.responseCount++;
+    }
+
+    private void flushResponses() {
+        for (Connection connection : this.answered) {
+            connection.send();
+        }
+        this.answered.clear();
+    }
+
+    private static class Request {
+
+        private final Connection connection;
+        private final List<String> lines; // null marks the end of the input
+        private final boolean batch;
+        private final String error; // answered instead of running the lines
+
+        Request(Connection connection, List<String> lines, boolean batch) {
+            this(connection, lines, batch, null);
+        }
+
+        Request(Connection connection, List<String> lines, boolean batch, String error) {
+            this.connection = connection;
+            this.lines = lines;
+            this.batch = batch;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Responses of one frame for one connection.
+     */
+    private static class Chunk {
+
+        private final String text; // null stops the writer
+        private final int responses;
+
+        Chunk(String text, int responses) {
+            this.text = text;
+            this.responses = responses;
+        }
+    }
+
+    /**
+     * One client, read and written on threads of its own.
+     */
+    private class Connection {
+
+        private final Socket socket;
+        private final StringBuilder responses = new StringBuilder(); // of the running frame, FX thread only
+        private int responseCount = 0; // in responses, FX thread only
+        // a chunk holds at least one response, plus one for the stop marker
+        private final BlockingQueue<Chunk> outgoing = new ArrayBlockingQueue<Chunk>(MAX_UNSENT_RESPONSES + 1);
+        private final Semaphore unsent = new Semaphore(MAX_UNSENT_RESPONSES); // taken by the reader, given back by the writer
+        private final Thread reader = new Thread(this::read, "OGV command reader");
+        private final Thread writer = new Thread(this::write, "OGV command writer");
+        private volatile boolean closed = false;
+        private boolean inputEnded = false; // FX thread only
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void start() {
+            connections.add(this);
+            this.reader.setDaemon(true);
+            this.reader.start();
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        private void read() {
+            try {
+                // not closed here, closing the stream would close the socket before the responses are written
+                LineReader in = new LineReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+                List<String> batch = null;
+                String batchError = null; // the batch is skipped up to its end
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.trim();
+                    if (command.isEmpty() || command.startsWith("#")) {
+                        continue;
+                    }
+                    String error = in.isTruncated() ? "line longer than " + MAX_LINE_LENGTH + " characters" : null;
+                    if (batch == null && command.equalsIgnoreCase(BATCH_START)) {
+                        batch = new ArrayList<String>();
+                    }
+                    else if (batch != null && command.equalsIgnoreCase(BATCH_END)) {
+                        enqueue(new Request(this, batch, true, batchError));
+                        batch = null;
+                        batchError = null;
+                    }
+                    else if (batch != null) {
+                        if (batchError == null && error != null) {
+                            batchError = (batch.size() + 1) + ": " + error;
+                        }
+                        else if (batchError == null && batch.size() == MAX_BATCH_LINES) {
+                            batchError = "batch longer than " + MAX_BATCH_LINES + " lines";
+                        }
+                        if (batchError != null) {
+                            batch.clear();
+                        }
+                        else {
+                            batch.add(command);
+                        }
+                    }
+                    else {
+                        enqueue(new Request(this, Collections.singletonList(command), false, error));
+                    }
+                }
+                // queued like a command, so the socket is closed only after all responses are sent
+                requests.put(new Request(this, null, false));
+                requestTransfer();
+            }
+            catch (IOException e) {
+                logger.debug(e.getMessage());
+                close();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        }
+
+        private void enqueue(Request request) throws InterruptedException {
+            this.unsent.acquire(); // blocks while the client does not read its responses
+            requests.put(request); // blocks while the FX thread is behind
+            requestTransfer();
+        }
+
+        /**
+         * Hands the responses of this frame to the writer, on the FX thread. Never blocks, the reader does not take
+         * more requests than the queue holds responses.
+         */
+        void send() {
+            if (this.responseCount > 0) {
+                this.outgoing.add(new Chunk(this.responses.toString(), this.responseCount));
+                this.responses.setLength(0);
+                this.responseCount = 0;
+            }
+            if (this.inputEnded) {
+                this.outgoing.add(new Chunk(null, 0));
+            }
+        }
+
+        private void write() {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+                while (!this.closed) {
+                    Chunk chunk = this.outgoing.take();
+                    if (chunk.text == null) {
+                        break;
+                    }
+                    out.write(chunk.text);
+                    if (this.outgoing.isEmpty()) {
+                        out.flush();
+                    }
+                    this.unsent.release(chunk.responses);
+                }
+            }
+            catch (IOException e) {
+                logger.debug(e.getMessage());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+        }
+
+        void close() {
+            this.closed = true;
+            connections.remove(this);
+            try {
+                this.socket.close();
+            }
+            catch (IOException e) {
+                logger.debug(e.getMessage());
+            }
+            // wakes them up if they wait for the queue, the flow control or the FX thread
+            if (Thread.currentThread() != this.writer) {
+                this.writer.interrupt();
+            }
+            if (Thread.currentThread() != this.reader) {
+                this.reader.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads lines of at most {@link #MAX_LINE_LENGTH} characters, the rest of a longer line is skipped.
+     */
+    private static class LineReader {
+
+        private final Reader in;
+        private final char[] buffer = new char[1 << 13];
+        private final StringBuilder line = new StringBuilder();
+        private int position = 0;
+        private int limit = 0;
+        private boolean truncated = false;
+
+        LineReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next line without line break, or null at the end of the input
+         */
+        String readLine() throws IOException {
+            this.line.setLength(0);
+            this.truncated = false;
+            while (true) {
+                if (this.position == this.limit) {
+                    this.limit = this.in.read(this.buffer);
+                    this.position = 0;
+                    if (this.limit <= 0) {
+                        this.limit = 0;
+                        return this.line.length() > 0 || this.truncated ? this.line.toString() : null;
+                    }
+                }
+                int start = this.position;
+                while (this.position < this.limit && this.buffer[this.position] != '\n') {
+                    this.position++;
+                }
+                int length = Math.min(this.position - start, MAX_LINE_LENGTH - this.line.length());
+                this.line.append(this.buffer, start, length);
+                if (length < this.position - start) {
+                    this.truncated = true;
+                }
+                if (this.position < this.limit) {
+                    this.position++; // the line break
+                    return this.line.toString();
+                }
+            }
+        }
+
+        /**
+         * @return whether the last line was longer than {@link #MAX_LINE_LENGTH} characters and is cut
+         */
+        boolean isTruncated() {
+            return this.truncated;
+        }
+    }
+
+}
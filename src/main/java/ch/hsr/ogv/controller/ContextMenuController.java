@@ -13,7 +13,6 @@ import javafx.scene.control.*;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.input.PickResult;
 import javafx.scene.shape.Box;
 
 import java.util.Observable;
@@ -23,6 +22,7 @@ public class ContextMenuController extends Observable implements Observer {
 
     private ModelViewConnector mvConnector;
     private RelationCreationController relationCreationController;
+    private ReferenceQueryController referenceQueryController;
 
     private volatile Selectable selected;
     private volatile Point3D position;
@@ -30,6 +30,9 @@ public class ContextMenuController extends Observable implements Observer {
     // Subscene
     private ContextMenu subSceneCM;
     private MenuItem createClass;
+    private MenuItem allUnreachable;
+    private MenuItem referenceCycles;
+    private MenuItem clearHighlights;
 
     // Class
     private ContextMenu classCM;
@@ -68,6 +71,12 @@ public class ContextMenuController extends Observable implements Observer {
     private MenuItem createObjectRelation;
     private MenuItem deleteObject;
 
+    // Reference Query (Object)
+    private MenuItem reachableObjects;
+    private MenuItem setPathStart;
+    private MenuItem shortestPath;
+    private MenuItem unreachableObjects;
+
     // Value (Attribute)
     private MenuItem setValue;
     private MenuItem deleteValue;
@@ -80,6 +89,10 @@ public class ContextMenuController extends Observable implements Observer {
         this.relationCreationController = relationCreationProcess;
     }
 
+    public void setReferenceQueryController(ReferenceQueryController referenceQueryController) {
+        this.referenceQueryController = referenceQueryController;
+    }
+
     private void atLineSelectionHelper() {
         this.atLineSelectionHelper = true;
         this.atStartSelectionHelper = false;
@@ -107,6 +120,10 @@ public class ContextMenuController extends Observable implements Observer {
         // Subscene
         subSceneCM = new ContextMenu();
         createClass = getMenuItem("Create Class", Resource.CLASS_GIF, subSceneCM);
+        subSceneCM.getItems().add(new SeparatorMenuItem());
+        allUnreachable = getMenuItem("Unreachable Objects", Resource.OBJECT_GIF, subSceneCM);
+        referenceCycles = getMenuItem("Reference Cycles", Resource.CHANGE_DIRECTION_GIF, subSceneCM);
+        clearHighlights = getMenuItem("Clear Highlights", Resource.DELETE_PNG, subSceneCM);
 
         // Class
         classCM = new ContextMenu();
@@ -126,6 +143,7 @@ public class ContextMenuController extends Observable implements Observer {
         objectCM = new ContextMenu();
         renameObject = getMenuItem("Rename Object", Resource.RENAME_GIF, objectCM);
         createObjectRelation = getMenuItem("Object Relation", Resource.OBJRELATION_GIF, objectCM);
+        getReferenceQueryMenu("Query References", Resource.RELATION_GIF, objectCM);
         objectCM.getItems().add(new SeparatorMenuItem());
         setValue = getMenuItem("Set Value", Resource.RENAME_ATTR_GIF, objectCM);
         deleteValue = getMenuItem("Delete Value", Resource.DELETE_PNG, objectCM);
@@ -164,12 +182,25 @@ public class ContextMenuController extends Observable implements Observer {
         return relationMenu;
     }
 
+    private Menu getReferenceQueryMenu(String title, Resource image, ContextMenu parent) {
+        Menu queryMenu = new Menu(title);
+        queryMenu.setGraphic(getImageView(image));
+
+        reachableObjects = getMenuItem("Reachable Objects", Resource.DIRECTED_ASSOCIATION_GIF, queryMenu);
+        unreachableObjects = getMenuItem("Unreachable Objects", Resource.OBJECT_GIF, queryMenu);
+        queryMenu.getItems().add(new SeparatorMenuItem());
+        setPathStart = getMenuItem("Set Path Start", Resource.OBJRELATION_GIF, queryMenu);
+        shortestPath = getMenuItem("Shortest Path from Start", Resource.OBJRELATION_GIF, queryMenu);
+        parent.getItems().add(queryMenu);
+        return queryMenu;
+    }
+
     public void enableContextMenu(SubSceneAdapter subSceneAdapter) {
         subSceneAdapter.getFloor().addEventHandler(MouseEvent.MOUSE_CLICKED, (MouseEvent me) -> {
             if (subSceneAdapter.getFloor().isSelected() && me.getButton() == MouseButton.SECONDARY && me.isStillSincePress()) {
-                PickResult pick = me.getPickResult();
-                if (pick != null && pick.getIntersectedNode() != null && subSceneAdapter.getFloor().hasTile(pick.getIntersectedNode())) {
-                    this.position = pick.getIntersectedNode().localToParent(pick.getIntersectedPoint());
+                Point3D floorPoint = subSceneAdapter.getFloor().getFloorPoint(me.getPickResult());
+                if (floorPoint != null) {
+                    this.position = floorPoint;
                 }
                 subSceneCM.hide();
                 subSceneCM.show(subSceneAdapter.getFloor(), me.getScreenX(), me.getScreenY());
@@ -210,6 +241,7 @@ public class ContextMenuController extends Observable implements Observer {
                     hideAllContextMenus();
                     setValue.setDisable(true);
                     deleteValue.setDisable(true);
+                    enableReferenceQuery(modelObject);
                     objectCM.show(paneBox.get(), me.getScreenX(), me.getScreenY());
                 }
             }
@@ -228,6 +260,7 @@ public class ContextMenuController extends Observable implements Observer {
                     hideAllContextMenus();
                     setValue.setDisable(true);
                     deleteValue.setDisable(true);
+                    enableReferenceQuery((ModelObject) modelBox);
                     objectCM.show(paneBox.get(), me.getScreenX(), me.getScreenY());
                 }
             }
@@ -262,6 +295,7 @@ public class ContextMenuController extends Observable implements Observer {
                 else if (modelBox instanceof ModelObject) { // Label on Object
                     setValue.setDisable(false);
                     deleteValue.setDisable(false);
+                    enableReferenceQuery((ModelObject) modelBox);
                     objectCM.show(paneBox.get(), me.getScreenX(), me.getScreenY());
                 }
                 me.consume();
@@ -385,6 +419,21 @@ public class ContextMenuController extends Observable implements Observer {
         relationCM.hide();
     }
 
+    private void enableReferenceQuery(ModelObject modelObject) {
+        if (this.referenceQueryController == null) {
+            reachableObjects.setDisable(true);
+            unreachableObjects.setDisable(true);
+            setPathStart.setDisable(true);
+            shortestPath.setDisable(true);
+            return;
+        }
+        boolean disable = modelObject.isSuperObject();
+        reachableObjects.setDisable(disable);
+        unreachableObjects.setDisable(disable);
+        setPathStart.setDisable(disable);
+        shortestPath.setDisable(disable || !this.referenceQueryController.hasPathStart());
+    }
+
     private void enableAttributeSelected(boolean isAttributeActive) {
         renameAttribute.setDisable(!isAttributeActive);
         moveAttributeUp.setDisable(!isAttributeActive);
@@ -407,6 +456,16 @@ public class ContextMenuController extends Observable implements Observer {
             }
         });
 
+        allUnreachable.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleUnreachable(null);
+        });
+        referenceCycles.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleReferenceCycles();
+        });
+        clearHighlights.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.clearHighlights();
+        });
+
         // Class
         createObject.setOnAction((ActionEvent e) -> {
             PaneBox newPaneBox = this.mvConnector.handleCreateNewObject(selected);
@@ -494,6 +553,20 @@ public class ContextMenuController extends Observable implements Observer {
             mvConnector.handleDelete(selected);
         });
 
+        // Reference Query (Object)
+        reachableObjects.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleReachable(selected);
+        });
+        unreachableObjects.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleUnreachable(selected);
+        });
+        setPathStart.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleSetPathStart(selected);
+        });
+        shortestPath.setOnAction((ActionEvent e) -> {
+            this.referenceQueryController.handleShortestPath(selected);
+        });
+
         // Relation
         changeDirection.setOnAction((ActionEvent e) -> {
             mvConnector.handleChangeDirection(selected);
@@ -40,11 +40,9 @@ public class DragMoveController extends DragController {
                 if (modelBox instanceof ModelClass) {
                     Floor floor = subSceneAdapter.getFloor();
                     subSceneAdapter.getSubScene().setCursor(Cursor.MOVE);
-                    PickResult pick = me.getPickResult();
-                    if (pick != null && pick.getIntersectedNode() != null && floor.hasTile(pick.getIntersectedNode())) {
-                        Point3D coords = pick.getIntersectedNode().localToParent(pick.getIntersectedPoint());
-                        Point3D classCoordinates = new Point3D(coords.getX() - origRelMouseX, modelBox.getY(), coords.getZ() - origRelMouseZ);
-                        modelBox.setCoordinates(classCoordinates);
+                    Point3D coords = floor.getFloorPoint(me.getPickResult());
+                    if (coords != null) {
+                        modelBox.setXZ(coords.getX() - origRelMouseX, coords.getZ() - origRelMouseZ);
                     }
                 }
                 else if (modelBox instanceof ModelObject) {
@@ -62,8 +60,7 @@ public class DragMoveController extends DragController {
                         if (newY < ModelClass.OBJECT_LEVEL_DIFF) {
                             newY = ModelClass.OBJECT_LEVEL_DIFF;
                         }
-                        Point3D objectCoordinates = new Point3D(modelBox.getX(), newY, modelBox.getZ());
-                        modelBox.setCoordinates(objectCoordinates);
+                        modelBox.setY(newY);
                         verticalHelper.setDimension(paneBox);
                     }
                 }
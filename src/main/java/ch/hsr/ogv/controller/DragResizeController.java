@@ -9,7 +9,6 @@ import javafx.scene.Cursor;
 import javafx.scene.Group;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.input.PickResult;
 
 public class DragResizeController extends DragController {
 
@@ -60,9 +59,8 @@ public class DragResizeController extends DragController {
             setDragInProgress(subSceneAdapter, true);
             if (MouseButton.PRIMARY.equals(me.getButton())) {
                 subSceneAdapter.getSubScene().setCursor(direction);
-                PickResult pick = me.getPickResult();
-                if (pick != null && pick.getIntersectedNode() != null && floor.hasTile(pick.getIntersectedNode())) {
-                    Point3D coords = pick.getIntersectedNode().localToParent(pick.getIntersectedPoint());
+                Point3D coords = floor.getFloorPoint(me.getPickResult());
+                if (coords != null) {
                     if (Cursor.N_RESIZE.equals(direction)) {
                         northResize(modelBox, paneBox, coords);
                     }
@@ -0,0 +1,227 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelBox;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.util.ForceLayout;
+import ch.hsr.ogv.util.LayeredLayout;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import ch.hsr.ogv.util.TimeSlicedScheduler.Job;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Point3D;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lays out the classes of the model automatically. The layout is computed on a background thread from a copy of the
+ * positions and sizes, then the classes move to their new positions in a few steps, each step as batches of
+ * setCoordinates on the {@link TimeSlicedScheduler}, so the frame rate holds even for thousands of classes. Objects
+ * follow their classes.
+ */
+public class LayoutController {
+
+    private final static int ANIMATION_STEPS = 10;
+    private final static int BOXES_PER_TASK = 200;
+
+    private ModelViewConnector mvConnector;
+    private TimeSlicedScheduler scheduler;
+    private Job moveJob;
+    private final Map<ModelClass, Point3D> layered = new HashMap<ModelClass, Point3D>(); // positions of the last hierarchical layout
+
+    public void setMVConnector(ModelViewConnector mvConnector) {
+        this.mvConnector = mvConnector;
+    }
+
+    public void setScheduler(TimeSlicedScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public boolean isRunning() {
+        return this.moveJob != null && !this.moveJob.isDone() && !this.moveJob.isCancelled();
+    }
+
+    /**
+     * Lays out the classes with the {@link ForceLayout}, connected classes close to each other.
+     *
+     * @param onDone called on the FX thread when the classes reached their new positions
+     */
+    public void forceLayout(Runnable onDone) {
+        ModelManager modelManager = this.mvConnector.getModelManager();
+        List<ModelClass> classes = new ArrayList<ModelClass>(modelManager.getClasses());
+        Map<ModelBox, Integer> indexes = new HashMap<ModelBox, Integer>();
+        ForceLayout layout = new ForceLayout(classes.size());
+        Bounds bounds = new Bounds(classes);
+        for (int i = 0; i < classes.size(); i++) {
+            indexes.put(classes.get(i), i);
+            layout.setBox(i, bounds.x[i], bounds.z[i], bounds.width[i], bounds.height[i]);
+        }
+        for (Relation relation : modelManager.getRelations()) {
+            Integer start = indexes.get(relation.getStart().getAppendant());
+            Integer end = indexes.get(relation.getEnd().getAppendant());
+            if (start != null && end != null) {
+                layout.addEdge(start, end);
+            }
+        }
+        Task<Void> layoutTask = new Task<Void>() {
+            @Override
+            public Void call() {
+                layout.run(ForkJoinPool.commonPool(), ForceLayout.DEFAULT_MAX_ITERATIONS);
+                double[] x = new double[classes.size()];
+                double[] z = new double[classes.size()];
+                for (int i = 0; i < x.length; i++) {
+                    x[i] = layout.getX(i);
+                    z[i] = layout.getZ(i);
+                }
+                Platform.runLater(() -> moveTo(classes, x, z, onDone));
+                return null;
+            }
+        };
+        Thread thread = new Thread(layoutTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Lays out the classes with the {@link LayeredLayout}, super classes above their sub classes. Classes still where
+     * the last hierarchical layout put them stay there, only the others are placed, e.g. a class added since. If all
+     * classes are still there, all are laid out again.
+     *
+     * @param onDone called on the FX thread when the classes reached their new positions
+     */
+    public void hierarchicalLayout(Runnable onDone) {
+        ModelManager modelManager = this.mvConnector.getModelManager();
+        List<ModelClass> classes = new ArrayList<ModelClass>(modelManager.getClasses());
+        Map<ModelBox, Integer> indexes = new HashMap<ModelBox, Integer>();
+        LayeredLayout layout = new LayeredLayout(classes.size());
+        boolean[] pinned = new boolean[classes.size()];
+        int pinnedCount = 0;
+        Bounds bounds = new Bounds(classes);
+        for (int i = 0; i < classes.size(); i++) {
+            ModelClass modelClass = classes.get(i);
+            indexes.put(modelClass, i);
+            layout.setBox(i, bounds.x[i], bounds.z[i], bounds.width[i], bounds.height[i]);
+            Point3D laidOut = this.layered.get(modelClass);
+            pinned[i] = laidOut != null && laidOut.getX() == bounds.x[i] && laidOut.getZ() == bounds.z[i];
+            pinnedCount += pinned[i] ? 1 : 0;
+        }
+        // if nothing changed since the last layout, nothing is pinned and all classes are laid out again from scratch
+        if (pinnedCount < classes.size()) {
+            for (int i = 0; i < pinned.length; i++) {
+                layout.setPinned(i, pinned[i]);
+            }
+        }
+        for (Relation relation : modelManager.getRelations()) {
+            Integer start = indexes.get(relation.getStart().getAppendant());
+            Integer end = indexes.get(relation.getEnd().getAppendant());
+            if (start == null || end == null) {
+                continue;
+            }
+            if (RelationType.GENERALIZATION.equals(relation.getRelationType())) {
+                layout.addGeneralization(start, end);
+            }
+            else {
+                layout.addAssociation(start, end);
+            }
+        }
+        Task<Void> layoutTask = new Task<Void>() {
+            @Override
+            public Void call() {
+                layout.run(ForkJoinPool.commonPool());
+                double[] x = new double[classes.size()];
+                double[] z = new double[classes.size()];
+                for (int i = 0; i < x.length; i++) {
+                    x[i] = layout.getX(i);
+                    z[i] = layout.getZ(i);
+                }
+                Platform.runLater(() -> {
+                    layered.clear();
+                    for (int i = 0; i < x.length; i++) {
+                        layered.put(classes.get(i), new Point3D(x[i], classes.get(i).getY(), z[i]));
+                    }
+                    moveTo(classes, x, z, onDone);
+                });
+                return null;
+            }
+        };
+        Thread thread = new Thread(layoutTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Moves the boxes from where they are now to the given positions, on the FX thread. Boxes deleted while the layout
+     * ran, e.g. because a file was loaded meanwhile, are left out.
+     */
+    void moveTo(List<? extends ModelBox> laidOut, double[] laidOutX, double[] laidOutZ, Runnable onDone) {
+        cancel();
+        List<ModelBox> boxes = new ArrayList<ModelBox>(laidOut.size());
+        double[] x = new double[laidOut.size()];
+        double[] z = new double[laidOut.size()];
+        for (int i = 0; i < laidOut.size(); i++) {
+            ModelBox box = laidOut.get(i);
+            if (box.hasGeometryId()) {
+                x[boxes.size()] = laidOutX[i];
+                z[boxes.size()] = laidOutZ[i];
+                boxes.add(box);
+            }
+        }
+        Bounds from = new Bounds(boxes);
+        double[] stepX = new double[boxes.size()]; // shared by all steps, the tasks run one after the other
+        double[] stepZ = new double[boxes.size()];
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int step = 1; step <= ANIMATION_STEPS; step++) {
+            double t = (double) step / ANIMATION_STEPS;
+            double eased = t * t * (3 - 2 * t);
+            for (int batch = 0; batch < boxes.size(); batch += BOXES_PER_TASK) {
+                int batchStart = batch;
+                int batchEnd = Math.min(batch + BOXES_PER_TASK, boxes.size());
+                tasks.add(() -> {
+                    for (int i = batchStart; i < batchEnd; i++) {
+                        stepX[i] = from.x[i] + (x[i] - from.x[i]) * eased;
+                        stepZ[i] = from.z[i] + (z[i] - from.z[i]) * eased;
+                    }
+                    ModelBox.setXZ(boxes, batchStart, batchEnd, stepX, stepZ);
+                });
+            }
+        }
+        this.moveJob = this.scheduler.submit(tasks);
+        this.moveJob.setOnDone(onDone);
+    }
+
+    /**
+     * Position and size of boxes, read from the {@link ch.hsr.ogv.model.BoxGeometry} in one pass.
+     */
+    private static class Bounds {
+
+        private final double[] x;
+        private final double[] z;
+        private final double[] width;
+        private final double[] height;
+
+        Bounds(List<? extends ModelBox> boxes) {
+            this.x = new double[boxes.size()];
+            this.z = new double[boxes.size()];
+            this.width = new double[boxes.size()];
+            this.height = new double[boxes.size()];
+            ModelBox.getGeometry().getBounds(ModelBox.getGeometryIds(boxes), this.x, this.z, this.width, this.height);
+        }
+    }
+
+    /**
+     * Stops moving the boxes, they stay where they are.
+     */
+    public void cancel() {
+        if (this.moveJob != null) {
+            this.moveJob.cancel();
+            this.moveJob = null;
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelBox;
+import ch.hsr.ogv.model.ModelBox.ModelBoxChange;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.util.BoundingVolumeHierarchy;
+import ch.hsr.ogv.util.BoundingVolumeHierarchy.BoundsTest;
+import ch.hsr.ogv.view.Arrow;
+import ch.hsr.ogv.view.BoxSelection;
+import ch.hsr.ogv.view.PaneBox;
+import ch.hsr.ogv.view.Selectable;
+import ch.hsr.ogv.view.SubSceneAdapter;
+import ch.hsr.ogv.view.SubSceneCamera;
+import ch.hsr.ogv.view.Xform;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.SubScene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+
+/**
+ * Keeps a bounding volume hierarchy of all boxes and arrows in the scene. Elements outside of the view frustum are
+ * culled, elements far away from the camera get a reduced level of detail. Updates are coalesced, so any number of
+ * camera or model changes within one pulse only cause a single pass, which only touches the visible elements and those
+ * that just left the view.
+ */
+public class LevelOfDetailController implements Observer {
+
+    public final static double FAR_DISTANCE = 4000.0;
+    public final static double HYSTERESIS = 400.0; // distance band in which the current detail is kept
+
+    private final static double BOX_MARGIN = BoxSelection.INIT_SELECT_SIZE;
+    private final static double ARROW_MARGIN = 200.0; // covers arrow labels and the loops of reflexive arrows
+    private final static double FRUSTUM_MARGIN = 1.1;
+
+    private ModelViewConnector mvConnector;
+    private ObjectGraph objectGraph;
+    private SelectionController selectionController;
+    private SubSceneAdapter subSceneAdapter;
+
+    private final BoundingVolumeHierarchy<Selectable> index = new BoundingVolumeHierarchy<Selectable>();
+    private final Set<Selectable> dirty = new LinkedHashSet<Selectable>();
+    private Set<Selectable> inView = Collections.newSetFromMap(new IdentityHashMap<Selectable, Boolean>());
+    private boolean resyncPending = true;
+    private boolean updatePending = false;
+
+    private final InvalidationListener cameraListener = observable -> requestPass();
+
+    public void setMVConnector(ModelViewConnector mvConnector) {
+        this.mvConnector = mvConnector;
+        this.mvConnector.getModelManager().addObserver(this);
+    }
+
+    public void setObjectGraph(ObjectGraph objectGraph) {
+        this.objectGraph = objectGraph;
+    }
+
+    public void setSelectionController(SelectionController selectionController) {
+        this.selectionController = selectionController;
+    }
+
+    public void enableLevelOfDetail(SubSceneAdapter subSceneAdapter) {
+        this.subSceneAdapter = subSceneAdapter;
+        SubSceneCamera ssCamera = subSceneAdapter.getSubSceneCamera();
+        Xform cameraXform = ssCamera.getCameraXform();
+        Xform cameraXform2 = ssCamera.getCameraXform2();
+        cameraXform.rx.angleProperty().addListener(this.cameraListener);
+        cameraXform.ry.angleProperty().addListener(this.cameraListener);
+        cameraXform2.t.xProperty().addListener(this.cameraListener);
+        cameraXform2.t.yProperty().addListener(this.cameraListener);
+        cameraXform2.t.zProperty().addListener(this.cameraListener);
+        ssCamera.get().translateXProperty().addListener(this.cameraListener);
+        ssCamera.get().translateYProperty().addListener(this.cameraListener);
+        ssCamera.get().translateZProperty().addListener(this.cameraListener);
+        ssCamera.get().fieldOfViewProperty().addListener(this.cameraListener);
+        subSceneAdapter.getSubScene().widthProperty().addListener(this.cameraListener);
+        subSceneAdapter.getSubScene().heightProperty().addListener(this.cameraListener);
+        requestUpdate();
+    }
+
+    /**
+     * Re-indexes all boxes and arrows and schedules a pass, e.g. after the object graph was shown or hidden.
+     */
+    public void requestUpdate() {
+        this.resyncPending = true;
+        requestPass();
+    }
+
+    private void requestPass() {
+        if (this.updatePending || this.subSceneAdapter == null) {
+            return;
+        }
+        this.updatePending = true;
+        Platform.runLater(() -> {
+            this.updatePending = false;
+            updateIndex();
+            updateLevelOfDetail();
+        });
+    }
+
+    /**
+     * @return the indexed bounds of the given box or arrow, or null if it is not part of the scene
+     */
+    public Bounds getBounds(Selectable selectable) {
+        if (selectable == null) {
+            return null;
+        }
+        updateIndex();
+        return toBounds(this.index.getBounds(selectable));
+    }
+
+    /**
+     * @return the bounds enclosing all boxes and arrows, or null if the scene is empty
+     */
+    public Bounds getBounds() {
+        updateIndex();
+        return toBounds(this.index.getBounds());
+    }
+
+    public List<Selectable> queryRegion(Bounds region) {
+        updateIndex();
+        return this.index.queryRegion(region.getMinX(), region.getMinY(), region.getMinZ(), region.getMaxX(), region.getMaxY(), region.getMaxZ());
+    }
+
+    private void updateIndex() {
+        if (this.resyncPending) {
+            this.resyncPending = false;
+            this.dirty.clear();
+            this.inView.addAll(allElements()); // evaluate everything once, new elements start unculled
+            this.index.clear();
+            for (Selectable selectable : allElements()) {
+                indexElement(selectable);
+            }
+            return;
+        }
+        for (Selectable selectable : this.dirty) {
+            if (this.index.contains(selectable)) {
+                indexElement(selectable);
+            }
+        }
+        this.dirty.clear();
+    }
+
+    private List<Selectable> allElements() {
+        List<Selectable> elements = new ArrayList<Selectable>();
+        if (this.mvConnector != null) {
+            elements.addAll(this.mvConnector.getBoxes().values());
+            elements.addAll(this.mvConnector.getArrows().values());
+        }
+        if (this.objectGraph != null && this.objectGraph.isShown()) {
+            elements.addAll(this.objectGraph.getBoxes());
+            elements.addAll(this.objectGraph.getArrows());
+        }
+        return elements;
+    }
+
+    private void indexElement(Selectable selectable) {
+        if (selectable instanceof PaneBox) {
+            PaneBox paneBox = (PaneBox) selectable;
+            Point3D center = paneBox.getCenterPoint();
+            double halfWidth = paneBox.getWidth() / 2 + BOX_MARGIN;
+            double halfDepth = paneBox.getDepth() / 2 + BOX_MARGIN;
+            double halfHeight = paneBox.getHeight() / 2 + BOX_MARGIN;
+            this.index.put(paneBox, center.getX() - halfWidth, center.getY() - halfDepth, center.getZ() - halfHeight, center.getX() + halfWidth, center.getY() + halfDepth, center.getZ() + halfHeight);
+        }
+        else if (selectable instanceof Arrow) {
+            Arrow arrow = (Arrow) selectable;
+            Point3D start = arrow.getStartPoint();
+            Point3D end = arrow.getEndPoint();
+            this.index.put(arrow, Math.min(start.getX(), end.getX()) - ARROW_MARGIN, Math.min(start.getY(), end.getY()) - ARROW_MARGIN, Math.min(start.getZ(), end.getZ()) - ARROW_MARGIN,
+                    Math.max(start.getX(), end.getX()) + ARROW_MARGIN, Math.max(start.getY(), end.getY()) + ARROW_MARGIN, Math.max(start.getZ(), end.getZ()) + ARROW_MARGIN);
+        }
+    }
+
+    private void updateLevelOfDetail() {
+        PerspectiveCamera camera = this.subSceneAdapter.getSubSceneCamera().get();
+        Point3D cameraPos = camera.localToScene(0, 0, 0);
+        Set<Selectable> nowInView = Collections.newSetFromMap(new IdentityHashMap<Selectable, Boolean>());
+        nowInView.addAll(this.index.query(createFrustumTest(camera, this.subSceneAdapter.getSubScene())));
+        Selectable selected = this.selectionController != null ? this.selectionController.getCurrentSelected() : null;
+        if (selected != null && this.index.contains(selected)) {
+            nowInView.add(selected);
+        }
+        for (Selectable selectable : this.inView) {
+            if (!nowInView.contains(selectable)) {
+                setCulled(selectable, true);
+            }
+        }
+        for (Selectable selectable : nowInView) {
+            setCulled(selectable, false);
+            if (selectable instanceof PaneBox) {
+                updatePaneBox((PaneBox) selectable, cameraPos);
+            }
+            else if (selectable instanceof Arrow) {
+                updateArrow((Arrow) selectable, cameraPos);
+            }
+        }
+        this.inView = nowInView;
+    }
+
+    private static void setCulled(Selectable selectable, boolean culled) {
+        if (selectable instanceof PaneBox) {
+            ((PaneBox) selectable).setCulled(culled);
+        }
+        else if (selectable instanceof Arrow) {
+            ((Arrow) selectable).setCulled(culled);
+        }
+    }
+
+    private void updatePaneBox(PaneBox paneBox, Point3D cameraPos) {
+        if (paneBox.isSelected()) {
+            paneBox.setFarDetail(false);
+            return;
+        }
+        paneBox.setFarDetail(isFar(paneBox.isFarDetail(), paneBox.getCenterPoint().distance(cameraPos)));
+    }
+
+    private void updateArrow(Arrow arrow, Point3D cameraPos) {
+        if (arrow.isSelected()) {
+            arrow.setFarDetail(false);
+            return;
+        }
+        Point3D midPoint = arrow.getStartPoint().midpoint(arrow.getEndPoint());
+        arrow.setFarDetail(isFar(arrow.isFarDetail(), midPoint.distance(cameraPos)));
+    }
+
+    private static boolean isFar(boolean isFar, double distance) {
+        if (isFar) {
+            return distance > FAR_DISTANCE - HYSTERESIS;
+        }
+        return distance > FAR_DISTANCE + HYSTERESIS;
+    }
+
+    /**
+     * Builds a test against the near, far and four side planes of the camera frustum in scene coordinates. A box is
+     * rejected if its corner furthest along the inner normal of any plane lies outside of that plane.
+     */
+    private static BoundsTest createFrustumTest(PerspectiveCamera camera, SubScene subScene) {
+        Point3D eye = camera.localToScene(0, 0, 0);
+        Point3D right = camera.localToScene(1, 0, 0).subtract(eye);
+        Point3D down = camera.localToScene(0, 1, 0).subtract(eye);
+        Point3D forward = camera.localToScene(0, 0, 1).subtract(eye);
+        double aspectRatio = subScene.getHeight() > 0 ? subScene.getWidth() / subScene.getHeight() : 1.0;
+        double tanHalfFov = Math.tan(Math.toRadians(camera.getFieldOfView() / 2)) * FRUSTUM_MARGIN;
+        double tanX = camera.isVerticalFieldOfView() ? tanHalfFov * aspectRatio : tanHalfFov;
+        double tanY = camera.isVerticalFieldOfView() ? tanHalfFov : tanHalfFov / aspectRatio;
+        Point3D[] normals = { forward, forward.multiply(-1), right.add(forward.multiply(tanX)), right.multiply(-1).add(forward.multiply(tanX)), down.add(forward.multiply(tanY)),
+                down.multiply(-1).add(forward.multiply(tanY)) };
+        double[][] planes = new double[normals.length][];
+        for (int i = 0; i < normals.length; i++) {
+            Point3D n = normals[i];
+            planes[i] = new double[] { n.getX(), n.getY(), n.getZ(), -n.dotProduct(eye) };
+        }
+        planes[1][3] += camera.getFarClip();
+        return (minX, minY, minZ, maxX, maxY, maxZ) -> {
+            for (double[] plane : planes) {
+                double x = plane[0] >= 0 ? maxX : minX;
+                double y = plane[1] >= 0 ? maxY : minY;
+                double z = plane[2] >= 0 ? maxZ : minZ;
+                if (plane[0] * x + plane[1] * y + plane[2] * z + plane[3] < 0) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static Bounds toBounds(double[] bounds) {
+        if (bounds == null) {
+            return null;
+        }
+        return new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3] - bounds[0], bounds[4] - bounds[1], bounds[5] - bounds[2]);
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        if (o instanceof ModelManager) {
+            if (arg instanceof ModelBox) {
+                ModelBox modelBox = (ModelBox) arg;
+                if (!modelBox.hasGeometryId()) { // deleted
+                    modelBox.deleteObserver(this);
+                }
+                else {
+                    modelBox.addObserver(this);
+                }
+            }
+            requestUpdate();
+        }
+        else if (o instanceof ModelBox && (arg == ModelBoxChange.COORDINATES || arg == ModelBoxChange.WIDTH || arg == ModelBoxChange.HEIGHT)) {
+            markDirty((ModelBox) o);
+            requestPass();
+        }
+    }
+
+    private void markDirty(ModelBox modelBox) {
+        PaneBox paneBox = this.mvConnector.getPaneBox(modelBox);
+        if (paneBox != null) {
+            this.dirty.add(paneBox);
+        }
+        modelBox.getEndpoints().forEach(endpoint -> {
+            Arrow arrow = this.mvConnector.getArrow(endpoint.getRelation());
+            if (arrow != null) {
+                this.dirty.add(arrow);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,279 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.agent.GraphDelta;
+import ch.hsr.ogv.agent.GraphDelta.ValueChange;
+import ch.hsr.ogv.agent.GraphSnapshot;
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+import ch.hsr.ogv.dataaccess.LiveGraphClient;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.util.MessageBar;
+import ch.hsr.ogv.util.MessageBar.MessageLevel;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import ch.hsr.ogv.util.TimeSlicedScheduler.Job;
+import ch.hsr.ogv.view.PaneBox;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shows the object graph streamed from a running JVM. The model follows the latest state received by the
+ * {@link LiveGraphClient}: the changes between the shown and the latest state are applied as one job of the
+ * {@link TimeSlicedScheduler}, a few per frame. Only when a job is done the next latest state is taken, all states
+ * received meanwhile are skipped, so the model never falls further behind than one job.
+ * <p>
+ * Java classes become class boxes, references directed associations between them, with one object relation per
+ * reference in the color of its association.
+ */
+public class LiveGraphController {
+
+    private final static int CLASS_COLUMNS = 8;
+    private final static double CLASS_SPACING = 300.0;
+
+    private ModelViewConnector mvConnector;
+    private TimeSlicedScheduler scheduler;
+    private LiveGraphClient client;
+    private Task<LiveGraphClient> connectTask; // connecting on a background thread, the socket connect blocks
+    private GraphSnapshot shown = new GraphSnapshot(); // the state the last job was built for
+    private long shownVersion = 0;
+    private Job applyJob;
+    private final AtomicBoolean updateQueued = new AtomicBoolean(false);
+
+    private final Map<String, ModelClass> classes = new HashMap<String, ModelClass>(); // k: Java class name
+    private final Map<Long, ModelObject> objects = new HashMap<Long, ModelObject>(); // k: object id
+    private final Map<Reference, Relation> relations = new HashMap<Reference, Relation>();
+    private final Map<String, Relation> classRelations = new HashMap<String, Relation>(); // k: class, field and target class
+
+    public void setMVConnector(ModelViewConnector mvConnector) {
+        this.mvConnector = mvConnector;
+    }
+
+    public void setScheduler(TimeSlicedScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return true while connected or connecting
+     */
+    public boolean isConnected() {
+        return this.client != null || this.connectTask != null;
+    }
+
+    /**
+     * Connects to the agent listening on the given port on a background thread. Once connected, clears the model and
+     * starts following the agent.
+     */
+    public void connect(String host, int port) {
+        disconnect();
+        Task<LiveGraphClient> task = new Task<LiveGraphClient>() {
+            @Override
+            public LiveGraphClient call() throws IOException {
+                return new LiveGraphClient(host, port);
+            }
+        };
+        this.connectTask = task;
+        task.setOnSucceeded(event -> connected(task, host, port));
+        task.setOnFailed(event -> {
+            if (task == this.connectTask) {
+                this.connectTask = null;
+                MessageBar.setText("Could not connect to running JVM at \"" + host + ":" + port + "\": " + task.getException().getMessage(), MessageLevel.ALERT);
+            }
+        });
+        MessageBar.setText("Connecting to " + host + ":" + port + "...", MessageLevel.WARN);
+        Thread thread = new Thread(task, "OGV live graph connect");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void connected(Task<LiveGraphClient> task, String host, int port) {
+        LiveGraphClient newClient = task.getValue();
+        if (task != this.connectTask) {
+            newClient.close(); // disconnected or connecting elsewhere meanwhile
+            return;
+        }
+        this.connectTask = null;
+        this.client = newClient;
+        ModelManager modelManager = this.mvConnector.getModelManager();
+        modelManager.clearClasses();
+        modelManager.clearRelations();
+        newClient.start(this::requestUpdate, cause -> Platform.runLater(() -> finished(newClient, cause)));
+        MessageBar.setText("Connected to " + host + ":" + port + ".", MessageLevel.INFO);
+    }
+
+    /**
+     * Stops following or connecting to the agent, the graph shown so far stays in the model.
+     */
+    public void disconnect() {
+        this.connectTask = null; // a connection still being made is closed once it is made
+        if (this.client != null) {
+            this.client.close();
+            this.client = null;
+        }
+        if (this.applyJob != null) {
+            this.applyJob.cancel();
+            this.applyJob = null;
+        }
+        this.shown = new GraphSnapshot();
+        this.shownVersion = 0;
+        this.classes.clear();
+        this.objects.clear();
+        this.relations.clear();
+        this.classRelations.clear();
+    }
+
+    private void finished(LiveGraphClient finishedClient, IOException cause) {
+        if (finishedClient != this.client) {
+            return; // replaced or disconnected meanwhile
+        }
+        disconnect();
+        if (cause != null) {
+            MessageBar.setText("Connection to running JVM lost: " + cause.getMessage(), MessageLevel.ALERT);
+        }
+        else {
+            MessageBar.setText("Running JVM closed the connection.", MessageLevel.WARN);
+        }
+    }
+
+    /**
+     * Called on the reader thread for every frame, queues at most one update on the FX thread.
+     */
+    private void requestUpdate() {
+        if (this.updateQueued.compareAndSet(false, true)) {
+            Platform.runLater(this::update);
+        }
+    }
+
+    private void update() {
+        this.updateQueued.set(false);
+        if (this.client == null || this.applyJob != null) {
+            return; // the running job updates again when it is done
+        }
+        long version = this.client.getVersion();
+        if (version == this.shownVersion) {
+            return;
+        }
+        GraphSnapshot latest = this.client.copyLatest();
+        GraphDelta delta = this.shown.diff(latest);
+        this.shown = latest;
+        this.shownVersion = version;
+        if (delta.isEmpty()) {
+            return;
+        }
+        this.applyJob = this.scheduler.submit(tasks(delta));
+        this.applyJob.setOnDone(() -> {
+            this.applyJob = null;
+            update();
+        });
+    }
+
+    private List<Runnable> tasks(GraphDelta delta) {
+        List<Runnable> tasks = new ArrayList<Runnable>(delta.size());
+        for (Reference reference : delta.getRemovedReferences()) {
+            tasks.add(() -> removeReference(reference));
+        }
+        for (long id : delta.getRemovedObjects()) {
+            tasks.add(() -> removeObject(id));
+        }
+        for (Map.Entry<Long, String> entry : delta.getAddedObjects().entrySet()) {
+            tasks.add(() -> addObject(entry.getKey(), entry.getValue()));
+        }
+        for (ValueChange value : delta.getValues()) {
+            tasks.add(() -> setValue(value));
+        }
+        for (Reference reference : delta.getAddedReferences()) {
+            tasks.add(() -> addReference(reference));
+        }
+        return tasks;
+    }
+
+    private void removeReference(Reference reference) {
+        Relation relation = this.relations.remove(reference);
+        ModelManager modelManager = this.mvConnector.getModelManager();
+        if (relation != null && modelManager.getRelations().contains(relation)) {
+            modelManager.deleteRelation(relation);
+        }
+    }
+
+    private void removeObject(long id) {
+        ModelObject modelObject = this.objects.remove(id);
+        if (modelObject != null) {
+            this.mvConnector.getModelManager().deleteObject(modelObject);
+        }
+    }
+
+    private void addObject(long id, String className) {
+        ModelObject modelObject = this.mvConnector.getModelManager().createObject(getModelClass(className));
+        if (modelObject != null) {
+            modelObject.setName("#" + id);
+            this.objects.put(id, modelObject);
+        }
+    }
+
+    private void setValue(ValueChange value) {
+        ModelObject modelObject = this.objects.get(value.id);
+        if (modelObject == null) {
+            return;
+        }
+        ModelClass modelClass = modelObject.getModelClass();
+        if (!this.mvConnector.getModelManager().isAttributeNameTaken(modelClass, value.field)) {
+            modelClass.createAttribute(value.field);
+        }
+        modelObject.changeAttributeValue(value.field, value.value);
+    }
+
+    private void addReference(Reference reference) {
+        ModelObject start = this.objects.get(reference.from);
+        ModelObject end = this.objects.get(reference.to);
+        if (start == null || end == null) {
+            return;
+        }
+        Relation classRelation = getClassRelation(start.getModelClass(), reference.field, end.getModelClass());
+        Relation relation = this.mvConnector.getModelManager().createRelation(start, end, RelationType.OBJDIAGRAM, classRelation.getColor());
+        if (relation != null) {
+            this.relations.put(reference, relation);
+        }
+    }
+
+    private ModelClass getModelClass(String className) {
+        ModelClass modelClass = this.classes.get(className);
+        if (modelClass == null) {
+            int index = this.classes.size();
+            Point3D position = new Point3D((index % CLASS_COLUMNS) * CLASS_SPACING, ModelViewConnector.BASE_BOX_DEPTH, (index / CLASS_COLUMNS) * CLASS_SPACING);
+            ModelManager modelManager = this.mvConnector.getModelManager();
+            modelClass = modelManager.createClass(position, PaneBox.MIN_WIDTH, PaneBox.MIN_HEIGHT, PaneBox.DEFAULT_COLOR);
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            modelClass.setName(modelManager.isClassNameTaken(simpleName) ? className : simpleName);
+            this.classes.put(className, modelClass);
+        }
+        return modelClass;
+    }
+
+    /**
+     * @return the association from a class to the class of a referenced object, created the first time the field
+     * refers to an object of that class
+     */
+    private Relation getClassRelation(ModelClass start, String field, ModelClass end) {
+        String key = start.getName() + "\u0000" + field + "\u0000" + end.getName();
+        Relation classRelation = this.classRelations.get(key);
+        if (classRelation == null) {
+            // the color pairs object relations with their class relation, one hue per association
+            Color color = Color.hsb((this.classRelations.size() * 137.5) % 360.0, 0.7, 0.6);
+            classRelation = this.mvConnector.getModelManager().createRelation(start, end, RelationType.DIRECTED_ASSOCIATION, color);
+            classRelation.setEndRoleName(field);
+            this.classRelations.put(key, classRelation);
+        }
+        return classRelation;
+    }
+
+}
@@ -442,21 +442,19 @@ public class ModelController implements Observer {
             return;
         }
         if (modelBox instanceof ModelClass) {
-            changedBox.setTranslateXYZ(modelBox.getCoordinates());
+            changedBox.setTranslateXYZ(modelBox.getX(), modelBox.getY(), modelBox.getZ());
             ModelClass modelClass = (ModelClass) modelBox;
             for (ModelObject modelObject : modelClass.getModelObjects()) {
-                modelObject.setX(modelClass.getX());
-                modelObject.setZ(modelClass.getZ());
+                modelObject.setXZ(modelClass.getX(), modelClass.getZ());
                 double cascadingHeight = 0.0;
                 for (ModelObject superObject : modelClass.getSuperObjects(modelObject)) {
-                    superObject.setX(modelClass.getX());
-                    superObject.setZ(modelClass.getZ() + modelClass.getHeight() / 2 + cascadingHeight + superObject.getHeight() / 2);
+                    superObject.setXZ(modelClass.getX(), modelClass.getZ() + modelClass.getHeight() / 2 + cascadingHeight + superObject.getHeight() / 2);
                     cascadingHeight += superObject.getHeight();
                 }
             }
         }
         else if (modelBox instanceof ModelObject) {
-            changedBox.setTranslateXYZ(modelBox.getCoordinates());
+            changedBox.setTranslateXYZ(modelBox.getX(), modelBox.getY(), modelBox.getZ());
             ModelObject modelObject = (ModelObject) modelBox;
             for (ModelObject superObjects : modelObject.getSuperObjects()) {
                 superObjects.setY(modelObject.getY());
@@ -514,7 +512,7 @@ public class ModelController implements Observer {
                 if (i < PaneBox.MAX_CENTER_LABELS) {
                     Attribute attribute = modelObject.getModelClass().getAttributes().get(i);
                     String attributeName = attribute.getName();
-                    String attributeValue = modelObject.getAttributeValues().get(attribute);
+                    String attributeValue = modelObject.getAttributeValue(attribute);
                     if (attributeValue != null && !attributeValue.isEmpty()) {
                         changedBox.setCenterText(i, attributeName + " = " + attributeValue, attributeValue);
                     }
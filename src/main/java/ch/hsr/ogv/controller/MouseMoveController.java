@@ -14,8 +14,10 @@ public class MouseMoveController extends Observable {
     public void enableMouseMove(Floor floor) {
 
         floor.addEventHandler(MouseEvent.MOUSE_MOVED, (MouseEvent me) -> {
-            PickResult pick = me.getPickResult();
-            Point3D movePoint = pick.getIntersectedNode().localToParent(pick.getIntersectedPoint());
+            Point3D movePoint = floor.getFloorPoint(me.getPickResult());
+            if (movePoint == null) {
+                return;
+            }
             setChanged();
             notifyObservers(movePoint);
         });
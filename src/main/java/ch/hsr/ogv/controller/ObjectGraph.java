@@ -1,27 +1,87 @@
 package ch.hsr.ogv.controller;
 
 import ch.hsr.ogv.model.*;
-import ch.hsr.ogv.util.ColorUtil;
+import ch.hsr.ogv.controller.ObjectGraphPlanner.ArrayPlan;
+import ch.hsr.ogv.controller.ObjectGraphPlanner.BoxPlan;
+import ch.hsr.ogv.controller.ObjectGraphPlanner.ReferencePlan;
+import ch.hsr.ogv.util.HopExpansion;
 import ch.hsr.ogv.util.MultiplicityParser;
+import ch.hsr.ogv.util.SpatialHash;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import ch.hsr.ogv.util.TimeSlicedScheduler.Job;
 import ch.hsr.ogv.view.Arrow;
 import ch.hsr.ogv.view.ConnectorBox;
 import ch.hsr.ogv.view.PaneBox;
 import ch.hsr.ogv.view.SubSceneAdapter;
+import javafx.concurrent.Task;
 import javafx.geometry.Point3D;
+import javafx.scene.Node;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class ObjectGraph {
+/**
+ * Object graph view of the model, with reference arrows and array boxes. The graph is kept in the scene while hidden and
+ * observes the model, so showing it again only rebuilds the parts of model objects that were affected by model changes
+ * since it was last shown.
+ * <p>
+ * Building is split in two stages: the {@link ObjectGraphPlanner} computes texts, positions and references as plain data
+ * in parallel on a background thread, then the nodes are created from these plans on the FX thread, a few per frame.
+ * Plans are dropped if the graph was hidden or updated meanwhile, and made again if the model changed meanwhile.
+ * <p>
+ * Instead of the whole graph, a focus around one object can be shown: only objects within a number of reference hops are
+ * built, boxes with references to objects not shown yet are marked and expand the focus by one hop when clicked.
+ */
+public class ObjectGraph implements Observer {
 
-    private final static double ARRAYBOX_LEVEL_DIFF = 100.0;
+    private final static Logger logger = LoggerFactory.getLogger(ObjectGraph.class);
+
+    public final static Color FRONTIER_COLOR = Color.DODGERBLUE;
 
     private List<PaneBox> boxes = new ArrayList<PaneBox>(); // contains normal and arrayBoxes
     private List<Arrow> arrows = new ArrayList<Arrow>();
     private List<ConnectorBox> connectorBoxes = new ArrayList<ConnectorBox>();
+    private SpatialHash<Object> boxPositions = new SpatialHash<Object>(ObjectGraphPlanner.APPROX_RANGE); // k: box and array plans, boxes do not move while the graph is shown
+    private ObjectGraphPlanner planner = new ObjectGraphPlanner();
+
+    private Map<ModelObject, GraphPart> parts = new HashMap<ModelObject, GraphPart>(); // k: model object, v: view nodes built for it
+    private Map<ModelObject, Set<ModelObject>> referencedBy = new HashMap<ModelObject, Set<ModelObject>>(); // k: referenced object, v: objects whose parts point to it
+    private Set<ModelObject> dirty = new HashSet<ModelObject>();
+    private Set<ModelClass> dirtyClasses = new HashSet<ModelClass>(); // objects invalidated on the next update, a dragged class notifies every frame
+    private boolean allDirty = true;
+    private boolean shown = false;
+    private GraphPart building; // part that receives the nodes created while building a model object
+    private Job buildJob; // creates the nodes of planned parts, one model object per task
+    private Set<BoxPlan> pendingPlans = new LinkedHashSet<BoxPlan>(); // placed but not built yet
+    private int generation = 0; // plans of an earlier generation are outdated, the graph was hidden or updated since
+    private boolean planning = false;
+    private boolean changedWhilePlanning = false;
+    private Consumer<Job> onBuild;
+
+    private ReferenceQuery focusQuery; // reference index of the model when the focus was set, null: whole graph
+    private HopExpansion focus; // objects shown around the focus object
 
     private ModelViewConnector mvConnector;
     private SubSceneAdapter subSceneAdapter;
+    private TimeSlicedScheduler scheduler;
 
     public List<PaneBox> getBoxes() {
         return boxes;
@@ -31,133 +91,364 @@ public class ObjectGraph {
         return arrows;
     }
 
-    public ObjectGraph(ModelViewConnector mvConnector, SubSceneAdapter subSceneAdapter) {
+    public ObjectGraph(ModelViewConnector mvConnector, SubSceneAdapter subSceneAdapter, TimeSlicedScheduler scheduler) {
         this.mvConnector = mvConnector;
         this.subSceneAdapter = subSceneAdapter;
+        this.scheduler = scheduler;
+        this.mvConnector.getModelManager().addObserver(this);
+    }
+
+    public boolean isShown() {
+        return this.shown;
+    }
+
+    public boolean isFocused() {
+        return this.focus != null;
+    }
+
+    /**
+     * @param onBuild called with every job that builds parts of the graph
+     */
+    public void setOnBuild(Consumer<Job> onBuild) {
+        this.onBuild = onBuild;
     }
 
     private void add(PaneBox paneBox) {
         this.boxes.add(paneBox);
+        this.building.boxes.add(paneBox);
         this.subSceneAdapter.add(paneBox.get());
         paneBox.get().applyCss();
     }
 
     private void add(Arrow arrow) {
         this.arrows.add(arrow);
+        this.building.arrows.add(arrow);
         this.subSceneAdapter.add(arrow);
         arrow.applyCss();
     }
 
     private void add(ConnectorBox connector) {
         this.connectorBoxes.add(connector);
+        this.building.connectorBoxes.add(connector);
         this.subSceneAdapter.add(connector);
         connector.applyCss();
     }
 
-    private void remove(PaneBox paneBox) {
-        this.subSceneAdapter.remove(paneBox.get());
-        this.boxes.remove(paneBox);
+    private void remove(Collection<GraphPart> toRemove) {
+        Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (GraphPart part : toRemove) {
+            for (PaneBox paneBox : part.boxes) {
+                nodes.add(paneBox.get());
+            }
+            removePlaced(part.plan);
+            nodes.addAll(part.arrows);
+            nodes.addAll(part.connectorBoxes);
+            removed.addAll(part.boxes);
+            removed.addAll(part.arrows);
+            removed.addAll(part.connectorBoxes);
+            for (ModelObject reference : part.references) {
+                Set<ModelObject> referencing = this.referencedBy.get(reference);
+                if (referencing != null) {
+                    referencing.remove(part.modelObject);
+                }
+            }
+        }
+        this.subSceneAdapter.removeAll(nodes);
+        this.boxes.removeAll(removed);
+        this.arrows.removeAll(removed);
+        this.connectorBoxes.removeAll(removed);
+    }
+
+    /**
+     * Brings the whole graph up to date with the model and shows it. Missing parts are planned in the background and
+     * built over the next frames, see {@link #setOnBuild(Consumer)}.
+     */
+    public void show() {
+        if (this.focus != null) {
+            this.focusQuery = null;
+            this.focus = null;
+            this.allDirty = true;
+        }
+        showGraph();
     }
 
-    private void remove(Arrow arrow) {
-        this.subSceneAdapter.remove(arrow);
-        this.arrows.remove(arrow);
+    /**
+     * Shows the objects within the given number of reference hops of an object.
+     */
+    public void showFocus(ModelObject modelObject, int hops) {
+        ReferenceQuery query = new ReferenceQuery(this.mvConnector.getModelManager().getClasses());
+        int id = query.getId(modelObject);
+        if (id < 0) {
+            show();
+            return;
+        }
+        this.focusQuery = query;
+        this.focus = new HopExpansion(query.getGraph(), id, hops);
+        this.allDirty = true;
+        showGraph();
     }
 
-    private void remove(ConnectorBox connector) {
-        this.subSceneAdapter.remove(connector);
-        this.connectorBoxes.remove(connector);
+    /**
+     * Adds the objects referenced by a marked box of the focus. Only the new objects and the boxes referring to them are
+     * built. Nothing happens if the object does not refer to objects not shown yet.
+     */
+    public void expand(ModelObject modelObject) {
+        if (!isFrontier(modelObject)) {
+            return;
+        }
+        invalidate(modelObject);
+        for (int id : this.focus.expand(this.focusQuery.getId(modelObject))) {
+            invalidate(this.focusQuery.getModelObject(id));
+        }
+        showGraph();
     }
 
-    public void setup() {
-        for (ModelBox modelBox : this.mvConnector.getBoxes().keySet()) {
-            if (modelBox instanceof ModelClass) {
-                ModelClass modelClass = (ModelClass) modelBox;
-                for (ModelObject modelObject : modelClass.getModelObjects()) {
-                    createBox(modelObject);
-                    for (ModelObject superModelObject : modelObject.getSuperObjects()) {
-                        createBox(superModelObject);
-                    }
-                }
+    private boolean isFrontier(ModelObject modelObject) {
+        if (this.focus == null) {
+            return false;
+        }
+        int id = this.focusQuery.getId(modelObject);
+        return id >= 0 && this.focus.isFrontier(id);
+    }
+
+    /**
+     * @return true if the given object has a box in the graph as it is currently shown
+     */
+    private boolean isInGraph(ModelObject modelObject) {
+        if (this.focus == null) {
+            return true;
+        }
+        int id = this.focusQuery.getId(modelObject);
+        return id >= 0 && this.focus.isIncluded(id);
+    }
+
+    private void showGraph() {
+        update();
+        setVisible(true);
+        this.shown = true;
+    }
+
+    /**
+     * Hides the graph, parts not built yet are dropped and built the next time the graph is shown.
+     */
+    public void hide() {
+        this.generation++;
+        this.planning = false;
+        cancelBuild();
+        setVisible(false);
+        this.shown = false;
+    }
+
+    private void cancelBuild() {
+        if (this.buildJob != null) {
+            this.buildJob.cancel();
+        }
+        for (BoxPlan plan : this.pendingPlans) {
+            removePlaced(plan);
+        }
+        this.pendingPlans.clear();
+    }
+
+    private void removePlaced(BoxPlan plan) {
+        this.boxPositions.remove(plan);
+        for (ReferencePlan reference : plan.references) {
+            if (reference.arrayPlan != null) {
+                this.boxPositions.remove(reference.arrayPlan);
             }
         }
     }
 
-    private int buildReferenceNames(PaneBox paneBox, ObjectGraphCollector ogCollector) {
-        int origSize = paneBox.getCenterLabels().size();
-        for (int i = 0; i < ogCollector.getClassFriendEndpoints().size(); i++) {
-            int centerLabelIndex = origSize + i;
-            Endpoint friendEndpoint = ogCollector.getClassFriendEndpoints().get(i);
-            String roleName = ogCollector.getReferenceNames().get(friendEndpoint);
-            paneBox.setCenterText(centerLabelIndex, roleName + " " + MultiplicityParser.ASTERISK, "");
+    private void setVisible(boolean visible) {
+        for (PaneBox paneBox : this.boxes) {
+            paneBox.setVisible(visible);
+        }
+        for (Arrow arrow : this.arrows) {
+            arrow.setArrowVisible(visible);
         }
-        return origSize;
     }
 
-    private void buildReferences(PaneBox paneBox, int origSize, ObjectGraphCollector ogCollector) {
-        for (int i = 0; i < ogCollector.getClassFriendEndpoints().size(); i++) {
-            int centerLabelIndex = origSize + i;
-            Endpoint friendEndpoint = ogCollector.getClassFriendEndpoints().get(i);
-            Relation relation = friendEndpoint.getRelation();
-            ArrayList<ModelObject> modelObjects = ogCollector.getAssociatedObjects(friendEndpoint);
-            String upperBoundStr = ogCollector.getAllocates().get(friendEndpoint);
-            if (!modelObjects.isEmpty() && upperBoundStr != null && !upperBoundStr.isEmpty() && upperBoundStr.equals("1")) { // direct reference
-                ModelObject firstRefObject = modelObjects.get(0);
-                PaneBox firstRefBox = this.mvConnector.getPaneBox(firstRefObject);
-                if (firstRefBox != null) {
-                    createBoxArrow(paneBox, firstRefBox, centerLabelIndex, relation);
+    private void update() {
+        cancelBuild();
+        if (this.allDirty) {
+            tearDown();
+        }
+        else {
+            for (ModelClass modelClass : this.dirtyClasses) {
+                invalidateClass(modelClass);
+            }
+        }
+        this.dirtyClasses.clear();
+        Set<ModelObject> modelObjects = collectModelObjects();
+        List<GraphPart> toRemove = new ArrayList<GraphPart>();
+        for (Iterator<GraphPart> it = this.parts.values().iterator(); it.hasNext(); ) {
+            GraphPart part = it.next();
+            if (this.dirty.contains(part.modelObject) || !modelObjects.contains(part.modelObject)) {
+                toRemove.add(part);
+                it.remove();
+            }
+        }
+        remove(toRemove);
+        List<ModelObject> toBuild = new ArrayList<ModelObject>();
+        for (ModelObject modelObject : modelObjects) {
+            if (!this.parts.containsKey(modelObject)) {
+                toBuild.add(modelObject);
+            }
+        }
+        this.dirty.clear();
+        this.allDirty = false;
+        plan(toBuild);
+    }
+
+    /**
+     * Plans the model objects on a background thread, the FX thread only places and builds the plans.
+     */
+    private void plan(List<ModelObject> toBuild) {
+        int planGeneration = ++this.generation;
+        this.planning = true;
+        this.changedWhilePlanning = false;
+        Task<List<BoxPlan>> planTask = new Task<List<BoxPlan>>() {
+            @Override
+            public List<BoxPlan> call() {
+                return planner.plan(toBuild);
+            }
+        };
+        planTask.setOnSucceeded(event -> planned(planGeneration, planTask.getValue()));
+        planTask.setOnFailed(event -> {
+            if (!this.changedWhilePlanning) {
+                logger.error("Planning the object graph failed", planTask.getException());
+            }
+            planned(planGeneration, null);
+        });
+        Thread thread = new Thread(planTask, "object graph planner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param plans null if planning failed
+     */
+    private void planned(int planGeneration, List<BoxPlan> plans) {
+        if (planGeneration != this.generation) {
+            return; // hidden or updated meanwhile
+        }
+        this.planning = false;
+        if (this.changedWhilePlanning) {
+            update(); // planned from a model that changed meanwhile, the changed objects are dirty now
+            return;
+        }
+        if (plans == null) {
+            return;
+        }
+        this.pendingPlans.addAll(plans);
+        List<Runnable> tasks = new ArrayList<Runnable>(plans.size() + 1);
+        // placing is sequential and writes the positions the FX thread reads, it is one task before the boxes
+        tasks.add(() -> ObjectGraphPlanner.place(plans, this.boxPositions));
+        for (BoxPlan plan : plans) {
+            tasks.add(() -> build(plan));
+        }
+        this.buildJob = this.scheduler.submit(tasks);
+        if (this.onBuild != null) {
+            this.onBuild.accept(this.buildJob);
+        }
+    }
+
+    private void build(BoxPlan plan) {
+        this.pendingPlans.remove(plan);
+        this.building = new GraphPart(plan);
+        createBox(plan);
+        this.parts.put(plan.getModelObject(), this.building);
+        this.building = null;
+    }
+
+    private Set<ModelObject> collectModelObjects() {
+        Set<ModelObject> modelObjects = new LinkedHashSet<ModelObject>();
+        if (this.focus != null) {
+            BitSet included = this.focus.getIncluded();
+            for (int id = included.nextSetBit(0); id >= 0; id = included.nextSetBit(id + 1)) {
+                ModelObject modelObject = this.focusQuery.getModelObject(id);
+                if (this.mvConnector.containsModelBox(modelObject)) { // not deleted since the focus was set
+                    modelObjects.add(modelObject);
+                    modelObjects.addAll(modelObject.getSuperObjects());
                 }
             }
-            else if (!modelObjects.isEmpty()) { // create array object in between
-                if (upperBoundStr == null) {
-                    upperBoundStr = MultiplicityParser.ASTERISK;
+            return modelObjects;
+        }
+        for (ModelBox modelBox : this.mvConnector.getBoxes().keySet()) {
+            if (modelBox instanceof ModelClass) {
+                ModelClass modelClass = (ModelClass) modelBox;
+                for (ModelObject modelObject : modelClass.getModelObjects()) {
+                    modelObjects.add(modelObject);
+                    modelObjects.addAll(modelObject.getSuperObjects());
                 }
-                PaneBox arrayBox = createArrayBox(ogCollector.getModelObject(), (ModelClass) friendEndpoint.getAppendant(), relation, upperBoundStr);
-                createArrayBoxAttributes(arrayBox, friendEndpoint, ogCollector);
-                createBoxArrow(paneBox, arrayBox, centerLabelIndex, relation);
-                createArrayBoxArrows(arrayBox, friendEndpoint, ogCollector);
             }
         }
+        return modelObjects;
+    }
+
+    private void dependOn(ModelObject modelObject) {
+        this.building.references.add(modelObject);
+        this.referencedBy.computeIfAbsent(modelObject, key -> new HashSet<ModelObject>()).add(this.building.modelObject);
     }
 
-    private PaneBox createBox(ModelObject modelObject) {
+    private PaneBox createBox(BoxPlan plan) {
         PaneBox paneBox = new PaneBox();
         paneBox.setDepth(PaneBox.OBJECTBOX_DEPTH);
-        paneBox.setTopText(modelObject.getName() + " : " + modelObject.getModelClass().getName());
+        paneBox.setTopText(plan.topText);
         paneBox.setTopUnderline(true);
-        paneBox.setColor(modelObject.getColor());
-        paneBox.setTranslateXYZ(modelObject.getCoordinates());
-        createBoxAttributes(paneBox, modelObject);
-        paneBox.setWidth(modelObject.getWidth());
-        if (!modelObject.isSuperObject()) {
-            ObjectGraphCollector ogCollector = new ObjectGraphCollector(modelObject);
-            int origSize = buildReferenceNames(paneBox, ogCollector);
+        paneBox.setColor(plan.color);
+        paneBox.setTranslateXYZ(plan.position);
+        paneBox.setIndexCenterGrid(plan.attributeCount);
+        for (int i = 0; i < plan.centerLabelTexts.size(); i++) {
+            paneBox.setCenterText(i, plan.centerLabelTexts.get(i), plan.centerFieldTexts.get(i));
+        }
+        paneBox.setWidth(plan.width);
+        if (!plan.superObject) {
+            int origSize = paneBox.getCenterLabels().size();
+            for (int i = 0; i < plan.referenceNames.size(); i++) {
+                paneBox.setCenterText(origSize + i, plan.referenceNames.get(i), "");
+            }
             double minHeight = paneBox.calcMinHeight();
-            double newHeight = modelObject.getHeight() > minHeight ? modelObject.getHeight() : minHeight;
+            double newHeight = plan.height > minHeight ? plan.height : minHeight;
             paneBox.setHeight(newHeight);
-            buildReferences(paneBox, origSize, ogCollector);
+            buildReferences(paneBox, origSize, plan);
         }
         paneBox.setMinHeight(paneBox.calcMinHeight());
         paneBox.recalcHasCenterGrid();
         add(paneBox);
+        if (!plan.superObject && isFrontier(plan.getModelObject())) {
+            enableExpand(paneBox, plan.getModelObject());
+        }
         return paneBox;
     }
 
-    private void createBoxAttributes(PaneBox paneBox, ModelObject modelObject) {
-        ModelClass modelClass = modelObject.getModelClass();
-        paneBox.setIndexCenterGrid(modelClass.getAttributes().size());
-        for (int i = 0; i < modelClass.getAttributes().size(); i++) {
-            if (i < PaneBox.MAX_CENTER_LABELS) {
-                Attribute attribute = modelClass.getAttributes().get(i);
-                String attributeName = attribute.getName();
-                String attributeValue = modelObject.getAttributeValues().get(attribute);
-                if (attributeValue != null && !attributeValue.isEmpty()) {
-                    paneBox.setCenterText(i, attributeName + " = " + attributeValue, attributeValue);
-                }
-                else {
-                    paneBox.setCenterText(i, attributeName, attributeValue);
+    private void enableExpand(PaneBox paneBox, ModelObject modelObject) {
+        paneBox.setHighlight(FRONTIER_COLOR);
+        this.subSceneAdapter.receiveMouseEvents(paneBox.get());
+        paneBox.get().addEventHandler(MouseEvent.MOUSE_CLICKED, (MouseEvent me) -> {
+            if (me.getButton() == MouseButton.PRIMARY && me.isStillSincePress() && this.shown) {
+                expand(modelObject);
+            }
+            me.consume();
+        });
+    }
+
+    private void buildReferences(PaneBox paneBox, int origSize, BoxPlan plan) {
+        for (ReferencePlan reference : plan.references) {
+            int centerLabelIndex = origSize + reference.referenceIndex;
+            if (reference.target != null) { // direct reference
+                dependOn(reference.target);
+                PaneBox firstRefBox = this.mvConnector.getPaneBox(reference.target);
+                if (firstRefBox != null && isInGraph(reference.target)) {
+                    createBoxArrow(paneBox, firstRefBox, centerLabelIndex, reference.relation);
                 }
             }
+            else { // array object in between
+                PaneBox arrayBox = createArrayBox(reference.arrayPlan);
+                createArrayBoxAttributes(arrayBox, reference.arrayPlan);
+                createBoxArrow(paneBox, arrayBox, centerLabelIndex, reference.relation);
+                createArrayBoxArrows(arrayBox, reference.arrayPlan, reference.relation);
+            }
         }
     }
 
@@ -171,38 +462,22 @@ public class ObjectGraph {
         return refArrow;
     }
 
-    private PaneBox createArrayBox(ModelObject modelObject, ModelClass modelClass, Relation relation, String upperBoundStr) {
+    private PaneBox createArrayBox(ArrayPlan arrayPlan) {
         PaneBox paneBox = new PaneBox();
         paneBox.setDepth(PaneBox.OBJECTBOX_DEPTH);
-        paneBox.setTopText(" : " + modelClass.getName() + "[" + upperBoundStr + "]");
+        paneBox.setTopText(arrayPlan.topText);
         paneBox.setTopUnderline(true);
         paneBox.setIndexCenterGrid(0);
-        paneBox.setColor(ColorUtil.brighter(modelClass.getColor(), 0.1));
-        Point3D newPosition = modelObject.getCoordinates().midpoint(modelClass.getCoordinates());
-        // newPosition = modelObject.getCoordinates().midpoint(newPosition);
-        if (!relation.isReflexive()) {
-            newPosition = new Point3D(newPosition.getX(), modelObject.getY(), newPosition.getZ());
-        }
-        else {
-            newPosition = new Point3D(newPosition.getX() + (ARRAYBOX_LEVEL_DIFF * 2) + (modelObject.getWidth() / 2), modelObject.getY(), newPosition.getZ());
-        }
-        while (hasBoxApproxAtPos(newPosition)) {
-            newPosition = new Point3D(newPosition.getX(), newPosition.getY() + ARRAYBOX_LEVEL_DIFF, newPosition.getZ());
-        }
-        paneBox.setTranslateXYZ(newPosition);
+        paneBox.setColor(arrayPlan.color);
+        paneBox.setTranslateXYZ(arrayPlan.position);
         paneBox.setWidth(paneBox.calcMinWidth());
         paneBox.setMinHeight(paneBox.calcMinHeight());
         add(paneBox);
         return paneBox;
     }
 
-    private void createArrayBoxAttributes(PaneBox arrayBox, Endpoint endpoint, ObjectGraphCollector ogCollector) {
-        ArrayList<ModelObject> modelObjects = ogCollector.getAssociatedObjects(endpoint);
-        Integer upperBound = MultiplicityParser.toInteger(ogCollector.getAllocates().get(endpoint));
-        if (upperBound == null) {
-            upperBound = modelObjects.size();
-        }
-        for (int i = 0; i < upperBound; i++) {
+    private void createArrayBoxAttributes(PaneBox arrayBox, ArrayPlan arrayPlan) {
+        for (int i = 0; i < arrayPlan.rows; i++) {
             String arrayIndexRef = "[" + i + "] " + MultiplicityParser.ASTERISK;
             arrayBox.setCenterText(i, arrayIndexRef, arrayIndexRef);
             arrayBox.setMinHeight(arrayBox.calcMinHeight());
@@ -211,44 +486,129 @@ public class ObjectGraph {
         arrayBox.recalcHasCenterGrid();
     }
 
-    private void createArrayBoxArrows(PaneBox arrayBox, Endpoint endpoint, ObjectGraphCollector ogCollector) {
-        ArrayList<ModelObject> modelObjects = ogCollector.getAssociatedObjects(endpoint);
+    private void createArrayBoxArrows(PaneBox arrayBox, ArrayPlan arrayPlan, Relation relation) {
         for (int i = 0; i < arrayBox.getCenterLabels().size(); i++) {
-            if (i < modelObjects.size()) {
-                ModelObject modelObject = modelObjects.get(i);
+            if (i < arrayPlan.targets.size()) {
+                ModelObject modelObject = arrayPlan.targets.get(i);
+                dependOn(modelObject);
                 PaneBox refBox = this.mvConnector.getPaneBox(modelObject);
-                if (refBox != null) {
-                    createBoxArrow(arrayBox, refBox, i, endpoint.getRelation());
+                if (refBox != null && isInGraph(modelObject)) {
+                    createBoxArrow(arrayBox, refBox, i, relation);
                 }
             }
         }
     }
 
     public boolean hasBoxApproxAtPos(Point3D coords) {
-        double approxRange = 50;
+        return this.boxPositions.hasPointWithin(coords.getX(), coords.getY(), coords.getZ(), ObjectGraphPlanner.APPROX_RANGE);
+    }
+
+    /**
+     * Removes all nodes of the graph from the scene. The graph is rebuilt completely the next time it is shown.
+     */
+    public void tearDown() {
+        this.generation++;
+        this.planning = false;
+        cancelBuild();
+        List<Node> nodes = new ArrayList<Node>();
         for (PaneBox paneBox : this.boxes) {
-            boolean approxEqualX = Math.abs(paneBox.getCenterPoint().getX() - coords.getX()) < approxRange;
-            boolean approxEqualY = Math.abs((paneBox.getCenterPoint().getY() + paneBox.getDepth() / 2) - coords.getY()) < approxRange;
-            boolean approxEqualZ = Math.abs(paneBox.getCenterPoint().getZ() - coords.getZ()) < approxRange;
-            if (approxEqualX && approxEqualY && approxEqualZ) {
-                return true;
+            nodes.add(paneBox.get());
+        }
+        nodes.addAll(this.arrows);
+        nodes.addAll(this.connectorBoxes);
+        this.subSceneAdapter.removeAll(nodes);
+
+        this.boxes.clear();
+        this.arrows.clear();
+        this.connectorBoxes.clear();
+        this.boxPositions.clear();
+        this.parts.clear();
+        this.referencedBy.clear();
+        this.dirtyClasses.clear();
+        this.allDirty = true;
+    }
+
+    private void invalidate(ModelObject modelObject) {
+        this.dirty.add(modelObject);
+        Set<ModelObject> referencing = this.referencedBy.get(modelObject);
+        if (referencing != null) {
+            this.dirty.addAll(referencing);
+        }
+    }
+
+    /**
+     * Only remembers the class, its objects and the objects of related classes are invalidated when the graph is
+     * updated. Classes change often while the graph is hidden, e.g. on every frame while one is dragged.
+     */
+    private void invalidate(ModelClass modelClass) {
+        this.dirtyClasses.add(modelClass);
+    }
+
+    private void invalidateClass(ModelClass modelClass) {
+        invalidateObjectsOf(modelClass);
+        for (Endpoint endpoint : modelClass.getEndpoints()) { // reference names and array boxes of related classes
+            if (endpoint.getFriend() != null && endpoint.getFriend().getAppendant() instanceof ModelClass) {
+                invalidateObjectsOf((ModelClass) endpoint.getFriend().getAppendant());
             }
         }
-        return false;
     }
 
-    public void tearDown() {
-        for (PaneBox paneBox : new ArrayList<PaneBox>(this.boxes)) {
-            remove(paneBox);
+    private void invalidateObjectsOf(ModelClass modelClass) {
+        for (ModelObject modelObject : modelClass.getModelObjects()) {
+            invalidate(modelObject);
         }
-        for (Arrow arrow : new ArrayList<Arrow>(this.arrows)) {
-            remove(arrow);
+        for (ModelObject inheritingObject : modelClass.getInheritingObjects()) {
+            invalidate(inheritingObject);
         }
-        for (ConnectorBox connectorBox : new ArrayList<ConnectorBox>(this.connectorBoxes)) {
-            remove(connectorBox);
+    }
+
+    private void invalidate(Relation relation) {
+        for (Endpoint endpoint : new Endpoint[] { relation.getStart(), relation.getEnd() }) {
+            ModelBox appendant = endpoint != null ? endpoint.getAppendant() : null;
+            if (appendant instanceof ModelObject) {
+                invalidate((ModelObject) appendant);
+            }
+            else if (appendant instanceof ModelClass) {
+                invalidate((ModelClass) appendant);
+            }
         }
+    }
 
-        this.boxes.clear();
-        this.arrows.clear();
+    @Override
+    public void update(Observable o, Object arg) {
+        if (this.planning) {
+            this.changedWhilePlanning = true;
+        }
+        if (o instanceof ModelManager && arg instanceof Observable) {
+            ((Observable) arg).addObserver(this); // new class, object or relation, deleted ones simply stop notifying
+        }
+        Object changed = o instanceof ModelManager ? arg : o;
+        if (changed instanceof ModelObject) {
+            invalidate((ModelObject) changed);
+        }
+        else if (changed instanceof ModelClass) {
+            invalidate((ModelClass) changed);
+        }
+        else if (changed instanceof Relation) {
+            invalidate((Relation) changed);
+        }
+        else {
+            this.allDirty = true;
+        }
+    }
+
+    private static class GraphPart {
+
+        private final BoxPlan plan;
+        private final ModelObject modelObject;
+        private final List<PaneBox> boxes = new ArrayList<PaneBox>(1);
+        private final List<Arrow> arrows = new ArrayList<Arrow>();
+        private final List<ConnectorBox> connectorBoxes = new ArrayList<ConnectorBox>();
+        private final Set<ModelObject> references = new HashSet<ModelObject>();
+
+        GraphPart(BoxPlan plan) {
+            this.plan = plan;
+            this.modelObject = plan.getModelObject();
+        }
     }
 }
@@ -1,20 +1,20 @@
 package ch.hsr.ogv.controller;
 
 import ch.hsr.ogv.model.*;
-import ch.hsr.ogv.util.MultiplicityParser;
-import ch.hsr.ogv.util.TextUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+/**
+ * Resolves the references of a single model object against the {@link ReferenceSchema} of its class.
+ */
 public class ObjectGraphCollector {
 
     private ModelObject modelObject; // the model object we gather all info for
-    private ArrayList<Endpoint> classFriendEndpoints = new ArrayList<Endpoint>(); // helper list with all class relations friend endpoints
-    private Map<Endpoint, String> allocates = new LinkedHashMap<Endpoint, String>(); // k: class endpoint, v: upper multiplicity bound
-    private Map<Endpoint, String> referenceNames = new LinkedHashMap<Endpoint, String>(); // k: class endpoint, v: role name / mClass
+    private ReferenceSchema schema; // class level data shared by all objects of the class
     private Map<Endpoint, ArrayList<Relation>> classObjectRelations = new LinkedHashMap<Endpoint, ArrayList<Relation>>(); // k: class endpoint, v: list of associated object relations.
     private ArrayList<Relation> objectRelations = new ArrayList<Relation>(); // helper list of object relations (to keep order)
     private Map<Relation, ArrayList<ModelObject>> objectReferences = new LinkedHashMap<Relation, ArrayList<ModelObject>>(); // k: object relation, v: list of referenced objects.
@@ -24,15 +24,15 @@ public class ObjectGraphCollector {
     }
 
     public ArrayList<Endpoint> getClassFriendEndpoints() {
-        return classFriendEndpoints;
+        return this.schema.getClassFriendEndpoints();
     }
 
     public Map<Endpoint, String> getAllocates() {
-        return allocates;
+        return this.schema.getAllocates();
     }
 
     public Map<Endpoint, String> getReferenceNames() {
-        return referenceNames;
+        return this.schema.getReferenceNames();
     }
 
     public ArrayList<ModelObject> getAssociatedObjects(Endpoint classEndpoint) {
@@ -52,93 +52,37 @@ public class ObjectGraphCollector {
     }
 
     public ObjectGraphCollector(ModelObject modelObject) {
-        this.modelObject = modelObject;
-        perpareHelpers();
-        setAllocates();
-        setReferenceNames();
-        setObjectReferences();
-        setClassObjectRelations();
+        this(modelObject, new ReferenceSchema(modelObject.getModelClass()));
     }
 
-    private void perpareHelpers() {
-        for (Endpoint endpoint : this.modelObject.getModelClass().getEndpoints()) {
-            Endpoint friendEndpoint = endpoint.getFriend();
-            Relation relation = endpoint.getRelation();
-            if (!RelationType.DEPENDENCY.equals(relation.getRelationType()) && !RelationType.GENERALIZATION.equals(relation.getRelationType())) {
-                if ((endpoint.getFriend().isEnd())
-                    || (endpoint.getFriend().isStart() && RelationType.BIDIRECTED_ASSOCIATION.equals(relation.getRelationType()))) {
-                    this.classFriendEndpoints.add(friendEndpoint);
-                }
-            }
-        }
-        for (Endpoint endpoint : this.classFriendEndpoints) {
+    /**
+     * @param modelObject the object to collect the references for
+     * @param schema      the reference schema of the class of the object
+     */
+    public ObjectGraphCollector(ModelObject modelObject, ReferenceSchema schema) {
+        this.modelObject = modelObject;
+        this.schema = schema;
+        for (Endpoint endpoint : this.schema.getClassFriendEndpoints()) {
             this.classObjectRelations.put(endpoint, new ArrayList<Relation>());
         }
-    }
-
-    private void setAllocates() {
-        for (Endpoint friendEndpoint : this.classFriendEndpoints) {
-            String multiString = friendEndpoint.getMultiplicity();
-            String upperBound = MultiplicityParser.getUppermostBound(multiString);
-            if (upperBound != null && !upperBound.isEmpty()) {
-                allocates.put(friendEndpoint, upperBound);
-            }
-        }
-    }
-
-    private void setReferenceNames() {
-        for (Endpoint friendEndpoint : this.classFriendEndpoints) {
-            String roleName = friendEndpoint.getRoleName();
-            if (roleName != null && !roleName.isEmpty()) {
-                this.referenceNames.put(friendEndpoint, roleName);
-            }
-            else {
-                String className = friendEndpoint.getAppendant().getName();
-                String referenceName = "m" + className;
-                String nextReferenceName = "m" + "1" + className;
-                if (this.referenceNames.values().contains(referenceName)) {
-                    Endpoint prevEndpoint = getFirstEndpoint(referenceName);
-                    this.referenceNames.remove(prevEndpoint); // replace old reference name
-                    this.referenceNames.put(prevEndpoint, nextReferenceName);
-                }
-                if (this.referenceNames.values().contains(nextReferenceName)) {
-                    referenceName = "m" + "1" + className;
-                    while (this.referenceNames.values().contains(referenceName)) {
-                        String partRefName = TextUtil.replaceLast(referenceName, className, "");
-                        referenceName = TextUtil.countUpTrailing(partRefName, 1);
-                        referenceName += className;
-                    }
-                }
-                this.referenceNames.put(friendEndpoint, referenceName);
-            }
-        }
-    }
-
-    private Endpoint getFirstEndpoint(String referenceName) {
-        for (Entry<Endpoint, String> entry : this.referenceNames.entrySet()) {
-            if (entry.getValue().equals(referenceName)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        setObjectReferences();
+        setClassObjectRelations();
     }
 
     private void setClassObjectRelations() {
-        for (Endpoint classEndpoint : this.classFriendEndpoints) {
-            for (Relation objectRelation : this.objectRelations) {
-                Relation classRelation = classEndpoint.getRelation();
-                ModelClass friendClass = (ModelClass) classRelation.getEnd().getAppendant();
-                ModelObject friendStartObject = (ModelObject) objectRelation.getStart().getAppendant();
-                ModelObject friendEndObject = (ModelObject) objectRelation.getEnd().getAppendant();
-                if (classRelation.getColor().equals(objectRelation.getColor()) && (friendClass.equals(friendStartObject.getModelClass()) || friendClass.equals(friendEndObject.getModelClass()))) {
-                    ArrayList<Relation> objectRelations = this.classObjectRelations.get(classEndpoint);
-                    objectRelations.add(objectRelation);
-                    this.classObjectRelations.put(classEndpoint, objectRelations);
-                }
+        for (Relation objectRelation : this.objectRelations) {
+            ModelClass startClass = ((ModelObject) objectRelation.getStart().getAppendant()).getModelClass();
+            ModelClass endClass = ((ModelObject) objectRelation.getEnd().getAppendant()).getModelClass();
+            List<Endpoint> startEndpoints = this.schema.getClassEndpoints(startClass, objectRelation.getColor());
+            List<Endpoint> endEndpoints = startClass.equals(endClass) ? Collections.<Endpoint>emptyList() : this.schema.getClassEndpoints(endClass, objectRelation.getColor());
+            for (Endpoint classEndpoint : startEndpoints) {
+                this.classObjectRelations.get(classEndpoint).add(objectRelation);
+            }
+            for (Endpoint classEndpoint : endEndpoints) {
+                this.classObjectRelations.get(classEndpoint).add(objectRelation);
             }
         }
     }
-
     private void setObjectReferences() {
         for (Endpoint endpoint : this.modelObject.getEndpoints()) {
             ModelBox modelBox = endpoint.getFriend().getAppendant();
@@ -0,0 +1,250 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.*;
+import ch.hsr.ogv.util.ColorUtil;
+import ch.hsr.ogv.util.MultiplicityParser;
+import ch.hsr.ogv.util.SpatialHash;
+import ch.hsr.ogv.view.PaneBox;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the content of the object graph as plain data: texts, colors, positions and references of all object boxes
+ * and array boxes. Plans of different model objects are independent and computed in parallel, only placing the array
+ * boxes is sequential. Nothing in here touches JavaFX nodes, so it does not need to run on the FX thread, but the model
+ * must not change while planning.
+ */
+public class ObjectGraphPlanner {
+
+    public final static double ARRAYBOX_LEVEL_DIFF = 100.0;
+    public final static double APPROX_RANGE = 50.0;
+
+    private final static int SEQUENTIAL_THRESHOLD = 32; // model objects planned by one task without splitting further
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Plans on the common fork join pool.
+     */
+    public ObjectGraphPlanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ObjectGraphPlanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param modelObjects the model objects to plan, super objects included
+     * @return one plan per model object, in the order of the given list
+     */
+    public List<BoxPlan> plan(List<ModelObject> modelObjects) {
+        Map<ModelClass, ReferenceSchema> schemas = new HashMap<ModelClass, ReferenceSchema>();
+        for (ModelObject modelObject : modelObjects) {
+            schemas.computeIfAbsent(modelObject.getModelClass(), ReferenceSchema::new);
+        }
+        BoxPlan[] plans = new BoxPlan[modelObjects.size()];
+        if (plans.length > 0) {
+            this.pool.invoke(new PlanTask(modelObjects, schemas, plans, 0, plans.length));
+        }
+        List<BoxPlan> planList = new ArrayList<BoxPlan>(plans.length);
+        for (BoxPlan plan : plans) {
+            planList.add(plan);
+        }
+        return planList;
+    }
+
+    /**
+     * Moves array boxes up until they do not collide with any box placed before, in the order of the given plans. The
+     * array boxes of a model object are placed before its own box. All placed boxes are added to the given hash.
+     */
+    public static void place(List<BoxPlan> plans, SpatialHash<Object> placedBoxes) {
+        for (BoxPlan plan : plans) {
+            for (ReferencePlan reference : plan.references) {
+                ArrayPlan arrayPlan = reference.arrayPlan;
+                if (arrayPlan == null) {
+                    continue;
+                }
+                Point3D newPosition = arrayPlan.position;
+                while (placedBoxes.hasPointWithin(newPosition.getX(), newPosition.getY(), newPosition.getZ(), APPROX_RANGE)) {
+                    newPosition = new Point3D(newPosition.getX(), newPosition.getY() + ARRAYBOX_LEVEL_DIFF, newPosition.getZ());
+                }
+                arrayPlan.position = newPosition;
+                putPlaced(placedBoxes, arrayPlan, newPosition);
+            }
+            putPlaced(placedBoxes, plan, plan.position);
+        }
+    }
+
+    private static void putPlaced(SpatialHash<Object> placedBoxes, Object key, Point3D position) {
+        double depth = PaneBox.OBJECTBOX_DEPTH;
+        double centerY = position.getY() - (depth / 2); // same arithmetic as PaneBox.getCenterPoint()
+        placedBoxes.put(key, position.getX(), centerY + depth / 2, position.getZ());
+    }
+
+    static BoxPlan planBox(ModelObject modelObject, Map<ModelClass, ReferenceSchema> schemas) {
+        BoxPlan plan = new BoxPlan(modelObject);
+        ModelClass modelClass = modelObject.getModelClass();
+        plan.topText = modelObject.getName() + " : " + modelClass.getName();
+        plan.color = modelObject.getColor();
+        plan.position = modelObject.getCoordinates();
+        plan.width = modelObject.getWidth();
+        plan.height = modelObject.getHeight();
+        plan.attributeCount = modelClass.getAttributes().size();
+        for (int i = 0; i < modelClass.getAttributes().size() && i < PaneBox.MAX_CENTER_LABELS; i++) {
+            Attribute attribute = modelClass.getAttributes().get(i);
+            String attributeName = attribute.getName();
+            String attributeValue = modelObject.getAttributeValue(attribute);
+            if (attributeValue != null && !attributeValue.isEmpty()) {
+                plan.addCenterText(attributeName + " = " + attributeValue, attributeValue);
+            }
+            else {
+                plan.addCenterText(attributeName, attributeValue);
+            }
+        }
+        plan.superObject = modelObject.isSuperObject();
+        if (!plan.superObject) {
+            planReferences(plan, new ObjectGraphCollector(modelObject, schemas.get(modelClass)));
+        }
+        return plan;
+    }
+
+    private static void planReferences(BoxPlan plan, ObjectGraphCollector ogCollector) {
+        for (Endpoint friendEndpoint : ogCollector.getClassFriendEndpoints()) {
+            String roleName = ogCollector.getReferenceNames().get(friendEndpoint);
+            plan.referenceNames.add(roleName + " " + MultiplicityParser.ASTERISK);
+        }
+        for (int i = 0; i < ogCollector.getClassFriendEndpoints().size(); i++) {
+            Endpoint friendEndpoint = ogCollector.getClassFriendEndpoints().get(i);
+            Relation relation = friendEndpoint.getRelation();
+            ArrayList<ModelObject> modelObjects = ogCollector.getAssociatedObjects(friendEndpoint);
+            String upperBoundStr = ogCollector.getAllocates().get(friendEndpoint);
+            if (!modelObjects.isEmpty() && upperBoundStr != null && !upperBoundStr.isEmpty() && upperBoundStr.equals("1")) { // direct reference
+                plan.references.add(new ReferencePlan(i, relation, modelObjects.get(0), null));
+            }
+            else if (!modelObjects.isEmpty()) { // create array object in between
+                if (upperBoundStr == null) {
+                    upperBoundStr = MultiplicityParser.ASTERISK;
+                }
+                ArrayPlan arrayPlan = planArrayBox(ogCollector.getModelObject(), (ModelClass) friendEndpoint.getAppendant(), relation, upperBoundStr);
+                Integer upperBound = MultiplicityParser.toInteger(ogCollector.getAllocates().get(friendEndpoint));
+                arrayPlan.rows = upperBound != null ? upperBound : modelObjects.size();
+                arrayPlan.targets = modelObjects;
+                plan.references.add(new ReferencePlan(i, relation, null, arrayPlan));
+            }
+        }
+    }
+
+    private static ArrayPlan planArrayBox(ModelObject modelObject, ModelClass modelClass, Relation relation, String upperBoundStr) {
+        ArrayPlan arrayPlan = new ArrayPlan();
+        arrayPlan.topText = " : " + modelClass.getName() + "[" + upperBoundStr + "]";
+        arrayPlan.color = ColorUtil.brighter(modelClass.getColor(), 0.1);
+        Point3D newPosition = modelObject.getCoordinates().midpoint(modelClass.getCoordinates());
+        if (!relation.isReflexive()) {
+            newPosition = new Point3D(newPosition.getX(), modelObject.getY(), newPosition.getZ());
+        }
+        else {
+            newPosition = new Point3D(newPosition.getX() + (ARRAYBOX_LEVEL_DIFF * 2) + (modelObject.getWidth() / 2), modelObject.getY(), newPosition.getZ());
+        }
+        arrayPlan.position = newPosition; // not yet placed, see place()
+        return arrayPlan;
+    }
+
+    private static class PlanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<ModelObject> modelObjects;
+        private final Map<ModelClass, ReferenceSchema> schemas;
+        private final BoxPlan[] plans;
+        private final int from;
+        private final int to;
+
+        PlanTask(List<ModelObject> modelObjects, Map<ModelClass, ReferenceSchema> schemas, BoxPlan[] plans, int from, int to) {
+            this.modelObjects = modelObjects;
+            this.schemas = schemas;
+            this.plans = plans;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.plans[i] = planBox(this.modelObjects.get(i), this.schemas);
+                }
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new PlanTask(this.modelObjects, this.schemas, this.plans, this.from, mid), new PlanTask(this.modelObjects, this.schemas, this.plans, mid, this.to));
+        }
+    }
+
+    /**
+     * Content of the box of one model object and its outgoing references.
+     */
+    public static class BoxPlan {
+
+        final ModelObject modelObject;
+        String topText;
+        Color color;
+        Point3D position;
+        double width;
+        double height;
+        boolean superObject;
+        int attributeCount;
+        final List<String> centerLabelTexts = new ArrayList<String>();
+        final List<String> centerFieldTexts = new ArrayList<String>();
+        final List<String> referenceNames = new ArrayList<String>(); // label texts of the reference rows below the attributes
+        final List<ReferencePlan> references = new ArrayList<ReferencePlan>();
+
+        BoxPlan(ModelObject modelObject) {
+            this.modelObject = modelObject;
+        }
+
+        private void addCenterText(String labelText, String fieldText) {
+            this.centerLabelTexts.add(labelText);
+            this.centerFieldTexts.add(fieldText);
+        }
+
+        public ModelObject getModelObject() {
+            return modelObject;
+        }
+    }
+
+    /**
+     * A reference row, pointing either directly to another object or to an array box in between.
+     */
+    static class ReferencePlan {
+
+        final int referenceIndex; // index in the reference names of the box
+        final Relation relation;
+        final ModelObject target; // direct reference, or null
+        final ArrayPlan arrayPlan; // array reference, or null
+
+        ReferencePlan(int referenceIndex, Relation relation, ModelObject target, ArrayPlan arrayPlan) {
+            this.referenceIndex = referenceIndex;
+            this.relation = relation;
+            this.target = target;
+            this.arrayPlan = arrayPlan;
+        }
+    }
+
+    static class ArrayPlan {
+
+        String topText;
+        Color color;
+        Point3D position;
+        int rows;
+        List<ModelObject> targets; // referenced objects, row by row
+    }
+
+}
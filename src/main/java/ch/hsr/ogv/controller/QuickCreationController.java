@@ -48,10 +48,9 @@ public class QuickCreationController {
             if (ke.getCode() == KeyCode.ENTER && !ke.isControlDown()) { // continue
                 disableClassSpeedCreation();
                 Attribute newAttribute = this.mvConnector.handleCreateNewAttribute(this.paneBox);
-                for (TextField centerTextField : this.paneBox.getCenterTextFields()) {
-                    if (centerTextField.getText().equals(newAttribute.getName())) {
-                        new QuickCreationController(centerTextField, this.paneBox, this.mvConnector);
-                    }
+                TextField centerTextField = this.paneBox.getCenterTextField();
+                if (newAttribute != null && this.paneBox.getCenterEditRow() >= 0 && centerTextField.getText().equals(newAttribute.getName())) {
+                    new QuickCreationController(centerTextField, this.paneBox, this.mvConnector);
                 }
             }
             else if ((ke.getCode() == KeyCode.ENTER && ke.isControlDown()) || ke.getCode() == KeyCode.ESCAPE) { // finish
@@ -91,14 +90,14 @@ public class QuickCreationController {
                 if (selectedLabel != null && selectedLabel.equals(this.paneBox.getTopLabel()) && !this.paneBox.getCenterLabels().isEmpty()) {
                     Label firstCenterLabel = this.paneBox.getCenterLabels().get(0);
                     this.paneBox.allowCenterFieldTextInput(firstCenterLabel, true);
-                    new QuickCreationController(this.paneBox.getCenterTextFields().get(0), paneBox, mvConnector);
+                    new QuickCreationController(this.paneBox.getCenterTextField(), paneBox, mvConnector);
                 }
                 else if (selectedLabel != null && this.paneBox.getCenterLabels().contains(selectedLabel)) {
                     int rowIndex = this.paneBox.getCenterLabels().indexOf(selectedLabel);
                     if (rowIndex + 1 > 0 && rowIndex + 1 < this.paneBox.getCenterLabels().size()) {
                         Label nextCenterLabel = this.paneBox.getCenterLabels().get(rowIndex + 1);
                         this.paneBox.allowCenterFieldTextInput(nextCenterLabel, true);
-                        new QuickCreationController(this.paneBox.getCenterTextFields().get(rowIndex + 1), paneBox, mvConnector);
+                        new QuickCreationController(this.paneBox.getCenterTextField(), paneBox, mvConnector);
                     }
                 }
             }
@@ -0,0 +1,170 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.*;
+import ch.hsr.ogv.util.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reachability and path queries over the references between model objects, the same references the object graph draws
+ * as arrows. The model is compiled once into a {@link CompactGraph} with one int id per model object, the queries then
+ * run on plain int arrays. Super objects are part of their sub object and not a vertex of their own.
+ * <p>
+ * A query is a snapshot, compile a new one after the model changed.
+ */
+public class ReferenceQuery {
+
+    private final List<ModelObject> modelObjects = new ArrayList<ModelObject>(); // k: id, v: model object
+    private final Map<ModelObject, Integer> ids = new HashMap<ModelObject, Integer>();
+    private final CompactGraph graph;
+
+    public ReferenceQuery(Collection<ModelClass> modelClasses) {
+        for (ModelClass modelClass : modelClasses) {
+            for (ModelObject modelObject : modelClass.getModelObjects()) {
+                this.ids.put(modelObject, this.modelObjects.size());
+                this.modelObjects.add(modelObject);
+            }
+        }
+        CompactGraph.Builder builder = new CompactGraph.Builder(this.modelObjects.size());
+        Map<ModelClass, ReferenceSchema> schemas = new HashMap<ModelClass, ReferenceSchema>();
+        for (int id = 0; id < this.modelObjects.size(); id++) {
+            ModelObject modelObject = this.modelObjects.get(id);
+            ReferenceSchema schema = schemas.computeIfAbsent(modelObject.getModelClass(), ReferenceSchema::new);
+            ObjectGraphCollector ogCollector = new ObjectGraphCollector(modelObject, schema);
+            for (Endpoint friendEndpoint : ogCollector.getClassFriendEndpoints()) {
+                for (ModelObject referenced : ogCollector.getAssociatedObjects(friendEndpoint)) {
+                    Integer target = this.ids.get(referenced);
+                    if (target != null) {
+                        builder.addEdge(id, target);
+                    }
+                }
+            }
+        }
+        this.graph = builder.build();
+    }
+
+    public CompactGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * @return the id of the given model object, or -1 if it is not part of this query
+     */
+    public int getId(ModelObject modelObject) {
+        Integer id = this.ids.get(modelObject);
+        return id != null ? id : -1;
+    }
+
+    public ModelObject getModelObject(int id) {
+        return this.modelObjects.get(id);
+    }
+
+    /**
+     * @return the objects reachable over references from the given one, itself included
+     */
+    public Set<ModelObject> reachableFrom(ModelObject modelObject) {
+        int id = getId(modelObject);
+        if (id < 0) {
+            return new LinkedHashSet<ModelObject>();
+        }
+        return toModelObjects(this.graph.reachableFrom(id));
+    }
+
+    /**
+     * @return the objects of a path with the least references from one object to the other, both included, or an empty
+     * list if there is none
+     */
+    public List<ModelObject> shortestPath(ModelObject from, ModelObject to) {
+        List<ModelObject> path = new ArrayList<ModelObject>();
+        int fromId = getId(from);
+        int toId = getId(to);
+        if (fromId < 0 || toId < 0) {
+            return path;
+        }
+        for (int id : this.graph.shortestPath(fromId, toId)) {
+            path.add(this.modelObjects.get(id));
+        }
+        return path;
+    }
+
+    /**
+     * @param roots the objects considered alive, or an empty collection to use all objects no other object refers to
+     * @return the objects that can not be reached from any root, for example cycles nothing refers to from outside
+     */
+    public Set<ModelObject> unreachableFrom(Collection<ModelObject> roots) {
+        List<Integer> rootIds = new ArrayList<Integer>();
+        if (roots.isEmpty()) {
+            int[] inDegrees = this.graph.getInDegrees();
+            for (int id = 0; id < inDegrees.length; id++) {
+                if (inDegrees[id] == 0) {
+                    rootIds.add(id);
+                }
+            }
+        }
+        else {
+            for (ModelObject root : roots) {
+                int id = getId(root);
+                if (id >= 0) {
+                    rootIds.add(id);
+                }
+            }
+        }
+        int[] sources = new int[rootIds.size()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = rootIds.get(i);
+        }
+        BitSet unreachable = this.graph.reachableFrom(sources);
+        unreachable.flip(0, this.graph.getVertexCount());
+        return toModelObjects(unreachable);
+    }
+
+    /**
+     * @return the groups of objects that refer to each other in a cycle, objects that refer to themselves included
+     */
+    public List<Set<ModelObject>> referenceCycles() {
+        int[] components = this.graph.stronglyConnectedComponents();
+        Map<Integer, Set<ModelObject>> members = new HashMap<Integer, Set<ModelObject>>();
+        for (int id = 0; id < components.length; id++) {
+            members.computeIfAbsent(components[id], key -> new LinkedHashSet<ModelObject>()).add(this.modelObjects.get(id));
+        }
+        List<Set<ModelObject>> cycles = new ArrayList<Set<ModelObject>>();
+        BitSet added = new BitSet();
+        for (int id = 0; id < components.length; id++) {
+            int component = components[id];
+            if (added.get(component)) {
+                continue;
+            }
+            Set<ModelObject> cycle = members.get(component);
+            if (cycle.size() > 1 || refersToItself(id)) {
+                cycles.add(cycle);
+                added.set(component);
+            }
+        }
+        return cycles;
+    }
+
+    private boolean refersToItself(int id) {
+        for (int successor : this.graph.getSuccessors(id)) {
+            if (successor == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<ModelObject> toModelObjects(BitSet idSet) {
+        Set<ModelObject> result = new LinkedHashSet<ModelObject>();
+        for (int id = idSet.nextSetBit(0); id >= 0; id = idSet.nextSetBit(id + 1)) {
+            result.add(this.modelObjects.get(id));
+        }
+        return result;
+    }
+
+}
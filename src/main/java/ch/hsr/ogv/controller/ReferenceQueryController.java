@@ -0,0 +1,131 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelBox;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.util.MessageBar;
+import ch.hsr.ogv.util.MessageBar.MessageLevel;
+import ch.hsr.ogv.view.PaneBox;
+import ch.hsr.ogv.view.Selectable;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs {@link ReferenceQuery}s on the selected object and highlights the resulting object boxes.
+ */
+public class ReferenceQueryController {
+
+    private final static Color REACHABLE_COLOR = Color.DODGERBLUE;
+    private final static Color PATH_COLOR = Color.LIMEGREEN;
+    private final static Color UNREACHABLE_COLOR = Color.CRIMSON;
+    private final static Color[] CYCLE_COLORS = { Color.DARKORANGE, Color.MEDIUMVIOLETRED, Color.TEAL, Color.GOLDENROD, Color.SLATEBLUE };
+
+    private ModelViewConnector mvConnector;
+    private ModelObject pathStart = null;
+    private List<PaneBox> highlighted = new ArrayList<PaneBox>();
+
+    public void setMVConnector(ModelViewConnector mvConnector) {
+        this.mvConnector = mvConnector;
+    }
+
+    public boolean hasPathStart() {
+        return this.pathStart != null && this.mvConnector.containsModelBox(this.pathStart);
+    }
+
+    private ReferenceQuery compile() {
+        return new ReferenceQuery(this.mvConnector.getModelManager().getClasses());
+    }
+
+    private ModelObject getSelectedObject(Selectable selected) {
+        if (!(selected instanceof PaneBox)) {
+            return null;
+        }
+        ModelBox modelBox = this.mvConnector.getModelBox((PaneBox) selected);
+        if (!(modelBox instanceof ModelObject) || ((ModelObject) modelBox).isSuperObject()) {
+            return null;
+        }
+        return (ModelObject) modelBox;
+    }
+
+    public void handleReachable(Selectable selected) {
+        ModelObject modelObject = getSelectedObject(selected);
+        if (modelObject == null) {
+            return;
+        }
+        Set<ModelObject> reachable = compile().reachableFrom(modelObject);
+        clearHighlights();
+        highlight(reachable, REACHABLE_COLOR);
+        MessageBar.setText((reachable.size() - 1) + " objects reachable from \"" + modelObject.getName() + "\".", MessageLevel.INFO);
+    }
+
+    public void handleSetPathStart(Selectable selected) {
+        ModelObject modelObject = getSelectedObject(selected);
+        if (modelObject == null) {
+            return;
+        }
+        this.pathStart = modelObject;
+        clearHighlights();
+        highlight(Collections.singleton(modelObject), PATH_COLOR);
+        MessageBar.setText("Path starts at \"" + modelObject.getName() + "\", select the path end.", MessageLevel.INFO);
+    }
+
+    public void handleShortestPath(Selectable selected) {
+        ModelObject modelObject = getSelectedObject(selected);
+        if (modelObject == null || !hasPathStart()) {
+            return;
+        }
+        List<ModelObject> path = compile().shortestPath(this.pathStart, modelObject);
+        clearHighlights();
+        if (path.isEmpty()) {
+            MessageBar.setText("No reference path from \"" + this.pathStart.getName() + "\" to \"" + modelObject.getName() + "\".", MessageLevel.WARN);
+            return;
+        }
+        highlight(path, PATH_COLOR);
+        MessageBar.setText("Shortest path from \"" + this.pathStart.getName() + "\" to \"" + modelObject.getName() + "\": " + (path.size() - 1) + " references.", MessageLevel.INFO);
+    }
+
+    /**
+     * Highlights the objects not reachable from the selected object, or from the objects nothing refers to if no object
+     * is selected.
+     */
+    public void handleUnreachable(Selectable selected) {
+        ModelObject modelObject = getSelectedObject(selected);
+        Collection<ModelObject> roots = modelObject != null ? Collections.singleton(modelObject) : Collections.<ModelObject>emptySet();
+        Set<ModelObject> unreachable = compile().unreachableFrom(roots);
+        clearHighlights();
+        highlight(unreachable, UNREACHABLE_COLOR);
+        String from = modelObject != null ? "\"" + modelObject.getName() + "\"" : "unreferenced objects";
+        MessageBar.setText(unreachable.size() + " objects not reachable from " + from + ".", MessageLevel.INFO);
+    }
+
+    public void handleReferenceCycles() {
+        List<Set<ModelObject>> cycles = compile().referenceCycles();
+        clearHighlights();
+        for (int i = 0; i < cycles.size(); i++) {
+            highlight(cycles.get(i), CYCLE_COLORS[i % CYCLE_COLORS.length]);
+        }
+        MessageBar.setText(cycles.size() + " reference cycles found.", MessageLevel.INFO);
+    }
+
+    public void clearHighlights() {
+        for (PaneBox paneBox : this.highlighted) {
+            paneBox.setHighlight(null);
+        }
+        this.highlighted.clear();
+    }
+
+    private void highlight(Collection<ModelObject> modelObjects, Color color) {
+        for (ModelObject modelObject : modelObjects) {
+            PaneBox paneBox = this.mvConnector.getPaneBox(modelObject);
+            if (paneBox != null) {
+                paneBox.setHighlight(color);
+                this.highlighted.add(paneBox);
+            }
+        }
+    }
+
+}
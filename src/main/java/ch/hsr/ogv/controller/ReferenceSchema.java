@@ -0,0 +1,151 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.*;
+import ch.hsr.ogv.util.MultiplicityParser;
+import ch.hsr.ogv.util.TextUtil;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The references all objects of one class have in the object graph: the class relations they allocate, the upper
+ * multiplicity bound and the reference name of each. It only depends on the class and its relations, so it is computed
+ * once per class and shared by the {@link ObjectGraphCollector}s of all its objects.
+ */
+public class ReferenceSchema {
+
+    private ModelClass modelClass;
+    private ArrayList<Endpoint> classFriendEndpoints = new ArrayList<Endpoint>(); // all class relations friend endpoints
+    private Map<Endpoint, String> allocates = new LinkedHashMap<Endpoint, String>(); // k: class endpoint, v: upper multiplicity bound
+    private Map<Endpoint, String> referenceNames = new LinkedHashMap<Endpoint, String>(); // k: class endpoint, v: role name / mClass
+    private Map<String, Set<Endpoint>> namedEndpoints = new HashMap<String, Set<Endpoint>>(); // k: reference name, v: endpoints in order of referenceNames
+    private Map<ModelClass, Map<Color, List<Endpoint>>> endpointIndex = new HashMap<ModelClass, Map<Color, List<Endpoint>>>(); // k: relation end class, v: class endpoints by relation color
+
+    public ReferenceSchema(ModelClass modelClass) {
+        this.modelClass = modelClass;
+        prepareFriendEndpoints();
+        setAllocates();
+        setReferenceNames();
+        this.namedEndpoints = null; // only needed while naming
+        indexEndpoints();
+    }
+
+    public ModelClass getModelClass() {
+        return modelClass;
+    }
+
+    public ArrayList<Endpoint> getClassFriendEndpoints() {
+        return classFriendEndpoints;
+    }
+
+    public Map<Endpoint, String> getAllocates() {
+        return allocates;
+    }
+
+    public Map<Endpoint, String> getReferenceNames() {
+        return referenceNames;
+    }
+
+    /**
+     * @return the class endpoints whose relation has the given color and ends at the given class, in the order of
+     * {@link #getClassFriendEndpoints()}
+     */
+    public List<Endpoint> getClassEndpoints(ModelClass endClass, Color color) {
+        Map<Color, List<Endpoint>> byColor = this.endpointIndex.get(endClass);
+        if (byColor == null) {
+            return Collections.emptyList();
+        }
+        List<Endpoint> classEndpoints = byColor.get(color);
+        return classEndpoints != null ? classEndpoints : Collections.<Endpoint>emptyList();
+    }
+
+    private void prepareFriendEndpoints() {
+        for (Endpoint endpoint : this.modelClass.getEndpoints()) {
+            Endpoint friendEndpoint = endpoint.getFriend();
+            Relation relation = endpoint.getRelation();
+            if (!RelationType.DEPENDENCY.equals(relation.getRelationType()) && !RelationType.GENERALIZATION.equals(relation.getRelationType())) {
+                if ((endpoint.getFriend().isEnd())
+                    || (endpoint.getFriend().isStart() && RelationType.BIDIRECTED_ASSOCIATION.equals(relation.getRelationType()))) {
+                    this.classFriendEndpoints.add(friendEndpoint);
+                }
+            }
+        }
+    }
+
+    private void setAllocates() {
+        for (Endpoint friendEndpoint : this.classFriendEndpoints) {
+            String multiString = friendEndpoint.getMultiplicity();
+            String upperBound = MultiplicityParser.getUppermostBound(multiString);
+            if (upperBound != null && !upperBound.isEmpty()) {
+                this.allocates.put(friendEndpoint, upperBound);
+            }
+        }
+    }
+
+    private void setReferenceNames() {
+        for (Endpoint friendEndpoint : this.classFriendEndpoints) {
+            String roleName = friendEndpoint.getRoleName();
+            if (roleName != null && !roleName.isEmpty()) {
+                putReferenceName(friendEndpoint, roleName);
+            }
+            else {
+                String className = friendEndpoint.getAppendant().getName();
+                String referenceName = "m" + className;
+                String nextReferenceName = "m" + "1" + className;
+                if (isReferenceNameTaken(referenceName)) {
+                    Endpoint prevEndpoint = this.namedEndpoints.get(referenceName).iterator().next();
+                    removeReferenceName(prevEndpoint); // replace old reference name
+                    putReferenceName(prevEndpoint, nextReferenceName);
+                }
+                if (isReferenceNameTaken(nextReferenceName)) {
+                    referenceName = "m" + "1" + className;
+                    while (isReferenceNameTaken(referenceName)) {
+                        String partRefName = TextUtil.replaceLast(referenceName, className, "");
+                        referenceName = TextUtil.countUpTrailing(partRefName, 1);
+                        referenceName += className;
+                    }
+                }
+                putReferenceName(friendEndpoint, referenceName);
+            }
+        }
+    }
+
+    private boolean isReferenceNameTaken(String referenceName) {
+        Set<Endpoint> endpoints = this.namedEndpoints.get(referenceName);
+        return endpoints != null && !endpoints.isEmpty();
+    }
+
+    private void putReferenceName(Endpoint endpoint, String referenceName) {
+        String oldName = this.referenceNames.put(endpoint, referenceName);
+        if (oldName != null) {
+            this.namedEndpoints.get(oldName).remove(endpoint);
+        }
+        this.namedEndpoints.computeIfAbsent(referenceName, key -> new LinkedHashSet<Endpoint>()).add(endpoint);
+    }
+
+    private void removeReferenceName(Endpoint endpoint) {
+        String oldName = this.referenceNames.remove(endpoint);
+        if (oldName != null) {
+            this.namedEndpoints.get(oldName).remove(endpoint);
+        }
+    }
+
+    private void indexEndpoints() {
+        for (Endpoint classEndpoint : this.classFriendEndpoints) {
+            Relation classRelation = classEndpoint.getRelation();
+            if (!(classRelation.getEnd().getAppendant() instanceof ModelClass)) {
+                continue;
+            }
+            ModelClass endClass = (ModelClass) classRelation.getEnd().getAppendant();
+            this.endpointIndex.computeIfAbsent(endClass, key -> new HashMap<Color, List<Endpoint>>()).computeIfAbsent(classRelation.getColor(), key -> new ArrayList<Endpoint>()).add(classEndpoint);
+        }
+    }
+
+}
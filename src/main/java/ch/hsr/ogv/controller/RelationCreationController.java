@@ -183,19 +183,22 @@ public class RelationCreationController extends Observable implements Observer {
         selectionController.deleteObserver(this);
     }
 
-    private boolean isClassesRelation(RelationType relationType) {
+    private static boolean isClassesRelation(RelationType relationType) {
         return relationType == RelationType.UNDIRECTED_ASSOCIATION || relationType == RelationType.DIRECTED_ASSOCIATION || relationType == RelationType.BIDIRECTED_ASSOCIATION
                || relationType == RelationType.UNDIRECTED_AGGREGATION || relationType == RelationType.DIRECTED_AGGREGATION || relationType == RelationType.UNDIRECTED_COMPOSITION
                || relationType == RelationType.DIRECTED_COMPOSITION || relationType == RelationType.GENERALIZATION || relationType == RelationType.DEPENDENCY
                || relationType == RelationType.ASSOZIATION_CLASS;
     }
 
-    private boolean isObjectsRelation(RelationType relationType) {
+    private static boolean isObjectsRelation(RelationType relationType) {
         return relationType == RelationType.OBJDIAGRAM || relationType == RelationType.OBJGRAPH;
     }
 
-    private boolean checkRelation(ModelBox start, ModelBox end, RelationType relationType) {
-        ModelManager modelManager = this.mvConnector.getModelManager();
+    /**
+     * @return true if a relation of the given type may be created from start to end, the same check for the UI and for
+     * the {@link CommandInterpreter}
+     */
+    static boolean checkRelation(ModelManager modelManager, ModelBox start, ModelBox end, RelationType relationType) {
         if (start == null || end == null || relationType == null) {
             return false;
         }
@@ -256,7 +259,7 @@ public class RelationCreationController extends Observable implements Observer {
         return true;
     }
 
-    private boolean isCycleFree(ModelClass startClass, ModelClass endClass) {
+    private static boolean isCycleFree(ModelClass startClass, ModelClass endClass) {
         if (startClass.equals(endClass)) {
             return false;
         }
@@ -274,7 +277,7 @@ public class RelationCreationController extends Observable implements Observer {
         boolean isClassesRelation = isClassesRelation(this.relationType);
         boolean isObjectsRelation = isObjectsRelation(this.relationType);
         for (ModelBox modelBox : this.mvConnector.getBoxes().keySet()) {
-            if (this.creationInProcess && !checkRelation(this.mvConnector.getModelBox(this.startBox), modelBox, this.relationType)) {
+            if (this.creationInProcess && !checkRelation(this.mvConnector.getModelManager(), this.mvConnector.getModelBox(this.startBox), modelBox, this.relationType)) {
                 continue;
             }
             PaneBox paneBox = this.mvConnector.getPaneBox(modelBox);
@@ -122,8 +122,10 @@ public class TextFieldController {
     }
 
     public void enableCenterTextInput(ModelBox modelBox, PaneBox paneBox, ModelViewConnector mvConnector) {
-        for (TextField centerTextField : paneBox.getCenterTextFields()) {
-
+        if (paneBox.hasCenterTextFieldSetup()) {
+            return; // the shared center editor stays the same when center fields are recreated
+        }
+        paneBox.setCenterTextFieldSetup(centerTextField -> {
             if (modelBox instanceof ModelClass) {
                 centerTextField.addEventFilter(KeyEvent.KEY_TYPED, nonAlphaUnderscoreFilter());
             }
@@ -132,7 +134,7 @@ public class TextFieldController {
                 @Override
                 public void changed(ObservableValue<? extends Boolean> focusProperty, Boolean oldHasFocus, Boolean newHasFocus) {
                     if (!newHasFocus) { // loosing focus
-                        int rowIndex = paneBox.getCenterTextFields().indexOf(centerTextField);
+                        int rowIndex = paneBox.getCenterEditRow();
                         if (rowIndex >= 0) {
                             Label centerLabel = paneBox.getCenterLabels().get(rowIndex);
                             paneBox.allowCenterFieldTextInput(centerLabel, false);
@@ -172,8 +174,8 @@ public class TextFieldController {
                 @Override
                 public void changed(ObservableValue<? extends String> observableValue, String oldValue, String newValue) {
                     try {
-                        int rowIndex = paneBox.getCenterTextFields().indexOf(centerTextField);
-                        if (modelBox instanceof ModelClass) {
+                        int rowIndex = paneBox.getCenterEditRow();
+                        if (rowIndex >= 0 && modelBox instanceof ModelClass) {
                             ModelClass modelClass = (ModelClass) modelBox;
 
                             double newWidth = paneBox.calcMinWidth();
@@ -208,7 +210,7 @@ public class TextFieldController {
                     paneBox.get().requestFocus();
                 }
                 else if (ke.getCode() == KeyCode.ESCAPE) {
-                    int rowIndex = paneBox.getCenterTextFields().indexOf(centerTextField);
+                    int rowIndex = paneBox.getCenterEditRow();
                     if (rowIndex >= 0) {
                         Label centerLabel = paneBox.getCenterLabels().get(rowIndex);
                         if (modelBox instanceof ModelClass) {
@@ -218,13 +220,13 @@ public class TextFieldController {
                         else if (modelBox instanceof ModelObject) {
                             ModelObject modelObject = (ModelObject) modelBox;
                             Attribute attribute = modelObject.getModelClass().getAttributes().get(rowIndex);
-                            modelObject.changeAttributeValue(attribute, modelObject.getAttributeValues().get(attribute));
+                            modelObject.changeAttributeValue(attribute, modelObject.getAttributeValue(attribute));
                         }
                     }
                     paneBox.get().requestFocus();
                 }
             });
-        }
+        });
     }
 
     public void enableArrowLabelTextInput(Arrow arrow, Relation relation, ModelViewConnector mvConnector) {
@@ -1,5 +1,6 @@
 package ch.hsr.ogv.controller;
 
+import ch.hsr.ogv.agent.DeltaProtocol;
 import ch.hsr.ogv.dataaccess.*;
 import ch.hsr.ogv.model.*;
 import ch.hsr.ogv.util.ColorUtil;
@@ -9,18 +10,23 @@ import ch.hsr.ogv.view.*;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Bounds;
 import javafx.scene.Cursor;
 import javafx.scene.Group;
+import javafx.scene.SubScene;
 import javafx.scene.control.*;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Observable;
@@ -29,6 +35,9 @@ import java.util.ResourceBundle;
 
 public class ViewController implements Observer, Initializable {
 
+    private final static String ALL_HOPS = "All";
+    private final static int MAX_FOCUS_HOPS = 5;
+
     private Stage primaryStage;
     private String appTitle;
 
@@ -38,7 +47,12 @@ public class ViewController implements Observer, Initializable {
     private Persistence persistence;
     private SelectionController selectionController;
     private CameraController cameraController;
+    private LevelOfDetailController levelOfDetailController;
     private RelationCreationController relationCreationController;
+    private LiveGraphController liveGraphController;
+    private LayoutController layoutController;
+    private ArrowRoutingController arrowRoutingController;
+    private CommandServer commandServer;
 
 
     private HashMap<Object, RelationType> toggleRelationMap = new HashMap<Object, RelationType>();
@@ -58,6 +72,10 @@ public class ViewController implements Observer, Initializable {
 
     public void setObjectGraph(ObjectGraph objectGraph) {
         this.objectGraph = objectGraph;
+        this.objectGraph.setOnBuild(buildJob -> {
+            buildJob.setOnProgress(job -> MessageBar.setText("Building object graph... " + Math.round(job.getProgress() * 100) + "%", MessageLevel.INFO));
+            buildJob.setOnDone(() -> this.levelOfDetailController.requestUpdate());
+        });
     }
 
     public void setPersistence(Persistence persistence) {
@@ -72,6 +90,10 @@ public class ViewController implements Observer, Initializable {
         this.cameraController = cameraController;
     }
 
+    public void setLevelOfDetailController(LevelOfDetailController levelOfDetailController) {
+        this.levelOfDetailController = levelOfDetailController;
+    }
+
     public void setMessageBar() {
         this.messageBarContainer.getChildren().add(MessageBar.getTextField());
     }
@@ -81,6 +103,22 @@ public class ViewController implements Observer, Initializable {
 
     }
 
+    public void setLiveGraphController(LiveGraphController liveGraphController) {
+        this.liveGraphController = liveGraphController;
+    }
+
+    public void setCommandServer(CommandServer commandServer) {
+        this.commandServer = commandServer;
+    }
+
+    public void setLayoutController(LayoutController layoutController) {
+        this.layoutController = layoutController;
+    }
+
+    public void setArrowRoutingController(ArrowRoutingController arrowRoutingController) {
+        this.arrowRoutingController = arrowRoutingController;
+    }
+
     /**
      * Creates an empty view.
      */
@@ -88,6 +126,8 @@ public class ViewController implements Observer, Initializable {
     private void handleNew() {
         this.primaryStage.setTitle(this.appTitle);
         UserPreferences.setOGVFilePath(null);
+        this.persistence.cancelLoad();
+        this.liveGraphController.disconnect();
         this.mvConnector.handleClearAll();
         this.selectionController.setSelected(this.subSceneAdapter, true, this.subSceneAdapter);
         exitObjectGraphMode();
@@ -146,6 +186,163 @@ public class ViewController implements Observer, Initializable {
         }
     }
 
+    /**
+     * Opens a FileChooser to let the user select a heap dump, then asks which of its objects to import.
+     */
+    @FXML
+    private void handleImportHeapDump() {
+        FileChooser fileChooser = new FileChooser();
+
+        // Set extension filter
+        FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("HPROF heap dump (*.hprof)", "*.hprof");
+        fileChooser.getExtensionFilters().add(extFilter);
+        File previousFile = UserPreferences.getHprofFilePath();
+        if (previousFile != null && previousFile.getParentFile() != null && previousFile.getParentFile().isDirectory()) {
+            fileChooser.setInitialDirectory(previousFile.getParentFile());
+        }
+        // Show open file dialog
+        File file = fileChooser.showOpenDialog(this.primaryStage);
+        if (file == null) {
+            return;
+        }
+        HprofFilter filter = showHprofFilterDialog();
+        if (filter != null) {
+            UserPreferences.setHprofFilePath(file);
+            UserPreferences.setOGVFilePath(null);
+            MessageBar.setText("Importing file: \"" + file.getPath() + "\"...", MessageLevel.WARN);
+            persistence.loadHprofDataAsync(file, filter, new ImportCallback(this.primaryStage, this.appTitle, file));
+            exitObjectGraphMode();
+        }
+    }
+
+    /**
+     * Opens a FileChooser to let the user select a JAR file, then imports its classes as class diagram.
+     */
+    @FXML
+    private void handleImportJar() {
+        FileChooser fileChooser = new FileChooser();
+
+        // Set extension filter
+        FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("Java archive (*.jar)", "*.jar");
+        fileChooser.getExtensionFilters().add(extFilter);
+        File previousFile = UserPreferences.getClassFilePath();
+        if (previousFile != null && previousFile.getParentFile() != null && previousFile.getParentFile().isDirectory()) {
+            fileChooser.setInitialDirectory(previousFile.getParentFile());
+        }
+        // Show open file dialog
+        importClassFiles(fileChooser.showOpenDialog(this.primaryStage));
+    }
+
+    /**
+     * Opens a DirectoryChooser to let the user select a directory of compiled classes, e.g. target/classes, then
+     * imports them as class diagram.
+     */
+    @FXML
+    private void handleImportClassDirectory() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        File previousFile = UserPreferences.getClassFilePath();
+        if (previousFile != null && previousFile.getParentFile() != null && previousFile.getParentFile().isDirectory()) {
+            directoryChooser.setInitialDirectory(previousFile.getParentFile());
+        }
+        importClassFiles(directoryChooser.showDialog(this.primaryStage));
+    }
+
+    private void importClassFiles(File file) {
+        if (file != null) {
+            UserPreferences.setClassFilePath(file);
+            UserPreferences.setOGVFilePath(null);
+            MessageBar.setText("Importing classes: \"" + file.getPath() + "\"...", MessageLevel.WARN);
+            persistence.loadClassFilesAsync(file, new ImportCallback(this.primaryStage, this.appTitle, file));
+            exitObjectGraphMode();
+        }
+    }
+
+    /**
+     * @return the filter for a heap dump import, or null if the user cancelled
+     */
+    private HprofFilter showHprofFilterDialog() {
+        Dialog<ButtonType> dialog = new Dialog<ButtonType>();
+        dialog.setTitle("Import Heap Dump");
+        dialog.setHeaderText("Select the objects to import");
+        dialog.initOwner(this.primaryStage);
+        TextField classPatterns = new TextField();
+        classPatterns.setPromptText("e.g. com.example.*, java.util.HashMap");
+        ChoiceBox<HprofFilter.Mode> mode = new ChoiceBox<HprofFilter.Mode>();
+        mode.getItems().addAll(HprofFilter.Mode.values());
+        mode.setValue(HprofFilter.Mode.REACHABLE_FROM_MATCHING);
+        Spinner<Integer> maxDepth = new Spinner<Integer>(0, 20, HprofFilter.DEFAULT_MAX_DEPTH);
+        Spinner<Integer> maxObjects = new Spinner<Integer>(1, 10000, HprofFilter.DEFAULT_MAX_OBJECTS, 100);
+        maxObjects.setEditable(true);
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Classes:"), classPatterns);
+        grid.addRow(1, new Label("Objects:"), mode);
+        grid.addRow(2, new Label("Max. references:"), maxDepth);
+        grid.addRow(3, new Label("Max. objects:"), maxObjects);
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return null;
+        }
+        return new HprofFilter(classPatterns.getText(), mode.getValue(), maxDepth.getValue(), maxObjects.getValue());
+    }
+
+    /**
+     * Asks for the port of a running JVM started with the OGV agent and shows its object graph, or stops showing it if
+     * already connected.
+     */
+    @FXML
+    private void handleConnectLive() {
+        if (this.liveGraphController.isConnected()) {
+            this.liveGraphController.disconnect();
+            MessageBar.setText("Disconnected from running JVM.", MessageLevel.INFO);
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog("localhost:" + DeltaProtocol.DEFAULT_PORT);
+        dialog.setTitle("Connect to Running JVM");
+        dialog.setHeaderText("Start the JVM with -javaagent:ogv.jar=roots=<class>.<static field>");
+        dialog.setContentText("Host and port:");
+        dialog.initOwner(this.primaryStage);
+        String address = dialog.showAndWait().orElse(null);
+        if (address == null) {
+            return;
+        }
+        int separator = address.lastIndexOf(':');
+        String host = separator > 0 ? address.substring(0, separator).trim() : "localhost";
+        try {
+            int port = Integer.parseInt(address.substring(separator + 1).trim());
+            this.primaryStage.setTitle(this.appTitle + " - " + host + ":" + port);
+            UserPreferences.setOGVFilePath(null);
+            this.persistence.cancelLoad();
+            exitObjectGraphMode();
+            this.liveGraphController.connect(host, port);
+        }
+        catch (NumberFormatException e) {
+            MessageBar.setText("Invalid port: \"" + address + "\".", MessageLevel.ALERT);
+        }
+    }
+
+    /**
+     * Starts or stops accepting commands from scripts on port {@value CommandServer#DEFAULT_PORT}.
+     */
+    @FXML
+    private void handleCommandServer() {
+        if (!this.commandServerEnabled.isSelected()) {
+            this.commandServer.stop();
+            MessageBar.setText("Command server stopped.", MessageLevel.INFO);
+            return;
+        }
+        try {
+            this.commandServer.start(CommandServer.DEFAULT_PORT);
+            MessageBar.setText("Command server listening on localhost:" + CommandServer.DEFAULT_PORT + ".", MessageLevel.INFO);
+        }
+        catch (IOException e) {
+            this.commandServerEnabled.setSelected(false);
+            MessageBar.setText("Could not start command server: " + e.getMessage(), MessageLevel.ALERT);
+        }
+    }
+
     /**
      * Saves the file to the ogv file that is currently open. If there is no open file, the "save as" dialog is shown.
      */
@@ -231,12 +428,57 @@ public class ViewController implements Observer, Initializable {
     @FXML
     CheckMenuItem showModelAxis;
 
+    @FXML
+    CheckMenuItem orthogonalArrows;
+
+    @FXML
+    CheckMenuItem commandServerEnabled;
+
     @FXML
     private void handleCenterView() {
         SubSceneCamera ssCamera = this.subSceneAdapter.getSubSceneCamera();
         this.cameraController.handleCenterView(ssCamera);
     }
 
+    @FXML
+    private void handleZoomToFit() {
+        Bounds bounds = this.levelOfDetailController.getBounds(this.selectionController.getCurrentSelected());
+        if (bounds == null) {
+            bounds = this.levelOfDetailController.getBounds();
+        }
+        if (bounds == null) {
+            return;
+        }
+        SubScene subScene = this.subSceneAdapter.getSubScene();
+        double aspectRatio = subScene.getHeight() > 0 ? subScene.getWidth() / subScene.getHeight() : 1.0;
+        this.cameraController.handleZoomToFit(this.subSceneAdapter.getSubSceneCamera(), bounds, aspectRatio);
+    }
+
+    @FXML
+    private void handleAutoLayout() {
+        int classCount = this.mvConnector.getModelManager().getClasses().size();
+        if (classCount == 0) {
+            return;
+        }
+        MessageBar.setText("Laying out " + classCount + " classes...", MessageLevel.WARN);
+        this.layoutController.forceLayout(() -> MessageBar.setText("Laid out " + classCount + " classes.", MessageLevel.INFO));
+    }
+
+    @FXML
+    private void handleHierarchicalLayout() {
+        int classCount = this.mvConnector.getModelManager().getClasses().size();
+        if (classCount == 0) {
+            return;
+        }
+        MessageBar.setText("Laying out " + classCount + " classes...", MessageLevel.WARN);
+        this.layoutController.hierarchicalLayout(() -> MessageBar.setText("Laid out " + classCount + " classes.", MessageLevel.INFO));
+    }
+
+    @FXML
+    private void handleOrthogonalArrows() {
+        this.arrowRoutingController.setEnabled(this.orthogonalArrows.isSelected());
+    }
+
     @FXML
     private void handleLockedTopView() {
         SubSceneCamera ssCamera = this.subSceneAdapter.getSubSceneCamera();
@@ -262,6 +504,17 @@ public class ViewController implements Observer, Initializable {
         showModelObjects(this.showObjects.isSelected());
     }
 
+    private ModelObject getSelectedModelObject() {
+        Selectable selected = this.selectionController.getCurrentSelected();
+        if (selected instanceof PaneBox) {
+            ModelBox modelBox = this.mvConnector.getModelBox((PaneBox) selected);
+            if (modelBox instanceof ModelObject && !((ModelObject) modelBox).isSuperObject()) {
+                return (ModelObject) modelBox;
+            }
+        }
+        return null;
+    }
+
     private boolean isModelClassSelected() {
         Selectable selected = this.selectionController.getCurrentSelected();
         if (selected != null && selected instanceof PaneBox) {
@@ -283,7 +536,7 @@ public class ViewController implements Observer, Initializable {
 
                 for (Endpoint endpoint : modelBox.getEndpoints()) {
                     Arrow arrow = this.mvConnector.getArrow(endpoint.getRelation());
-                    arrow.setVisible(show);
+                    arrow.setArrowVisible(show);
                     if (!show && arrow.isSelected() && this.selectionController != null) {
                         arrow.getSelection().setVisible(false);
                     }
@@ -292,15 +545,6 @@ public class ViewController implements Observer, Initializable {
         }
     }
 
-    private void showGraphObjects(boolean show) {
-        for (PaneBox paneBox : this.objectGraph.getBoxes()) {
-            paneBox.setVisible(show);
-        }
-        for (Arrow arrow : this.objectGraph.getArrows()) {
-            arrow.setVisible(show);
-        }
-    }
-
     @FXML
     private void handleShowModelAxis() {
         Group axis = this.subSceneAdapter.getAxis();
@@ -370,6 +614,9 @@ public class ViewController implements Observer, Initializable {
     @FXML
     private ToggleButton objectGraphMode;
 
+    @FXML
+    private ChoiceBox<String> focusHops;
+
     @FXML
     private HBox messageBarContainer;
 
@@ -526,6 +773,7 @@ public class ViewController implements Observer, Initializable {
     @FXML
     private void handleObjectGraphMode() {
         if (this.objectGraphMode.isSelected()) {
+            ModelObject focusObject = getSelectedModelObject(); // before the selection moves to the floor
             toggleToolbar(this.objectGraphMode);
             this.selectionController.setSelected(this.subSceneAdapter.getFloor(), true, this.subSceneAdapter);
             this.subSceneAdapter.getSubScene().setCursor(Cursor.DEFAULT);
@@ -534,8 +782,13 @@ public class ViewController implements Observer, Initializable {
             this.objectGraphMode.setDisable(false);
 
             this.showModelObjects(false);
-            this.objectGraph.setup();
-            this.showGraphObjects(true);
+            if (focusObject != null && !ALL_HOPS.equals(this.focusHops.getValue())) {
+                this.objectGraph.showFocus(focusObject, Integer.parseInt(this.focusHops.getValue()));
+            }
+            else {
+                this.objectGraph.show();
+            }
+            this.levelOfDetailController.requestUpdate();
         }
         else {
             toggleToolbar(null);
@@ -544,8 +797,8 @@ public class ViewController implements Observer, Initializable {
             this.subSceneAdapter.restrictMouseEvents(this.subSceneAdapter.getVerticalHelper());
             this.selectionController.setSelected(this.subSceneAdapter.getFloor(), true, this.subSceneAdapter);
 
-            this.showGraphObjects(false);
-            this.objectGraph.tearDown();
+            this.objectGraph.hide();
+            this.levelOfDetailController.requestUpdate();
             this.showModelObjects(this.showObjects.isSelected());
         }
     }
@@ -661,6 +914,11 @@ public class ViewController implements Observer, Initializable {
         this.pickColor.getCustomColors().add(PaneBox.DEFAULT_COLOR);
         this.pickColor.getCustomColors().add(ColorUtil.brighter(PaneBox.DEFAULT_COLOR, 0.1));
         initToggleRelationMap();
+        this.focusHops.getItems().add(ALL_HOPS);
+        for (int hops = 1; hops <= MAX_FOCUS_HOPS; hops++) {
+            this.focusHops.getItems().add(Integer.toString(hops));
+        }
+        this.focusHops.setValue(ALL_HOPS);
     }
 
     // Refactor!!
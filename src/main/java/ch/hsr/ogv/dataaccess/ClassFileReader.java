@@ -0,0 +1,486 @@
+package ch.hsr.ogv.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the declaration of a class from a compiled class file: its name, super class, interfaces and fields. Only the
+ * constant pool and the fields are parsed, methods and code are never looked at. Strings of the constant pool are
+ * decoded when they are asked for, most of them never are.
+ * <p>
+ * Names are returned in binary form with dots, e.g. "java.util.Map$Entry". A reader has no state, it can be used by
+ * several threads at once.
+ */
+public class ClassFileReader {
+
+    public final static int ACC_STATIC = 0x0008;
+    public final static int ACC_INTERFACE = 0x0200;
+    public final static int ACC_ABSTRACT = 0x0400;
+    public final static int ACC_SYNTHETIC = 0x1000;
+    public final static int ACC_ENUM = 0x4000;
+    public final static int ACC_MODULE = 0x8000;
+
+    private final static int MAGIC = 0xCAFEBABE;
+
+    private final static int CONSTANT_UTF8 = 1;
+    private final static int CONSTANT_INTEGER = 3;
+    private final static int CONSTANT_FLOAT = 4;
+    private final static int CONSTANT_LONG = 5;
+    private final static int CONSTANT_DOUBLE = 6;
+    private final static int CONSTANT_CLASS = 7;
+    private final static int CONSTANT_STRING = 8;
+    private final static int CONSTANT_FIELDREF = 9;
+    private final static int CONSTANT_METHODREF = 10;
+    private final static int CONSTANT_INTERFACE_METHODREF = 11;
+    private final static int CONSTANT_NAME_AND_TYPE = 12;
+    private final static int CONSTANT_METHOD_HANDLE = 15;
+    private final static int CONSTANT_METHOD_TYPE = 16;
+    private final static int CONSTANT_DYNAMIC = 17;
+    private final static int CONSTANT_INVOKE_DYNAMIC = 18;
+    private final static int CONSTANT_MODULE = 19;
+    private final static int CONSTANT_PACKAGE = 20;
+
+    /**
+     * @throws IllegalArgumentException if the bytes are no class file
+     */
+    public ClassFile read(byte[] bytes) {
+        try {
+            return new Parser(bytes).parse();
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated class file", e);
+        }
+    }
+
+    /**
+     * The declaration of a class.
+     */
+    public static class ClassFile {
+
+        private final String name;
+        private final String superName;
+        private final List<String> interfaces;
+        private final int access;
+        private final List<FieldInfo> fields;
+
+        ClassFile(String name, String superName, List<String> interfaces, int access, List<FieldInfo> fields) {
+            this.name = name;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.access = access;
+            this.fields = fields;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return the super class, null for java.lang.Object and modules
+         */
+        public String getSuperName() {
+            return this.superName;
+        }
+
+        public List<String> getInterfaces() {
+            return this.interfaces;
+        }
+
+        public int getAccess() {
+            return this.access;
+        }
+
+        public List<FieldInfo> getFields() {
+            return this.fields;
+        }
+
+        public boolean isInterface() {
+            return (this.access & ACC_INTERFACE) != 0;
+        }
+
+        /**
+         * @return true for classes made up by the compiler and anonymous classes, which do not belong into a diagram
+         */
+        public boolean isGenerated() {
+            if ((this.access & (ACC_SYNTHETIC | ACC_MODULE)) != 0 || this.name.endsWith("package-info")) {
+                return true;
+            }
+            int separator = this.name.lastIndexOf('$');
+            if (separator < 0 || separator == this.name.length() - 1) {
+                return false;
+            }
+            for (int i = separator + 1; i < this.name.length(); i++) {
+                if (!Character.isDigit(this.name.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A field with its type as descriptor and, if it is generic, as signature.
+     */
+    public static class FieldInfo {
+
+        private final String name;
+        private final String descriptor;
+        private final String signature;
+        private final int access;
+
+        FieldInfo(String name, String descriptor, String signature, int access) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.access = access;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return the erased type, e.g. "[Ljava/lang/String;"
+         */
+        public String getDescriptor() {
+            return this.descriptor;
+        }
+
+        /**
+         * @return the generic type, e.g. "Ljava/util/List<Ljava/lang/String;>;", or null
+         */
+        public String getSignature() {
+            return this.signature;
+        }
+
+        public int getAccess() {
+            return this.access;
+        }
+
+        public boolean isStatic() {
+            return (this.access & ACC_STATIC) != 0;
+        }
+
+        public boolean isSynthetic() {
+            return (this.access & ACC_SYNTHETIC) != 0;
+        }
+
+        /**
+         * @return the number of array dimensions of the type
+         */
+        public int getDimensions() {
+            int dimensions = 0;
+            while (this.descriptor.charAt(dimensions) == '[') {
+                dimensions++;
+            }
+            return dimensions;
+        }
+
+        /**
+         * @return the class of the type without array dimensions, null for primitive types
+         */
+        public String getElementClassName() {
+            int start = getDimensions();
+            if (this.descriptor.charAt(start) != 'L') {
+                return null;
+            }
+            return this.descriptor.substring(start + 1, this.descriptor.length() - 1).replace('/', '.');
+        }
+
+        /**
+         * @return the classes used as type arguments anywhere in the generic type, e.g. the key and value classes of a
+         * map; empty if the type is not generic
+         */
+        public List<String> getTypeArgumentClassNames() {
+            if (this.signature == null) {
+                return Collections.emptyList();
+            }
+            List<String> classNames = new ArrayList<String>();
+            parseSignatureType(this.signature, 0, 0, classNames);
+            return classNames;
+        }
+
+        /**
+         * @return the type in source form without package names, e.g. "List&lt;String&gt;" or "int[]"
+         */
+        public String getTypeName() {
+            StringBuilder typeName = new StringBuilder();
+            appendTypeName(this.signature != null ? this.signature : this.descriptor, 0, typeName);
+            return typeName.toString();
+        }
+    }
+
+    /**
+     * @return the position after the type starting at the given position
+     */
+    private static int parseSignatureType(String signature, int position, int depth, List<String> classNames) {
+        char c = signature.charAt(position);
+        switch (c) {
+            case '[':
+                return parseSignatureType(signature, position + 1, depth, classNames);
+            case 'T': // type variable
+                return signature.indexOf(';', position) + 1;
+            case 'L':
+                int nameStart = position + 1;
+                int i = nameStart;
+                StringBuilder name = new StringBuilder();
+                while (true) {
+                    char current = signature.charAt(i);
+                    if (current == ';') {
+                        name.append(signature, nameStart, i);
+                        break;
+                    }
+                    if (current == '<') {
+                        name.append(signature, nameStart, i);
+                        i++;
+                        while (signature.charAt(i) != '>') {
+                            char wildcard = signature.charAt(i);
+                            if (wildcard == '*') {
+                                i++;
+                            }
+                            else {
+                                i = parseSignatureType(signature, wildcard == '+' || wildcard == '-' ? i + 1 : i, depth + 1, classNames);
+                            }
+                        }
+                        i++; // '>'
+                        if (signature.charAt(i) == '.') { // inner class of a generic class
+                            name.append('$');
+                            nameStart = i + 1;
+                            i = nameStart;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                if (depth > 0) {
+                    classNames.add(name.toString().replace('/', '.'));
+                }
+                return i + 1;
+            default: // primitive
+                return position + 1;
+        }
+    }
+
+    /**
+     * @return the position after the type starting at the given position
+     */
+    private static int appendTypeName(String type, int position, StringBuilder typeName) {
+        char c = type.charAt(position);
+        switch (c) {
+            case '[':
+                int end = appendTypeName(type, position + 1, typeName);
+                typeName.append("[]");
+                return end;
+            case 'T':
+                int variableEnd = type.indexOf(';', position);
+                typeName.append(type, position + 1, variableEnd);
+                return variableEnd + 1;
+            case 'L':
+                int i = position + 1;
+                int simpleStart = i;
+                while (type.charAt(i) != ';') {
+                    char current = type.charAt(i);
+                    if (current == '.' && simpleStart < 0) { // inner class of a generic class
+                        typeName.append('.');
+                    }
+                    if (current == '/' || current == '$' || current == '.') {
+                        simpleStart = i + 1;
+                    }
+                    if (current == '<') {
+                        typeName.append(type, simpleStart, i).append('<');
+                        i++;
+                        boolean first = true;
+                        while (type.charAt(i) != '>') {
+                            typeName.append(first ? "" : ", ");
+                            first = false;
+                            char wildcard = type.charAt(i);
+                            if (wildcard == '*') {
+                                typeName.append('?');
+                                i++;
+                            }
+                            else if (wildcard == '+' || wildcard == '-') {
+                                typeName.append(wildcard == '+' ? "? extends " : "? super ");
+                                i = appendTypeName(type, i + 1, typeName);
+                            }
+                            else {
+                                i = appendTypeName(type, i, typeName);
+                            }
+                        }
+                        typeName.append('>');
+                        i++;
+                        simpleStart = -1; // the name is complete, an inner class suffix may follow
+                        continue;
+                    }
+                    i++;
+                }
+                if (simpleStart >= 0) {
+                    typeName.append(type, simpleStart, i);
+                }
+                return i + 1;
+            default:
+                typeName.append(primitiveName(c));
+                return position + 1;
+        }
+    }
+
+    private static String primitiveName(char descriptor) {
+        switch (descriptor) {
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'D':
+                return "double";
+            case 'F':
+                return "float";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'S':
+                return "short";
+            case 'Z':
+                return "boolean";
+            default:
+                return "void";
+        }
+    }
+
+    private static class Parser {
+
+        private final byte[] bytes;
+        private int position = 0;
+        private int[] offsets; // k: constant pool index, v: offset of the entry after its tag
+
+        Parser(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        ClassFile parse() {
+            if (u4() != MAGIC) {
+                throw new IllegalArgumentException("not a class file");
+            }
+            this.position += 4; // minor and major version
+            readConstantPool();
+            int access = u2();
+            String name = className(u2());
+            int superIndex = u2();
+            String superName = superIndex != 0 ? className(superIndex) : null;
+            int interfaceCount = u2();
+            List<String> interfaces = new ArrayList<String>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces.add(className(u2()));
+            }
+            int fieldCount = u2();
+            List<FieldInfo> fields = new ArrayList<FieldInfo>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                int fieldAccess = u2();
+                String fieldName = utf8(u2());
+                String descriptor = utf8(u2());
+                String signature = null;
+                int attributeCount = u2();
+                for (int a = 0; a < attributeCount; a++) {
+                    int attributeName = u2();
+                    int length = u4();
+                    if (length == 2 && "Signature".equals(utf8(attributeName))) {
+                        signature = utf8(u2());
+                    }
+                    else {
+                        this.position += length;
+                    }
+                }
+                fields.add(new FieldInfo(fieldName, descriptor, signature, fieldAccess));
+            }
+            return new ClassFile(name, superName, interfaces, access, fields);
+        }
+
+        private void readConstantPool() {
+            int count = u2();
+            this.offsets = new int[count];
+            for (int index = 1; index < count; index++) {
+                int tag = this.bytes[this.position++] & 0xFF;
+                this.offsets[index] = this.position;
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        this.position += 2 + u2At(this.position);
+                        break;
+                    case CONSTANT_CLASS:
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        this.position += 2;
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        this.position += 3;
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                    case CONSTANT_FIELDREF:
+                    case CONSTANT_METHODREF:
+                    case CONSTANT_INTERFACE_METHODREF:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        this.position += 4;
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        this.position += 8;
+                        index++; // takes two entries
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        private String className(int index) {
+            return utf8(u2At(this.offsets[index])).replace('/', '.');
+        }
+
+        /**
+         * Decodes the modified UTF-8 of the class file format.
+         */
+        private String utf8(int index) {
+            int offset = this.offsets[index];
+            int length = u2At(offset);
+            int i = offset + 2;
+            int end = i + length;
+            char[] chars = new char[length];
+            int count = 0;
+            while (i < end) {
+                int b = this.bytes[i++] & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                }
+                else if ((b & 0xE0) == 0xC0) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (this.bytes[i++] & 0x3F));
+                }
+                else {
+                    chars[count++] = (char) (((b & 0x0F) << 12) | ((this.bytes[i++] & 0x3F) << 6) | (this.bytes[i++] & 0x3F));
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        private int u2() {
+            int value = u2At(this.position);
+            this.position += 2;
+            return value;
+        }
+
+        private int u2At(int offset) {
+            return ((this.bytes[offset] & 0xFF) << 8) | (this.bytes[offset + 1] & 0xFF);
+        }
+
+        private int u4() {
+            int value = (u2At(this.position) << 16) | u2At(this.position + 2);
+            this.position += 4;
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.ClassFileReader.ClassFile;
+import ch.hsr.ogv.dataaccess.ClassFileReader.FieldInfo;
+import ch.hsr.ogv.model.Attribute;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.util.MessageBar;
+import ch.hsr.ogv.util.MessageBar.MessageLevel;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports the classes of a JAR file or a directory of compiled class files as class diagram. Every class becomes a
+ * class box. A field whose type, element type or type argument is an imported class becomes a directed association
+ * named after the field, all other fields are attributes. Super classes and interfaces that are imported become
+ * generalizations. Static fields and classes made up by the compiler are left out. Class files can only be read.
+ * <p>
+ * The class files are read and parsed in parallel on a fork join pool, the diagram is built afterwards on the calling
+ * thread. A class file that cannot be parsed is left out and reported, the other classes are still imported.
+ */
+public class ClassFileSerialization implements SerializationStrategy {
+
+    private final static Logger logger = LoggerFactory.getLogger(SerializationStrategy.class);
+
+    private final static String CLASS_SUFFIX = ".class";
+    private final static String VERSIONS_PREFIX = "META-INF/versions/";
+    private final static double CLASS_SPACING = 300.0;
+    private final static double CLASS_WIDTH = 150.0;
+    private final static double CLASS_HEIGHT = 100.0;
+    private final static Color CLASS_COLOR = Color.CORNSILK;
+    private final static int SEQUENTIAL_THRESHOLD = 64;
+
+    private final ClassFileReader reader = new ClassFileReader();
+    private final ForkJoinPool pool;
+    private Set<ModelClass> classes = new LinkedHashSet<ModelClass>();
+    private Set<Relation> relations = new LinkedHashSet<Relation>();
+    private List<String> skipped = new ArrayList<String>();
+
+    public ClassFileSerialization() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ClassFileSerialization(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param file a JAR or zip file, or a directory with class files in the folders of their packages
+     */
+    @Override
+    public boolean parse(File file) {
+        this.classes = new LinkedHashSet<ModelClass>();
+        this.relations = new LinkedHashSet<Relation>();
+        this.skipped = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            List<ClassFile> classFiles = file.isDirectory() ? readDirectory(file.toPath()) : readArchive(file);
+            toModel(classFiles);
+            return true;
+        }
+        catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            logger.debug(e.getMessage());
+            MessageBar.setText("Unable to read class files: \"" + file.getPath() + "\".", MessageLevel.ALERT);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean serialize(File file) {
+        return false;
+    }
+
+    @Override
+    public Set<ModelClass> getClasses() {
+        return this.classes;
+    }
+
+    @Override
+    public Set<Relation> getRelations() {
+        return this.relations;
+    }
+
+    /**
+     * @return the names of the class files the last {@link #parse(File)} could not parse and left out
+     */
+    public List<String> getSkipped() {
+        return this.skipped;
+    }
+
+    @Override
+    public void setClasses(Set<ModelClass> modelClasses) {
+        this.classes = modelClasses;
+    }
+
+    @Override
+    public void setRelations(Set<Relation> relations) {
+        this.relations = relations;
+    }
+
+    private List<ClassFile> readArchive(File file) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            List<ZipEntry> entries = new ArrayList<ZipEntry>();
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                if (!entry.isDirectory() && isClassFile(entry.getName())) {
+                    entries.add(entry);
+                }
+            }
+            // the classes for newer Java versions of a multi release JAR are the same types, the plain ones are kept
+            entries.sort(Comparator.comparing((ZipEntry entry) -> entry.getName().startsWith(VERSIONS_PREFIX)));
+            List<String> names = new ArrayList<String>(entries.size());
+            List<Supplier<byte[]>> sources = new ArrayList<Supplier<byte[]>>(entries.size());
+            for (ZipEntry entry : entries) {
+                names.add(entry.getName());
+                sources.add(() -> {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        return in.readAllBytes();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return readAll(names, sources);
+        }
+    }
+
+    private List<ClassFile> readDirectory(Path directory) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(path -> isClassFile(path.getFileName().toString()) && Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+        }
+        List<String> names = new ArrayList<String>(paths.size());
+        List<Supplier<byte[]>> sources = new ArrayList<Supplier<byte[]>>(paths.size());
+        for (Path path : paths) {
+            names.add(directory.relativize(path).toString());
+            sources.add(() -> {
+                try {
+                    return Files.readAllBytes(path);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return readAll(names, sources);
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.endsWith("module-info" + CLASS_SUFFIX) && !name.endsWith("package-info" + CLASS_SUFFIX);
+    }
+
+    /**
+     * @return the parsed classes in the order of their sources, without the skipped ones
+     */
+    private List<ClassFile> readAll(List<String> names, List<Supplier<byte[]>> sources) {
+        ClassFile[] classFiles = new ClassFile[sources.size()];
+        this.pool.invoke(new ParseTask(names, sources, classFiles, 0, sources.size()));
+        List<ClassFile> parsed = new ArrayList<ClassFile>(classFiles.length);
+        for (ClassFile classFile : classFiles) {
+            if (classFile != null) {
+                parsed.add(classFile);
+            }
+        }
+        return parsed;
+    }
+
+    private void toModel(List<ClassFile> classFiles) {
+        Map<String, ClassFile> classFilesByName = new HashMap<String, ClassFile>();
+        for (ClassFile classFile : classFiles) {
+            if (!classFile.isGenerated()) {
+                classFilesByName.putIfAbsent(classFile.getName(), classFile);
+            }
+        }
+        List<String> classNames = new ArrayList<String>(classFilesByName.keySet());
+        classNames.sort(null);
+        Map<String, String> displayNames = HprofSerialization.displayNames(classFilesByName.keySet());
+        Map<String, ModelClass> modelClasses = new HashMap<String, ModelClass>(); // k: class name
+
+        int columns = (int) Math.ceil(Math.sqrt(classNames.size()));
+        int rows = columns > 0 ? (classNames.size() + columns - 1) / columns : 0;
+        int index = 0;
+        for (String className : classNames) {
+            Point3D position = new Point3D((index % columns - columns / 2) * CLASS_SPACING, 0, (index / columns - rows / 2) * CLASS_SPACING);
+            ModelClass modelClass = new ModelClass(displayNames.get(className), position, CLASS_WIDTH, CLASS_HEIGHT, CLASS_COLOR);
+            modelClasses.put(className, modelClass);
+            this.classes.add(modelClass);
+            index++;
+        }
+
+        for (String className : classNames) {
+            ClassFile classFile = classFilesByName.get(className);
+            ModelClass modelClass = modelClasses.get(className);
+            for (FieldInfo field : classFile.getFields()) {
+                if (field.isStatic() || field.isSynthetic()) {
+                    continue;
+                }
+                ModelClass target = modelClasses.get(field.getElementClassName());
+                if (target != null) {
+                    addAssociation(modelClass, target, field.getName(), field.getDimensions() > 0 ? "*" : "0..1");
+                    continue;
+                }
+                boolean associated = false;
+                for (String typeArgument : new LinkedHashSet<String>(field.getTypeArgumentClassNames())) {
+                    ModelClass argumentTarget = modelClasses.get(typeArgument);
+                    if (argumentTarget != null) {
+                        addAssociation(modelClass, argumentTarget, field.getName(), "*");
+                        associated = true;
+                    }
+                }
+                if (!associated) {
+                    modelClass.getAttributes().add(new Attribute(field.getName() + " : " + field.getTypeName()));
+                }
+            }
+            addGeneralization(modelClass, modelClasses.get(classFile.getSuperName()));
+            for (String interfaceName : classFile.getInterfaces()) {
+                addGeneralization(modelClass, modelClasses.get(interfaceName));
+            }
+        }
+    }
+
+    private void addAssociation(ModelClass start, ModelClass end, String role, String multiplicity) {
+        Relation relation = new Relation(start, end, RelationType.DIRECTED_ASSOCIATION);
+        relation.getEnd().setRoleName(role);
+        relation.getEnd().setMultiplicity(multiplicity);
+        this.relations.add(relation);
+    }
+
+    private void addGeneralization(ModelClass subClass, ModelClass superClass) {
+        if (superClass != null && superClass != subClass) {
+            this.relations.add(new Relation(subClass, superClass, RelationType.GENERALIZATION));
+        }
+    }
+
+    /**
+     * Reads and parses a range of the sources, splitting it while it is larger than {@link #SEQUENTIAL_THRESHOLD}. A
+     * source that is no valid class file leaves its slot empty and is added to the skipped names.
+     */
+    private class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> names;
+        private final List<Supplier<byte[]>> sources;
+        private final ClassFile[] classFiles;
+        private final int from;
+        private final int to;
+
+        ParseTask(List<String> names, List<Supplier<byte[]>> sources, ClassFile[] classFiles, int from, int to) {
+            this.names = names;
+            this.sources = sources;
+            this.classFiles = classFiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SEQUENTIAL_THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ParseTask(this.names, this.sources, this.classFiles, this.from, middle),
+                        new ParseTask(this.names, this.sources, this.classFiles, middle, this.to));
+                return;
+            }
+            for (int i = this.from; i < this.to; i++) {
+                try {
+                    this.classFiles[i] = reader.read(this.sources.get(i).get());
+                }
+                catch (IllegalArgumentException e) {
+                    logger.warn("Skipped class file \"" + this.names.get(i) + "\": " + e.getMessage());
+                    skipped.add(this.names.get(i));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package ch.hsr.ogv.dataaccess;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the objects of a heap dump that are imported. Heap dumps hold millions of objects, only a few thousand of them
+ * fit into an object diagram.
+ * <p>
+ * The selection starts with the objects whose class matches one of the class name patterns, or with the GC roots. With a
+ * reachability mode, all objects reachable from these within {@link #getMaxDepth()} references are added, in breadth
+ * first order until {@link #getMaxObjects()} is reached. Strings and primitive arrays are never selected themselves,
+ * they are shown as attribute values of the objects referring to them.
+ */
+public class HprofFilter {
+
+    public enum Mode {
+        MATCHING("Matching classes"), REACHABLE_FROM_MATCHING("Reachable from matching classes"), REACHABLE_FROM_GC_ROOTS("Reachable from GC roots");
+
+        private final String text;
+
+        Mode(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    public final static int DEFAULT_MAX_OBJECTS = 1000;
+    public final static int DEFAULT_MAX_DEPTH = 3;
+
+    private List<Pattern> classPatterns = new ArrayList<Pattern>();
+    private Mode mode = Mode.MATCHING;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private int maxObjects = DEFAULT_MAX_OBJECTS;
+
+    /**
+     * @param classPatterns comma separated class names in source form, '*' matches any text and '?' a single character,
+     *                      e.g. "com.example.*, java.util.HashMap"; empty matches all classes
+     */
+    public HprofFilter(String classPatterns, Mode mode, int maxDepth, int maxObjects) {
+        for (String classPattern : classPatterns.split(",")) {
+            if (!classPattern.trim().isEmpty()) {
+                this.classPatterns.add(toRegex(classPattern.trim()));
+            }
+        }
+        this.mode = mode;
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxObjects = Math.max(1, maxObjects);
+    }
+
+    static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            }
+            else if (c == '?') {
+                regex.append('.');
+            }
+            else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    public int getMaxObjects() {
+        return this.maxObjects;
+    }
+
+    public boolean matches(String className) {
+        if (this.classPatterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern classPattern : this.classPatterns) {
+            if (classPattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if objects of this kind are shown as attribute values instead of boxes
+     */
+    public static boolean isValue(HprofReader reader, int ordinal) {
+        return reader.isPrimitiveArray(ordinal) || "java.lang.String".equals(reader.getClassName(ordinal));
+    }
+
+    /**
+     * @return the ordinals of the selected objects of an indexed dump
+     */
+    public BitSet select(HprofReader reader) {
+        BitSet selected = new BitSet(reader.getObjectCount());
+        int[] queue = new int[Math.min(reader.getObjectCount(), this.maxObjects)];
+        int tail = 0;
+        if (this.mode == Mode.REACHABLE_FROM_GC_ROOTS) {
+            for (long rootId : reader.getGcRoots()) {
+                int ordinal = reader.getOrdinal(rootId); // class objects are roots too, they are not in the object table
+                if (tail < queue.length && ordinal >= 0 && !selected.get(ordinal) && !isValue(reader, ordinal) && matches(reader.getClassName(ordinal))) {
+                    selected.set(ordinal);
+                    queue[tail++] = ordinal;
+                }
+            }
+        }
+        else {
+            for (int ordinal = 0; ordinal < reader.getObjectCount() && tail < queue.length; ordinal++) {
+                if (!isValue(reader, ordinal) && matches(reader.getClassName(ordinal))) {
+                    selected.set(ordinal);
+                    queue[tail++] = ordinal;
+                }
+            }
+        }
+        if (this.mode == Mode.MATCHING) {
+            return selected;
+        }
+        int head = 0;
+        for (int depth = 0; depth < this.maxDepth && head < tail; depth++) {
+            int layerEnd = tail;
+            while (head < layerEnd) {
+                for (long referenceId : reader.getReferences(queue[head++])) {
+                    int ordinal = reader.getOrdinal(referenceId);
+                    if (tail == queue.length) {
+                        return selected;
+                    }
+                    if (ordinal >= 0 && !selected.get(ordinal) && !isValue(reader, ordinal)) {
+                        selected.set(ordinal);
+                        queue[tail++] = ordinal;
+                    }
+                }
+            }
+        }
+        return selected;
+    }
+
+}
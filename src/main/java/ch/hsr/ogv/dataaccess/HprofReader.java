@@ -0,0 +1,696 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.util.LongLongMap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads HPROF binary heap dumps as written by the JVM. The file is memory mapped and read in place, in windows of up to
+ * 1 GB, so dumps larger than the heap can be read. {@link #index()} streams over the file once and remembers where each
+ * object record starts in primitive tables, the objects themselves are read from the file on demand.
+ * <p>
+ * All objects (instances and arrays) get a dense ordinal in file order, which callers can use as index into bit sets.
+ */
+public class HprofReader implements Closeable {
+
+    private final static String HEADER_PREFIX = "JAVA PROFILE ";
+    private final static int WINDOW_BITS = 30;
+
+    // record tags
+    private final static int TAG_UTF8 = 0x01;
+    private final static int TAG_LOAD_CLASS = 0x02;
+    private final static int TAG_HEAP_DUMP = 0x0C;
+    private final static int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+
+    // heap dump sub record tags
+    private final static int ROOT_UNKNOWN = 0xFF;
+    private final static int ROOT_JNI_GLOBAL = 0x01;
+    private final static int ROOT_JNI_LOCAL = 0x02;
+    private final static int ROOT_JAVA_FRAME = 0x03;
+    private final static int ROOT_NATIVE_STACK = 0x04;
+    private final static int ROOT_STICKY_CLASS = 0x05;
+    private final static int ROOT_THREAD_BLOCK = 0x06;
+    private final static int ROOT_MONITOR_USED = 0x07;
+    private final static int ROOT_THREAD_OBJECT = 0x08;
+    private final static int CLASS_DUMP = 0x20;
+    private final static int INSTANCE_DUMP = 0x21;
+    private final static int OBJECT_ARRAY_DUMP = 0x22;
+    private final static int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    // basic types
+    public final static int TYPE_OBJECT = 2;
+    public final static int TYPE_BOOLEAN = 4;
+    public final static int TYPE_CHAR = 5;
+    public final static int TYPE_FLOAT = 6;
+    public final static int TYPE_DOUBLE = 7;
+    public final static int TYPE_BYTE = 8;
+    public final static int TYPE_SHORT = 9;
+    public final static int TYPE_INT = 10;
+    public final static int TYPE_LONG = 11;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer[] windows;
+    private final int windowBits;
+    private final long windowMask;
+    private final long length;
+    private int idSize;
+    private long firstRecord;
+
+    private LongLongMap strings = new LongLongMap(); // k: string id, v: offset of the UTF-8 bytes
+    private LongLongMap classNameIds = new LongLongMap(); // k: class object id, v: string id of the class name
+    private Map<Long, ClassInfo> classes = new LinkedHashMap<Long, ClassInfo>(); // k: class object id
+    private LongLongMap ordinals = new LongLongMap(); // k: object id, v: ordinal
+    private long[] offsets = new long[1024]; // k: ordinal, v: offset of the object record
+    private int objectCount = 0;
+    private long[] gcRoots = new long[256];
+    private int gcRootCount = 0;
+
+    public HprofReader(File hprofFile) throws IOException {
+        this(hprofFile, WINDOW_BITS);
+    }
+
+    /**
+     * @param windowBits log2 of the window size, smaller windows let tests read across window borders
+     */
+    HprofReader(File hprofFile, int windowBits) throws IOException {
+        this.file = new RandomAccessFile(hprofFile, "r");
+        this.length = this.file.length();
+        this.windowBits = windowBits;
+        this.windowMask = (1L << windowBits) - 1;
+        FileChannel channel = this.file.getChannel();
+        this.windows = new MappedByteBuffer[(int) ((this.length + this.windowMask) >>> windowBits)];
+        for (int i = 0; i < this.windows.length; i++) {
+            long start = (long) i << windowBits;
+            this.windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.windowMask + 1, this.length - start));
+        }
+        readHeader();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    private void readHeader() throws IOException {
+        StringBuilder header = new StringBuilder();
+        long pos = 0;
+        while (pos < this.length && pos < 64 && u1(pos) != 0) {
+            header.append((char) u1(pos++));
+        }
+        if (!header.toString().startsWith(HEADER_PREFIX) || pos + 1 + 4 + 8 > this.length) {
+            throw new IOException("not a HPROF file");
+        }
+        this.idSize = (int) u4(pos + 1);
+        if (this.idSize != 4 && this.idSize != 8) {
+            throw new IOException("unsupported identifier size " + this.idSize);
+        }
+        this.firstRecord = pos + 1 + 4 + 8;
+    }
+
+    public int getIdSize() {
+        return this.idSize;
+    }
+
+    /**
+     * Streams over all records once and fills the string, class and object tables.
+     */
+    public void index() throws IOException {
+        long pos = this.firstRecord;
+        while (pos + 9 <= this.length) {
+            int tag = u1(pos);
+            long bodyLength = u4(pos + 5);
+            long body = pos + 9;
+            if (body + bodyLength > this.length) {
+                throw new IOException("truncated record at " + pos);
+            }
+            switch (tag) {
+                case TAG_UTF8:
+                    this.strings.put(id(body), body + this.idSize);
+                    break;
+                case TAG_LOAD_CLASS:
+                    this.classNameIds.put(id(body + 4), id(body + 4 + this.idSize + 4));
+                    break;
+                case TAG_HEAP_DUMP:
+                case TAG_HEAP_DUMP_SEGMENT:
+                    indexHeapDump(body, body + bodyLength);
+                    break;
+                default:
+                    break;
+            }
+            pos = body + bodyLength;
+        }
+        for (ClassInfo classInfo : this.classes.values()) {
+            classInfo.name = readClassName(classInfo.id);
+            classInfo.superClass = this.classes.get(classInfo.superId);
+        }
+    }
+
+    private void indexHeapDump(long pos, long end) throws IOException {
+        int id = this.idSize;
+        while (pos < end) {
+            long record = pos;
+            int subTag = u1(pos++);
+            switch (subTag) {
+                case ROOT_UNKNOWN:
+                case ROOT_STICKY_CLASS:
+                case ROOT_MONITOR_USED:
+                    addGcRoot(id(pos));
+                    pos += id;
+                    break;
+                case ROOT_JNI_GLOBAL:
+                    addGcRoot(id(pos));
+                    pos += id + id;
+                    break;
+                case ROOT_JNI_LOCAL:
+                case ROOT_JAVA_FRAME:
+                case ROOT_THREAD_OBJECT:
+                    addGcRoot(id(pos));
+                    pos += id + 4 + 4;
+                    break;
+                case ROOT_NATIVE_STACK:
+                case ROOT_THREAD_BLOCK:
+                    addGcRoot(id(pos));
+                    pos += id + 4;
+                    break;
+                case CLASS_DUMP:
+                    pos = readClassDump(pos);
+                    break;
+                case INSTANCE_DUMP:
+                    addObject(id(pos), record);
+                    pos += id + 4 + id;
+                    pos += 4 + u4(pos);
+                    break;
+                case OBJECT_ARRAY_DUMP:
+                    addObject(id(pos), record);
+                    pos += id + 4;
+                    pos += 4 + id + u4(pos) * id;
+                    break;
+                case PRIMITIVE_ARRAY_DUMP:
+                    addObject(id(pos), record);
+                    pos += id + 4;
+                    pos += 4 + 1 + u4(pos) * typeSize(u1(pos + 4));
+                    break;
+                default:
+                    throw new IOException("unknown heap dump record 0x" + Integer.toHexString(subTag) + " at " + record);
+            }
+        }
+    }
+
+    private long readClassDump(long pos) throws IOException {
+        int id = this.idSize;
+        ClassInfo classInfo = new ClassInfo(id(pos));
+        pos += id + 4;
+        classInfo.superId = id(pos);
+        pos += id * 6; // super class, class loader, signers, protection domain, two reserved
+        pos += 4; // instance size
+        int constantCount = u2(pos);
+        pos += 2;
+        for (int i = 0; i < constantCount; i++) {
+            pos += 2;
+            int type = u1(pos);
+            pos += 1 + typeSize(type);
+        }
+        int staticCount = u2(pos);
+        pos += 2;
+        for (int i = 0; i < staticCount; i++) {
+            pos += id;
+            int type = u1(pos);
+            pos += 1 + typeSize(type);
+        }
+        int fieldCount = u2(pos);
+        pos += 2;
+        classInfo.fieldNames = new String[fieldCount];
+        classInfo.fieldTypes = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            classInfo.fieldNames[i] = readString(id(pos));
+            classInfo.fieldTypes[i] = u1(pos + id);
+            pos += id + 1;
+        }
+        this.classes.put(classInfo.id, classInfo);
+        return pos;
+    }
+
+    private void addObject(long objectId, long record) {
+        if (this.objectCount == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.objectCount * 2);
+        }
+        this.ordinals.put(objectId, this.objectCount);
+        this.offsets[this.objectCount++] = record;
+    }
+
+    private void addGcRoot(long objectId) {
+        if (this.gcRootCount == this.gcRoots.length) {
+            this.gcRoots = Arrays.copyOf(this.gcRoots, this.gcRootCount * 2);
+        }
+        this.gcRoots[this.gcRootCount++] = objectId;
+    }
+
+    public int getObjectCount() {
+        return this.objectCount;
+    }
+
+    /**
+     * @return the ordinal of the object with the given id, or -1 if there is no such object in the dump
+     */
+    public int getOrdinal(long objectId) {
+        return (int) this.ordinals.get(objectId, -1);
+    }
+
+    /**
+     * @return the ids of all GC roots, may contain class objects and duplicates
+     */
+    public long[] getGcRoots() {
+        return Arrays.copyOf(this.gcRoots, this.gcRootCount);
+    }
+
+    public Collection<ClassInfo> getClasses() {
+        return this.classes.values();
+    }
+
+    public long getObjectId(int ordinal) {
+        return id(this.offsets[ordinal] + 1);
+    }
+
+    /**
+     * @return the class name of an object in source form, "int[]" for primitive arrays
+     */
+    public String getClassName(int ordinal) {
+        long record = this.offsets[ordinal];
+        switch (u1(record)) {
+            case INSTANCE_DUMP:
+                ClassInfo classInfo = getClassInfo(ordinal);
+                return classInfo != null ? classInfo.name : "unknown";
+            case OBJECT_ARRAY_DUMP:
+                return readClassName(id(record + 1 + this.idSize + 4 + 4));
+            default:
+                return typeName(u1(record + 1 + this.idSize + 4 + 4)) + "[]";
+        }
+    }
+
+    /**
+     * @return the class of an instance, or null for arrays
+     */
+    public ClassInfo getClassInfo(int ordinal) {
+        long record = this.offsets[ordinal];
+        if (u1(record) != INSTANCE_DUMP) {
+            return null;
+        }
+        return this.classes.get(id(record + 1 + this.idSize + 4));
+    }
+
+    public boolean isObjectArray(int ordinal) {
+        return u1(this.offsets[ordinal]) == OBJECT_ARRAY_DUMP;
+    }
+
+    public boolean isPrimitiveArray(int ordinal) {
+        return u1(this.offsets[ordinal]) == PRIMITIVE_ARRAY_DUMP;
+    }
+
+    /**
+     * @return the number of elements of an array, -1 for instances
+     */
+    public int getArrayLength(int ordinal) {
+        long record = this.offsets[ordinal];
+        if (u1(record) == INSTANCE_DUMP) {
+            return -1;
+        }
+        return (int) u4(record + 1 + this.idSize + 4);
+    }
+
+    /**
+     * @return the fields of an instance, its own class first and then up the super classes, values of references as
+     * object ids; empty for arrays
+     */
+    public List<FieldValue> getFields(int ordinal) {
+        List<FieldValue> fields = new ArrayList<FieldValue>();
+        ClassInfo classInfo = getClassInfo(ordinal);
+        if (classInfo == null) {
+            return fields;
+        }
+        long pos = this.offsets[ordinal] + 1 + this.idSize + 4 + this.idSize + 4;
+        for (ClassInfo current = classInfo; current != null; current = current.superClass) {
+            for (int i = 0; i < current.fieldNames.length; i++) {
+                int type = current.fieldTypes[i];
+                fields.add(new FieldValue(current.fieldNames[i], type, readValue(pos, type)));
+                pos += typeSize(type);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return the ids of the elements of an object array, 0 for null elements
+     */
+    public long[] getElements(int ordinal) {
+        if (!isObjectArray(ordinal)) {
+            return new long[0];
+        }
+        long record = this.offsets[ordinal];
+        int count = getArrayLength(ordinal);
+        long first = record + 1 + this.idSize + 4 + 4 + this.idSize;
+        long[] elements = new long[count];
+        for (int i = 0; i < count; i++) {
+            elements[i] = id(first + (long) i * this.idSize);
+        }
+        return elements;
+    }
+
+    /**
+     * @return the ids of all objects an object refers to, 0 excluded
+     */
+    public long[] getReferences(int ordinal) {
+        if (isObjectArray(ordinal)) {
+            long[] elements = getElements(ordinal);
+            int count = 0;
+            for (long element : elements) {
+                if (element != 0) {
+                    elements[count++] = element;
+                }
+            }
+            return Arrays.copyOf(elements, count);
+        }
+        List<FieldValue> fields = getFields(ordinal);
+        long[] references = new long[fields.size()];
+        int count = 0;
+        for (FieldValue field : fields) {
+            if (field.type == TYPE_OBJECT && field.value != 0) {
+                references[count++] = field.value;
+            }
+        }
+        return Arrays.copyOf(references, count);
+    }
+
+    /**
+     * @return the first elements of a primitive array, formatted like {@link Arrays#toString}
+     */
+    public String formatPrimitiveArray(int ordinal, int maxElements) {
+        long record = this.offsets[ordinal];
+        int count = getArrayLength(ordinal);
+        int type = u1(record + 1 + this.idSize + 4 + 4);
+        long first = record + 1 + this.idSize + 4 + 4 + 1;
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < count && i < maxElements; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(formatValue(type, readValue(first + (long) i * typeSize(type), type)));
+        }
+        if (count > maxElements) {
+            text.append(", ...");
+        }
+        return text.append("]").toString();
+    }
+
+    /**
+     * Decodes a java.lang.String instance from its value array, for both the byte[] with coder of Java 9 and later and
+     * the char[] of older versions.
+     *
+     * @return the text, shortened to the given length, or null if the object is not a string
+     */
+    public String readJavaString(int ordinal, int maxLength) {
+        ClassInfo classInfo = getClassInfo(ordinal);
+        if (classInfo == null || !"java.lang.String".equals(classInfo.name)) {
+            return null;
+        }
+        long valueId = 0;
+        int coder = 0;
+        for (FieldValue field : getFields(ordinal)) {
+            if ("value".equals(field.name) && field.type == TYPE_OBJECT) {
+                valueId = field.value;
+            }
+            else if ("coder".equals(field.name)) {
+                coder = (int) field.value;
+            }
+        }
+        int valueOrdinal = getOrdinal(valueId);
+        if (valueOrdinal < 0 || !isPrimitiveArray(valueOrdinal)) {
+            return "";
+        }
+        long record = this.offsets[valueOrdinal];
+        int count = getArrayLength(valueOrdinal);
+        int type = u1(record + 1 + this.idSize + 4 + 4);
+        long first = record + 1 + this.idSize + 4 + 4 + 1;
+        StringBuilder text = new StringBuilder();
+        if (type == TYPE_CHAR) {
+            for (int i = 0; i < count && text.length() < maxLength; i++) {
+                text.append((char) u2(first + 2L * i));
+            }
+        }
+        else if (type == TYPE_BYTE && coder == 0) { // Latin-1
+            for (int i = 0; i < count && text.length() < maxLength; i++) {
+                text.append((char) u1(first + i));
+            }
+        }
+        else if (type == TYPE_BYTE) { // UTF-16 in the byte order of the dumped JVM, little endian on common platforms
+            for (int i = 0; i + 1 < count && text.length() < maxLength; i += 2) {
+                text.append((char) (u1(first + i) | (u1(first + i + 1) << 8)));
+            }
+        }
+        return text.toString();
+    }
+
+    public static String formatValue(int type, long value) {
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return Boolean.toString(value != 0);
+            case TYPE_CHAR:
+                return "'" + (char) value + "'";
+            case TYPE_FLOAT:
+                return Float.toString(Float.intBitsToFloat((int) value));
+            case TYPE_DOUBLE:
+                return Double.toString(Double.longBitsToDouble(value));
+            case TYPE_OBJECT:
+                return value == 0 ? "null" : "0x" + Long.toHexString(value);
+            default:
+                return Long.toString(value);
+        }
+    }
+
+    private long readValue(long pos, int type) {
+        switch (type) {
+            case TYPE_OBJECT:
+                return id(pos);
+            case TYPE_BOOLEAN:
+                return u1(pos);
+            case TYPE_BYTE:
+                return (byte) u1(pos);
+            case TYPE_CHAR:
+                return u2(pos);
+            case TYPE_SHORT:
+                return (short) u2(pos);
+            case TYPE_FLOAT:
+            case TYPE_INT:
+                return (int) u4(pos);
+            case TYPE_DOUBLE:
+            case TYPE_LONG:
+                return u8(pos);
+            default:
+                throw new IllegalStateException("unknown basic type " + type);
+        }
+    }
+
+    private int typeSize(int type) throws IllegalStateException {
+        switch (type) {
+            case TYPE_OBJECT:
+                return this.idSize;
+            case TYPE_BOOLEAN:
+            case TYPE_BYTE:
+                return 1;
+            case TYPE_CHAR:
+            case TYPE_SHORT:
+                return 2;
+            case TYPE_FLOAT:
+            case TYPE_INT:
+                return 4;
+            case TYPE_DOUBLE:
+            case TYPE_LONG:
+                return 8;
+            default:
+                throw new IllegalStateException("unknown basic type " + type);
+        }
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return "boolean";
+            case TYPE_CHAR:
+                return "char";
+            case TYPE_FLOAT:
+                return "float";
+            case TYPE_DOUBLE:
+                return "double";
+            case TYPE_BYTE:
+                return "byte";
+            case TYPE_SHORT:
+                return "short";
+            case TYPE_INT:
+                return "int";
+            case TYPE_LONG:
+                return "long";
+            default:
+                return "Object";
+        }
+    }
+
+    private String readClassName(long classId) {
+        long nameId = this.classNameIds.get(classId, 0);
+        String name = nameId != 0 ? readString(nameId) : null;
+        return name != null ? toSourceName(name) : "0x" + Long.toHexString(classId);
+    }
+
+    /**
+     * Converts an internal class name such as "java/util/HashMap$Node" or "[Ljava/lang/String;" to source form.
+     */
+    static String toSourceName(String internalName) {
+        int dimensions = 0;
+        while (dimensions < internalName.length() && internalName.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        String element = internalName.substring(dimensions);
+        if (dimensions > 0) {
+            if (element.startsWith("L") && element.endsWith(";")) {
+                element = element.substring(1, element.length() - 1);
+            }
+            else if (element.length() == 1) {
+                element = primitiveName(element.charAt(0));
+            }
+        }
+        StringBuilder name = new StringBuilder(element.replace('/', '.'));
+        for (int i = 0; i < dimensions; i++) {
+            name.append("[]");
+        }
+        return name.toString();
+    }
+
+    private static String primitiveName(char descriptor) {
+        switch (descriptor) {
+            case 'Z':
+                return "boolean";
+            case 'C':
+                return "char";
+            case 'F':
+                return "float";
+            case 'D':
+                return "double";
+            case 'B':
+                return "byte";
+            case 'S':
+                return "short";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            default:
+                return String.valueOf(descriptor);
+        }
+    }
+
+    private String readString(long stringId) {
+        long pos = this.strings.get(stringId, -1);
+        if (pos < 0) {
+            return null;
+        }
+        int byteCount = (int) (u4(pos - this.idSize - 4) - this.idSize);
+        byte[] bytes = new byte[byteCount];
+        for (int i = 0; i < byteCount; i++) {
+            bytes[i] = (byte) u1(pos + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // absolute big endian reads across mapping windows
+
+    private int u1(long pos) {
+        return this.windows[(int) (pos >>> this.windowBits)].get((int) (pos & this.windowMask)) & 0xFF;
+    }
+
+    private int u2(long pos) {
+        int offset = (int) (pos & this.windowMask);
+        MappedByteBuffer window = this.windows[(int) (pos >>> this.windowBits)];
+        if (offset + 2 <= window.limit()) {
+            return window.getShort(offset) & 0xFFFF;
+        }
+        return (u1(pos) << 8) | u1(pos + 1);
+    }
+
+    private long u4(long pos) {
+        int offset = (int) (pos & this.windowMask);
+        MappedByteBuffer window = this.windows[(int) (pos >>> this.windowBits)];
+        if (offset + 4 <= window.limit()) {
+            return window.getInt(offset) & 0xFFFFFFFFL;
+        }
+        return ((long) u2(pos) << 16) | u2(pos + 2);
+    }
+
+    private long u8(long pos) {
+        int offset = (int) (pos & this.windowMask);
+        MappedByteBuffer window = this.windows[(int) (pos >>> this.windowBits)];
+        if (offset + 8 <= window.limit()) {
+            return window.getLong(offset);
+        }
+        return (u4(pos) << 32) | u4(pos + 4);
+    }
+
+    private long id(long pos) {
+        return this.idSize == 4 ? u4(pos) : u8(pos);
+    }
+
+    /**
+     * Layout of the instances of one class: name, super class and the declared instance fields in dump order.
+     */
+    public static class ClassInfo {
+
+        private final long id;
+        private long superId;
+        private ClassInfo superClass;
+        private String name;
+        private String[] fieldNames;
+        private int[] fieldTypes;
+
+        private ClassInfo(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return this.id;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public ClassInfo getSuperClass() {
+            return this.superClass;
+        }
+    }
+
+    /**
+     * Value of one instance field, references as object id and all other types widened to long.
+     */
+    public static class FieldValue {
+
+        public final String name;
+        public final int type;
+        public final long value;
+
+        FieldValue(String name, int type, long value) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.HprofReader.FieldValue;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.util.MessageBar;
+import ch.hsr.ogv.util.MessageBar.MessageLevel;
+import javafx.scene.paint.Color;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports the objects of a HPROF heap dump as object diagram. Every class of a selected object becomes a class box, every
+ * reference between two selected objects an object relation, backed by a directed association between their classes.
+ * Primitive fields and references to objects that are not selected are shown as attribute values. Heap dumps can only
+ * be read.
+ */
+public class HprofSerialization implements SerializationStrategy {
+
+    private final static Logger logger = LoggerFactory.getLogger(SerializationStrategy.class);
+
+    private final static double CLASS_SPACING = 300.0;
+    private final static double CLASS_WIDTH = 150.0;
+    private final static int MAX_VALUE_LENGTH = 40;
+    private final static String ELEMENTS_ROLE = "elements";
+    private final static String LENGTH_ATTRIBUTE = "length";
+
+    private final HprofFilter filter;
+    private Set<ModelClass> classes = new LinkedHashSet<ModelClass>();
+    private Set<Relation> relations = new LinkedHashSet<Relation>();
+
+    public HprofSerialization(HprofFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean parse(File file) {
+        try (HprofReader reader = new HprofReader(file)) {
+            reader.index();
+            toModel(reader, this.filter.select(reader));
+            return true;
+        }
+        catch (IOException | RuntimeException e) {
+            logger.debug(e.getMessage());
+            MessageBar.setText("Unable to read heap dump: \"" + file.getPath() + "\".", MessageLevel.ALERT);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean serialize(File file) {
+        return false;
+    }
+
+    @Override
+    public Set<ModelClass> getClasses() {
+        return this.classes;
+    }
+
+    @Override
+    public Set<Relation> getRelations() {
+        return this.relations;
+    }
+
+    @Override
+    public void setClasses(Set<ModelClass> modelClasses) {
+        this.classes = modelClasses;
+    }
+
+    @Override
+    public void setRelations(Set<Relation> relations) {
+        this.relations = relations;
+    }
+
+    private void toModel(HprofReader reader, BitSet selected) {
+        Map<String, List<Integer>> ordinalsByClass = new LinkedHashMap<String, List<Integer>>();
+        for (int ordinal = selected.nextSetBit(0); ordinal >= 0; ordinal = selected.nextSetBit(ordinal + 1)) {
+            ordinalsByClass.computeIfAbsent(reader.getClassName(ordinal), k -> new ArrayList<Integer>()).add(ordinal);
+        }
+        Map<String, String> displayNames = displayNames(ordinalsByClass.keySet());
+        Map<Integer, ModelObject> objects = new HashMap<Integer, ModelObject>(); // k: ordinal
+        Map<String, Relation> classRelations = new HashMap<String, Relation>(); // k: class, field and target class
+        List<int[]> references = new ArrayList<int[]>(); // start ordinal, end ordinal
+        List<String> referenceFields = new ArrayList<String>();
+
+        int columns = (int) Math.ceil(Math.sqrt(ordinalsByClass.size()));
+        int rows = columns > 0 ? (ordinalsByClass.size() + columns - 1) / columns : 0;
+        int index = 0;
+        for (Map.Entry<String, List<Integer>> entry : ordinalsByClass.entrySet()) {
+            ModelClass modelClass = new ModelClass();
+            modelClass.setName(displayNames.get(entry.getKey()));
+            modelClass.setX((index % columns - columns / 2) * CLASS_SPACING);
+            modelClass.setZ((index / columns - rows / 2) * CLASS_SPACING);
+            modelClass.setWidth(CLASS_WIDTH);
+            index++;
+
+            // first pass: references to selected objects become relations, fields with any other value are attributes
+            Set<String> attributeFields = new LinkedHashSet<String>();
+            for (int ordinal : entry.getValue()) {
+                if (reader.isObjectArray(ordinal)) {
+                    for (long elementId : reader.getElements(ordinal)) {
+                        int target = reader.getOrdinal(elementId);
+                        if (target >= 0 && selected.get(target)) {
+                            references.add(new int[]{ordinal, target});
+                            referenceFields.add(ELEMENTS_ROLE);
+                        }
+                    }
+                    continue;
+                }
+                for (FieldValue field : uniqueFields(reader.getFields(ordinal))) {
+                    int target = selectedTarget(reader, field, selected);
+                    if (target >= 0) {
+                        references.add(new int[]{ordinal, target});
+                        referenceFields.add(field.name);
+                    }
+                    else {
+                        attributeFields.add(field.name);
+                    }
+                }
+            }
+
+            boolean array = entry.getKey().endsWith("[]");
+            if (array) {
+                modelClass.createAttribute(LENGTH_ATTRIBUTE);
+            }
+            else {
+                for (FieldValue field : uniqueFields(reader.getFields(entry.getValue().get(0)))) {
+                    if (attributeFields.contains(field.name)) {
+                        modelClass.createAttribute(field.name);
+                    }
+                }
+            }
+
+            for (int ordinal : entry.getValue()) {
+                ModelObject modelObject = modelClass.createModelObject("0x" + Long.toHexString(reader.getObjectId(ordinal)));
+                objects.put(ordinal, modelObject);
+                if (array) {
+                    modelObject.changeAttributeValue(LENGTH_ATTRIBUTE, String.valueOf(reader.getArrayLength(ordinal)));
+                    continue;
+                }
+                for (FieldValue field : uniqueFields(reader.getFields(ordinal))) {
+                    // a reference shown as relation leaves the value of this object empty
+                    if (attributeFields.contains(field.name) && selectedTarget(reader, field, selected) < 0) {
+                        modelObject.changeAttributeValue(field.name, formatField(reader, field, displayNames));
+                    }
+                }
+            }
+            this.classes.add(modelClass);
+        }
+
+        for (int i = 0; i < references.size(); i++) {
+            ModelObject start = objects.get(references.get(i)[0]);
+            ModelObject end = objects.get(references.get(i)[1]);
+            String field = referenceFields.get(i);
+            String key = start.getModelClass().getName() + "\u0000" + field + "\u0000" + end.getModelClass().getName();
+            Relation classRelation = classRelations.get(key);
+            if (classRelation == null) {
+                // the color pairs object relations with their class relation, one hue per association
+                Color color = Color.hsb((classRelations.size() * 137.5) % 360.0, 0.7, 0.6);
+                classRelation = new Relation(start.getModelClass(), end.getModelClass(), RelationType.DIRECTED_ASSOCIATION, color);
+                classRelation.getEnd().setRoleName(field);
+                classRelation.getEnd().setMultiplicity(ELEMENTS_ROLE.equals(field) ? "*" : "1");
+                classRelations.put(key, classRelation);
+                this.relations.add(classRelation);
+            }
+            this.relations.add(new Relation(start, end, RelationType.OBJDIAGRAM, classRelation.getColor()));
+        }
+    }
+
+    /**
+     * @return the ordinal of the selected object the field refers to, or -1 if it is no reference to a selected object
+     */
+    private static int selectedTarget(HprofReader reader, FieldValue field, BitSet selected) {
+        int target = field.type == HprofReader.TYPE_OBJECT ? reader.getOrdinal(field.value) : -1;
+        return target >= 0 && selected.get(target) ? target : -1;
+    }
+
+    /**
+     * @return the fields with the first declaration of every name, fields hidden by a sub class are left out
+     */
+    private static List<FieldValue> uniqueFields(List<FieldValue> fields) {
+        Set<String> names = new LinkedHashSet<String>();
+        List<FieldValue> unique = new ArrayList<FieldValue>();
+        for (FieldValue field : fields) {
+            if (names.add(field.name)) {
+                unique.add(field);
+            }
+        }
+        return unique;
+    }
+
+    private String formatField(HprofReader reader, FieldValue field, Map<String, String> displayNames) {
+        if (field.type != HprofReader.TYPE_OBJECT || field.value == 0) {
+            return HprofReader.formatValue(field.type, field.value);
+        }
+        int ordinal = reader.getOrdinal(field.value);
+        if (ordinal < 0) {
+            return HprofReader.formatValue(field.type, field.value);
+        }
+        String text = reader.readJavaString(ordinal, MAX_VALUE_LENGTH);
+        if (text != null) {
+            return "\"" + text + "\"";
+        }
+        if (reader.isPrimitiveArray(ordinal)) {
+            return reader.formatPrimitiveArray(ordinal, 8);
+        }
+        String className = reader.getClassName(ordinal);
+        String name = displayNames.containsKey(className) ? displayNames.get(className) : simpleName(className);
+        return name + "@" + Long.toHexString(field.value);
+    }
+
+    /**
+     * @return simple class names, or the full name where two classes share the simple name
+     */
+    static Map<String, String> displayNames(Set<String> classNames) {
+        Map<String, Integer> simpleNameCounts = new HashMap<String, Integer>();
+        for (String className : classNames) {
+            simpleNameCounts.merge(simpleName(className), 1, Integer::sum);
+        }
+        Map<String, String> displayNames = new HashMap<String, String>();
+        for (String className : classNames) {
+            String simpleName = simpleName(className);
+            displayNames.put(className, simpleNameCounts.get(simpleName) > 1 ? className : simpleName);
+        }
+        return displayNames;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+}
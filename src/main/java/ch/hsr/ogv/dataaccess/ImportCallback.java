@@ -18,6 +18,11 @@ public class ImportCallback implements PersistenceCallback {
         this.file = file;
     }
 
+    @Override
+    public void progress(double progress) {
+        MessageBar.setText("Importing file: \"" + file.getPath() + "\"... " + Math.round(progress * 100) + "%", MessageLevel.WARN);
+    }
+
     @Override
     public void completed(boolean success) {
         if (success) {
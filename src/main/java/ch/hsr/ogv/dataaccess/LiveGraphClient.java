@@ -0,0 +1,101 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.agent.DeltaReader;
+import ch.hsr.ogv.agent.GraphDelta;
+import ch.hsr.ogv.agent.GraphSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.function.Consumer;
+
+/**
+ * Receives the object graph streamed by an {@link ch.hsr.ogv.agent.OGVAgent}. A reader thread applies every frame to
+ * the latest state as soon as it arrives, so the agent is never blocked by the UI. The UI takes copies of the latest
+ * state at its own pace and skips the states in between.
+ */
+public class LiveGraphClient implements Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(LiveGraphClient.class);
+    private final static int CONNECT_TIMEOUT_MILLIS = 3000;
+
+    private final Socket socket;
+    private final GraphSnapshot latest = new GraphSnapshot(); // guarded by itself
+    private long version = 0; // guarded by latest, counts the frames applied to it
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to an agent, reading starts with {@link #start(Runnable, Consumer)}.
+     */
+    public LiveGraphClient(String host, int port) throws IOException {
+        this.socket = new Socket();
+        this.socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param onFrame    called on the reader thread after a frame was applied to the latest state
+     * @param onFinished called on the reader thread when the stream ended, with the cause or null if it was closed
+     */
+    public void start(Runnable onFrame, Consumer<IOException> onFinished) {
+        Thread reader = new Thread(() -> {
+            IOException cause = null;
+            try {
+                DeltaReader deltaReader = new DeltaReader(this.socket.getInputStream());
+                GraphDelta delta;
+                while ((delta = deltaReader.read()) != null) {
+                    synchronized (this.latest) {
+                        delta.applyTo(this.latest);
+                        this.version++;
+                    }
+                    onFrame.run();
+                }
+            }
+            catch (IOException e) {
+                if (!this.closed) {
+                    logger.debug(e.getMessage());
+                    cause = e;
+                }
+            }
+            finally {
+                close();
+                onFinished.accept(cause);
+            }
+        }, "OGV live graph reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public long getVersion() {
+        synchronized (this.latest) {
+            return this.version;
+        }
+    }
+
+    /**
+     * @return a copy of the latest state, the stream keeps going while the copy is used
+     */
+    public GraphSnapshot copyLatest() {
+        synchronized (this.latest) {
+            return this.latest.copy();
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        try {
+            this.socket.close();
+        }
+        catch (IOException e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+}
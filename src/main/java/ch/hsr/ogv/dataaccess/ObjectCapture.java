@@ -0,0 +1,253 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.agent.GraphSnapshot;
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+import ch.hsr.ogv.agent.HeapWalker;
+import ch.hsr.ogv.model.Attribute;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import ch.hsr.ogv.util.ColorUtil;
+import ch.hsr.ogv.util.LongLongMap;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Captures the objects reachable from some roots of the running program as object diagram, e.g. to look at the state
+ * of a test. The objects are walked with the {@link HeapWalker}, in parallel on a fork join pool. Every Java class
+ * becomes a class box with its fields as attributes, every reference between two captured objects an object relation,
+ * backed by a directed association between their classes. The multiplicity of an association is the least and most
+ * objects a captured object refers to through the field.
+ * <p>
+ * Captures can only be written, as OGV file.
+ */
+public class ObjectCapture implements SerializationStrategy {
+
+    public final static int DEFAULT_MAX_OBJECTS = 1_000_000;
+    public final static int DEFAULT_MAX_DEPTH = HeapWalker.DEFAULT_MAX_DEPTH;
+
+    private final static double CLASS_SPACING = 300.0;
+    private final static double CLASS_WIDTH = 150.0;
+    private final static double CLASS_HEIGHT = 100.0;
+    private final static Color CLASS_COLOR = Color.CORNSILK;
+
+    private final HeapWalker walker;
+    private final ForkJoinPool pool;
+    private Set<ModelClass> classes = new LinkedHashSet<ModelClass>();
+    private Set<Relation> relations = new LinkedHashSet<Relation>();
+
+    public ObjectCapture() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_OBJECTS, "");
+    }
+
+    /**
+     * @param excludedClasses comma separated class names in source form, '*' matches any text and '?' a single
+     *                        character, e.g. "java.lang.Thread, com.example.cache.*"; objects of these classes are
+     *                        shown as attribute values
+     */
+    public ObjectCapture(int maxDepth, int maxObjects, String excludedClasses) {
+        this(maxDepth, maxObjects, excludedClasses, ForkJoinPool.commonPool());
+    }
+
+    public ObjectCapture(int maxDepth, int maxObjects, String excludedClasses, ForkJoinPool pool) {
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        for (String classPattern : excludedClasses.split(",")) {
+            if (!classPattern.trim().isEmpty()) {
+                patterns.add(HprofFilter.toRegex(classPattern.trim()));
+            }
+        }
+        this.walker = new HeapWalker(Math.max(1, maxObjects), Math.max(0, maxDepth), type -> {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(type.getTypeName()).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        this.pool = pool;
+    }
+
+    /**
+     * Replaces the classes and relations with the objects reachable from the roots. The objects must not be changed
+     * meanwhile, otherwise the capture may be inconsistent.
+     */
+    public ObjectCapture capture(Collection<?> roots) {
+        this.classes = new LinkedHashSet<ModelClass>();
+        this.relations = new LinkedHashSet<Relation>();
+        toModel(this.walker.walk(roots, this.pool));
+        return this;
+    }
+
+    @Override
+    public boolean parse(File file) {
+        return false;
+    }
+
+    @Override
+    public boolean serialize(File file) {
+        OGVSerialization ogvSerialization = new OGVSerialization();
+        ogvSerialization.setClasses(this.classes);
+        ogvSerialization.setRelations(this.relations);
+        return ogvSerialization.serialize(file);
+    }
+
+    @Override
+    public Set<ModelClass> getClasses() {
+        return this.classes;
+    }
+
+    @Override
+    public Set<Relation> getRelations() {
+        return this.relations;
+    }
+
+    @Override
+    public void setClasses(Set<ModelClass> modelClasses) {
+        this.classes = modelClasses;
+    }
+
+    @Override
+    public void setRelations(Set<Relation> relations) {
+        this.relations = relations;
+    }
+
+    private void toModel(GraphSnapshot snapshot) {
+        Map<String, List<Long>> idsByClass = new LinkedHashMap<String, List<Long>>();
+        for (long id : snapshot.getObjectIds()) {
+            idsByClass.computeIfAbsent(snapshot.getClassName(id), k -> new ArrayList<Long>()).add(id);
+        }
+        Map<String, String> displayNames = HprofSerialization.displayNames(idsByClass.keySet());
+        ModelObject[] objects = new ModelObject[snapshot.getObjectCount()];
+        LongLongMap indexes = new LongLongMap(objects.length); // k: object id, v: index in objects
+
+        int columns = (int) Math.ceil(Math.sqrt(idsByClass.size()));
+        int rows = columns > 0 ? (idsByClass.size() + columns - 1) / columns : 0;
+        int index = 0;
+        for (Map.Entry<String, List<Long>> entry : idsByClass.entrySet()) {
+            Point3D position = new Point3D((index % columns - columns / 2) * CLASS_SPACING, 0, (index / columns - rows / 2) * CLASS_SPACING);
+            ModelClass modelClass = new ModelClass(displayNames.get(entry.getKey()), position, CLASS_WIDTH, CLASS_HEIGHT, CLASS_COLOR);
+            index++;
+            Map<String, Attribute> attributes = new LinkedHashMap<String, Attribute>();
+            for (long id : entry.getValue()) {
+                for (String field : snapshot.getValues(id).keySet()) {
+                    attributes.computeIfAbsent(field, modelClass::createAttribute);
+                }
+            }
+            // created directly instead of through createModelObject, which looks at all objects of the class every time
+            Color objectColor = ColorUtil.brighter(CLASS_COLOR, 0.1);
+            List<ModelObject> modelObjects = new ArrayList<ModelObject>(entry.getValue().size());
+            for (long id : entry.getValue()) {
+                Point3D objectPosition = new Point3D(position.getX(), (modelObjects.size() + 1) * ModelClass.OBJECT_LEVEL_DIFF, position.getZ());
+                ModelObject modelObject = new ModelObject("#" + id, modelClass, objectPosition, CLASS_WIDTH, CLASS_HEIGHT, objectColor);
+                Map<String, String> values = snapshot.getValues(id);
+                for (Map.Entry<String, Attribute> attribute : attributes.entrySet()) {
+                    String value = values.get(attribute.getKey());
+                    modelObject.addAttributeValue(attribute.getValue(), value != null ? value : "");
+                }
+                modelObjects.add(modelObject);
+                indexes.put(id, indexes.size());
+                objects[indexes.size() - 1] = modelObject;
+            }
+            modelClass.setModelObjects(modelObjects);
+            this.classes.add(modelClass);
+        }
+
+        // k: class, field and target class, nested to spare a key object per reference
+        Map<ModelClass, Map<String, Map<ModelClass, Association>>> associationIndex = new HashMap<ModelClass, Map<String, Map<ModelClass, Association>>>();
+        List<Association> associations = new ArrayList<Association>();
+        for (Reference reference : snapshot.getReferences()) {
+            int startIndex = (int) indexes.get(reference.from, -1);
+            int endIndex = (int) indexes.get(reference.to, -1);
+            if (startIndex < 0 || endIndex < 0) {
+                continue;
+            }
+            ModelObject start = objects[startIndex];
+            ModelObject end = objects[endIndex];
+            Map<ModelClass, Association> targets = associationIndex.computeIfAbsent(start.getModelClass(), k -> new HashMap<String, Map<ModelClass, Association>>())
+                                                                   .computeIfAbsent(reference.field, k -> new HashMap<ModelClass, Association>());
+            Association association = targets.get(end.getModelClass());
+            if (association == null) {
+                // the color pairs object relations with their class relation, one hue per association
+                Color color = Color.hsb((associations.size() * 137.5) % 360.0, 0.7, 0.6);
+                Relation classRelation = new Relation(start.getModelClass(), end.getModelClass(), RelationType.DIRECTED_ASSOCIATION, color);
+                classRelation.getEnd().setRoleName(reference.field);
+                addEndpoints(classRelation);
+                association = new Association(classRelation, isContainerField(reference.field));
+                targets.put(end.getModelClass(), association);
+                associations.add(association);
+                this.relations.add(classRelation);
+            }
+            association.count(start);
+            Relation objectRelation = new Relation(start, end, RelationType.OBJDIAGRAM, association.classRelation.getColor());
+            addEndpoints(objectRelation);
+            this.relations.add(objectRelation);
+        }
+        for (Association association : associations) {
+            association.classRelation.getEnd().setMultiplicity(association.multiplicity());
+        }
+    }
+
+    /**
+     * Connects the relation to its boxes, as the model manager does. Loading a saved capture finds the boxes of a
+     * relation through their endpoints.
+     */
+    private static void addEndpoints(Relation relation) {
+        relation.getStart().getAppendant().getEndpoints().add(relation.getStart());
+        relation.getEnd().getAppendant().getEndpoints().add(relation.getEnd());
+    }
+
+    private static boolean isContainerField(String field) {
+        return HeapWalker.ELEMENTS_FIELD.equals(field) || HeapWalker.KEYS_FIELD.equals(field) || HeapWalker.VALUES_FIELD.equals(field);
+    }
+
+    /**
+     * Counts the references of every object through one field to objects of one class. The walk adds all references of
+     * an object at once, so they come in a row.
+     */
+    private static class Association {
+
+        private final Relation classRelation;
+        private final boolean container;
+        private ModelObject lastStart;
+        private int count = 0; // references of the last start object
+        private int starts = 0;
+        private int max = 0;
+
+        Association(Relation classRelation, boolean container) {
+            this.classRelation = classRelation;
+            this.container = container;
+        }
+
+        void count(ModelObject start) {
+            if (start != this.lastStart) {
+                this.lastStart = start;
+                this.count = 0;
+                this.starts++;
+            }
+            this.max = Math.max(this.max, ++this.count);
+        }
+
+        String multiplicity() {
+            ModelClass startClass = (ModelClass) this.classRelation.getStart().getAppendant();
+            boolean optional = this.starts < startClass.getModelObjects().size();
+            if (this.container || this.max > 1) {
+                return optional ? "*" : "1..*";
+            }
+            return optional ? "0..1" : "1";
+        }
+    }
+
+}
@@ -2,6 +2,10 @@ package ch.hsr.ogv.dataaccess;
 
 import ch.hsr.ogv.controller.ModelViewConnector;
 import ch.hsr.ogv.model.*;
+import ch.hsr.ogv.util.MessageBar;
+import ch.hsr.ogv.util.MessageBar.MessageLevel;
+import ch.hsr.ogv.util.TimeSlicedScheduler;
+import ch.hsr.ogv.util.TimeSlicedScheduler.Job;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.geometry.Point3D;
@@ -9,13 +13,26 @@ import javafx.geometry.Point3D;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 public class Persistence {
 
+    private final static int BOXES_PER_TASK = 200;
+
     private ModelManager modelManager;
+    private TimeSlicedScheduler scheduler;
+    private Job loadJob; // transfers the loaded data to the model, a few boxes per frame
 
     public Persistence(ModelManager modelManager) {
+        this(modelManager, null);
+    }
+
+    /**
+     * @param scheduler transfers asynchronously loaded data to the model over several frames, or null to do it at once
+     */
+    public Persistence(ModelManager modelManager, TimeSlicedScheduler scheduler) {
         this.modelManager = modelManager;
+        this.scheduler = scheduler;
     }
 
     public void saveOGVDataAsync(File file, PersistenceCallback callback) {
@@ -60,7 +77,69 @@ public class Persistence {
         loadDataAsync(xmiSerialization, file, callback);
     }
 
+    public void loadHprofDataAsync(File file, HprofFilter filter, PersistenceCallback callback) {
+        HprofSerialization hprofSerialization = new HprofSerialization(filter);
+        loadDataAsync(hprofSerialization, file, callback);
+    }
+
+    /**
+     * Imports the classes of a JAR file or a class directory. Unlike the other imports the classes are not created one
+     * by one through the model manager, which looks at all other classes for each of them, but added in one batch, a
+     * chunk of classes and then of relations per task.
+     */
+    public void loadClassFilesAsync(File file, PersistenceCallback callback) {
+        cancelLoad();
+        ClassFileSerialization classFileSerialization = new ClassFileSerialization();
+        Task<Void> loadTask = new Task<Void>() {
+            @Override
+            public Void call() {
+                boolean loaded = classFileSerialization.parse(file);
+                Platform.runLater(() -> {
+                    if (!loaded) {
+                        callback.completed(false);
+                        return;
+                    }
+                    List<Runnable> tasks = new ArrayList<Runnable>();
+                    tasks.add(() -> {
+                        modelManager.clearClasses();
+                        modelManager.clearRelations();
+                    });
+                    List<ModelClass> classes = new ArrayList<ModelClass>(classFileSerialization.getClasses());
+                    for (int i = 0; i < classes.size(); i += BOXES_PER_TASK) {
+                        List<ModelClass> chunk = classes.subList(i, Math.min(i + BOXES_PER_TASK, classes.size()));
+                        tasks.add(() -> modelManager.addClasses(chunk));
+                    }
+                    List<Relation> relations = new ArrayList<Relation>(classFileSerialization.getRelations());
+                    for (int i = 0; i < relations.size(); i += BOXES_PER_TASK) {
+                        List<Relation> chunk = relations.subList(i, Math.min(i + BOXES_PER_TASK, relations.size()));
+                        tasks.add(() -> modelManager.addRelations(chunk));
+                    }
+                    Runnable done = () -> {
+                        callback.completed(true);
+                        List<String> skipped = classFileSerialization.getSkipped();
+                        if (!skipped.isEmpty()) {
+                            MessageBar.setText("Imported \"" + file.getPath() + "\" without " + skipped.size() + " unreadable class files, e.g. \"" + skipped.get(0) + "\".", MessageLevel.WARN);
+                        }
+                    };
+                    if (scheduler == null) {
+                        tasks.forEach(Runnable::run);
+                        done.run();
+                    }
+                    else {
+                        cancelLoad();
+                        loadJob = scheduler.submit(tasks);
+                        loadJob.setOnProgress(job -> callback.progress(job.getProgress()));
+                        loadJob.setOnDone(done);
+                    }
+                });
+                return null;
+            }
+        };
+        new Thread(loadTask).start();
+    }
+
     private void loadDataAsync(SerializationStrategy serialStrategy, File file, PersistenceCallback callback) {
+        cancelLoad();
         Task<Void> loadTask = new Task<Void>() {
             @Override
             public Void call() {
@@ -69,10 +148,16 @@ public class Persistence {
                     if (!loaded) {
                         callback.completed(false);
                     }
-                    else {
+                    else if (scheduler == null) {
                         loadedToModel(serialStrategy);
                         callback.completed(true);
                     }
+                    else {
+                        cancelLoad();
+                        loadJob = scheduler.submit(loadedToModelTasks(serialStrategy));
+                        loadJob.setOnProgress(job -> callback.progress(job.getProgress()));
+                        loadJob.setOnDone(() -> callback.completed(true));
+                    }
                 });
                 return null;
             }
@@ -80,6 +165,20 @@ public class Persistence {
         new Thread(loadTask).start();
     }
 
+    /**
+     * Stops transferring asynchronously loaded data to the model. What was transferred so far stays in the model.
+     */
+    public void cancelLoad() {
+        if (this.loadJob != null) {
+            this.loadJob.cancel();
+            this.loadJob = null;
+        }
+    }
+
+    public boolean isLoading() {
+        return this.loadJob != null && !this.loadJob.isDone() && !this.loadJob.isCancelled();
+    }
+
     public boolean loadOGVData(File file) {
         OGVSerialization ogvSerialization = new OGVSerialization();
         return loadData(ogvSerialization, file);
@@ -112,13 +211,42 @@ public class Persistence {
         }
     }
 
+    /**
+     * Same steps as {@link #loadedToModel(SerializationStrategy)}, one task per created box, attribute and relation.
+     */
+    private List<Runnable> loadedToModelTasks(SerializationStrategy serialStrategy) {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        tasks.add(() -> {
+            modelManager.clearClasses();
+            modelManager.clearRelations();
+        });
+        for (ModelClass loadedClass : serialStrategy.getClasses()) {
+            ModelClass[] newClass = new ModelClass[1]; // created by the first task of this class
+            tasks.add(() -> newClass[0] = loadedClassBoxToModel(loadedClass));
+            for (ModelObject loadedObject : loadedClass.getModelObjects()) {
+                tasks.add(() -> {
+                    if (newClass[0] != null) {
+                        loadedObjectToModel(newClass[0], loadedObject);
+                    }
+                });
+            }
+            for (Attribute loadedAttribute : loadedClass.getAttributes()) {
+                tasks.add(() -> {
+                    if (newClass[0] != null) {
+                        loadedAttributeToModel(newClass[0], loadedClass, loadedAttribute);
+                    }
+                });
+            }
+        }
+        for (Relation loadedRelation : serialStrategy.getRelations()) {
+            tasks.add(() -> loadedRelationToModel(loadedRelation));
+        }
+        return tasks;
+    }
+
     private void loadedClassToModel(ModelClass loadedClass) {
-        ModelClass newClass = modelManager.createClass(new Point3D(loadedClass.getX(), ModelViewConnector.BASE_BOX_DEPTH, loadedClass.getZ()), loadedClass.getWidth(), loadedClass.getHeight(),
-                                                       loadedClass.getColor());
+        ModelClass newClass = loadedClassBoxToModel(loadedClass);
         if (newClass != null) {
-            newClass.setName(loadedClass.getName());
-            newClass.setEndpoints(loadedClass.getEndpoints());
-
             for (ModelObject loadedObject : loadedClass.getModelObjects()) {
                 loadedObjectToModel(newClass, loadedObject);
             }
@@ -130,10 +258,21 @@ public class Persistence {
         }
     }
 
+    private ModelClass loadedClassBoxToModel(ModelClass loadedClass) {
+        ModelClass newClass = modelManager.createClass(new Point3D(loadedClass.getX(), ModelViewConnector.BASE_BOX_DEPTH, loadedClass.getZ()), loadedClass.getWidth(), loadedClass.getHeight(),
+                                                       loadedClass.getColor());
+        if (newClass != null) {
+            newClass.setName(loadedClass.getName());
+            newClass.setEndpoints(loadedClass.getEndpoints());
+        }
+        return newClass;
+    }
+
     private void loadedObjectToModel(ModelClass newClass, ModelObject loadedObject) {
         ModelObject newObject = modelManager.createObject(newClass);
         if (newObject != null) {
             newObject.setName(loadedObject.getName());
+            newObject.setUniqueID(loadedObject.getUniqueID()); // object relations are resolved by it
             newObject.setY(loadedObject.getY());
             newObject.setColor(loadedObject.getColor());
             newObject.setEndpoints(loadedObject.getEndpoints());
@@ -3,4 +3,10 @@ package ch.hsr.ogv.dataaccess;
 @FunctionalInterface
 public interface PersistenceCallback {
     void completed(boolean success);
+
+    /**
+     * @param progress share of the loaded data transferred to the model so far, between 0 and 1
+     */
+    default void progress(double progress) {
+    }
 }
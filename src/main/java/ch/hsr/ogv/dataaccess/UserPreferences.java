@@ -7,6 +7,8 @@ public class UserPreferences {
 
     private static final String OGV_FILE_PREFKEY = "ogvFilePath";
     private static final String XMI_FILE_PREFKEY = "xmiFilePath";
+    private static final String HPROF_FILE_PREFKEY = "hprofFilePath";
+    private static final String CLASS_FILE_PREFKEY = "classFilePath";
 
     private static void setPrefFilePath(String prefKey, File file) {
         Preferences prefs = Preferences.userNodeForPackage(UserPreferences.class);
@@ -67,4 +69,42 @@ public class UserPreferences {
         setPrefFilePath(XMI_FILE_PREFKEY, file);
     }
 
+    /**
+     * Returns the heap dump file preference, i.e. the file that was last imported. The preference is read from the OS
+     * specific registry. If no such preference can be found, null is returned.
+     *
+     * @return the last used file or null.
+     */
+    public static File getHprofFilePath() {
+        return getPrefFilePath(HPROF_FILE_PREFKEY);
+    }
+
+    /**
+     * Sets the heap dump file path of the last imported file. The path is persisted in the OS specific registry.
+     *
+     * @param file the file or null to remove the path
+     */
+    public static void setHprofFilePath(File file) {
+        setPrefFilePath(HPROF_FILE_PREFKEY, file);
+    }
+
+    /**
+     * Returns the class file preference, i.e. the JAR file or class directory that was last imported. The preference is
+     * read from the OS specific registry. If no such preference can be found, null is returned.
+     *
+     * @return the last used file or null.
+     */
+    public static File getClassFilePath() {
+        return getPrefFilePath(CLASS_FILE_PREFKEY);
+    }
+
+    /**
+     * Sets the JAR file or class directory path of the last import. The path is persisted in the OS specific registry.
+     *
+     * @param file the file or null to remove the path
+     */
+    public static void setClassFilePath(File file) {
+        setPrefFilePath(CLASS_FILE_PREFKEY, file);
+    }
+
 }
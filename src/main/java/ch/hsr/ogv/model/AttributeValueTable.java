@@ -0,0 +1,235 @@
+package ch.hsr.ogv.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribute values of the objects of one class, stored by column: one {@code String[]} per attribute, indexed by the
+ * slot of an object. An object of the class only keeps its slot, so it costs one reference per attribute instead of a
+ * map entry, and adding, moving or deleting an attribute is one column operation. A null value means the object has
+ * no value for that attribute. Slots of deleted objects are reused.
+ * <p>
+ * Like the {@link BoxGeometry}, writes are synchronized while reads are not: the columns and the maps from attribute
+ * and attribute name to column are an immutable {@link Columns} snapshot that is replaced whenever a column is added,
+ * removed or moved or the columns grow, so e.g. the object graph planner can read the values of many objects in
+ * parallel.
+ */
+class AttributeValueTable {
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    private volatile Columns columns = new Columns(new Attribute[0], new String[0][], INITIAL_CAPACITY);
+    private int slotCount = 0;
+    private int[] freeSlots = new int[0];
+    private int freeCount = 0;
+
+    /**
+     * The attribute and the values of each column, with the index of each attribute and the indexes of each attribute
+     * name. Never changed once published, only the values in the columns are written.
+     */
+    private static class Columns {
+
+        private final Attribute[] attributes;
+        private final String[][] values;
+        private final int capacity; // length of every column
+        private final Map<Attribute, Integer> indexes = new IdentityHashMap<Attribute, Integer>();
+        private final Map<String, int[]> nameIndexes = new HashMap<String, int[]>(); // in column order
+
+        Columns(Attribute[] attributes, String[][] values, int capacity) {
+            this.attributes = attributes;
+            this.values = values;
+            this.capacity = capacity;
+            for (int i = 0; i < attributes.length; i++) {
+                this.indexes.put(attributes[i], i);
+                int[] named = this.nameIndexes.get(attributes[i].getName());
+                named = named == null ? new int[1] : Arrays.copyOf(named, named.length + 1);
+                named[named.length - 1] = i;
+                this.nameIndexes.put(attributes[i].getName(), named);
+            }
+        }
+
+        int columnOf(Attribute attribute) {
+            Integer column = this.indexes.get(attribute);
+            return column != null ? column : -1;
+        }
+
+    }
+
+    synchronized int allocate() {
+        if (this.freeCount > 0) {
+            return this.freeSlots[--this.freeCount];
+        }
+        Columns columns = this.columns;
+        if (this.slotCount == columns.capacity) {
+            int capacity = columns.capacity + (columns.capacity >> 1);
+            String[][] values = new String[columns.values.length][];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Arrays.copyOf(columns.values[i], capacity);
+            }
+            this.columns = new Columns(columns.attributes, values, capacity);
+        }
+        return this.slotCount++;
+    }
+
+    synchronized void release(int slot) {
+        for (String[] column : this.columns.values) {
+            column[slot] = null;
+        }
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(INITIAL_CAPACITY, this.freeCount * 2));
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    synchronized int size() {
+        return this.slotCount - this.freeCount;
+    }
+
+    String get(int slot, Attribute attribute) {
+        Columns columns = this.columns;
+        int column = columns.columnOf(attribute);
+        return column >= 0 ? columns.values[column][slot] : null;
+    }
+
+    /**
+     * @return the previous value, or null if the object had none
+     */
+    synchronized String put(int slot, Attribute attribute, String value) {
+        int column = this.columns.columnOf(attribute);
+        if (column < 0) {
+            column = addColumn(attribute);
+        }
+        String[] values = this.columns.values[column];
+        String previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    synchronized String remove(int slot, Attribute attribute) {
+        Columns columns = this.columns;
+        int column = columns.columnOf(attribute);
+        if (column < 0) {
+            return null;
+        }
+        String[] values = columns.values[column];
+        String removed = values[slot];
+        values[slot] = null;
+        return removed;
+    }
+
+    /**
+     * @return the first attribute with the given name the object has a value for, or null
+     */
+    Attribute find(int slot, String attributeName) {
+        Columns columns = this.columns;
+        int[] named = columns.nameIndexes.get(attributeName);
+        if (named != null) {
+            for (int column : named) {
+                if (columns.values[column][slot] != null) {
+                    return columns.attributes[column];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the values of the object in column order, as a new map
+     */
+    Map<Attribute, String> toMap(int slot) {
+        Columns columns = this.columns;
+        Map<Attribute, String> values = new LinkedHashMap<Attribute, String>();
+        for (int i = 0; i < columns.attributes.length; i++) {
+            String value = columns.values[i][slot];
+            if (value != null) {
+                values.put(columns.attributes[i], value);
+            }
+        }
+        return values;
+    }
+
+    private int addColumn(Attribute attribute) {
+        Columns columns = this.columns;
+        int column = columns.attributes.length;
+        Attribute[] attributes = Arrays.copyOf(columns.attributes, column + 1);
+        String[][] values = Arrays.copyOf(columns.values, column + 1);
+        attributes[column] = attribute;
+        values[column] = new String[columns.capacity];
+        this.columns = new Columns(attributes, values, columns.capacity);
+        return column;
+    }
+
+    /**
+     * Gives every object without a value for the attribute the given value.
+     */
+    synchronized void fillColumn(Attribute attribute, String value) {
+        int column = this.columns.columnOf(attribute);
+        if (column < 0) {
+            column = addColumn(attribute);
+        }
+        String[] values = this.columns.values[column];
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            if (values[slot] == null) {
+                values[slot] = value;
+            }
+        }
+        for (int i = 0; i < this.freeCount; i++) {
+            values[this.freeSlots[i]] = null;
+        }
+    }
+
+    synchronized void removeColumn(Attribute attribute) {
+        Columns columns = this.columns;
+        int column = columns.columnOf(attribute);
+        if (column >= 0) {
+            Attribute[] attributes = new Attribute[columns.attributes.length - 1];
+            String[][] values = new String[attributes.length][];
+            System.arraycopy(columns.attributes, 0, attributes, 0, column);
+            System.arraycopy(columns.attributes, column + 1, attributes, column, attributes.length - column);
+            System.arraycopy(columns.values, 0, values, 0, column);
+            System.arraycopy(columns.values, column + 1, values, column, values.length - column);
+            this.columns = new Columns(attributes, values, columns.capacity);
+        }
+    }
+
+    /**
+     * Puts the columns of the given attributes in their order, before the columns of other attributes.
+     */
+    synchronized void orderColumns(List<Attribute> order) {
+        Columns columns = this.columns;
+        Attribute[] attributes = new Attribute[columns.attributes.length];
+        String[][] values = new String[attributes.length][];
+        boolean[] placed = new boolean[attributes.length];
+        int position = 0;
+        for (Attribute attribute : order) {
+            int column = columns.columnOf(attribute);
+            if (column >= 0 && !placed[column]) {
+                attributes[position] = attribute;
+                values[position++] = columns.values[column];
+                placed[column] = true;
+            }
+        }
+        for (int column = 0; column < placed.length; column++) {
+            if (!placed[column]) {
+                attributes[position] = columns.attributes[column];
+                values[position++] = columns.values[column];
+            }
+        }
+        this.columns = new Columns(attributes, values, columns.capacity);
+    }
+
+    /**
+     * Updates the map from attribute names to columns, once an attribute of a column was renamed.
+     */
+    synchronized void renameColumn(Attribute attribute) {
+        Columns columns = this.columns;
+        if (columns.columnOf(attribute) >= 0) {
+            this.columns = new Columns(columns.attributes, columns.values, columns.capacity);
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package ch.hsr.ogv.model;
+
+import java.util.Arrays;
+
+/**
+ * Position and size of boxes in primitive arrays, indexed by a dense box id. A {@link ModelBox} only keeps its id and
+ * reads and writes its geometry here, so moving a box allocates nothing, and layout code can read and write the
+ * geometry of many boxes in one call.
+ * <p>
+ * The arrays are pages of a fixed size that never move once allocated, so a box created on an import thread can be
+ * written while another thread adds the next page. Ids of released boxes are reused, so the ids stay dense and the
+ * arrays only grow with the number of boxes that exist at the same time.
+ */
+public class BoxGeometry {
+
+    private final static int PAGE_BITS = 12;
+    private final static int PAGE_SIZE = 1 << PAGE_BITS; // boxes per page
+    private final static int PAGE_MASK = PAGE_SIZE - 1;
+    private final static int STRIDE = 5;
+    private final static int X = 0;
+    private final static int Y = 1;
+    private final static int Z = 2;
+    private final static int WIDTH = 3;
+    private final static int HEIGHT = 4;
+
+    private volatile double[][] pages = new double[0][];
+    private int size = 0; // ids handed out, released ones included
+    private int[] freeIds = new int[0];
+    private int freeCount = 0;
+
+    /**
+     * @return the id of a new box with the given geometry
+     */
+    public synchronized int allocate(double x, double y, double z, double width, double height) {
+        int id;
+        if (this.freeCount > 0) {
+            id = this.freeIds[--this.freeCount];
+        }
+        else {
+            id = this.size++;
+        }
+        if ((id >> PAGE_BITS) == this.pages.length) {
+            double[][] grown = Arrays.copyOf(this.pages, this.pages.length + 1);
+            grown[this.pages.length] = new double[PAGE_SIZE * STRIDE];
+            this.pages = grown;
+        }
+        double[] page = this.pages[id >> PAGE_BITS];
+        int offset = (id & PAGE_MASK) * STRIDE;
+        page[offset + X] = x;
+        page[offset + Y] = y;
+        page[offset + Z] = z;
+        page[offset + WIDTH] = width;
+        page[offset + HEIGHT] = height;
+        return id;
+    }
+
+    /**
+     * Gives the id back for reuse, the box must not be read or written through it anymore.
+     */
+    public synchronized void release(int id) {
+        if (this.freeCount == this.freeIds.length) {
+            this.freeIds = Arrays.copyOf(this.freeIds, Math.max(16, this.freeCount * 2));
+        }
+        this.freeIds[this.freeCount++] = id;
+    }
+
+    /**
+     * @return the number of boxes that are not released
+     */
+    public synchronized int size() {
+        return this.size - this.freeCount;
+    }
+
+    private double get(int id, int field) {
+        return this.pages[id >> PAGE_BITS][(id & PAGE_MASK) * STRIDE + field];
+    }
+
+    private void set(int id, int field, double value) {
+        this.pages[id >> PAGE_BITS][(id & PAGE_MASK) * STRIDE + field] = value;
+    }
+
+    public double getX(int id) {
+        return get(id, X);
+    }
+
+    public double getY(int id) {
+        return get(id, Y);
+    }
+
+    public double getZ(int id) {
+        return get(id, Z);
+    }
+
+    public double getWidth(int id) {
+        return get(id, WIDTH);
+    }
+
+    public double getHeight(int id) {
+        return get(id, HEIGHT);
+    }
+
+    public void setX(int id, double x) {
+        set(id, X, x);
+    }
+
+    public void setY(int id, double y) {
+        set(id, Y, y);
+    }
+
+    public void setZ(int id, double z) {
+        set(id, Z, z);
+    }
+
+    public void setWidth(int id, double width) {
+        set(id, WIDTH, width);
+    }
+
+    public void setHeight(int id, double height) {
+        set(id, HEIGHT, height);
+    }
+
+    public void setXYZ(int id, double x, double y, double z) {
+        double[] page = this.pages[id >> PAGE_BITS];
+        int offset = (id & PAGE_MASK) * STRIDE;
+        page[offset + X] = x;
+        page[offset + Y] = y;
+        page[offset + Z] = z;
+    }
+
+    /**
+     * Copies the geometry of the given boxes into the arrays, at the index of the box in ids. Arrays may be null if
+     * not needed.
+     */
+    public void getBounds(int[] ids, double[] x, double[] z, double[] width, double[] height) {
+        double[][] pages = this.pages;
+        for (int i = 0; i < ids.length; i++) {
+            double[] page = pages[ids[i] >> PAGE_BITS];
+            int offset = (ids[i] & PAGE_MASK) * STRIDE;
+            if (x != null) {
+                x[i] = page[offset + X];
+            }
+            if (z != null) {
+                z[i] = page[offset + Z];
+            }
+            if (width != null) {
+                width[i] = page[offset + WIDTH];
+            }
+            if (height != null) {
+                height[i] = page[offset + HEIGHT];
+            }
+        }
+    }
+
+    /**
+     * Sets x and z of the boxes ids[from] to ids[to - 1] to the values at the same index.
+     */
+    public void setXZ(int[] ids, int from, int to, double[] x, double[] z) {
+        double[][] pages = this.pages;
+        for (int i = from; i < to; i++) {
+            double[] page = pages[ids[i] >> PAGE_BITS];
+            int offset = (ids[i] & PAGE_MASK) * STRIDE;
+            page[offset + X] = x[i];
+            page[offset + Z] = z[i];
+        }
+    }
+
+}
@@ -1,12 +1,12 @@
 package ch.hsr.ogv.model;
 
 import javax.xml.bind.annotation.XmlTransient;
-import java.util.UUID;
 
 public class Endpoint {
 
-    // for un/marshaling only
-    private String uniqueID = UUID.randomUUID().toString();
+    private final long id = UniqueIds.next();
+    // for un/marshaling only, made from the id when first asked for unless loaded
+    private volatile String uniqueID;
 
     private EndpointType endpointType;
     private String roleName;
@@ -23,8 +23,16 @@ public class Endpoint {
         this.appendant = appendant;
     }
 
+    @XmlTransient
+    public long getId() {
+        return this.id;
+    }
+
     public String getUniqueID() {
-        return uniqueID;
+        if (this.uniqueID == null) {
+            this.uniqueID = UniqueIds.toUniqueID(this.id);
+        }
+        return this.uniqueID;
     }
 
     public void setUniqueID(String uniqueID) {
@@ -15,10 +15,18 @@ import java.util.*;
 @XmlType(propOrder = {"name", "coordinates", "width", "height", "color", "endpoints"})
 public abstract class ModelBox extends Observable {
 
+    private final static BoxGeometry GEOMETRY = new BoxGeometry(); // coordinates, width and height of all boxes
+
+    private final static int X = 0;
+    private final static int Y = 1;
+    private final static int Z = 2;
+    private final static int WIDTH = 3;
+    private final static int HEIGHT = 4;
+
     protected String name = "";
-    protected Point3D coordinates = new Point3D(0, 0, 0);
-    protected double width = 100.0;
-    protected double height = 100.0;
+    private int geometryId = -1;
+    // geometry of a box outside of the model, null while it has an id in GEOMETRY
+    private double[] ownGeometry = new double[]{0, 0, 0, 100.0, 100.0};
     protected Color color = Color.CORNSILK;
     protected List<Endpoint> endpoints = new ArrayList<Endpoint>();
 
@@ -28,12 +36,80 @@ public abstract class ModelBox extends Observable {
 
     public ModelBox(String name, Point3D coordinates, double width, double height, Color color) {
         this.name = name;
-        this.coordinates = coordinates;
-        this.width = width;
-        this.height = height;
+        this.ownGeometry = new double[]{coordinates.getX(), coordinates.getY(), coordinates.getZ(), width, height};
         this.color = color;
     }
 
+    /**
+     * Moves the geometry of this box into the {@link BoxGeometry}, once the box enters the model. Until then, e.g. while
+     * it is only loaded or captured, the box keeps its geometry itself and takes no id.
+     */
+    public void allocateGeometry() {
+        if (this.ownGeometry == null) {
+            return;
+        }
+        double[] geometry = this.ownGeometry;
+        this.geometryId = GEOMETRY.allocate(geometry[X], geometry[Y], geometry[Z], geometry[WIDTH], geometry[HEIGHT]);
+        this.ownGeometry = null;
+    }
+
+    /**
+     * Gives the id of this box in the {@link BoxGeometry} back, once the box is deleted. The box keeps its last geometry
+     * for observers that still read it, but is no longer part of bulk reads and writes.
+     */
+    public void releaseGeometry() {
+        if (this.ownGeometry != null) {
+            return;
+        }
+        this.ownGeometry = new double[]{getX(), getY(), getZ(), getWidth(), getHeight()};
+        GEOMETRY.release(this.geometryId);
+        this.geometryId = -1;
+    }
+
+    /**
+     * @return whether the box has an id in the {@link BoxGeometry}, which is the case while it is in the model
+     */
+    public boolean hasGeometryId() {
+        return this.ownGeometry == null;
+    }
+
+    public static BoxGeometry getGeometry() {
+        return GEOMETRY;
+    }
+
+    /**
+     * @return the ids of the boxes in the {@link BoxGeometry}, in the same order, -1 for boxes outside of the model
+     */
+    public static int[] getGeometryIds(List<? extends ModelBox> boxes) {
+        int[] ids = new int[boxes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ModelBox box = boxes.get(i);
+            ids[i] = box.geometryId;
+        }
+        return ids;
+    }
+
+    /**
+     * Moves the boxes from index from to index to - 1 to the x and z at their index, in one pass over the geometry.
+     * Then the observers of each box are notified once.
+     */
+    public static void setXZ(List<? extends ModelBox> boxes, int from, int to, double[] x, double[] z) {
+        for (int i = from; i < to; i++) {
+            ModelBox box = boxes.get(i);
+            box.moveXZ(x[i], z[i]);
+        }
+        for (int i = from; i < to; i++) {
+            ModelBox box = boxes.get(i);
+            box.setChanged();
+            box.notifyObservers(ModelBoxChange.COORDINATES);
+        }
+    }
+
+    @XmlTransient
+    public int getGeometryId() {
+        return this.geometryId;
+    }
+
     public String getName() {
         return name;
     }
@@ -49,75 +125,104 @@ public abstract class ModelBox extends Observable {
 
     @XmlJavaTypeAdapter(Point3DAdapter.class)
     public Point3D getCoordinates() {
-        return coordinates;
+        return new Point3D(getX(), getY(), getZ());
     }
 
     public void setCoordinates(Point3D coordinates) {
-        if (this.coordinates != null) {
-            this.coordinates = coordinates;
-            setChanged();
-            notifyObservers(ModelBoxChange.COORDINATES);
+        if (coordinates != null) {
+            setXYZ(coordinates.getX(), coordinates.getY(), coordinates.getZ());
         }
     }
 
-    public void setX(double x) {
-        Point3D coords = new Point3D(x, 0, 0);
-        if (coordinates != null) {
-            coords = new Point3D(x, this.coordinates.getY(), this.coordinates.getZ());
+    public void setXYZ(double x, double y, double z) {
+        if (this.ownGeometry == null) {
+            GEOMETRY.setXYZ(this.geometryId, x, y, z);
+        }
+        else {
+            this.ownGeometry[X] = x;
+            this.ownGeometry[Y] = y;
+            this.ownGeometry[Z] = z;
         }
-        setCoordinates(coords);
+        setChanged();
+        notifyObservers(ModelBoxChange.COORDINATES);
     }
 
-    public void setY(double y) {
-        Point3D coords = new Point3D(0, y, 0);
-        if (coordinates != null) {
-            coords = new Point3D(this.coordinates.getX(), y, this.coordinates.getZ());
+    /**
+     * Moves the box on the xz-plane, with one notification.
+     */
+    public void setXZ(double x, double z) {
+        moveXZ(x, z);
+        setChanged();
+        notifyObservers(ModelBoxChange.COORDINATES);
+    }
+
+    private void moveXZ(double x, double z) {
+        if (this.ownGeometry == null) {
+            GEOMETRY.setX(this.geometryId, x);
+            GEOMETRY.setZ(this.geometryId, z);
         }
-        setCoordinates(coords);
+        else {
+            this.ownGeometry[X] = x;
+            this.ownGeometry[Z] = z;
+        }
+    }
+
+    public void setX(double x) {
+        setXYZ(x, getY(), getZ());
+    }
+
+    public void setY(double y) {
+        setXYZ(getX(), y, getZ());
     }
 
     public void setZ(double z) {
-        Point3D coords = new Point3D(0, 0, z);
-        if (coordinates != null) {
-            coords = new Point3D(this.coordinates.getX(), this.coordinates.getY(), z);
-        }
-        setCoordinates(coords);
+        setXYZ(getX(), getY(), z);
     }
 
     @XmlTransient
     public double getX() {
-        return this.coordinates.getX();
+        return this.ownGeometry == null ? GEOMETRY.getX(this.geometryId) : this.ownGeometry[X];
     }
 
     @XmlTransient
     public double getY() {
-        return this.coordinates.getY();
+        return this.ownGeometry == null ? GEOMETRY.getY(this.geometryId) : this.ownGeometry[Y];
     }
 
     @XmlTransient
     public double getZ() {
-        return this.coordinates.getZ();
+        return this.ownGeometry == null ? GEOMETRY.getZ(this.geometryId) : this.ownGeometry[Z];
     }
 
     public double getWidth() {
-        return width;
+        return this.ownGeometry == null ? GEOMETRY.getWidth(this.geometryId) : this.ownGeometry[WIDTH];
     }
 
     public void setWidth(double width) {
-        if (this.width != width) {
-            this.width = width;
+        if (getWidth() != width) {
+            if (this.ownGeometry == null) {
+                GEOMETRY.setWidth(this.geometryId, width);
+            }
+            else {
+                this.ownGeometry[WIDTH] = width;
+            }
             setChanged();
             notifyObservers(ModelBoxChange.WIDTH);
         }
     }
 
     public double getHeight() {
-        return height;
+        return this.ownGeometry == null ? GEOMETRY.getHeight(this.geometryId) : this.ownGeometry[HEIGHT];
     }
 
     public void setHeight(double height) {
-        if (this.height != height) {
-            this.height = height;
+        if (getHeight() != height) {
+            if (this.ownGeometry == null) {
+                GEOMETRY.setHeight(this.geometryId, height);
+            }
+            else {
+                this.ownGeometry[HEIGHT] = height;
+            }
             setChanged();
             notifyObservers(ModelBoxChange.HEIGHT);
         }
@@ -20,6 +20,8 @@ public class ModelClass extends ModelBox {
     private List<Attribute> attributes = new ArrayList<Attribute>();
     private List<ModelObject> modelObjects = new ArrayList<ModelObject>();
     private Map<ModelObject, ArrayList<ModelObject>> superObjects = new LinkedHashMap<ModelObject, ArrayList<ModelObject>>();
+    // values of the objects of this class, including the super objects of this class in objects of sub classes
+    private final AttributeValueTable attributeValueTable = new AttributeValueTable();
 
     public static volatile AtomicInteger modelClassCounter = new AtomicInteger(0);
 
@@ -47,6 +49,10 @@ public class ModelClass extends ModelBox {
         return modelObjects;
     }
 
+    AttributeValueTable getAttributeValueTable() {
+        return attributeValueTable;
+    }
+
     public ModelObject getModelObject(String uniqueID) {
         if (uniqueID == null || uniqueID.isEmpty()) {
             return null;
@@ -65,6 +71,7 @@ public class ModelClass extends ModelBox {
 
     private boolean addModelObject(ModelObject modelObject) {
         if (modelObject != null && !modelObjects.contains(modelObject)) {
+            modelObject.attach();
             return modelObjects.add(modelObject);
         }
         return false;
@@ -78,6 +85,7 @@ public class ModelClass extends ModelBox {
             superObjectContainer = this.superObjects.get(subObject);
         }
         superObjectContainer.add(superObject);
+        superObject.attach();
         this.superObjects.put(subObject, superObjectContainer);
     }
 
@@ -85,10 +93,16 @@ public class ModelClass extends ModelBox {
         for (ModelObject subObject : this.superObjects.keySet()) {
             this.superObjects.get(subObject).remove(superObject);
         }
+        superObject.detach();
     }
 
     protected void removeAllSuperObjects(ModelObject subModelObject) {
-        this.superObjects.remove(subModelObject);
+        ArrayList<ModelObject> removed = this.superObjects.remove(subModelObject);
+        if (removed != null) {
+            for (ModelObject superObject : removed) {
+                superObject.detach();
+            }
+        }
     }
 
     protected void removeAllSuperObjects(ModelClass superClass) {
@@ -97,6 +111,7 @@ public class ModelClass extends ModelBox {
             for (ModelObject superObject : superObjectList) {
                 if (superObject.getModelClass().equals(superClass)) {
                     superObjectList.remove(superObject);
+                    superObject.detach();
                 }
             }
         }
@@ -157,11 +172,12 @@ public class ModelClass extends ModelBox {
 
     private boolean addAttribute(Attribute attribute) {
         if (!attributes.contains(attribute) && attributes.add(attribute)) {
+            this.attributeValueTable.fillColumn(attribute, "");
             for (ModelObject modelObject : getModelObjects()) {
-                modelObject.addAttributeValue(attribute, "");
+                modelObject.notifyAttributeChange(attribute);
             }
             for (ModelObject inheritingObject : getInheritingObjects()) {
-                inheritingObject.addAttributeValue(attribute, "");
+                inheritingObject.notifyAttributeChange(attribute);
             }
             return true;
         }
@@ -182,6 +198,19 @@ public class ModelClass extends ModelBox {
         return null;
     }
 
+    /**
+     * Allocates the geometry of the class, its objects and super objects, see {@link ModelBox#allocateGeometry()}.
+     */
+    void allocateGeometries() {
+        allocateGeometry();
+        for (ModelObject modelObject : getModelObjects()) {
+            modelObject.allocateGeometry();
+        }
+        for (ModelObject superObject : getSuperObjects()) {
+            superObject.allocateGeometry();
+        }
+    }
+
     public void resetObjectLevel() {
         int levelCount = 1;
         for (ModelObject modelObject : this.modelObjects) {
@@ -203,14 +232,24 @@ public class ModelClass extends ModelBox {
     }
 
     public void deleteModelObjects() {
+        for (ModelObject modelObject : this.modelObjects) {
+            modelObject.detach();
+        }
         this.modelObjects.clear();
     }
 
     public boolean deleteModelObject(ModelObject modelObject) {
-        return this.modelObjects.remove(modelObject);
+        boolean removed = this.modelObjects.remove(modelObject);
+        if (removed) {
+            modelObject.detach();
+        }
+        return removed;
     }
 
     public void deleteSuperObjects() {
+        for (ModelObject superObject : getSuperObjects()) {
+            superObject.detach();
+        }
         this.superObjects.clear();
     }
 
@@ -221,6 +260,9 @@ public class ModelClass extends ModelBox {
                 removed = true;
             }
         }
+        if (removed) {
+            superObject.detach();
+        }
         return removed;
     }
 
@@ -254,6 +296,7 @@ public class ModelClass extends ModelBox {
         Attribute thisAttribute = getAttributes().get(rowIndex);
         Attribute upperAttribute = getAttributes().set(rowIndex - 1, thisAttribute);
         getAttributes().set(rowIndex, upperAttribute);
+        this.attributeValueTable.orderColumns(getAttributes());
         setChanged();
         notifyObservers(thisAttribute);
         for (ModelObject modelObject : this.modelObjects) {
@@ -273,6 +316,7 @@ public class ModelClass extends ModelBox {
         Attribute thisAttribute = getAttributes().get(rowIndex);
         Attribute lowerAttribute = getAttributes().set(rowIndex + 1, thisAttribute);
         getAttributes().set(rowIndex, lowerAttribute);
+        this.attributeValueTable.orderColumns(getAttributes());
         setChanged();
         notifyObservers(thisAttribute);
         for (ModelObject modelObject : this.modelObjects) {
@@ -288,6 +332,7 @@ public class ModelClass extends ModelBox {
     public void changeAttributeName(int rowIndex, String name) throws IndexOutOfBoundsException {
         Attribute attribute = this.attributes.get(rowIndex);
         attribute.setName(name);
+        this.attributeValueTable.renameColumn(attribute);
         setChanged();
         notifyObservers(attribute);
         for (ModelObject modelObject : this.modelObjects) {
@@ -300,11 +345,12 @@ public class ModelClass extends ModelBox {
 
     private boolean deleteAttribute(Attribute attribute) {
         boolean deleted = attributes.remove(attribute);
+        this.attributeValueTable.removeColumn(attribute);
         for (ModelObject modelObject : getModelObjects()) {
-            modelObject.deleteAttributeValue(attribute);
+            modelObject.notifyAttributeChange(attribute);
         }
         for (ModelObject inheritingObject : getInheritingObjects()) {
-            inheritingObject.deleteAttributeValue(attribute);
+            inheritingObject.notifyAttributeChange(attribute);
         }
         if (deleted) {
             setChanged();
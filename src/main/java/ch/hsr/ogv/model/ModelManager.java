@@ -38,6 +38,7 @@ public class ModelManager extends Observable {
             }
         }
         ModelClass modelClass = new ModelClass(newClassName, coordinates, width, heigth, color);
+        modelClass.allocateGeometry(); // boxes only take an id in the geometry store while they are in the model
         this.classes.add(modelClass);
         setChanged();
         notifyObservers(modelClass);
@@ -54,6 +55,9 @@ public class ModelManager extends Observable {
             }
         }
         ModelObject modelObject = modelClass.createModelObject(newObjectName);
+        if (modelObject != null) {
+            modelObject.allocateGeometry();
+        }
 
         buildGeneralizationObjects(modelClass);
 
@@ -89,6 +93,7 @@ public class ModelManager extends Observable {
         for (Attribute attribute : superClass.getAttributes()) {
             superObject.addAttributeValue(attribute, "");
         }
+        superObject.allocateGeometry();
         subObject.addSuperObject(superObject);
         setChanged();
         notifyObservers(superObject);
@@ -113,6 +118,51 @@ public class ModelManager extends Observable {
         return null;
     }
 
+    /**
+     * Adds classes and relations between them at once, e.g. from an import of thousands of classes. Unlike
+     * createClass and createRelation neither names nor the other classes are looked at, the classes are added as
+     * they are, with their names, attributes and objects.
+     */
+    public void addBatch(Collection<ModelClass> newClasses, Collection<Relation> newRelations) {
+        addClasses(newClasses);
+        addRelations(newRelations);
+    }
+
+    /**
+     * First part of {@link #addBatch(Collection, Collection)}, for adding a batch in chunks over several frames.
+     */
+    public void addClasses(Collection<ModelClass> newClasses) {
+        for (ModelClass modelClass : newClasses) {
+            modelClass.allocateGeometries();
+            this.classes.add(modelClass);
+            setChanged();
+            notifyObservers(modelClass);
+        }
+    }
+
+    /**
+     * Second part of {@link #addBatch(Collection, Collection)}, once the classes of the relations are added.
+     */
+    public void addRelations(Collection<Relation> newRelations) {
+        boolean hasObjects = false;
+        for (ModelClass modelClass : this.classes) {
+            hasObjects |= !modelClass.getModelObjects().isEmpty();
+        }
+        for (Relation relation : newRelations) {
+            ModelBox start = relation.getStart().getAppendant();
+            ModelBox end = relation.getEnd().getAppendant();
+            start.getEndpoints().add(relation.getStart());
+            end.getEndpoints().add(relation.getEnd());
+            this.relations.add(relation);
+            // without objects there are no super objects to build, which would walk the whole hierarchy every time
+            if (hasObjects && RelationType.GENERALIZATION.equals(relation.getRelationType()) && start instanceof ModelClass) {
+                buildGeneralizationObjects((ModelClass) start);
+            }
+            setChanged();
+            notifyObservers(relation);
+        }
+    }
+
     public void clearClasses() {
         for (ModelClass modelClass : new ArrayList<ModelClass>(classes)) {
             deleteClass(modelClass);
@@ -143,6 +193,7 @@ public class ModelManager extends Observable {
 
         boolean deletedClass = classes.remove(modelClass);
         if (deletedClass) {
+            modelClass.releaseGeometry(); // before notifying, so observers can tell the deletion from an addition
             setChanged();
             notifyObservers(modelClass);
         }
@@ -156,6 +207,7 @@ public class ModelManager extends Observable {
         }
         boolean deletedObject = subClass.deleteSuperObject(superObject);
         if (deletedObject) {
+            superObject.releaseGeometry();
             setChanged();
             notifyObservers(superObject);
             subClass.setCoordinates(subClass.getCoordinates()); // triggers repositioning
@@ -175,6 +227,7 @@ public class ModelManager extends Observable {
 
         boolean deletedObject = modelObject.getModelClass().deleteModelObject(modelObject);
         if (deletedObject) {
+            modelObject.releaseGeometry();
             setChanged();
             notifyObservers(modelObject);
         }
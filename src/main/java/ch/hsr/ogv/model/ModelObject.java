@@ -11,46 +11,133 @@ import java.util.concurrent.atomic.AtomicInteger;
 @XmlType(propOrder = {"uniqueID", "attributeValues"})
 public class ModelObject extends ModelBox {
 
-    // for un/marshaling only
-    private String uniqueID = UUID.randomUUID().toString();
+    private final long id = UniqueIds.next();
+    // for un/marshaling only, made from the id when first asked for unless loaded
+    private volatile String uniqueID;
 
-    private Map<Attribute, String> attributeValues = new LinkedHashMap<Attribute, String>();
+    // values are kept in the attribute value table of the class while the object has a slot there, otherwise here
+    private Map<Attribute, String> attributeValues;
+    private int slot = -1;
     private ModelClass modelClass;
 
     public static volatile AtomicInteger modelObjectCounter = new AtomicInteger(0);
 
+    @XmlTransient
+    public long getId() {
+        return this.id;
+    }
+
     public String getUniqueID() {
-        return uniqueID;
+        if (this.uniqueID == null) {
+            this.uniqueID = UniqueIds.toUniqueID(this.id);
+        }
+        return this.uniqueID;
     }
 
     public void setUniqueID(String uniqueID) {
         this.uniqueID = uniqueID;
     }
 
+    /**
+     * @return the attribute values, a copy if they are kept in the table of the class
+     */
     public Map<Attribute, String> getAttributeValues() {
+        if (this.slot >= 0) {
+            return this.modelClass.getAttributeValueTable().toMap(this.slot);
+        }
         return attributeValues;
     }
 
     public void setAttributeValues(Map<Attribute, String> attributeValues) {
-        this.attributeValues = attributeValues;
+        if (this.slot >= 0) {
+            AttributeValueTable table = this.modelClass.getAttributeValueTable();
+            for (Map.Entry<Attribute, String> entry : table.toMap(this.slot).entrySet()) {
+                table.remove(this.slot, entry.getKey());
+            }
+            for (Map.Entry<Attribute, String> entry : attributeValues.entrySet()) {
+                table.put(this.slot, entry.getKey(), entry.getValue());
+            }
+        }
+        else {
+            this.attributeValues = attributeValues;
+        }
+    }
+
+    public String getAttributeValue(Attribute attribute) {
+        if (this.slot >= 0) {
+            return this.modelClass.getAttributeValueTable().get(this.slot, attribute);
+        }
+        return attributeValues.get(attribute);
     }
 
     public String getAttributeValue(String attributeName) {
+        Attribute attribute = findAttribute(attributeName);
+        return attribute != null ? getAttributeValue(attribute) : null;
+    }
+
+    private Attribute findAttribute(String attributeName) {
+        if (this.slot >= 0) {
+            return this.modelClass.getAttributeValueTable().find(this.slot, attributeName);
+        }
         for (Attribute attribute : attributeValues.keySet()) {
             if (attribute.getName().equals(attributeName)) {
-                return attributeValues.get(attribute);
+                return attribute;
             }
         }
         return null;
     }
 
+    private String putAttributeValue(Attribute attribute, String value) {
+        if (this.slot >= 0) {
+            return this.modelClass.getAttributeValueTable().put(this.slot, attribute, value);
+        }
+        return attributeValues.put(attribute, value);
+    }
+
     @XmlTransient
     public ModelClass getModelClass() {
         return modelClass;
     }
 
     public void setModelClass(ModelClass modelClass) {
+        detach();
         this.modelClass = modelClass;
+        attach();
+    }
+
+    /**
+     * Moves the values into the attribute value table of the class, if not there yet.
+     */
+    void attach() {
+        if (this.slot >= 0 || this.modelClass == null) {
+            return;
+        }
+        AttributeValueTable table = this.modelClass.getAttributeValueTable();
+        this.slot = table.allocate();
+        if (attributeValues != null) {
+            for (Map.Entry<Attribute, String> entry : attributeValues.entrySet()) {
+                table.put(this.slot, entry.getKey(), entry.getValue());
+            }
+            this.attributeValues = null;
+        }
+    }
+
+    /**
+     * Moves the values out of the attribute value table of the class, once the object is deleted from it.
+     */
+    void detach() {
+        if (this.slot < 0) {
+            return;
+        }
+        AttributeValueTable table = this.modelClass.getAttributeValueTable();
+        this.attributeValues = table.toMap(this.slot);
+        table.release(this.slot);
+        this.slot = -1;
+    }
+
+    void notifyAttributeChange(Attribute attribute) {
+        setChanged();
+        notifyObservers(attribute);
     }
 
     @XmlTransient
@@ -74,21 +161,32 @@ public class ModelObject extends ModelBox {
 
     // for un/marshaling only
     public ModelObject() {
+        this.attributeValues = new LinkedHashMap<Attribute, String>();
     }
 
     public ModelObject(String name, ModelClass modelClass, Point3D coordinates, double width, double heigth, Color color) {
         super(name, coordinates, width, heigth, color);
         this.modelClass = modelClass;
+        if (modelClass != null) {
+            attach();
+        }
+        else {
+            this.attributeValues = new LinkedHashMap<Attribute, String>();
+        }
     }
 
     public void changeAttributeName(Attribute attribute, String name) {
+        boolean renamed = !name.equals(attribute.getName());
         attribute.setName(name);
+        if (renamed && this.slot >= 0) {
+            this.modelClass.getAttributeValueTable().renameColumn(attribute);
+        }
         setChanged();
         notifyObservers(attribute);
     }
 
     public void changeAttributeValue(Attribute attribute, String value) {
-        String oldValue = this.attributeValues.put(attribute, value);
+        String oldValue = putAttributeValue(attribute, value);
         if (oldValue != null) {
             setChanged();
             notifyObservers(attribute);
@@ -96,25 +194,30 @@ public class ModelObject extends ModelBox {
     }
 
     public void changeAttributeValue(String attributeName, String value) {
-        for (Attribute attribute : attributeValues.keySet()) {
-            if (attribute.getName().equals(attributeName)) {
-                changeAttributeValue(attribute, value);
-            }
+        Attribute attribute = findAttribute(attributeName);
+        if (attribute != null) {
+            changeAttributeValue(attribute, value);
         }
     }
 
     public boolean addAttributeValue(Attribute attribute, String attributeValue) {
-        if (attributeValues.containsKey(attribute)) {
+        if (getAttributeValue(attribute) != null) {
             return false;
         }
-        attributeValues.put(attribute, attributeValue);
+        putAttributeValue(attribute, attributeValue);
         setChanged();
         notifyObservers(attribute);
         return true;
     }
 
     public String deleteAttributeValue(Attribute attribute) {
-        String deleted = attributeValues.remove(attribute);
+        String deleted;
+        if (this.slot >= 0) {
+            deleted = this.modelClass.getAttributeValueTable().remove(this.slot, attribute);
+        }
+        else {
+            deleted = attributeValues.remove(attribute);
+        }
         if (deleted != null) {
             setChanged();
             notifyObservers(attribute);
@@ -123,7 +226,9 @@ public class ModelObject extends ModelBox {
     }
 
     public void updateAttribute(Attribute attribute, String value) {
-        attributeValues.replace(attribute, value);
+        if (getAttributeValue(attribute) != null) {
+            putAttributeValue(attribute, value);
+        }
     }
 
     @Override
@@ -0,0 +1,29 @@
+package ch.hsr.ogv.model;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids of objects and endpoints. In memory an id is a long from a counter; its unique id string for the .ogv files is
+ * only made when asked for. It is formatted as a UUID whose upper half is random per session and whose lower half is
+ * the id, so strings of this session do not collide with those loaded from files written by earlier sessions.
+ */
+final class UniqueIds {
+
+    private final static long SESSION_BITS = UUID.randomUUID().getMostSignificantBits();
+    private final static long VARIANT_BITS = 0x8000000000000000L; // IETF variant, as random UUIDs
+    private final static long ID_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private final static AtomicLong nextId = new AtomicLong(0);
+
+    private UniqueIds() {
+    }
+
+    static long next() {
+        return nextId.incrementAndGet();
+    }
+
+    static String toUniqueID(long id) {
+        return new UUID(SESSION_BITS, VARIANT_BITS | (id & ID_MASK)).toString();
+    }
+
+}
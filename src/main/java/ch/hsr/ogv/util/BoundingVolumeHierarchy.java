@@ -0,0 +1,220 @@
+package ch.hsr.ogv.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounding volume hierarchy of axis aligned boxes. The tree is built top down by median splits and rebuilt lazily on
+ * the next query after items were added or removed. Moving an existing item only refits the bounds of its ancestors,
+ * until the number of refits exceeds the number of items and a rebuild restores the tree quality.
+ *
+ * @param <T> type of the indexed items
+ */
+public class BoundingVolumeHierarchy<T> {
+
+    /**
+     * Decides whether the items within the given bounds may be part of a query result.
+     */
+    public interface BoundsTest {
+
+        boolean intersects(double minX, double minY, double minZ, double maxX, double maxY, double maxZ);
+    }
+
+    private final Map<T, Node<T>> leaves = new HashMap<T, Node<T>>();
+    private Node<T> root = null;
+    private boolean rebuildNeeded = false;
+    private int refitCount = 0;
+
+    public int size() {
+        return this.leaves.size();
+    }
+
+    public boolean contains(T item) {
+        return this.leaves.containsKey(item);
+    }
+
+    public void clear() {
+        this.leaves.clear();
+        this.root = null;
+        this.rebuildNeeded = false;
+        this.refitCount = 0;
+    }
+
+    /**
+     * Adds an item or updates the bounds of an item already in the hierarchy.
+     */
+    public void put(T item, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        Node<T> leaf = this.leaves.get(item);
+        if (leaf == null) {
+            leaf = new Node<T>();
+            leaf.item = item;
+            leaf.setBounds(minX, minY, minZ, maxX, maxY, maxZ);
+            this.leaves.put(item, leaf);
+            this.rebuildNeeded = true;
+            return;
+        }
+        leaf.setBounds(minX, minY, minZ, maxX, maxY, maxZ);
+        if (this.rebuildNeeded) {
+            return;
+        }
+        for (Node<T> node = leaf.parent; node != null; node = node.parent) {
+            node.unionBounds(node.left, node.right);
+        }
+        this.refitCount++;
+        if (this.refitCount > this.leaves.size()) {
+            this.rebuildNeeded = true;
+        }
+    }
+
+    public boolean remove(T item) {
+        if (this.leaves.remove(item) == null) {
+            return false;
+        }
+        this.rebuildNeeded = true;
+        return true;
+    }
+
+    /**
+     * @return minX, minY, minZ, maxX, maxY, maxZ of the given item, or null if it is not in the hierarchy
+     */
+    public double[] getBounds(T item) {
+        Node<T> leaf = this.leaves.get(item);
+        return leaf != null ? leaf.getBounds() : null;
+    }
+
+    /**
+     * @return minX, minY, minZ, maxX, maxY, maxZ enclosing all items, or null if the hierarchy is empty
+     */
+    public double[] getBounds() {
+        ensureBuilt();
+        return this.root != null ? this.root.getBounds() : null;
+    }
+
+    public List<T> queryRegion(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return query((nMinX, nMinY, nMinZ, nMaxX, nMaxY, nMaxZ) -> nMinX <= maxX && nMaxX >= minX && nMinY <= maxY && nMaxY >= minY && nMinZ <= maxZ && nMaxZ >= minZ);
+    }
+
+    /**
+     * Collects all items whose bounds pass the given test. Subtrees are skipped as soon as their enclosing bounds fail.
+     */
+    public List<T> query(BoundsTest test) {
+        ensureBuilt();
+        List<T> result = new ArrayList<T>();
+        if (this.root == null) {
+            return result;
+        }
+        Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            if (!test.intersects(node.minX, node.minY, node.minZ, node.maxX, node.maxY, node.maxZ)) {
+                continue;
+            }
+            if (node.isLeaf()) {
+                result.add(node.item);
+            }
+            else {
+                stack.push(node.right);
+                stack.push(node.left);
+            }
+        }
+        return result;
+    }
+
+    private void ensureBuilt() {
+        if (!this.rebuildNeeded) {
+            return;
+        }
+        List<Node<T>> nodes = new ArrayList<Node<T>>(this.leaves.values());
+        this.root = !nodes.isEmpty() ? build(nodes, 0, nodes.size()) : null;
+        if (this.root != null) {
+            this.root.parent = null;
+        }
+        this.rebuildNeeded = false;
+        this.refitCount = 0;
+    }
+
+    private Node<T> build(List<Node<T>> nodes, int from, int to) {
+        if (to - from == 1) {
+            return nodes.get(from);
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            Node<T> node = nodes.get(i);
+            minX = Math.min(minX, node.centerX());
+            minY = Math.min(minY, node.centerY());
+            minZ = Math.min(minZ, node.centerZ());
+            maxX = Math.max(maxX, node.centerX());
+            maxY = Math.max(maxY, node.centerY());
+            maxZ = Math.max(maxZ, node.centerZ());
+        }
+        Comparator<Node<T>> byCenter;
+        if (maxX - minX >= maxY - minY && maxX - minX >= maxZ - minZ) {
+            byCenter = Comparator.comparingDouble(Node::centerX);
+        }
+        else if (maxY - minY >= maxZ - minZ) {
+            byCenter = Comparator.comparingDouble(Node::centerY);
+        }
+        else {
+            byCenter = Comparator.comparingDouble(Node::centerZ);
+        }
+        nodes.subList(from, to).sort(byCenter);
+        int mid = (from + to) >>> 1;
+        Node<T> node = new Node<T>();
+        node.left = build(nodes, from, mid);
+        node.right = build(nodes, mid, to);
+        node.left.parent = node;
+        node.right.parent = node;
+        node.unionBounds(node.left, node.right);
+        return node;
+    }
+
+    private static class Node<T> {
+
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+        private Node<T> parent;
+        private Node<T> left;
+        private Node<T> right;
+        private T item;
+
+        private boolean isLeaf() {
+            return this.left == null;
+        }
+
+        private void setBounds(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        private void unionBounds(Node<T> a, Node<T> b) {
+            setBounds(Math.min(a.minX, b.minX), Math.min(a.minY, b.minY), Math.min(a.minZ, b.minZ), Math.max(a.maxX, b.maxX), Math.max(a.maxY, b.maxY), Math.max(a.maxZ, b.maxZ));
+        }
+
+        private double[] getBounds() {
+            return new double[] { this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ };
+        }
+
+        private double centerX() {
+            return (this.minX + this.maxX) / 2;
+        }
+
+        private double centerY() {
+            return (this.minY + this.maxY) / 2;
+        }
+
+        private double centerZ() {
+            return (this.minZ + this.maxZ) / 2;
+        }
+    }
+
+}
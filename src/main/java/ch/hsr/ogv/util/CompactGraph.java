@@ -0,0 +1,262 @@
+package ch.hsr.ogv.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Directed graph over the vertices 0 to n-1 in compressed sparse row form: the successors of vertex v are
+ * {@code targets[offsets[v]]} to {@code targets[offsets[v + 1] - 1]}. Two int arrays hold the whole graph, so traversals
+ * touch memory sequentially and a graph with millions of edges is searched in milliseconds. Build it with a
+ * {@link Builder}, the graph itself is immutable.
+ */
+public class CompactGraph {
+
+    private final int[] offsets; // length vertexCount + 1
+    private final int[] targets; // length edgeCount
+
+    private CompactGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public int getVertexCount() {
+        return this.offsets.length - 1;
+    }
+
+    public int getEdgeCount() {
+        return this.targets.length;
+    }
+
+    public int getOutDegree(int vertex) {
+        return this.offsets[vertex + 1] - this.offsets[vertex];
+    }
+
+    /**
+     * @return the successors of the given vertex, in the order their edges were added
+     */
+    public int[] getSuccessors(int vertex) {
+        return Arrays.copyOfRange(this.targets, this.offsets[vertex], this.offsets[vertex + 1]);
+    }
+
+    /**
+     * @return the number of edges pointing to each vertex
+     */
+    public int[] getInDegrees() {
+        int[] inDegrees = new int[getVertexCount()];
+        for (int target : this.targets) {
+            inDegrees[target]++;
+        }
+        return inDegrees;
+    }
+
+    /**
+     * Breadth first search from all given sources at once.
+     *
+     * @return the vertices reachable from the sources, the sources included
+     */
+    public BitSet reachableFrom(int... sources) {
+        BitSet visited = new BitSet(getVertexCount());
+        int[] queue = new int[getVertexCount()];
+        int tail = 0;
+        for (int source : sources) {
+            if (!visited.get(source)) {
+                visited.set(source);
+                queue[tail++] = source;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int vertex = queue[head];
+            for (int i = this.offsets[vertex]; i < this.offsets[vertex + 1]; i++) {
+                int target = this.targets[i];
+                if (!visited.get(target)) {
+                    visited.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Breadth first search from one vertex to another.
+     *
+     * @return the vertices of a path with the least number of edges, both ends included, or an empty array if the
+     * target is not reachable
+     */
+    public int[] shortestPath(int from, int to) {
+        int[] parents = new int[getVertexCount()];
+        Arrays.fill(parents, -1);
+        parents[from] = from;
+        int[] queue = new int[getVertexCount()];
+        int tail = 0;
+        queue[tail++] = from;
+        for (int head = 0; head < tail && parents[to] < 0; head++) {
+            int vertex = queue[head];
+            for (int i = this.offsets[vertex]; i < this.offsets[vertex + 1]; i++) {
+                int target = this.targets[i];
+                if (parents[target] < 0) {
+                    parents[target] = vertex;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        if (parents[to] < 0) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int vertex = to; vertex != from; vertex = parents[vertex]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int vertex = to, i = length - 1; i >= 0; vertex = parents[vertex], i--) {
+            path[i] = vertex;
+        }
+        return path;
+    }
+
+    /**
+     * Depth first search from one vertex, successors in edge order.
+     *
+     * @return the reachable vertices in the order they are first visited
+     */
+    public int[] depthFirstOrder(int source) {
+        BitSet visited = new BitSet(getVertexCount());
+        int[] order = new int[getVertexCount()];
+        int count = 0;
+        int[] stack = new int[getVertexCount()];
+        int[] next = new int[getVertexCount()]; // k: vertex on the stack, v: index of the next edge to follow
+        int top = 0;
+        visited.set(source);
+        order[count++] = source;
+        stack[top++] = source;
+        next[source] = this.offsets[source];
+        while (top > 0) {
+            int vertex = stack[top - 1];
+            if (next[vertex] == this.offsets[vertex + 1]) {
+                top--;
+                continue;
+            }
+            int target = this.targets[next[vertex]++];
+            if (!visited.get(target)) {
+                visited.set(target);
+                order[count++] = target;
+                stack[top++] = target;
+                next[target] = this.offsets[target];
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * Strongly connected components with Tarjan's algorithm, iterative so deep graphs such as long lists do not overflow
+     * the call stack.
+     *
+     * @return the component of each vertex, numbered from 0 in reverse topological order of the component graph
+     */
+    public int[] stronglyConnectedComponents() {
+        int vertexCount = getVertexCount();
+        int[] index = new int[vertexCount];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[vertexCount];
+        int[] components = new int[vertexCount];
+        Arrays.fill(components, -1);
+        int[] next = new int[vertexCount];
+        int[] callStack = new int[vertexCount];
+        int[] componentStack = new int[vertexCount];
+        int nextIndex = 0;
+        int componentCount = 0;
+        int componentTop = 0;
+        for (int root = 0; root < vertexCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = lowLink[root] = nextIndex++;
+            next[root] = this.offsets[root];
+            componentStack[componentTop++] = root;
+            while (callTop > 0) {
+                int vertex = callStack[callTop - 1];
+                if (next[vertex] < this.offsets[vertex + 1]) {
+                    int target = this.targets[next[vertex]++];
+                    if (index[target] < 0) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        next[target] = this.offsets[target];
+                        componentStack[componentTop++] = target;
+                        callStack[callTop++] = target;
+                    }
+                    else if (components[target] < 0) { // still on the component stack
+                        lowLink[vertex] = Math.min(lowLink[vertex], index[target]);
+                    }
+                    continue;
+                }
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+                }
+                if (lowLink[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentTop];
+                        components[member] = componentCount;
+                    } while (member != vertex);
+                    componentCount++;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Collects edges and packs them into a {@link CompactGraph}.
+     */
+    public static class Builder {
+
+        private final int vertexCount;
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int edgeCount = 0;
+
+        public Builder(int vertexCount) {
+            if (vertexCount < 0) {
+                throw new IllegalArgumentException("vertexCount must not be negative: " + vertexCount);
+            }
+            this.vertexCount = vertexCount;
+        }
+
+        public Builder addEdge(int from, int to) {
+            if (from < 0 || from >= this.vertexCount || to < 0 || to >= this.vertexCount) {
+                throw new IndexOutOfBoundsException("edge " + from + " -> " + to + " outside of " + this.vertexCount + " vertices");
+            }
+            if (this.edgeCount == this.sources.length) {
+                this.sources = Arrays.copyOf(this.sources, this.edgeCount * 2);
+                this.targets = Arrays.copyOf(this.targets, this.edgeCount * 2);
+            }
+            this.sources[this.edgeCount] = from;
+            this.targets[this.edgeCount] = to;
+            this.edgeCount++;
+            return this;
+        }
+
+        /**
+         * Sorts the edges by source with a counting sort, keeping the order of the edges of each vertex.
+         */
+        public CompactGraph build() {
+            int[] offsets = new int[this.vertexCount + 1];
+            for (int i = 0; i < this.edgeCount; i++) {
+                offsets[this.sources[i] + 1]++;
+            }
+            for (int v = 0; v < this.vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] fill = Arrays.copyOf(offsets, this.vertexCount);
+            int[] packed = new int[this.edgeCount];
+            for (int i = 0; i < this.edgeCount; i++) {
+                packed[fill[this.sources[i]]++] = this.targets[i];
+            }
+            return new CompactGraph(offsets, packed);
+        }
+    }
+
+}
@@ -0,0 +1,444 @@
+package ch.hsr.ogv.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Force directed layout of boxes on the xz-plane. Boxes repel each other and edges pull their boxes together, until
+ * the boxes come to rest. The repulsion of far away boxes is approximated by Barnes-Hut: the boxes are put into a
+ * quadtree and a cell far enough away acts as one box in its center of mass, so an iteration takes O(n log n) instead
+ * of O(n²). The forces of an iteration are computed in parallel on a fork join pool, positions are kept in primitive
+ * arrays.
+ * <p>
+ * The distance of two boxes is measured between their borders, not their centers, so large boxes keep more space.
+ * Overlaps left when the forces are done are pushed apart afterwards.
+ */
+public class ForceLayout {
+
+    public final static int DEFAULT_MAX_ITERATIONS = 300;
+
+    private final static double THETA = 1.0; // cells smaller than THETA times their distance act as one box
+    private final static double SPACING = 1.5; // ideal edge length in box sizes
+    private final static double MARGIN = 40.0; // between boxes after overlap removal
+    private final static double COOLING = 0.95;
+    private final static double MIN_DISTANCE = 1.0;
+    private final static double MIN_CELL_SIZE = 1e-3;
+    private final static int MAX_OVERLAP_PASSES = 100;
+    private final static int SEQUENTIAL_THRESHOLD = 128;
+
+    private final int size;
+    private final double[] x;
+    private final double[] z;
+    private final double[] halfWidth;
+    private final double[] halfDepth;
+    private final double[] radius;
+    private int[] edgeStarts = new int[16];
+    private int[] edgeEnds = new int[16];
+    private int edgeCount = 0;
+
+    private double k; // ideal distance between connected boxes
+    private double temperature; // maximum move of a box in the current iteration
+    private int[] adjacencyOffsets; // k: box, v: first index of its neighbours in adjacency, CSR
+    private int[] adjacency;
+    private final double[] forceX;
+    private final double[] forceZ;
+    private final QuadTree tree;
+
+    public ForceLayout(int size) {
+        this.size = size;
+        this.x = new double[size];
+        this.z = new double[size];
+        this.halfWidth = new double[size];
+        this.halfDepth = new double[size];
+        this.radius = new double[size];
+        this.forceX = new double[size];
+        this.forceZ = new double[size];
+        this.tree = new QuadTree(size);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param width  extent on the x axis
+     * @param height extent on the z axis
+     */
+    public void setBox(int index, double x, double z, double width, double height) {
+        this.x[index] = x;
+        this.z[index] = z;
+        this.halfWidth[index] = width / 2;
+        this.halfDepth[index] = height / 2;
+        this.radius[index] = Math.sqrt(width * width + height * height) / 2;
+    }
+
+    public void addEdge(int start, int end) {
+        if (start == end) {
+            return;
+        }
+        if (this.edgeCount == this.edgeStarts.length) {
+            this.edgeStarts = Arrays.copyOf(this.edgeStarts, this.edgeCount * 2);
+            this.edgeEnds = Arrays.copyOf(this.edgeEnds, this.edgeCount * 2);
+        }
+        this.edgeStarts[this.edgeCount] = start;
+        this.edgeEnds[this.edgeCount] = end;
+        this.edgeCount++;
+    }
+
+    public double getX(int index) {
+        return this.x[index];
+    }
+
+    public double getZ(int index) {
+        return this.z[index];
+    }
+
+    /**
+     * Moves the boxes until they come to rest or the iterations are used up, then removes overlaps. Boxes at the same
+     * point, e.g. all at the origin after an import without coordinates, are spread out first.
+     *
+     * @return the number of force iterations run
+     */
+    public int run(ForkJoinPool pool, int maxIterations) {
+        if (this.size == 0) {
+            return 0;
+        }
+        buildAdjacency();
+        double meanRadius = 0.0;
+        for (int i = 0; i < this.size; i++) {
+            meanRadius += this.radius[i];
+        }
+        meanRadius = Math.max(meanRadius / this.size, MIN_DISTANCE);
+        this.k = 2 * meanRadius * SPACING;
+        spreadCoincident();
+
+        this.temperature = this.k * Math.sqrt(this.size) / 4; // the spiral already spreads coincident boxes
+        double minTemperature = this.k / 100;
+        int iterations = 0;
+        while (iterations < maxIterations) {
+            iterations++;
+            this.tree.build(this.x, this.z, this.radius);
+            pool.invoke(new ForceTask(0, this.size));
+            double maxMove = 0.0;
+            for (int i = 0; i < this.size; i++) {
+                double length = Math.hypot(this.forceX[i], this.forceZ[i]);
+                if (length > 0) {
+                    double move = Math.min(length, this.temperature);
+                    this.x[i] += this.forceX[i] / length * move;
+                    this.z[i] += this.forceZ[i] / length * move;
+                    maxMove = Math.max(maxMove, move);
+                }
+            }
+            this.temperature *= COOLING;
+            if (maxMove < minTemperature) {
+                break;
+            }
+        }
+        removeOverlaps();
+        return iterations;
+    }
+
+    private void buildAdjacency() {
+        this.adjacencyOffsets = new int[this.size + 1];
+        for (int e = 0; e < this.edgeCount; e++) {
+            this.adjacencyOffsets[this.edgeStarts[e] + 1]++;
+            this.adjacencyOffsets[this.edgeEnds[e] + 1]++;
+        }
+        for (int i = 0; i < this.size; i++) {
+            this.adjacencyOffsets[i + 1] += this.adjacencyOffsets[i];
+        }
+        this.adjacency = new int[this.edgeCount * 2];
+        int[] next = Arrays.copyOf(this.adjacencyOffsets, this.size);
+        for (int e = 0; e < this.edgeCount; e++) {
+            this.adjacency[next[this.edgeStarts[e]]++] = this.edgeEnds[e];
+            this.adjacency[next[this.edgeEnds[e]]++] = this.edgeStarts[e];
+        }
+    }
+
+    /**
+     * Puts boxes sharing a point with an earlier box on a sunflower spiral around that point, far enough apart for the
+     * forces to tell them apart.
+     */
+    private void spreadCoincident() {
+        Integer[] order = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> this.x[a] != this.x[b] ? Double.compare(this.x[a], this.x[b]) : Double.compare(this.z[a], this.z[b]));
+        double goldenAngle = Math.PI * (3 - Math.sqrt(5));
+        double pointX = Double.NaN;
+        double pointZ = Double.NaN;
+        int run = 0;
+        for (int o = 0; o < this.size; o++) {
+            int i = order[o];
+            if (this.x[i] == pointX && this.z[i] == pointZ) {
+                run++;
+                double r = this.k * Math.sqrt(run);
+                this.x[i] = pointX + r * Math.cos(run * goldenAngle);
+                this.z[i] = pointZ + r * Math.sin(run * goldenAngle);
+            }
+            else {
+                pointX = this.x[i];
+                pointZ = this.z[i];
+                run = 0;
+            }
+        }
+    }
+
+    /**
+     * Pushes overlapping boxes apart along the axis where they overlap less, found by sweeping the boxes sorted by
+     * their left border.
+     */
+    private void removeOverlaps() {
+        Integer[] order = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = i;
+        }
+        for (int pass = 0; pass < MAX_OVERLAP_PASSES; pass++) {
+            Arrays.sort(order, (a, b) -> Double.compare(this.x[a] - this.halfWidth[a], this.x[b] - this.halfWidth[b]));
+            boolean overlapping = false;
+            for (int o = 0; o < this.size; o++) {
+                int a = order[o];
+                for (int p = o + 1; p < this.size; p++) {
+                    int b = order[p];
+                    if (this.x[b] - this.halfWidth[b] >= this.x[a] + this.halfWidth[a] + MARGIN) {
+                        break;
+                    }
+                    double overlapX = this.halfWidth[a] + this.halfWidth[b] + MARGIN - Math.abs(this.x[a] - this.x[b]);
+                    double overlapZ = this.halfDepth[a] + this.halfDepth[b] + MARGIN - Math.abs(this.z[a] - this.z[b]);
+                    if (overlapX <= 0 || overlapZ <= 0) {
+                        continue;
+                    }
+                    overlapping = true;
+                    if (overlapX < overlapZ) {
+                        double shift = (this.x[a] <= this.x[b] ? overlapX : -overlapX) / 2;
+                        this.x[a] -= shift;
+                        this.x[b] += shift;
+                    }
+                    else {
+                        double shift = (this.z[a] <= this.z[b] ? overlapZ : -overlapZ) / 2;
+                        this.z[a] -= shift;
+                        this.z[b] += shift;
+                    }
+                }
+            }
+            if (!overlapping) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param stack for the nodes of the tree still to visit, at least {@code tree.maxDepth * 3 + 4} long
+     */
+    private void computeForce(int i, int[] stack) {
+        double fx = 0.0;
+        double fz = 0.0;
+        double kk = this.k * this.k;
+        // repulsion, k² / d for each box, cells far enough away as one box of their mass
+        QuadTree tree = this.tree;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            double mass = tree.mass[node];
+            if (mass == 0) {
+                continue;
+            }
+            double dx = this.x[i] - tree.centerX[node] / mass;
+            double dz = this.z[i] - tree.centerZ[node] / mass;
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            int body = tree.body[node];
+            if (body != -1 || tree.size[node] < THETA * distance) {
+                if (body == i || distance == 0) {
+                    continue;
+                }
+                if (body >= 0) {
+                    // a single box: measured between the borders
+                    distance -= this.radius[i] + this.radius[body];
+                }
+                double force = kk * tree.count[node] / Math.max(distance, MIN_DISTANCE);
+                double length = Math.sqrt(dx * dx + dz * dz);
+                fx += dx / length * force;
+                fz += dz / length * force;
+                continue;
+            }
+            for (int c = 0; c < 4; c++) {
+                int child = tree.children[node * 4 + c];
+                if (child >= 0) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        // attraction, d² / k along the edges, the space between the borders
+        for (int a = this.adjacencyOffsets[i]; a < this.adjacencyOffsets[i + 1]; a++) {
+            int j = this.adjacency[a];
+            double dx = this.x[j] - this.x[i];
+            double dz = this.z[j] - this.z[i];
+            double length = Math.sqrt(dx * dx + dz * dz);
+            double distance = length - this.radius[i] - this.radius[j];
+            if (length > 0 && distance > 0) {
+                double force = distance * distance / this.k;
+                fx += dx / length * force;
+                fz += dz / length * force;
+            }
+        }
+        this.forceX[i] = fx;
+        this.forceZ[i] = fz;
+    }
+
+    /**
+     * Computes the forces of a range of boxes, splitting it while it is larger than {@link #SEQUENTIAL_THRESHOLD}.
+     * Each box only writes its own force, the tree and positions are only read.
+     */
+    private class ForceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ForceTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SEQUENTIAL_THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ForceTask(this.from, middle), new ForceTask(middle, this.to));
+                return;
+            }
+            int[] stack = new int[tree.maxDepth * 3 + 4];
+            for (int i = this.from; i < this.to; i++) {
+                computeForce(i, stack);
+            }
+        }
+    }
+
+    /**
+     * Quadtree over points in flat arrays, rebuilt for every iteration without allocating. A leaf holds one box, or
+     * several once its cell gets smaller than {@link #MIN_CELL_SIZE}.
+     */
+    private static class QuadTree {
+
+        private int nodeCount = 0;
+        private int maxDepth = 0;
+        private double[] minX;
+        private double[] minZ;
+        private double[] size;
+        private double[] centerX; // sum of mass times position, divided by mass when read
+        private double[] centerZ;
+        private double[] mass;
+        private int[] count;
+        private int[] body; // k: node, v: the box of a leaf, -1 for inner and empty nodes, -2 for crowded leaves
+        private int[] children; // k: node * 4 + quadrant, v: child node or -1
+
+        QuadTree(int capacity) {
+            allocate(Math.max(16, capacity * 2));
+        }
+
+        private void allocate(int capacity) {
+            this.minX = Arrays.copyOf(this.minX != null ? this.minX : new double[0], capacity);
+            this.minZ = Arrays.copyOf(this.minZ != null ? this.minZ : new double[0], capacity);
+            this.size = Arrays.copyOf(this.size != null ? this.size : new double[0], capacity);
+            this.centerX = Arrays.copyOf(this.centerX != null ? this.centerX : new double[0], capacity);
+            this.centerZ = Arrays.copyOf(this.centerZ != null ? this.centerZ : new double[0], capacity);
+            this.mass = Arrays.copyOf(this.mass != null ? this.mass : new double[0], capacity);
+            this.count = Arrays.copyOf(this.count != null ? this.count : new int[0], capacity);
+            this.body = Arrays.copyOf(this.body != null ? this.body : new int[0], capacity);
+            this.children = Arrays.copyOf(this.children != null ? this.children : new int[0], capacity * 4);
+        }
+
+        void build(double[] x, double[] z, double[] radius) {
+            double left = Double.POSITIVE_INFINITY;
+            double top = Double.POSITIVE_INFINITY;
+            double right = Double.NEGATIVE_INFINITY;
+            double bottom = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < x.length; i++) {
+                left = Math.min(left, x[i]);
+                right = Math.max(right, x[i]);
+                top = Math.min(top, z[i]);
+                bottom = Math.max(bottom, z[i]);
+            }
+            this.nodeCount = 0;
+            this.maxDepth = 0;
+            newNode(left, top, Math.max(Math.max(right - left, bottom - top), MIN_CELL_SIZE) * 1.0001);
+            for (int i = 0; i < x.length; i++) {
+                insert(i, x[i], z[i], radius[i]);
+            }
+        }
+
+        private int newNode(double minX, double minZ, double size) {
+            if (this.nodeCount == this.mass.length) {
+                allocate(this.nodeCount * 2);
+            }
+            int node = this.nodeCount++;
+            this.minX[node] = minX;
+            this.minZ[node] = minZ;
+            this.size[node] = size;
+            this.centerX[node] = 0.0;
+            this.centerZ[node] = 0.0;
+            this.mass[node] = 0.0;
+            this.count[node] = 0;
+            this.body[node] = -1;
+            Arrays.fill(this.children, node * 4, node * 4 + 4, -1);
+            return node;
+        }
+
+        private void insert(int index, double x, double z, double weight) {
+            int node = 0;
+            int depth = 0;
+            while (true) {
+                int occupant = this.body[node];
+                if (this.count[node] == 0) {
+                    add(node, x, z, weight);
+                    this.body[node] = index;
+                    this.maxDepth = Math.max(this.maxDepth, depth);
+                    return;
+                }
+                if (occupant == -2 || (occupant >= 0 && this.size[node] < MIN_CELL_SIZE)) {
+                    add(node, x, z, weight);
+                    this.body[node] = -2;
+                    return;
+                }
+                if (occupant >= 0) {
+                    // split: the occupant moves into a child, its mass stays in this node
+                    this.body[node] = -1;
+                    double occupantX = this.centerX[node] / this.mass[node];
+                    double occupantZ = this.centerZ[node] / this.mass[node];
+                    int child = child(node, occupantX, occupantZ);
+                    add(child, occupantX, occupantZ, this.mass[node]);
+                    this.body[child] = occupant;
+                }
+                add(node, x, z, weight);
+                node = child(node, x, z);
+                depth++;
+            }
+        }
+
+        private void add(int node, double x, double z, double weight) {
+            this.centerX[node] += x * weight;
+            this.centerZ[node] += z * weight;
+            this.mass[node] += weight;
+            this.count[node]++;
+        }
+
+        /**
+         * @return the child of the quadrant the point lies in, created if needed
+         */
+        private int child(int node, double x, double z) {
+            double half = this.size[node] / 2;
+            int quadrant = (x >= this.minX[node] + half ? 1 : 0) | (z >= this.minZ[node] + half ? 2 : 0);
+            int child = this.children[node * 4 + quadrant];
+            if (child < 0) {
+                child = newNode(this.minX[node] + ((quadrant & 1) != 0 ? half : 0), this.minZ[node] + ((quadrant & 2) != 0 ? half : 0), half);
+                this.children[node * 4 + quadrant] = child;
+            }
+            return child;
+        }
+    }
+
+}
@@ -12,17 +12,30 @@ public class GeometryUtil {
     }
 
     public static Point2D lineIntersect(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4) {
+        double ua = lineIntersectFraction(x1, y1, x2, y2, x3, y3, x4, y4);
+        if (Double.isNaN(ua)) {
+            return null;
+        }
+        // Get the intersection point.
+        return new Point2D(x1 + ua * (x2 - x1), y1 + ua * (y2 - y1));
+    }
+
+    /**
+     * Intersects the line segment (x1, y1) - (x2, y2) with the segment (x3, y3) - (x4, y4) without allocating.
+     *
+     * @return the fraction along the first segment, where the intersection lies, or NaN if the segments do not intersect
+     */
+    public static double lineIntersectFraction(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4) {
         double denom = (y4 - y3) * (x2 - x1) - (x4 - x3) * (y2 - y1);
         if (denom == 0.0) { // Lines are parallel.
-            return null;
+            return Double.NaN;
         }
         double ua = ((x4 - x3) * (y1 - y3) - (y4 - y3) * (x1 - x3)) / denom;
         double ub = ((x2 - x1) * (y1 - y3) - (y2 - y1) * (x1 - x3)) / denom;
         if (ua >= 0.0 && ua <= 1.0 && ub >= 0.0 && ub <= 1.0) {
-            // Get the intersection point.
-            return new Point2D(x1 + ua * (x2 - x1), y1 + ua * (y2 - y1));
+            return ua;
         }
-        return null;
+        return Double.NaN;
     }
 
     public static double rotateYAngle(Point3D p1, Point3D p2) {
@@ -0,0 +1,96 @@
+package ch.hsr.ogv.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Grows the set of vertices around a root of a {@link CompactGraph} layer by layer. It starts with all vertices within a
+ * number of hops of the root, further vertices are added by expanding single frontier vertices. Every expansion only
+ * looks at the edges of the expanded vertex, the work done so far is kept.
+ */
+public class HopExpansion {
+
+    private final CompactGraph graph;
+    private final BitSet included;
+    private final BitSet expanded; // included vertices whose successors are all included
+
+    /**
+     * @param hops maximum number of edges between the root and an included vertex, 0 includes the root only
+     */
+    public HopExpansion(CompactGraph graph, int root, int hops) {
+        if (hops < 0) {
+            throw new IllegalArgumentException("hops must not be negative: " + hops);
+        }
+        this.graph = graph;
+        this.included = new BitSet(graph.getVertexCount());
+        this.expanded = new BitSet(graph.getVertexCount());
+        this.included.set(root);
+        int[] queue = new int[graph.getVertexCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        for (int hop = 0; hop < hops && head < tail; hop++) {
+            int layerEnd = tail;
+            while (head < layerEnd) {
+                for (int added : expand(queue[head++])) {
+                    queue[tail++] = added;
+                }
+            }
+        }
+    }
+
+    public CompactGraph getGraph() {
+        return this.graph;
+    }
+
+    public boolean isIncluded(int vertex) {
+        return this.included.get(vertex);
+    }
+
+    /**
+     * @return a copy of the included vertices
+     */
+    public BitSet getIncluded() {
+        return (BitSet) this.included.clone();
+    }
+
+    /**
+     * @return true if the vertex is included and has a successor that is not
+     */
+    public boolean isFrontier(int vertex) {
+        if (!this.included.get(vertex) || this.expanded.get(vertex)) {
+            return false;
+        }
+        for (int successor : this.graph.getSuccessors(vertex)) {
+            if (!this.included.get(successor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Includes all successors of an included vertex.
+     *
+     * @return the vertices included by this call, in edge order
+     */
+    public int[] expand(int vertex) {
+        if (!this.included.get(vertex)) {
+            throw new IllegalArgumentException("vertex " + vertex + " is not included");
+        }
+        if (this.expanded.get(vertex)) {
+            return new int[0];
+        }
+        this.expanded.set(vertex);
+        int[] successors = this.graph.getSuccessors(vertex);
+        int count = 0;
+        for (int successor : successors) {
+            if (!this.included.get(successor)) {
+                this.included.set(successor);
+                successors[count++] = successor;
+            }
+        }
+        return Arrays.copyOf(successors, count);
+    }
+
+}
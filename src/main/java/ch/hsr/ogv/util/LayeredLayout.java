@@ -0,0 +1,494 @@
+package ch.hsr.ogv.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * Layered (Sugiyama) layout of generalization hierarchies on the xz-plane. Super classes are placed in rows above their
+ * sub classes: every box gets the layer of its longest chain of super classes, found in linear time in topological
+ * order. The order within the layers is improved by barycentric sweeps, which move each box to the mean position of
+ * its neighbours in the layers already swept; the barycenters of a layer are computed in parallel. Boxes without
+ * generalizations are placed in rows below the hierarchy, near the boxes they are associated with.
+ * <p>
+ * Pinned boxes keep their position. If there are any, only the other boxes are placed, each close to its
+ * neighbours in the first free spot of its row, so adding a class to a laid out diagram moves nothing else.
+ */
+public class LayeredLayout {
+
+    private final static double GAP = 60.0; // between boxes of a row
+    private final static double LAYER_GAP = 150.0; // between rows
+    private final static int SWEEPS = 4; // each down and up
+    private final static int SEQUENTIAL_THRESHOLD = 256;
+
+    private final int size;
+    private final double[] x;
+    private final double[] z;
+    private final double[] width;
+    private final double[] height;
+    private final boolean[] pinned;
+    private final IntList[] superClasses;
+    private final IntList[] subClasses;
+    private final IntList[] associated;
+    private final int[] layer;
+
+    public LayeredLayout(int size) {
+        this.size = size;
+        this.x = new double[size];
+        this.z = new double[size];
+        this.width = new double[size];
+        this.height = new double[size];
+        this.pinned = new boolean[size];
+        this.superClasses = new IntList[size];
+        this.subClasses = new IntList[size];
+        this.associated = new IntList[size];
+        for (int i = 0; i < size; i++) {
+            this.superClasses[i] = new IntList();
+            this.subClasses[i] = new IntList();
+            this.associated[i] = new IntList();
+        }
+        this.layer = new int[size];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param width  extent on the x axis
+     * @param height extent on the z axis
+     */
+    public void setBox(int index, double x, double z, double width, double height) {
+        this.x[index] = x;
+        this.z[index] = z;
+        this.width[index] = width;
+        this.height[index] = height;
+    }
+
+    public void setPinned(int index, boolean pinned) {
+        this.pinned[index] = pinned;
+    }
+
+    public void addGeneralization(int subClass, int superClass) {
+        if (subClass != superClass) {
+            this.superClasses[subClass].add(superClass);
+            this.subClasses[superClass].add(subClass);
+        }
+    }
+
+    public void addAssociation(int start, int end) {
+        if (start != end) {
+            this.associated[start].add(end);
+            this.associated[end].add(start);
+        }
+    }
+
+    public double getX(int index) {
+        return this.x[index];
+    }
+
+    public double getZ(int index) {
+        return this.z[index];
+    }
+
+    /**
+     * @return the layer of a box in the hierarchy, 0 for the top most super classes, -1 for boxes without
+     * generalizations
+     */
+    public int getLayer(int index) {
+        return this.layer[index];
+    }
+
+    public void run(ForkJoinPool pool) {
+        List<IntList> layers = assignLayers();
+        for (IntList row : layers) {
+            // start from the current order, so a layout run twice stays the same
+            row.sort(Comparator.comparingDouble(i -> this.x[i]));
+        }
+        reduceCrossings(layers, pool);
+        boolean incremental = false;
+        for (boolean isPinned : this.pinned) {
+            incremental |= isPinned;
+        }
+        if (incremental) {
+            placeUnpinned(layers);
+        }
+        else {
+            placeAll(layers);
+        }
+    }
+
+    /**
+     * Longest path layering in topological order, Kahn's algorithm. Boxes on a generalization cycle, which a valid
+     * model does not have, go below all others.
+     */
+    private List<IntList> assignLayers() {
+        int[] remaining = new int[this.size]; // super classes not yet layered
+        IntList queue = new IntList();
+        for (int i = 0; i < this.size; i++) {
+            remaining[i] = this.superClasses[i].size;
+            this.layer[i] = isInHierarchy(i) ? 0 : -1;
+            if (remaining[i] == 0 && isInHierarchy(i)) {
+                queue.add(i);
+            }
+        }
+        int maxLayer = 0;
+        for (int head = 0; head < queue.size; head++) {
+            int current = queue.get(head);
+            maxLayer = Math.max(maxLayer, this.layer[current]);
+            IntList subs = this.subClasses[current];
+            for (int s = 0; s < subs.size; s++) {
+                int sub = subs.get(s);
+                this.layer[sub] = Math.max(this.layer[sub], this.layer[current] + 1);
+                if (--remaining[sub] == 0) {
+                    queue.add(sub);
+                }
+            }
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (remaining[i] > 0) {
+                this.layer[i] = maxLayer + 1;
+            }
+        }
+        List<IntList> layers = new ArrayList<IntList>();
+        for (int i = 0; i < this.size; i++) {
+            if (this.layer[i] >= 0) {
+                while (layers.size() <= this.layer[i]) {
+                    layers.add(new IntList());
+                }
+                layers.get(this.layer[i]).add(i);
+            }
+        }
+        return layers;
+    }
+
+    private boolean isInHierarchy(int index) {
+        return this.superClasses[index].size > 0 || this.subClasses[index].size > 0;
+    }
+
+    /**
+     * Sweeps down and up the layers, sorting each layer by the barycenters of its boxes' neighbours in the layers
+     * swept before.
+     */
+    private void reduceCrossings(List<IntList> layers, ForkJoinPool pool) {
+        double[] position = new double[this.size]; // order in the layer, scaled to 0..1
+        for (IntList row : layers) {
+            updatePositions(row, position);
+        }
+        double[] barycenter = new double[this.size];
+        for (int sweep = 0; sweep < SWEEPS * 2; sweep++) {
+            boolean down = sweep % 2 == 0;
+            for (int l = down ? 1 : layers.size() - 2; down ? l < layers.size() : l >= 0; l += down ? 1 : -1) {
+                IntList row = layers.get(l);
+                pool.invoke(new BarycenterTask(row, 0, row.size, down, position, barycenter));
+                row.sort(Comparator.comparingDouble(i -> barycenter[i]));
+                updatePositions(row, position);
+            }
+        }
+    }
+
+    private static void updatePositions(IntList row, double[] position) {
+        for (int p = 0; p < row.size; p++) {
+            position[row.get(p)] = row.size > 1 ? (double) p / (row.size - 1) : 0.5;
+        }
+    }
+
+    private double barycenter(int index, boolean down, double[] position) {
+        IntList neighbours = down ? this.superClasses[index] : this.subClasses[index];
+        if (neighbours.size == 0) {
+            return position[index]; // stays where it is
+        }
+        double sum = 0.0;
+        for (int n = 0; n < neighbours.size; n++) {
+            sum += position[neighbours.get(n)];
+        }
+        return sum / neighbours.size;
+    }
+
+    /**
+     * Places all boxes: the layers as rows from top to bottom, each box as close to the mean of its super classes as
+     * the order allows, then the boxes without generalizations in rows below.
+     */
+    private void placeAll(List<IntList> layers) {
+        double top = 0.0;
+        double left = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        for (int l = 0; l < layers.size(); l++) {
+            IntList row = layers.get(l);
+            double rowHeight = 0.0;
+            for (int p = 0; p < row.size; p++) {
+                rowHeight = Math.max(rowHeight, this.height[row.get(p)]);
+            }
+            double rowRight = 0.0;
+            double offset = 0.0; // sum of the pushes to the right
+            for (int p = 0; p < row.size; p++) {
+                int i = row.get(p);
+                double next = rowRight + GAP + this.width[i] / 2;
+                double desired = l > 0 ? meanX(this.superClasses[i]) : Double.NaN;
+                if (Double.isNaN(desired)) {
+                    desired = p == 0 ? 0.0 : next;
+                }
+                this.x[i] = p == 0 ? desired : Math.max(desired, next);
+                this.z[i] = top + rowHeight / 2;
+                rowRight = this.x[i] + this.width[i] / 2;
+                offset += this.x[i] - desired;
+            }
+            // pushing right only would drift the row, it is shifted back by the mean push
+            double shift = row.size > 0 ? offset / row.size : 0.0;
+            for (int p = 0; p < row.size; p++) {
+                int i = row.get(p);
+                this.x[i] -= shift;
+                left = Math.min(left, this.x[i] - this.width[i] / 2);
+                right = Math.max(right, this.x[i] + this.width[i] / 2);
+            }
+            top += rowHeight + LAYER_GAP;
+        }
+        placeFree(left, right, top);
+    }
+
+    /**
+     * Puts the boxes without generalizations in rows below, ordered by the mean position of their associated boxes.
+     */
+    private void placeFree(double left, double right, double top) {
+        List<Integer> free = new ArrayList<Integer>();
+        double[] key = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            if (this.layer[i] < 0) {
+                free.add(i);
+                double mean = meanX(this.associated[i], j -> this.layer[j] >= 0);
+                key[i] = Double.isNaN(mean) ? Double.MAX_VALUE : mean;
+            }
+        }
+        if (free.isEmpty()) {
+            return;
+        }
+        free.sort(Comparator.comparingDouble((Integer i) -> key[i]).thenComparingDouble(i -> this.x[i]));
+        if (left > right) { // no hierarchy, rows about as wide as deep
+            double area = 0.0;
+            for (int i : free) {
+                area += (this.width[i] + GAP) * (this.height[i] + LAYER_GAP);
+            }
+            left = -Math.sqrt(area) / 2;
+            right = Math.sqrt(area) / 2;
+            top = 0.0;
+        }
+        double cursor = left;
+        double rowHeight = 0.0;
+        List<Integer> row = new ArrayList<Integer>();
+        for (int i : free) {
+            if (!row.isEmpty() && cursor + this.width[i] > right) {
+                top = placeRow(row, top, rowHeight);
+                cursor = left;
+                rowHeight = 0.0;
+                row.clear();
+            }
+            this.x[i] = cursor + this.width[i] / 2;
+            cursor += this.width[i] + GAP;
+            rowHeight = Math.max(rowHeight, this.height[i]);
+            row.add(i);
+        }
+        placeRow(row, top, rowHeight);
+    }
+
+    private double placeRow(List<Integer> row, double top, double rowHeight) {
+        for (int i : row) {
+            this.z[i] = top + rowHeight / 2;
+        }
+        return top + rowHeight + LAYER_GAP;
+    }
+
+    /**
+     * Places the unpinned boxes one by one, top layer first: below their placed super classes or above their placed
+     * sub classes, as close to their neighbours as the boxes already placed in that row allow.
+     */
+    private void placeUnpinned(List<IntList> layers) {
+        List<Integer> order = new ArrayList<Integer>();
+        for (IntList row : layers) {
+            for (int p = 0; p < row.size; p++) {
+                order.add(row.get(p));
+            }
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (this.layer[i] < 0) {
+                order.add(i);
+            }
+        }
+        boolean[] placed = Arrays.copyOf(this.pinned, this.size);
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.size; i++) {
+            if (placed[i]) {
+                bottom = Math.max(bottom, this.z[i] + this.height[i] / 2);
+            }
+        }
+        for (int i : order) {
+            if (placed[i]) {
+                continue;
+            }
+            double desiredX = meanX(this.superClasses[i], j -> placed[j]);
+            if (Double.isNaN(desiredX)) {
+                desiredX = meanX(this.subClasses[i], j -> placed[j]);
+            }
+            if (Double.isNaN(desiredX)) {
+                desiredX = meanX(this.associated[i], j -> placed[j]);
+            }
+            if (Double.isNaN(desiredX)) {
+                desiredX = this.x[i];
+            }
+            double desiredZ = Double.NaN;
+            for (int s = 0; s < this.superClasses[i].size; s++) {
+                int superClass = this.superClasses[i].get(s);
+                if (placed[superClass]) {
+                    double below = this.z[superClass] + this.height[superClass] / 2 + LAYER_GAP + this.height[i] / 2;
+                    desiredZ = Double.isNaN(desiredZ) ? below : Math.max(desiredZ, below);
+                }
+            }
+            for (int s = 0; Double.isNaN(desiredZ) && s < this.subClasses[i].size; s++) {
+                int subClass = this.subClasses[i].get(s);
+                if (placed[subClass]) {
+                    desiredZ = this.z[subClass] - this.height[subClass] / 2 - LAYER_GAP - this.height[i] / 2;
+                }
+            }
+            if (Double.isNaN(desiredZ)) {
+                desiredZ = bottom == Double.NEGATIVE_INFINITY ? 0.0 : bottom + LAYER_GAP + this.height[i] / 2;
+            }
+            this.z[i] = desiredZ;
+            this.x[i] = freeX(i, desiredX, placed);
+            placed[i] = true;
+            bottom = Math.max(bottom, this.z[i] + this.height[i] / 2);
+        }
+    }
+
+    /**
+     * @return the x closest to the desired one where the box does not overlap a placed box of its row
+     */
+    private double freeX(int index, double desiredX, boolean[] placed) {
+        List<double[]> occupied = new ArrayList<double[]>();
+        double halfWidth = this.width[index] / 2 + GAP;
+        for (int j = 0; j < this.size; j++) {
+            if (placed[j] && Math.abs(this.z[j] - this.z[index]) < (this.height[j] + this.height[index]) / 2 + GAP) {
+                occupied.add(new double[]{this.x[j] - this.width[j] / 2 - halfWidth, this.x[j] + this.width[j] / 2 + halfWidth});
+            }
+        }
+        double best = desiredX;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        List<Double> candidates = new ArrayList<Double>();
+        candidates.add(desiredX);
+        for (double[] interval : occupied) {
+            candidates.add(interval[0]);
+            candidates.add(interval[1]);
+        }
+        for (double candidate : candidates) {
+            double distance = Math.abs(candidate - desiredX);
+            if (distance >= bestDistance) {
+                continue;
+            }
+            boolean free = true;
+            for (double[] interval : occupied) {
+                if (candidate > interval[0] && candidate < interval[1]) {
+                    free = false;
+                    break;
+                }
+            }
+            if (free) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private double meanX(IntList boxes) {
+        return meanX(boxes, j -> true);
+    }
+
+    private double meanX(IntList boxes, IntPredicate included) {
+        double sum = 0.0;
+        int count = 0;
+        for (int n = 0; n < boxes.size; n++) {
+            int j = boxes.get(n);
+            if (included.test(j)) {
+                sum += this.x[j];
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * Computes the barycenters of a range of a layer, splitting it while it is larger than
+     * {@link #SEQUENTIAL_THRESHOLD}. Only the positions of other layers are read.
+     */
+    private class BarycenterTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntList row;
+        private final int from;
+        private final int to;
+        private final boolean down;
+        private final double[] position;
+        private final double[] barycenter;
+
+        BarycenterTask(IntList row, int from, int to, boolean down, double[] position, double[] barycenter) {
+            this.row = row;
+            this.from = from;
+            this.to = to;
+            this.down = down;
+            this.position = position;
+            this.barycenter = barycenter;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SEQUENTIAL_THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new BarycenterTask(this.row, this.from, middle, this.down, this.position, this.barycenter),
+                          new BarycenterTask(this.row, middle, this.to, this.down, this.position, this.barycenter));
+                return;
+            }
+            for (int p = this.from; p < this.to; p++) {
+                int i = this.row.get(p);
+                this.barycenter[i] = barycenter(i, this.down, this.position);
+            }
+        }
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        int get(int index) {
+            return this.values[index];
+        }
+
+        /**
+         * Stable sort by the given key.
+         */
+        void sort(Comparator<Integer> comparator) {
+            Integer[] boxed = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) {
+                boxed[i] = this.values[i];
+            }
+            Arrays.sort(boxed, comparator);
+            for (int i = 0; i < this.size; i++) {
+                this.values[i] = boxed[i];
+            }
+        }
+    }
+
+}
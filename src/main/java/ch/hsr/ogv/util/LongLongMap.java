@@ -0,0 +1,112 @@
+package ch.hsr.ogv.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long to long on two primitive arrays with open addressing, for tables with millions of entries where a
+ * {@code HashMap<Long, Long>} would need several objects per entry.
+ */
+public class LongLongMap {
+
+    private final static float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size = 0;
+    private int resizeAt;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.used = new boolean[capacity];
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return the previous value of the key, or the given missing value if there was none
+     */
+    public long put(long key, long value, long missingValue) {
+        int slot = slot(key);
+        if (this.used[slot]) {
+            long previous = this.values[slot];
+            this.values[slot] = value;
+            return previous;
+        }
+        this.used[slot] = true;
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.resizeAt) {
+            grow();
+        }
+        return missingValue;
+    }
+
+    public void put(long key, long value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * @return the value of the key, or the given missing value if there is none
+     */
+    public long get(long key, long missingValue) {
+        int slot = slot(key);
+        return this.used[slot] ? this.values[slot] : missingValue;
+    }
+
+    public boolean containsKey(long key) {
+        return this.used[slot(key)];
+    }
+
+    public void clear() {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    private int slot(long key) {
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.used[slot] && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // spreads ids that differ only in their low or aligned bits
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        long[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                this.used[slot] = true;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+}
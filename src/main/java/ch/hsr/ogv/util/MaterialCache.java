@@ -0,0 +1,107 @@
+package ch.hsr.ogv.util;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares {@link PhongMaterial} instances between all shapes using the same diffuse and specular color. Materials are
+ * only weakly referenced, so a material is dropped as soon as no shape uses it anymore.
+ * <p>
+ * Materials handed out by this cache are shared and must never be modified.
+ */
+public class MaterialCache {
+
+    private static final Map<MaterialKey, MaterialReference> materials = new HashMap<MaterialKey, MaterialReference>();
+    private static final ReferenceQueue<PhongMaterial> collected = new ReferenceQueue<PhongMaterial>();
+
+    /**
+     * Returns a material with the given diffuse color and its brighter variant as specular color.
+     *
+     * @param color diffuse color
+     * @return shared material
+     */
+    public static PhongMaterial get(Color color) {
+        return get(color, color.brighter());
+    }
+
+    public static PhongMaterial get(Color diffuseColor, Color specularColor) {
+        synchronized (materials) {
+            expungeCollected();
+            MaterialKey key = new MaterialKey(diffuseColor, specularColor);
+            MaterialReference reference = materials.get(key);
+            PhongMaterial material = reference != null ? reference.get() : null;
+            if (material == null) {
+                material = new PhongMaterial();
+                material.setDiffuseColor(diffuseColor);
+                material.setSpecularColor(specularColor);
+                materials.put(key, new MaterialReference(key, material, collected));
+            }
+            return material;
+        }
+    }
+
+    public static int size() {
+        synchronized (materials) {
+            expungeCollected();
+            return materials.size();
+        }
+    }
+
+    private static void expungeCollected() {
+        MaterialReference reference;
+        while ((reference = (MaterialReference) collected.poll()) != null) {
+            if (materials.get(reference.key) == reference) {
+                materials.remove(reference.key);
+            }
+        }
+    }
+
+    private static class MaterialReference extends WeakReference<PhongMaterial> {
+
+        private final MaterialKey key;
+
+        MaterialReference(MaterialKey key, PhongMaterial material, ReferenceQueue<PhongMaterial> queue) {
+            super(material, queue);
+            this.key = key;
+        }
+    }
+
+    private static class MaterialKey {
+
+        private final Color diffuseColor;
+        private final Color specularColor;
+
+        MaterialKey(Color diffuseColor, Color specularColor) {
+            this.diffuseColor = diffuseColor;
+            this.specularColor = specularColor;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MaterialKey)) {
+                return false;
+            }
+            MaterialKey other = (MaterialKey) obj;
+            return equalColor(this.diffuseColor, other.diffuseColor) && equalColor(this.specularColor, other.specularColor);
+        }
+
+        private static boolean equalColor(Color color, Color other) {
+            return color == null ? other == null : color.equals(other);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = this.diffuseColor != null ? this.diffuseColor.hashCode() : 0;
+            return 31 * hash + (this.specularColor != null ? this.specularColor.hashCode() : 0);
+        }
+    }
+
+}
@@ -0,0 +1,581 @@
+package ch.hsr.ogv.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Routes connections between boxes on the xz-plane as orthogonal polylines around the other boxes. A route is found by
+ * A* over a sparse grid: its lines are the borders of the boxes near the connection, kept at a margin, so the grid only
+ * has a few nodes per box. Bends cost extra, routes prefer few corners. Parallel routes between the same two boxes
+ * leave and enter the boxes at different points along their sides, like the straight arrows, so they do not overlap.
+ * <p>
+ * Boxes are kept in a hash grid of buckets, and each route remembers its corridor, the area its polyline covers. When
+ * a box changes, only the routes connected to it or with a corridor it touches, before or after the change, need to be
+ * routed again, see {@link #putBox}. A router is not thread safe, it is meant to be used by one routing thread.
+ */
+public class OrthogonalRouter {
+
+    public final static double DEFAULT_MARGIN = 20.0;
+
+    private final static double BEND_COST = 40.0;
+    private final static double BUCKET_SIZE = 500.0;
+    private final static int MAX_OBSTACLES = 150; // beyond, the grid gets too large and the route is left straight
+    private final static int WINDOW_GROWTHS = 3;
+    private final static int[] DX = { 1, 0, -1, 0 }; // east, south, west, north
+    private final static int[] DZ = { 0, 1, 0, -1 };
+
+    private final double margin;
+    private final Map<Integer, double[]> boxes = new HashMap<Integer, double[]>(); // k: box, v: left, top, right, bottom
+    private final Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+    private final Map<Integer, Route> routes = new HashMap<Integer, Route>();
+
+    public OrthogonalRouter() {
+        this(DEFAULT_MARGIN);
+    }
+
+    public OrthogonalRouter(double margin) {
+        this.margin = margin;
+    }
+
+    /**
+     * Adds a box or changes its bounds.
+     *
+     * @return the routes to route again because of the change
+     */
+    public Set<Integer> putBox(int box, double centerX, double centerZ, double width, double height) {
+        double[] old = this.boxes.get(box);
+        double[] bounds = { centerX - width / 2, centerZ - height / 2, centerX + width / 2, centerZ + height / 2 };
+        if (old != null && Arrays.equals(old, bounds)) {
+            return new TreeSet<Integer>();
+        }
+        removeFromBuckets(box, old);
+        this.boxes.put(box, bounds);
+        forEachBucket(bounds, key -> this.buckets.computeIfAbsent(key, k -> new ArrayList<Integer>(4)).add(box));
+        Set<Integer> affected = affectedRoutes(box, old);
+        affected.addAll(affectedRoutes(box, bounds));
+        return affected;
+    }
+
+    /**
+     * Removes a box and the routes connected to it.
+     *
+     * @return the other routes to route again because of the removal
+     */
+    public Set<Integer> removeBox(int box) {
+        double[] old = this.boxes.remove(box);
+        removeFromBuckets(box, old);
+        Set<Integer> affected = affectedRoutes(box, old);
+        this.routes.values().removeIf(route -> route.startBox == box || route.endBox == box);
+        affected.removeIf(route -> !this.routes.containsKey(route));
+        return affected;
+    }
+
+    public void addRoute(int route, int startBox, int endBox) {
+        addRoute(route, startBox, endBox, 1, 1);
+    }
+
+    /**
+     * Adds a route or changes its boxes or its place among the parallel routes.
+     *
+     * @param number the place of the route among the routes between the same two boxes, from 1 to count
+     */
+    public void addRoute(int route, int startBox, int endBox, int number, int count) {
+        this.routes.put(route, new Route(startBox, endBox, (double) number / (count + 1)));
+    }
+
+    public void removeRoute(int route) {
+        this.routes.remove(route);
+    }
+
+    public int getRouteCount() {
+        return this.routes.size();
+    }
+
+    /**
+     * Routes a connection from the border of its start box to the border of its end box and remembers its corridor.
+     *
+     * @return the corners of the polyline as x, z pairs, including both ends; null if the route or one of its boxes is
+     * unknown or no orthogonal route was found, then the connection is best drawn straight
+     */
+    public double[] route(int routeId) {
+        Route route = this.routes.get(routeId);
+        if (route == null) {
+            return null;
+        }
+        double[] start = this.boxes.get(route.startBox);
+        double[] end = this.boxes.get(route.endBox);
+        double[] polyline = null;
+        if (start != null && end != null && route.startBox != route.endBox && !overlap(inflate(start, this.margin), inflate(end, this.margin))) {
+            double[] window = inflate(union(start, end), 4 * this.margin);
+            for (int growth = 0; polyline == null && growth <= WINDOW_GROWTHS; growth++) {
+                List<double[]> obstacles = obstacles(window);
+                if (obstacles.size() > MAX_OBSTACLES) {
+                    break;
+                }
+                polyline = search(start, end, route.fraction, window, obstacles);
+                double grow = Math.max(window[2] - window[0], window[3] - window[1]) / 2;
+                window = inflate(window, grow);
+            }
+        }
+        if (polyline != null) {
+            route.corridor = corridor(polyline);
+        }
+        else { // tried again when something between the boxes changes
+            route.corridor = start != null && end != null ? union(start, end) : null;
+        }
+        return polyline;
+    }
+
+    /**
+     * @return the boxes in the window, at the margin
+     */
+    private List<double[]> obstacles(double[] window) {
+        List<double[]> obstacles = new ArrayList<double[]>();
+        TreeSet<Integer> near = new TreeSet<Integer>();
+        forEachBucket(window, key -> {
+            List<Integer> bucket = this.buckets.get(key);
+            if (bucket != null) {
+                near.addAll(bucket);
+            }
+        });
+        for (int box : near) {
+            double[] inflated = inflate(this.boxes.get(box), this.margin);
+            if (overlap(inflated, window)) {
+                obstacles.add(inflated);
+            }
+        }
+        return obstacles;
+    }
+
+    private double[] search(double[] start, double[] end, double fraction, double[] window, List<double[]> obstacles) {
+        // ports: a point on each side of the start and end box, at the margin
+        double[][] startPorts = ports(start, fraction);
+        double[][] endPorts = ports(end, fraction);
+        int lineCount = 2 * obstacles.size() + 2 + 8;
+        double[] xs = new double[lineCount];
+        double[] zs = new double[lineCount];
+        int lines = 0;
+        for (double[] obstacle : obstacles) {
+            xs[lines] = obstacle[0];
+            zs[lines++] = obstacle[1];
+            xs[lines] = obstacle[2];
+            zs[lines++] = obstacle[3];
+        }
+        xs[lines] = window[0];
+        zs[lines++] = window[1];
+        xs[lines] = window[2];
+        zs[lines++] = window[3];
+        for (double[][] ports : new double[][][]{startPorts, endPorts}) {
+            for (double[] port : ports) {
+                xs[lines] = port[0];
+                zs[lines++] = port[1];
+            }
+        }
+        xs = sortedDistinct(xs);
+        zs = sortedDistinct(zs);
+        Grid grid = new Grid(xs, zs, obstacles);
+
+        int columns = xs.length;
+        int nodeCount = columns * zs.length;
+        double[] cost = new double[nodeCount * 4];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        int[] parent = new int[nodeCount * 4];
+        boolean[] target = new boolean[nodeCount];
+        int[] targetSide = new int[nodeCount];
+        for (int side = 0; side < 4; side++) {
+            int node = grid.node(endPorts[side][0], endPorts[side][1]);
+            if (node >= 0 && !grid.blocked[node]) {
+                target[node] = true;
+                targetSide[node] = side;
+            }
+        }
+        Heap open = new Heap();
+        for (int side = 0; side < 4; side++) {
+            int node = grid.node(startPorts[side][0], startPorts[side][1]);
+            if (node >= 0 && !grid.blocked[node]) {
+                int state = node * 4 + side; // leaving the box in the direction of its side
+                cost[state] = 0.0;
+                parent[state] = -1;
+                open.add(heuristic(xs[node % columns], zs[node / columns], endPorts), 0.0, state);
+            }
+        }
+        int goal = -1;
+        double goalCost = Double.POSITIVE_INFINITY;
+        while (!open.isEmpty()) {
+            if (open.peekEstimate() >= goalCost) {
+                break;
+            }
+            double entryCost = open.peekCost();
+            int state = open.poll();
+            double current = cost[state];
+            if (entryCost > current) {
+                continue; // outdated entry, the state was reached cheaper since
+            }
+            int node = state / 4;
+            int direction = state % 4;
+            if (target[node]) {
+                // entering the end box against the outward direction of its side
+                double total = current + (direction == (targetSide[node] + 2) % 4 ? 0.0 : BEND_COST);
+                if (total < goalCost) {
+                    goalCost = total;
+                    goal = state;
+                }
+                continue;
+            }
+            int column = node % columns;
+            int row = node / columns;
+            for (int d = 0; d < 4; d++) {
+                if (d == (direction + 2) % 4) {
+                    continue; // no turning back
+                }
+                int nextColumn = column + DX[d];
+                int nextRow = row + DZ[d];
+                if (nextColumn < 0 || nextColumn >= columns || nextRow < 0 || nextRow >= zs.length) {
+                    continue;
+                }
+                int next = nextRow * columns + nextColumn;
+                if (grid.blocked[next] || grid.isSegmentBlocked(column, row, d)) {
+                    continue;
+                }
+                double length = Math.abs(xs[nextColumn] - xs[column]) + Math.abs(zs[nextRow] - zs[row]);
+                double nextCost = current + length + (d != direction ? BEND_COST : 0.0);
+                int nextState = next * 4 + d;
+                if (nextCost < cost[nextState]) {
+                    cost[nextState] = nextCost;
+                    parent[nextState] = state;
+                    open.add(nextCost + heuristic(xs[nextColumn], zs[nextRow], endPorts), nextCost, nextState);
+                }
+            }
+        }
+        if (goal < 0) {
+            return null;
+        }
+
+        List<double[]> points = new ArrayList<double[]>();
+        for (int state = goal; state >= 0; state = parent[state]) {
+            int node = state / 4;
+            points.add(0, new double[]{xs[node % columns], zs[node / columns]});
+            if (parent[state] < 0) {
+                int side = state % 4;
+                points.add(0, borderPoint(start, side, fraction));
+            }
+        }
+        points.add(borderPoint(end, targetSide[goal / 4], fraction));
+        return simplify(points);
+    }
+
+    private double heuristic(double x, double z, double[][] endPorts) {
+        double best = Double.POSITIVE_INFINITY;
+        for (double[] port : endPorts) {
+            best = Math.min(best, Math.abs(port[0] - x) + Math.abs(port[1] - z));
+        }
+        return best;
+    }
+
+    /**
+     * @return the points at the fraction of the sides east, south, west and north, from the left or top, at the margin
+     * outside of the box; the middle of the sides for a route without parallel routes
+     */
+    private double[][] ports(double[] box, double fraction) {
+        double x = box[0] + (box[2] - box[0]) * fraction;
+        double z = box[1] + (box[3] - box[1]) * fraction;
+        return new double[][]{
+                {box[2] + this.margin, z},
+                {x, box[3] + this.margin},
+                {box[0] - this.margin, z},
+                {x, box[1] - this.margin}};
+    }
+
+    private static double[] borderPoint(double[] box, int side, double fraction) {
+        double x = box[0] + (box[2] - box[0]) * fraction;
+        double z = box[1] + (box[3] - box[1]) * fraction;
+        switch (side) {
+            case 0:
+                return new double[]{box[2], z};
+            case 1:
+                return new double[]{x, box[3]};
+            case 2:
+                return new double[]{box[0], z};
+            default:
+                return new double[]{x, box[1]};
+        }
+    }
+
+    /**
+     * @return the corners as x, z pairs, points on a straight line between two others left out
+     */
+    private static double[] simplify(List<double[]> points) {
+        List<double[]> corners = new ArrayList<double[]>();
+        for (double[] point : points) {
+            int size = corners.size();
+            if (size > 0 && corners.get(size - 1)[0] == point[0] && corners.get(size - 1)[1] == point[1]) {
+                continue;
+            }
+            if (size >= 2) {
+                double[] a = corners.get(size - 2);
+                double[] b = corners.get(size - 1);
+                if ((a[0] == b[0] && b[0] == point[0]) || (a[1] == b[1] && b[1] == point[1])) {
+                    corners.set(size - 1, point);
+                    continue;
+                }
+            }
+            corners.add(point);
+        }
+        double[] polyline = new double[corners.size() * 2];
+        for (int i = 0; i < corners.size(); i++) {
+            polyline[i * 2] = corners.get(i)[0];
+            polyline[i * 2 + 1] = corners.get(i)[1];
+        }
+        return polyline;
+    }
+
+    private Set<Integer> affectedRoutes(int box, double[] bounds) {
+        Set<Integer> affected = new TreeSet<Integer>();
+        double[] inflated = bounds != null ? inflate(bounds, this.margin) : null;
+        for (Map.Entry<Integer, Route> entry : this.routes.entrySet()) {
+            Route route = entry.getValue();
+            if (route.startBox == box || route.endBox == box || (inflated != null && route.corridor != null && crosses(route.corridor, inflated))) {
+                affected.add(entry.getKey());
+            }
+        }
+        return affected;
+    }
+
+    private void removeFromBuckets(int box, double[] bounds) {
+        if (bounds == null) {
+            return;
+        }
+        forEachBucket(bounds, key -> {
+            List<Integer> bucket = this.buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(Integer.valueOf(box));
+                if (bucket.isEmpty()) {
+                    this.buckets.remove(key);
+                }
+            }
+        });
+    }
+
+    private void forEachBucket(double[] bounds, java.util.function.LongConsumer action) {
+        long left = (long) Math.floor(bounds[0] / BUCKET_SIZE);
+        long top = (long) Math.floor(bounds[1] / BUCKET_SIZE);
+        long right = (long) Math.floor(bounds[2] / BUCKET_SIZE);
+        long bottom = (long) Math.floor(bounds[3] / BUCKET_SIZE);
+        for (long x = left; x <= right; x++) {
+            for (long z = top; z <= bottom; z++) {
+                action.accept((x << 32) ^ (z & 0xFFFFFFFFL));
+            }
+        }
+    }
+
+    private static double[] inflate(double[] bounds, double amount) {
+        return new double[]{bounds[0] - amount, bounds[1] - amount, bounds[2] + amount, bounds[3] + amount};
+    }
+
+    private static double[] union(double[] a, double[] b) {
+        return new double[]{Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3])};
+    }
+
+    private static boolean overlap(double[] a, double[] b) {
+        return a[0] < b[2] && b[0] < a[2] && a[1] < b[3] && b[1] < a[3];
+    }
+
+    /**
+     * @return left, top, right, bottom of each segment, at the margin
+     */
+    private double[] corridor(double[] polyline) {
+        double[] corridor = new double[polyline.length * 2 - 4];
+        for (int i = 2; i < polyline.length; i += 2) {
+            int segment = (i / 2 - 1) * 4;
+            corridor[segment] = Math.min(polyline[i - 2], polyline[i]) - this.margin;
+            corridor[segment + 1] = Math.min(polyline[i - 1], polyline[i + 1]) - this.margin;
+            corridor[segment + 2] = Math.max(polyline[i - 2], polyline[i]) + this.margin;
+            corridor[segment + 3] = Math.max(polyline[i - 1], polyline[i + 1]) + this.margin;
+        }
+        return corridor;
+    }
+
+    private static boolean crosses(double[] corridor, double[] bounds) {
+        for (int segment = 0; segment < corridor.length; segment += 4) {
+            if (corridor[segment] < bounds[2] && bounds[0] < corridor[segment + 2] && corridor[segment + 1] < bounds[3] && bounds[1] < corridor[segment + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double[] sortedDistinct(double[] values) {
+        Arrays.sort(values);
+        int distinct = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, distinct);
+    }
+
+    private static class Route {
+
+        private final int startBox;
+        private final int endBox;
+        private final double fraction; // of the box sides where the route leaves and enters, see ports(double[], double)
+        private double[] corridor; // segments of the last polyline, see corridor(double[])
+
+        Route(int startBox, int endBox, double fraction) {
+            this.startBox = startBox;
+            this.endBox = endBox;
+            this.fraction = fraction;
+        }
+    }
+
+    /**
+     * Binary min-heap of search states by estimated total cost, on equal estimates the one further on the way first.
+     */
+    private static class Heap {
+
+        private double[] estimates = new double[64];
+        private double[] costs = new double[64];
+        private int[] states = new int[64];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        double peekEstimate() {
+            return this.estimates[0];
+        }
+
+        double peekCost() {
+            return this.costs[0];
+        }
+
+        void add(double estimate, double cost, int state) {
+            if (this.size == this.states.length) {
+                this.estimates = Arrays.copyOf(this.estimates, this.size * 2);
+                this.costs = Arrays.copyOf(this.costs, this.size * 2);
+                this.states = Arrays.copyOf(this.states, this.size * 2);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!before(estimate, cost, this.estimates[parent], this.costs[parent])) {
+                    break;
+                }
+                set(i, parent);
+                i = parent;
+            }
+            this.estimates[i] = estimate;
+            this.costs[i] = cost;
+            this.states[i] = state;
+        }
+
+        int poll() {
+            int state = this.states[0];
+            this.size--;
+            double estimate = this.estimates[this.size];
+            double cost = this.costs[this.size];
+            int last = this.states[this.size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size && before(this.estimates[child + 1], this.costs[child + 1], this.estimates[child], this.costs[child])) {
+                    child++;
+                }
+                if (!before(this.estimates[child], this.costs[child], estimate, cost)) {
+                    break;
+                }
+                set(i, child);
+                i = child;
+            }
+            this.estimates[i] = estimate;
+            this.costs[i] = cost;
+            this.states[i] = last;
+            return state;
+        }
+
+        private void set(int to, int from) {
+            this.estimates[to] = this.estimates[from];
+            this.costs[to] = this.costs[from];
+            this.states[to] = this.states[from];
+        }
+
+        private static boolean before(double estimate, double cost, double otherEstimate, double otherCost) {
+            return estimate < otherEstimate || (estimate == otherEstimate && cost > otherCost);
+        }
+    }
+
+    /**
+     * Nodes and segments of the grid inside an obstacle. The grid lines run along all obstacle borders, so a node or
+     * segment is either completely inside an obstacle or not at all.
+     */
+    private static class Grid {
+
+        private final double[] xs;
+        private final double[] zs;
+        private final boolean[] blocked; // k: row * columns + column
+        private final boolean[] horizontalBlocked; // k: segment from the node to its east neighbour
+        private final boolean[] verticalBlocked; // k: segment from the node to its south neighbour
+
+        Grid(double[] xs, double[] zs, List<double[]> obstacles) {
+            this.xs = xs;
+            this.zs = zs;
+            int nodeCount = xs.length * zs.length;
+            this.blocked = new boolean[nodeCount];
+            this.horizontalBlocked = new boolean[nodeCount];
+            this.verticalBlocked = new boolean[nodeCount];
+            for (double[] obstacle : obstacles) {
+                int left = Math.max(0, Arrays.binarySearch(xs, obstacle[0]));
+                int right = Math.max(0, Arrays.binarySearch(xs, obstacle[2]));
+                int top = Math.max(0, Arrays.binarySearch(zs, obstacle[1]));
+                int bottom = Math.max(0, Arrays.binarySearch(zs, obstacle[3]));
+                for (int row = top; row <= bottom; row++) {
+                    for (int column = left; column <= right; column++) {
+                        int node = row * xs.length + column;
+                        boolean insideRow = row > top && row < bottom;
+                        boolean insideColumn = column > left && column < right;
+                        if (insideRow && insideColumn) {
+                            this.blocked[node] = true;
+                        }
+                        if (insideRow && column < right) {
+                            this.horizontalBlocked[node] = true;
+                        }
+                        if (insideColumn && row < bottom) {
+                            this.verticalBlocked[node] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        int node(double x, double z) {
+            int column = Arrays.binarySearch(this.xs, x);
+            int row = Arrays.binarySearch(this.zs, z);
+            return column >= 0 && row >= 0 ? row * this.xs.length + column : -1;
+        }
+
+        boolean isSegmentBlocked(int column, int row, int direction) {
+            int columns = this.xs.length;
+            switch (direction) {
+                case 0:
+                    return this.horizontalBlocked[row * columns + column];
+                case 1:
+                    return this.verticalBlocked[row * columns + column];
+                case 2:
+                    return this.horizontalBlocked[row * columns + column - 1];
+                default:
+                    return this.verticalBlocked[(row - 1) * columns + column];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package ch.hsr.ogv.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of points, hashed by cell. Proximity queries with a range up to the cell size only have to look at the
+ * cell of the query point and its direct neighbours, independent of the number of points stored.
+ *
+ * @param <T> type of the indexed items
+ */
+public class SpatialHash<T> {
+
+    private final double cellSize;
+    private final Map<T, Entry> entries = new HashMap<T, Entry>();
+    private final Map<Long, List<Entry>> cells = new HashMap<Long, List<Entry>>();
+
+    public SpatialHash(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public boolean contains(T item) {
+        return this.entries.containsKey(item);
+    }
+
+    public void clear() {
+        this.entries.clear();
+        this.cells.clear();
+    }
+
+    /**
+     * Adds an item or moves an item already in the grid to the given point.
+     */
+    public void put(T item, double x, double y, double z) {
+        remove(item);
+        Entry entry = new Entry(x, y, z);
+        this.entries.put(item, entry);
+        this.cells.computeIfAbsent(cellKey(cell(x), cell(y), cell(z)), key -> new ArrayList<Entry>(2)).add(entry);
+    }
+
+    public boolean remove(T item) {
+        Entry entry = this.entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        Long key = cellKey(cell(entry.x), cell(entry.y), cell(entry.z));
+        List<Entry> cell = this.cells.get(key);
+        cell.remove(entry);
+        if (cell.isEmpty()) {
+            this.cells.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a point lies closer than the given range to the query point on each of the three axes.
+     *
+     * @param range per axis distance, exclusive; must not exceed the cell size
+     * @return true if at least one stored point is within range
+     */
+    public boolean hasPointWithin(double x, double y, double z, double range) {
+        if (range > this.cellSize) {
+            throw new IllegalArgumentException("range " + range + " exceeds cell size " + this.cellSize);
+        }
+        long cellX = cell(x);
+        long cellY = cell(y);
+        long cellZ = cell(z);
+        for (long i = cellX - 1; i <= cellX + 1; i++) {
+            for (long j = cellY - 1; j <= cellY + 1; j++) {
+                for (long k = cellZ - 1; k <= cellZ + 1; k++) {
+                    List<Entry> cell = this.cells.get(cellKey(i, j, k));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell) {
+                        if (Math.abs(entry.x - x) < range && Math.abs(entry.y - y) < range && Math.abs(entry.z - z) < range) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / this.cellSize);
+    }
+
+    /**
+     * Packs 21 bits per axis. Far away cells may share a key, which only adds candidates that the exact distance test
+     * then rejects.
+     */
+    private static Long cellKey(long cellX, long cellY, long cellZ) {
+        return ((cellX & 0x1FFFFF) << 42) | ((cellY & 0x1FFFFF) << 21) | (cellZ & 0x1FFFFF);
+    }
+
+    private static class Entry {
+
+        private final double x, y, z;
+
+        Entry(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+}
@@ -5,6 +5,9 @@ import javafx.scene.text.Text;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,9 +18,39 @@ public class TextUtil {
     private static final double DEFAULT_LINE_SPACING = helper.getLineSpacing();
     private static final String DEFAULT_TEXT = helper.getText();
 
+    private static final int WIDTH_CACHE_SIZE = 4096;
+    private static final Map<TextWidthKey, Double> widthCache = new LinkedHashMap<TextWidthKey, Double>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TextWidthKey, Double> eldest) {
+            return size() > WIDTH_CACHE_SIZE;
+        }
+    };
+
     // private static final TextBoundsType DEFAULT_BOUNDS_TYPE = helper.getBoundsType();
 
+    /**
+     * Computes the width the given text takes up with the given font. Results are memoized in a bounded LRU cache, as
+     * box and label widths are recalculated on every rename, attribute change and load.
+     *
+     * @param font the font the text is rendered with
+     * @param text the text to measure
+     * @param help upper limit of the preferred width used as wrapping width
+     * @return the measured width, rounded up
+     */
     public static double computeTextWidth(Font font, String text, double help) {
+        TextWidthKey key = new TextWidthKey(font, text, help);
+        synchronized (widthCache) {
+            Double cachedWidth = widthCache.get(key);
+            if (cachedWidth != null) {
+                return cachedWidth;
+            }
+            double width = measureTextWidth(font, text, help);
+            widthCache.put(key, width);
+            return width;
+        }
+    }
+
+    private static double measureTextWidth(Font font, String text, double help) {
         helper.setText(text);
         helper.setFont(font);
 
@@ -75,4 +108,34 @@ public class TextUtil {
         return buffer.toString();
     }
 
+    private static class TextWidthKey {
+
+        private final Font font;
+        private final String text;
+        private final double help;
+
+        TextWidthKey(Font font, String text, double help) {
+            this.font = font;
+            this.text = text;
+            this.help = help;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TextWidthKey)) {
+                return false;
+            }
+            TextWidthKey other = (TextWidthKey) obj;
+            return Double.compare(this.help, other.help) == 0 && Objects.equals(this.text, other.text) && Objects.equals(this.font, other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.font, this.text, this.help);
+        }
+    }
+
 }
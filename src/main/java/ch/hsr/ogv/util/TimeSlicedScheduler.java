@@ -0,0 +1,227 @@
+package ch.hsr.ogv.util;
+
+import javafx.animation.AnimationTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs queued work on the FX thread in slices, each limited to a time budget per frame, so large builds do not block
+ * input and rendering. Work is submitted as jobs of small tasks, jobs run one after the other in submission order. A
+ * slice always runs at least one task, so every job makes progress even if single tasks exceed the budget.
+ * <p>
+ * All methods must be called on the FX thread.
+ */
+public class TimeSlicedScheduler {
+
+    private final static Logger logger = LoggerFactory.getLogger(TimeSlicedScheduler.class);
+
+    public final static long DEFAULT_BUDGET_MILLIS = 8;
+
+    private final long budgetNanos;
+    private final LongSupplier clock;
+    private final boolean framed;
+    private final Deque<Job> jobs = new ArrayDeque<Job>();
+    private AnimationTimer timer; // created on first use, needs a running toolkit
+
+    public TimeSlicedScheduler() {
+        this(DEFAULT_BUDGET_MILLIS * 1_000_000L);
+    }
+
+    public TimeSlicedScheduler(long budgetNanos) {
+        this(budgetNanos, System::nanoTime, true);
+    }
+
+    /**
+     * @param framed whether slices run on every pulse, otherwise only through {@link #runSlice()}
+     */
+    TimeSlicedScheduler(long budgetNanos, LongSupplier clock, boolean framed) {
+        this.budgetNanos = budgetNanos;
+        this.clock = clock;
+        this.framed = framed;
+    }
+
+    public Job submit(Collection<? extends Runnable> tasks) {
+        Job job = new Job(this);
+        for (Runnable task : tasks) {
+            job.add(task);
+        }
+        this.jobs.addLast(job);
+        wakeUp();
+        return job;
+    }
+
+    public boolean hasWork() {
+        return !this.jobs.isEmpty();
+    }
+
+    /**
+     * Runs queued tasks until the time budget is used up.
+     *
+     * @return true if work remains for the next slice
+     */
+    public boolean runSlice() {
+        long deadline = this.clock.getAsLong() + this.budgetNanos;
+        boolean ranTask = false;
+        List<Job> progressed = new ArrayList<Job>();
+        while (!this.jobs.isEmpty()) {
+            Job job = this.jobs.peekFirst();
+            if (job.cancelled || job.tasks.isEmpty()) {
+                this.jobs.pollFirst();
+                if (!job.cancelled) {
+                    job.finish();
+                }
+                continue;
+            }
+            if (ranTask && this.clock.getAsLong() >= deadline) {
+                break;
+            }
+            if (progressed.isEmpty() || progressed.get(progressed.size() - 1) != job) {
+                progressed.add(job);
+            }
+            Runnable task = job.tasks.pollFirst();
+            try {
+                task.run();
+            }
+            catch (Throwable e) {
+                // one failing task must not stall the queue, a stack overflow only ends the task that caused it
+                if (e instanceof VirtualMachineError && !(e instanceof StackOverflowError)) {
+                    throw (VirtualMachineError) e;
+                }
+                logger.error("Task failed", e);
+            }
+            job.done++;
+            ranTask = true;
+            if (job.tasks.isEmpty() && !job.cancelled) {
+                this.jobs.pollFirst();
+                job.reportProgress();
+                job.finish();
+            }
+        }
+        for (Job job : progressed) {
+            if (!job.isDone() && !job.cancelled) {
+                job.reportProgress();
+            }
+        }
+        return !this.jobs.isEmpty();
+    }
+
+    private void wakeUp() {
+        if (!this.framed) {
+            return;
+        }
+        if (this.timer == null) {
+            this.timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    if (!runSlice()) {
+                        stop();
+                    }
+                }
+            };
+        }
+        this.timer.start();
+    }
+
+    /**
+     * A group of tasks with common progress and completion callbacks.
+     */
+    public static class Job {
+
+        private final TimeSlicedScheduler scheduler;
+        private final Deque<Runnable> tasks = new ArrayDeque<Runnable>();
+        private int total = 0;
+        private int done = 0;
+        private boolean cancelled = false;
+        private boolean finished = false;
+        private Consumer<Job> onProgress;
+        private Runnable onDone;
+
+        private Job(TimeSlicedScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        /**
+         * Appends a task to this job, which must not be done or cancelled yet.
+         */
+        public void add(Runnable task) {
+            if (this.finished || this.cancelled) {
+                throw new IllegalStateException("job is already " + (this.cancelled ? "cancelled" : "done"));
+            }
+            this.tasks.addLast(task);
+            this.total++;
+            this.scheduler.wakeUp();
+        }
+
+        /**
+         * Drops all tasks not run yet. The done callback is not called for a cancelled job.
+         */
+        public void cancel() {
+            if (this.finished) {
+                return;
+            }
+            this.cancelled = true;
+            this.tasks.clear();
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        public boolean isDone() {
+            return this.finished;
+        }
+
+        public int getTotal() {
+            return this.total;
+        }
+
+        public int getDone() {
+            return this.done;
+        }
+
+        public double getProgress() {
+            return this.total > 0 ? (double) this.done / this.total : 1.0;
+        }
+
+        /**
+         * @param onProgress called after every slice in which tasks of this job ran
+         */
+        public Job setOnProgress(Consumer<Job> onProgress) {
+            this.onProgress = onProgress;
+            return this;
+        }
+
+        /**
+         * @param onDone called once all tasks ran, immediately if that is already the case
+         */
+        public Job setOnDone(Runnable onDone) {
+            this.onDone = onDone;
+            if (this.finished && onDone != null) {
+                onDone.run();
+            }
+            return this;
+        }
+
+        private void reportProgress() {
+            if (this.onProgress != null) {
+                this.onProgress.accept(this);
+            }
+        }
+
+        private void finish() {
+            this.finished = true;
+            if (this.onDone != null) {
+                this.onDone.run();
+            }
+        }
+    }
+
+}
@@ -3,13 +3,17 @@ package ch.hsr.ogv.view;
 import ch.hsr.ogv.model.RelationType;
 import ch.hsr.ogv.util.ColorUtil;
 import ch.hsr.ogv.util.GeometryUtil;
-import javafx.geometry.Point2D;
+import ch.hsr.ogv.util.MaterialCache;
+import javafx.collections.ObservableList;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
 import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Transform;
 import javafx.scene.transform.Translate;
 
 import java.util.ArrayList;
@@ -52,6 +56,25 @@ public class Arrow extends Group implements Selectable {
     protected Box startSelectionHelper;
     protected Box endSelectionHelper;
     private boolean isSelected = false;
+    private boolean farDetail = false;
+
+    // transforms are reused on every redraw and only updated in place
+    private final Translate groupTranslate = new Translate();
+    private final Rotate groupRotateY = new Rotate(0, Rotate.Y_AXIS);
+    private final Rotate groupRotateX = new Rotate(0, Rotate.X_AXIS);
+    private final Transform[] groupTransforms = { this.groupTranslate, this.groupRotateY, this.groupRotateX };
+    protected final Rotate arrowStartRotate = new Rotate(180, Rotate.Y_AXIS);
+    protected final Transform[] arrowStartTransforms = { this.arrowStartRotate };
+    private final Rotate arrowEndRotate = new Rotate(0, Rotate.Y_AXIS);
+    private final Transform[] arrowEndTransforms = { this.arrowEndRotate };
+    protected final static Transform[] NO_TRANSFORMS = {};
+    private boolean arrowVisible = true;
+    private boolean culled = false;
+
+    private List<Point3D> route = null; // corners of an orthogonal route on the xz-plane, null to draw straight
+    private final List<Box> routeLines = new ArrayList<Box>(); // pooled, only the first routeLineCount are used
+    private final List<Box> routeSelectionHelpers = new ArrayList<Box>();
+    private int routeLineCount = 0;
 
     public Arrow(Point3D startPoint, Point3D endPoint, RelationType type) {
         setPoints(startPoint, endPoint);
@@ -176,8 +199,7 @@ public class Arrow extends Group implements Selectable {
         double lineSelectionGap = 100;
         double endGap = this.arrowEnd.getAdditionalGap();
         double startGap = this.arrowStart.getAdditionalGap();
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.DODGERBLUE);
+        PhongMaterial material = MaterialCache.get(Color.DODGERBLUE, null);
         Box lineSelectionHelper = new Box(SELECTION_HELPER_WIDTH, SELECTION_HELPER_WIDTH, this.line.getDepth() - lineSelectionGap);
         lineSelectionHelper.depthProperty().bind(this.line.depthProperty().subtract(lineSelectionGap).add((endGap + startGap) / 2));
         lineSelectionHelper.translateXProperty().bind(this.line.translateXProperty());
@@ -221,9 +243,9 @@ public class Arrow extends Group implements Selectable {
     public void setPoints(PaneBox startBox, Point3D endPoint) {
         setStartPoint(startBox.getCenterPoint());
         setEndPoint(endPoint);
-        Point2D startIntersection = lineBoxIntersection(this.startPoint, startBox, this.endPoint);
+        Point3D startIntersection = lineBoxIntersection(this.startPoint, startBox, this.endPoint);
         if (startIntersection != null) {
-            setStartPoint(new Point3D(startIntersection.getX(), this.startPoint.getY(), startIntersection.getY()));
+            setStartPoint(startIntersection);
         }
         this.startEndDistance = this.startPoint.distance(this.endPoint);
     }
@@ -231,9 +253,9 @@ public class Arrow extends Group implements Selectable {
     public void setPoints(Point3D startPoint, PaneBox endBox) {
         setStartPoint(startPoint);
         setEndPoint(endBox.getCenterPoint());
-        Point2D endIntersection = lineBoxIntersection(this.endPoint, endBox, this.startPoint);
+        Point3D endIntersection = lineBoxIntersection(this.endPoint, endBox, this.startPoint);
         if (endIntersection != null) {
-            setEndPoint(new Point3D(endIntersection.getX(), this.endPoint.getY(), endIntersection.getY()));
+            setEndPoint(endIntersection);
         }
         this.startEndDistance = this.startPoint.distance(this.endPoint);
     }
@@ -246,13 +268,13 @@ public class Arrow extends Group implements Selectable {
             calculateArrangement(startBox, endBox);
         }
 
-        Point2D startIntersection = lineBoxIntersection(startPoint, startBox, endPoint);
-        Point2D endIntersection = lineBoxIntersection(endPoint, endBox, startPoint);
+        Point3D startIntersection = lineBoxIntersection(startPoint, startBox, endPoint);
+        Point3D endIntersection = lineBoxIntersection(endPoint, endBox, startPoint);
         if (startIntersection != null) {
-            setStartPoint(new Point3D(startIntersection.getX(), this.startPoint.getY(), startIntersection.getY()));
+            setStartPoint(startIntersection);
         }
         if (endIntersection != null) {
-            setEndPoint(new Point3D(endIntersection.getX(), endPoint.getY(), endIntersection.getY()));
+            setEndPoint(endIntersection);
         }
         this.startEndDistance = this.startPoint.distance(this.endPoint);
     }
@@ -297,8 +319,32 @@ public class Arrow extends Group implements Selectable {
         setEndPoint(GeometryUtil.divideLineFraction(lineStartPointEnd, lineEndPointEnd, (arrowNumber) / (totalArrowNumber + 1.0)));
     }
 
+    public List<Point3D> getRoute() {
+        return this.route;
+    }
+
+    public boolean isRouted() {
+        return this.route != null;
+    }
+
+    /**
+     * Draws this arrow along the given corners instead of straight from its start to its end point, until the route is
+     * set to null again. The route is kept when the points are set, it has to be set again when the boxes move.
+     *
+     * @param route the corners of an orthogonal route on the xz-plane, from the border of the start box to the border
+     * of the end box, or null to draw straight
+     */
+    public void setRoute(List<Point3D> route) {
+        this.route = route != null && route.size() >= 2 ? route : null;
+        drawArrow();
+    }
+
     public final void drawArrow() {
-        getTransforms().clear();
+        if (this.route != null) {
+            drawRoute();
+            return;
+        }
+        hideRouteLines();
         setLineVisibility();
         setArrowLineEdge();
         setArrowLabels();
@@ -319,14 +365,162 @@ public class Arrow extends Group implements Selectable {
         this.line.setTranslateZ((-endGap + startGap) / 4);
     }
 
+    private void drawRoute() {
+        setStraightLineVisibility(false);
+        Point3D start = this.route.get(0);
+        Point3D end = this.route.get(this.route.size() - 1);
+        Point3D startDirection = start.subtract(this.route.get(1)).normalize(); // pointing into the start box
+        Point3D endDirection = end.subtract(this.route.get(this.route.size() - 2)).normalize();
+
+        this.arrowStartRotate.setAngle(GeometryUtil.rotateYAngle(Point3D.ZERO, startDirection));
+        setSingleTransforms(this.arrowStart, this.arrowStartTransforms);
+        setTranslate(this.arrowStart, start.add(startDirection.multiply(EDGE_SPACING)));
+        this.arrowEndRotate.setAngle(GeometryUtil.rotateYAngle(Point3D.ZERO, endDirection));
+        setSingleTransforms(this.arrowEnd, this.arrowEndTransforms);
+        setTranslate(this.arrowEnd, end.add(endDirection.multiply(EDGE_SPACING)));
+
+        // labels beside the first and the last segment, where a straight arrow has them
+        double startLeftWidth = Math.max(20, this.labelStartLeft.calcMinWidth());
+        double endLeftWidth = Math.max(20, this.labelEndLeft.calcMinWidth());
+        setLabel(this.labelStartRight, start, startDirection.multiply(-1), -LABEL_SPACING / 3 - 1, LABEL_SPACING + 15);
+        setLabel(this.labelStartLeft, start, startDirection.multiply(-1), startLeftWidth + LABEL_SPACING / 3, LABEL_SPACING + 15);
+        setLabel(this.labelEndRight, end, endDirection, -LABEL_SPACING / 3 - 1, -LABEL_SPACING + 10);
+        setLabel(this.labelEndLeft, end, endDirection, endLeftWidth + LABEL_SPACING / 3, -LABEL_SPACING + 10);
+
+        this.routeLineCount = 0;
+        double startGap = this.arrowStart.getAdditionalGap() / 2;
+        double endGap = this.arrowEnd.getAdditionalGap() / 2;
+        int last = this.route.size() - 2;
+        for (int i = 0; i <= last; i++) {
+            Point3D from = this.route.get(i);
+            Point3D to = this.route.get(i + 1);
+            Point3D direction = to.subtract(from).normalize();
+            if (i == 0) {
+                from = from.add(direction.multiply(startGap));
+            }
+            if (i == last) {
+                to = to.subtract(direction.multiply(endGap));
+            }
+            addRouteSegment(from, to);
+        }
+        for (int i = this.routeLineCount; i < this.routeLines.size(); i++) {
+            this.routeLines.get(i).setVisible(false);
+            this.routeSelectionHelpers.get(i).setVisible(false);
+        }
+
+        this.rotateYAngle = GeometryUtil.rotateYAngle(this.startPoint, this.endPoint);
+        this.rotateXAngle = -GeometryUtil.rotateXAngle(this.startPoint, this.endPoint);
+        setSingleTransforms(this, NO_TRANSFORMS);
+        this.selection.setStartEndXYZ(start, end);
+    }
+
+    /**
+     * Places a label on the xz-plane relative to a segment end, as {@link #setArrowLabels} does relative to the line.
+     *
+     * @param direction the direction of the segment, towards its end
+     * @param across the offset to the right of the segment
+     * @param along the offset along the segment
+     */
+    private void setLabel(ArrowLabel label, Point3D end, Point3D direction, double across, double along) {
+        double x = end.getX() + direction.getX() * along + direction.getZ() * across;
+        double z = end.getZ() + direction.getZ() * along - direction.getX() * across;
+        label.setTranslateXYZ(x, end.getY(), z);
+        label.setRotateYAxis(0);
+    }
+
+    /**
+     * Draws a straight part of the route, as one line or as dashes if {@link #getRouteDashLength} is positive.
+     */
+    private void addRouteSegment(Point3D from, Point3D to) {
+        double length = from.distance(to);
+        double dashLength = getRouteDashLength();
+        int pieces = dashLength > 0 ? Math.max(1, (int) (length / (2 * dashLength))) : 1;
+        double pieceLength = dashLength > 0 ? Math.min(dashLength, length) : length;
+        Point3D direction = to.subtract(from).normalize();
+        double step = pieces > 1 ? (length - pieceLength) / (pieces - 1) : 0;
+        for (int i = 0; i < pieces; i++) {
+            Point3D center = from.add(direction.multiply(pieceLength / 2 + i * step));
+            Box routeLine = nextRouteLine();
+            routeLine.setDepth(pieceLength);
+            setTranslate(routeLine, center);
+            boolean alongX = Math.abs(direction.getX()) > Math.abs(direction.getZ());
+            routeLine.setRotate(alongX ? 90 : 0);
+            routeLine.setVisible(true);
+        }
+        Box helper = this.routeSelectionHelpers.get(this.routeLineCount - 1);
+        helper.setDepth(length);
+        setTranslate(helper, from.midpoint(to));
+        helper.setRotate(Math.abs(direction.getX()) > Math.abs(direction.getZ()) ? 90 : 0);
+        helper.setVisible(true);
+    }
+
+    private Box nextRouteLine() {
+        if (this.routeLineCount == this.routeLines.size()) {
+            Box routeLine = new Box(this.width, this.width, this.width);
+            routeLine.setRotationAxis(Rotate.Y_AXIS);
+            routeLine.setMaterial(MaterialCache.get(colorToApply(this.isSelected)));
+            Box helper = new Box(SELECTION_HELPER_WIDTH, SELECTION_HELPER_WIDTH, this.width);
+            helper.setRotationAxis(Rotate.Y_AXIS);
+            helper.setOpacity(0.0); // dont want to see it, but still receive mouse events
+            Box lineSelectionHelper = this.lineSelectionHelpers.get(0);
+            helper.addEventHandler(MouseEvent.MOUSE_CLICKED, (MouseEvent me) -> { // handled like a click on the line
+                me.consume();
+                lineSelectionHelper.fireEvent(me.copyFor(lineSelectionHelper, lineSelectionHelper));
+            });
+            this.routeLines.add(routeLine);
+            this.routeSelectionHelpers.add(helper);
+            getChildren().addAll(routeLine, helper);
+        }
+        Box routeLine = this.routeLines.get(this.routeLineCount);
+        this.routeSelectionHelpers.get(this.routeLineCount).setVisible(false); // only the last per segment is used
+        this.routeLineCount++;
+        return routeLine;
+    }
+
+    private void hideRouteLines() {
+        for (int i = 0; i < this.routeLines.size(); i++) {
+            this.routeLines.get(i).setVisible(false);
+            this.routeSelectionHelpers.get(i).setVisible(false);
+        }
+        setStraightLineVisibility(true);
+    }
+
+    /**
+     * Shows or hides the parts of the straight arrow that a route replaces. The line itself is shown again by
+     * {@link #setLineVisibility}.
+     */
+    protected void setStraightLineVisibility(boolean visible) {
+        if (!visible) {
+            this.line.setVisible(false);
+        }
+        for (Box lineSelectionHelper : this.lineSelectionHelpers) {
+            lineSelectionHelper.setVisible(visible);
+        }
+        this.startSelectionHelper.setVisible(visible);
+        this.endSelectionHelper.setVisible(visible);
+    }
+
+    /**
+     * @return the length of the dashes of a route, 0 for a solid line
+     */
+    protected double getRouteDashLength() {
+        return 0;
+    }
+
+    private static void setTranslate(Node node, Point3D point) {
+        node.setTranslateX(point.getX());
+        node.setTranslateY(point.getY());
+        node.setTranslateZ(point.getZ());
+    }
+
     protected void moveRotateGroup() {
         this.rotateYAngle = GeometryUtil.rotateYAngle(this.startPoint, this.endPoint);
         this.rotateXAngle = -GeometryUtil.rotateXAngle(this.startPoint, this.endPoint);
 
-        Point3D midPoint = this.startPoint.midpoint(this.endPoint);
-        setTranslateXYZ(midPoint);
-        addRotateYAxis(this.rotateYAngle);
-        addRotateXAxis(this.rotateXAngle);
+        setSingleTransforms(this, this.groupTransforms);
+        setTranslateXYZ((this.startPoint.getX() + this.endPoint.getX()) / 2, (this.startPoint.getY() + this.endPoint.getY()) / 2, (this.startPoint.getZ() + this.endPoint.getZ()) / 2);
+        setRotateYAxis(this.rotateYAngle);
+        setRotateXAxis(this.rotateXAngle);
 
         this.labelStartLeft.setRotateYAxis(-this.rotateYAngle);
         this.labelStartRight.setRotateYAxis(-this.rotateYAngle);
@@ -336,49 +530,69 @@ public class Arrow extends Group implements Selectable {
         this.selection.setStartEndXYZ(this.startPoint, this.endPoint);
     }
 
-    private Point2D lineBoxIntersection(Point3D internalPoint, PaneBox box, Point3D externalPoint) {
-        return lineRectangleIntersection(internalPoint, externalPoint, box.getCenterPoint(), box.getWidth(), box.getHeight());
+    private Point3D lineBoxIntersection(Point3D internalPoint, PaneBox box, Point3D externalPoint) {
+        return lineRectangleIntersection(internalPoint, externalPoint, box.getTranslateX(), box.getTranslateZ(), box.getWidth(), box.getHeight());
     }
 
-    private Point2D lineRectangleIntersection(Point3D internalPoint, Point3D externalPoint, Point3D centerPoint, double width, double height) {
+    /**
+     * Intersects the line from the external to the internal point with the rectangle edges on the xz-plane, checking
+     * east, west, north and south edge in this order.
+     *
+     * @return the intersection at the height of the internal point, or null if the line does not cross the rectangle
+     */
+    private Point3D lineRectangleIntersection(Point3D internalPoint, Point3D externalPoint, double centerX, double centerZ, double width, double height) {
         double halfWidth = width / 2;
         double halfHeight = height / 2;
 
-        Point2D lineStart = new Point2D(externalPoint.getX(), externalPoint.getZ());
-        Point2D lineEnd = new Point2D(internalPoint.getX(), internalPoint.getZ());
+        double startX = externalPoint.getX();
+        double startZ = externalPoint.getZ();
+        double endX = internalPoint.getX();
+        double endZ = internalPoint.getZ();
 
-        Point2D northEast = new Point2D(centerPoint.getX() - halfWidth, centerPoint.getZ() + halfHeight);
-        Point2D southEast = new Point2D(centerPoint.getX() - halfWidth, centerPoint.getZ() - halfHeight);
-        Point2D southWest = new Point2D(centerPoint.getX() + halfWidth, centerPoint.getZ() - halfHeight);
-        Point2D northWest = new Point2D(centerPoint.getX() + halfWidth, centerPoint.getZ() + halfHeight);
+        double east = centerX - halfWidth;
+        double west = centerX + halfWidth;
+        double north = centerZ + halfHeight;
+        double south = centerZ - halfHeight;
 
-        Point2D interEastHeight = GeometryUtil.lineIntersect(lineStart, lineEnd, northEast, southEast);
-        Point2D interWestHeight = GeometryUtil.lineIntersect(lineStart, lineEnd, northWest, southWest);
-        Point2D interNorthWidth = GeometryUtil.lineIntersect(lineStart, lineEnd, northEast, northWest);
-        Point2D interSouthWidth = GeometryUtil.lineIntersect(lineStart, lineEnd, southEast, southWest);
-
-        if (interEastHeight != null) {
-            return interEastHeight;
+        double fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, north, east, south);
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, west, north, west, south);
         }
-        if (interWestHeight != null) {
-            return interWestHeight;
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, north, west, north);
         }
-        if (interNorthWidth != null) {
-            return interNorthWidth;
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, south, west, south);
         }
-        if (interSouthWidth != null) {
-            return interSouthWidth;
+        if (Double.isNaN(fraction)) {
+            return null;
+        }
+        return new Point3D(startX + fraction * (endX - startX), internalPoint.getY(), startZ + fraction * (endZ - startZ));
+    }
+
+    /**
+     * Makes the given transforms the only transforms of the node, unless they already are.
+     */
+    protected static void setSingleTransforms(Node node, Transform[] transforms) {
+        ObservableList<Transform> nodeTransforms = node.getTransforms();
+        boolean same = nodeTransforms.size() == transforms.length;
+        for (int i = 0; same && i < transforms.length; i++) {
+            same = nodeTransforms.get(i) == transforms[i];
+        }
+        if (!same) {
+            nodeTransforms.setAll(transforms);
         }
-        return null;
     }
 
     protected void setArrowLineEdge() {
         this.arrowStart.setTranslateX(0);
         this.arrowStart.setTranslateY(0);
-        this.arrowStart.setTranslateZ(0);
-        this.arrowStart.getTransforms().clear();
-        this.arrowStart.getTransforms().add(new Rotate(180, arrowStart.getTranslateX(), arrowStart.getTranslateY(), arrowStart.getTranslateZ(), Rotate.Y_AXIS));
+        this.arrowStartRotate.setAngle(180);
+        setSingleTransforms(this.arrowStart, this.arrowStartTransforms);
         this.arrowStart.setTranslateZ(-this.startEndDistance / 2 - EDGE_SPACING);
+        this.arrowEnd.setTranslateX(0);
+        this.arrowEnd.setTranslateY(0);
+        setSingleTransforms(this.arrowEnd, NO_TRANSFORMS);
         this.arrowEnd.setTranslateZ(this.startEndDistance / 2 + EDGE_SPACING);
     }
 
@@ -399,6 +613,9 @@ public class Arrow extends Group implements Selectable {
     public void setColor(Color color) {
         this.color = color;
         applyColor(this.line, this.color);
+        for (Box routeLine : this.routeLines) {
+            applyColor(routeLine, this.color);
+        }
         this.arrowStart.setColor(color);
         this.arrowEnd.setColor(color);
         this.labelStartRight.setColor(color);
@@ -408,10 +625,7 @@ public class Arrow extends Group implements Selectable {
     }
 
     protected void applyColor(Box box, Color color) {
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(color);
-        material.setSpecularColor(color.brighter());
-        box.setMaterial(material);
+        box.setMaterial(MaterialCache.get(color));
     }
 
     public Color getColor() {
@@ -476,6 +690,9 @@ public class Arrow extends Group implements Selectable {
         this.isSelected = selected;
         Color colorToApply = colorToApply(selected);
         applyColor(this.line, colorToApply);
+        for (Box routeLine : this.routeLines) {
+            applyColor(routeLine, colorToApply);
+        }
         this.arrowStart.setColor(colorToApply);
         this.arrowEnd.setColor(colorToApply);
         this.labelStartRight.setColor(ColorUtil.darker(colorToApply, 0.3));
@@ -511,19 +728,25 @@ public class Arrow extends Group implements Selectable {
     }
 
     public void setTranslateXYZ(double x, double y, double z) {
-        getTransforms().add(new Translate(x, y, z));
+        this.groupTranslate.setX(x);
+        this.groupTranslate.setY(y);
+        this.groupTranslate.setZ(z);
     }
 
-    public void addRotateYAxis(double degree) {
-        getTransforms().add(new Rotate(degree, getTranslateX(), getTranslateY(), getTranslateZ(), Rotate.Y_AXIS));
+    public void setRotateYAxis(double degree) {
+        setRotatePivot(this.groupRotateY);
+        this.groupRotateY.setAngle(degree);
     }
 
-    public void addRotateZAxis(double degree) {
-        getTransforms().add(new Rotate(degree, getTranslateX(), getTranslateY(), getTranslateZ(), Rotate.Z_AXIS));
+    public void setRotateXAxis(double degree) {
+        setRotatePivot(this.groupRotateX);
+        this.groupRotateX.setAngle(degree);
     }
 
-    public void addRotateXAxis(double degree) {
-        getTransforms().add(new Rotate(degree, getTranslateX(), getTranslateY(), getTranslateZ(), Rotate.X_AXIS));
+    private void setRotatePivot(Rotate rotate) {
+        rotate.setPivotX(getTranslateX());
+        rotate.setPivotY(getTranslateY());
+        rotate.setPivotZ(getTranslateZ());
     }
 
     public double getWidth() {
@@ -542,8 +765,45 @@ public class Arrow extends Group implements Selectable {
         return this.rotateXAngle;
     }
 
+    public boolean isFarDetail() {
+        return this.farDetail;
+    }
+
+    /**
+     * Switches between the full arrow and a reduced level of detail that only shows the line, without arrow heads and
+     * labels.
+     *
+     * @param farDetail true to show the reduced level of detail
+     */
+    public void setFarDetail(boolean farDetail) {
+        if (this.farDetail == farDetail) {
+            return;
+        }
+        this.farDetail = farDetail;
+        this.arrowStart.setVisible(!farDetail);
+        this.arrowEnd.setVisible(!farDetail);
+        this.labelStartRight.setVisible(!farDetail);
+        this.labelStartLeft.setVisible(!farDetail);
+        this.labelEndRight.setVisible(!farDetail);
+        this.labelEndLeft.setVisible(!farDetail);
+    }
+
+    public boolean isCulled() {
+        return this.culled;
+    }
+
+    /**
+     * Hides this arrow while it is outside of the view frustum, independent of its visibility set by
+     * {@link #setArrowVisible}.
+     */
+    public void setCulled(boolean culled) {
+        this.culled = culled;
+        setVisible(this.arrowVisible && !this.culled);
+    }
+
     public void setArrowVisible(boolean visible) {
-        setVisible(visible);
+        this.arrowVisible = visible;
+        setVisible(this.arrowVisible && !this.culled);
         if (!visible) {
             this.selection.setVisible(false);
         }
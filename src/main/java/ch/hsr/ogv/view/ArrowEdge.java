@@ -1,6 +1,7 @@
 package ch.hsr.ogv.view;
 
 import ch.hsr.ogv.model.EndpointType;
+import ch.hsr.ogv.util.MaterialCache;
 import ch.hsr.ogv.util.ObjModelLoader;
 import ch.hsr.ogv.util.ResourceLocator;
 import ch.hsr.ogv.util.ResourceLocator.Resource;
@@ -92,9 +93,7 @@ public class ArrowEdge extends Group {
 
     public void setColor(Color color) {
         this.color = color;
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(this.color);
-        material.setSpecularColor(this.color.brighter());
+        PhongMaterial material = MaterialCache.get(this.color);
         for (MeshView mv : this.meshViews) {
             mv.setMaterial(material);
         }
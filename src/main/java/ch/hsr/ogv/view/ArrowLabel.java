@@ -29,6 +29,11 @@ public class ArrowLabel extends Group {
     private TextField arrowTextField;
     private Point3D coords = new Point3D(0, 0, 0);
 
+    // last measured width, arrows measure their labels on every redraw
+    private Font measuredFont = null;
+    private String measuredText = null;
+    private double measuredWidth = 0.0;
+
     private Color color = Color.BLACK;
 
     private volatile boolean isLabelSelected = false;
@@ -167,9 +172,10 @@ public class ArrowLabel extends Group {
     }
 
     public void setTranslateXYZ(double x, double y, double z) {
-        setCoordsX(x);
-        setCoordsY(y);
-        setCoordsZ(z);
+        if (this.coords.getX() != x || this.coords.getY() != y || this.coords.getZ() != z) {
+            this.coords = new Point3D(x, y, z);
+        }
+        setTranslate();
     }
 
     private void setTranslate() {
@@ -184,7 +190,14 @@ public class ArrowLabel extends Group {
     }
 
     public double calcMinWidth() {
-        return TextUtil.computeTextWidth(getFont(), getTextFieldText(), 0.0D) + 15;
+        Font font = getFont();
+        String text = getTextFieldText();
+        if (font != this.measuredFont || text == null || !text.equals(this.measuredText)) {
+            this.measuredWidth = TextUtil.computeTextWidth(font, text, 0.0D);
+            this.measuredFont = font;
+            this.measuredText = text;
+        }
+        return this.measuredWidth + 15;
     }
 
     public void setWidth(double width) {
@@ -1,8 +1,8 @@
 package ch.hsr.ogv.view;
 
+import ch.hsr.ogv.util.MaterialCache;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
-import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
 
 public class ConnectorBox extends Group {
@@ -12,10 +12,7 @@ public class ConnectorBox extends Group {
         setTranslateX(centerLabelPos.getX() + PaneBox.HORIZONTAL_BORDER_GAP);
         setTranslateY(centerLabelPos.getY() + (paneBox.getDepth() / 2));
         setTranslateZ(centerLabelPos.getZ());
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(arrow.getColor());
-        material.setSpecularColor(arrow.getColor().brighter());
-        conectorBox.setMaterial(material);
+        conectorBox.setMaterial(MaterialCache.get(arrow.getColor()));
         getChildren().add(conectorBox);
     }
 
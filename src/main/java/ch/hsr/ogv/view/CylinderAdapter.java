@@ -1,11 +1,11 @@
 package ch.hsr.ogv.view;
 
+import ch.hsr.ogv.util.MaterialCache;
 import javafx.beans.property.DoubleProperty;
 import javafx.scene.CacheHint;
 import javafx.scene.DepthTest;
 import javafx.scene.Group;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Cylinder;
 
 public class CylinderAdapter extends Group {
@@ -36,10 +36,7 @@ public class CylinderAdapter extends Group {
 
     public void setColor(Color color) {
         this.color = color;
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(this.color);
-        material.setSpecularColor(this.color.brighter());
-        this.cylinder.setMaterial(material);
+        this.cylinder.setMaterial(MaterialCache.get(this.color));
     }
 
     public DoubleProperty radiusProperty() {
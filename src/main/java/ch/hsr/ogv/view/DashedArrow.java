@@ -1,7 +1,6 @@
 package ch.hsr.ogv.view;
 
 import ch.hsr.ogv.model.RelationType;
-import ch.hsr.ogv.util.GeometryUtil;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Box;
@@ -11,6 +10,7 @@ import java.util.ArrayList;
 public class DashedArrow extends Arrow {
 
     private static final int DASHED_ELEMENT_COUNT = 20;
+    private static final double DASH_LENGTH = 8;
 
     private ArrayList<Box> dashedLines;
 
@@ -51,6 +51,21 @@ public class DashedArrow extends Arrow {
         }
     }
 
+    @Override
+    protected void setStraightLineVisibility(boolean visible) {
+        super.setStraightLineVisibility(visible);
+        if (!visible) {
+            for (Box dashedLine : this.dashedLines) {
+                dashedLine.setVisible(false);
+            }
+        }
+    }
+
+    @Override
+    protected double getRouteDashLength() {
+        return DASH_LENGTH;
+    }
+
     @Override
     protected void setSingleElements() {
         double endGap = this.arrowEnd.getAdditionalGap();
@@ -60,22 +75,16 @@ public class DashedArrow extends Arrow {
         this.line.setDepth(gapDistance);
         this.line.setTranslateZ((-endGap + startGap) / 4);
 
-        ArrayList<Point3D> dashedLineCoords = divideLine(new Point3D(0, 0, -gapDistance / 2), new Point3D(0, 0, gapDistance / 2), this.dashedLines.size());
-
-        for (int i = 0; i < this.dashedLines.size(); i++) {
+        // divide the line into equal parts, each dash ends at its dividing point
+        double startZ = -gapDistance / 2;
+        double endZ = gapDistance / 2;
+        int count = this.dashedLines.size();
+        for (int i = 0; i < count; i++) {
             Box dashedLine = this.dashedLines.get(i);
             dashedLine.setDepth(gapDistance / (2 * DASHED_ELEMENT_COUNT));
-            Point3D dashedLineCoord = dashedLineCoords.get(i);
-            dashedLine.setTranslateZ(dashedLineCoord.getZ() - dashedLine.getDepth() + (-endGap + startGap) / 4);
-        }
-    }
-
-    private ArrayList<Point3D> divideLine(Point3D start, Point3D end, int count) {
-        ArrayList<Point3D> pointList = new ArrayList<Point3D>();
-        for (int i = 1; i <= count; i++) {
-            pointList.add(GeometryUtil.divideLineFraction(start, end, ((double) i) / ((double) count)));
+            double dividingZ = startZ + (((double) (i + 1)) / ((double) count)) * (endZ - startZ);
+            dashedLine.setTranslateZ(dividingZ - dashedLine.getDepth() + (-endGap + startGap) / 4);
         }
-        return pointList;
     }
 
     @Override
@@ -1,75 +1,120 @@
 package ch.hsr.ogv.view;
 
+import javafx.geometry.Point3D;
 import javafx.scene.DepthTest;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.PickResult;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.transform.Rotate;
-
-import java.util.HashSet;
-
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Ground plane at y = 0, drawn as a single quad with a repeating grid texture. The quad follows the camera in steps of
+ * whole tiles, so the floor appears unlimited while its cost stays constant.
+ */
 public class Floor extends Group implements Selectable {
 
-    private HashSet<Rectangle> tiles = new HashSet<Rectangle>();
-    private final double TILE_SIZE = 1000;
-    private final int TILE_DIMENSION = 10;
+    private final static double TILE_SIZE = 1000;
+    private final static double EXTENT = 32000; // half size of the quad, beyond the camera far clip
+    private final static int TEXTURE_SIZE = 64;
+    private final static double OPACITY = 0.6;
     public final static Color DEFAULT_COLOR = Color.WHITESMOKE;
 
+    private final MeshView plane;
+    private final PhongMaterial material = new PhongMaterial();
+    private final WritableImage gridTexture = buildGridTexture();
+
     private Color color = DEFAULT_COLOR;
+    private boolean seeable = true;
 
     private volatile boolean selected = false;
 
     public Floor() {
-        for (int x = 0; x < TILE_DIMENSION; x++) {
-            for (int z = 0; z < TILE_DIMENSION; z++) {
-                buildFloorTile(x, z);
+        this.plane = new MeshView(buildPlaneMesh());
+        this.plane.setCullFace(CullFace.NONE);
+        this.plane.setDepthTest(DepthTest.ENABLE);
+        this.plane.setMaterial(this.material);
+        applyMaterial();
+        getChildren().add(this.plane);
+    }
+
+    private static TriangleMesh buildPlaneMesh() {
+        float e = (float) EXTENT;
+        float tiles = (float) (2 * EXTENT / TILE_SIZE);
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().addAll(-e, 0, -e, e, 0, -e, e, 0, e, -e, 0, e);
+        mesh.getTexCoords().addAll(0, 0, tiles, 0, tiles, tiles, 0, tiles); // texture repeats once per tile
+        mesh.getFaces().addAll(0, 0, 2, 2, 1, 1, 0, 0, 3, 3, 2, 2);
+        return mesh;
+    }
+
+    private static WritableImage buildGridTexture() {
+        WritableImage texture = new WritableImage(TEXTURE_SIZE, TEXTURE_SIZE);
+        PixelWriter writer = texture.getPixelWriter();
+        Color lineColor = Color.gray(0.85);
+        for (int x = 0; x < TEXTURE_SIZE; x++) {
+            for (int y = 0; y < TEXTURE_SIZE; y++) {
+                boolean isLine = x == 0 || y == 0;
+                writer.setColor(x, y, isLine ? lineColor : Color.WHITE);
             }
         }
+        return texture;
+    }
 
-        for (Rectangle tile : this.tiles) {
-            getChildren().add(tile);
+    private void applyMaterial() {
+        if (this.seeable) {
+            this.material.setDiffuseColor(this.color.deriveColor(0, 1, 1, OPACITY));
+            this.material.setDiffuseMap(this.gridTexture);
+        }
+        else {
+            this.material.setDiffuseColor(Color.TRANSPARENT); // stays pickable
+            this.material.setDiffuseMap(null);
         }
     }
 
-    private void buildFloorTile(int x, int z) {
-        Rectangle tile = new Rectangle(TILE_SIZE, TILE_SIZE, this.color);
-        tile.setDepthTest(DepthTest.ENABLE);
-        tile.getTransforms().add(new Rotate(90, Rotate.X_AXIS));
-        tile.setTranslateX(-((TILE_DIMENSION * TILE_SIZE) / 2) + (x * TILE_SIZE));
-        tile.setTranslateZ(-((TILE_DIMENSION * TILE_SIZE) / 2) + (z * TILE_SIZE));
-        tile.setOpacity(0.6);
-        this.tiles.add(tile);
+    /**
+     * Moves the floor under the given point, in steps of whole tiles so the grid stays in place.
+     */
+    public void centerAt(double x, double z) {
+        this.plane.setTranslateX(Math.round(x / TILE_SIZE) * TILE_SIZE);
+        this.plane.setTranslateZ(Math.round(z / TILE_SIZE) * TILE_SIZE);
     }
 
     public void setSeeable(boolean value) {
-        for (Rectangle tile : this.tiles) {
-            if (value) {
-                tile.setFill(getColor());
-            }
-            else {
-                tile.setFill(Color.TRANSPARENT);
-            }
-        }
-
+        this.seeable = value;
+        applyMaterial();
     }
 
     public void setColor(Color color) {
-        for (Rectangle tile : this.tiles) {
-            tile.setFill(color);
-        }
         this.color = color;
+        applyMaterial();
     }
 
     public Color getColor() {
         return this.color;
     }
 
-    public boolean hasTile(Node node) {
-        if (node == null || !(node instanceof Rectangle))
-            return false;
-        Rectangle rect = (Rectangle) node;
-        return this.tiles.contains(rect);
+    public boolean isFloor(Node node) {
+        return node == this.plane;
+    }
+
+    /**
+     * Maps a pick result onto the floor.
+     *
+     * @param pick the pick result of a mouse event
+     * @return the picked point in floor coordinates, or null if the floor was not picked
+     */
+    public Point3D getFloorPoint(PickResult pick) {
+        if (pick == null || !isFloor(pick.getIntersectedNode())) {
+            return null;
+        }
+        Point3D point = pick.getIntersectedPoint();
+        return new Point3D(point.getX() + this.plane.getTranslateX(), 0, point.getZ() + this.plane.getTranslateZ());
     }
 
     @Override
@@ -7,20 +7,26 @@ import ch.hsr.ogv.util.TextUtil;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Point3D;
+import javafx.geometry.Pos;
 import javafx.scene.CacheHint;
 import javafx.scene.DepthTest;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Scale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 public class PaneBox implements Selectable {
 
@@ -45,21 +51,34 @@ public class PaneBox implements Selectable {
     public final static double VERTICAL_BORDER_GAP = 5.0;
     public final static int MAX_CENTER_LABELS = Integer.MAX_VALUE; // was at 15 before
 
+    private final static double TITLE_TEXTURE_SCALE = 0.5;
+
     private Group paneBox = new Group();
     private BoxSelection selection = null;
     private BorderPane borderPane = null;
+    private Node topNode = null;
+    private Node centerNode = null;
+
+    private ImageView titleView = null; // cached title texture, shown instead of top and center nodes when far away
+    private boolean farDetail = false;
+    private boolean visible = true;
+    private boolean culled = false;
 
     private Label topLabel = null;
     private TextField topTextField = null;
 
     private ArrayList<Label> centerLabels = new ArrayList<Label>();
-    private ArrayList<TextField> centerTextFields = new ArrayList<TextField>();
+    private ArrayList<String> centerFieldTexts = new ArrayList<String>(); // text to edit per row, may differ from label text
+    private TextField centerTextField = null; // single editor shared by all rows, created when first needed
+    private Consumer<TextField> centerTextFieldSetup = null;
+    private int centerEditRow = -1;
 
     private volatile Label selectedLabel = null;
 
     private volatile int indexCenterGrid = -1; // row index of centerlabels, where grid should begin, -1: no center grid
 
     private Color color;
+    private Color highlight = null; // border color marking query results, null: normal border
     private Cuboid box;
 
     public Group get() {
@@ -78,6 +97,7 @@ public class PaneBox implements Selectable {
         this.color = color;
         this.borderPane.setStyle(getPaneStyle());
         this.box.setColor(color);
+        refreshTitleTexture();
     }
 
     public PaneBox() {
@@ -113,7 +133,23 @@ public class PaneBox implements Selectable {
         setColor(color);
     }
 
+    public Color getHighlight() {
+        return this.highlight;
+    }
+
+    /**
+     * @param highlight color of a thick border that marks this box, or null for the normal border
+     */
+    public void setHighlight(Color highlight) {
+        this.highlight = highlight;
+        this.borderPane.setStyle(getPaneStyle());
+        refreshTitleTexture();
+    }
+
     private String getPaneStyle() {
+        if (this.highlight != null) {
+            return "-fx-background-color: " + ColorUtil.colorToCssColor(getColor()) + ";\n" + "-fx-border-color: " + ColorUtil.colorToCssColor(this.highlight) + ";\n" + "-fx-border-width: 6;";
+        }
         return "-fx-background-color: " + ColorUtil.colorToCssColor(getColor()) + ";\n" + "-fx-border-color: black;\n" + "-fx-border-width: 2;";
     }
 
@@ -121,7 +157,8 @@ public class PaneBox implements Selectable {
         this.borderPane = loadBorderPane();
         this.topTextField = loadTopTextField();
         // this.topTextField.setContextMenu(new ContextMenu()); // overrides the bugged default contextmenu
-        Node topNode = this.borderPane.getTop();
+        this.topNode = this.borderPane.getTop();
+        this.centerNode = this.borderPane.getCenter();
         if ((topNode instanceof HBox)) {
             HBox topHBox = (HBox) topNode;
             if (!topHBox.getChildren().isEmpty() && topHBox.getChildren().get(0) instanceof Label) {
@@ -165,11 +202,8 @@ public class PaneBox implements Selectable {
         centerLabel.setMinHeight(28);
         centerLabel.setStyle("-fx-font-size: 16;");
 
-        TextField centerTextField = loadCenterTextField();
-        centerTextField.setText(centerLabel.getText());
-        // centerTextField.setContextMenu(new ContextMenu()); // overrides the bugged default contextmenu
         this.centerLabels.add(centerLabel);
-        this.centerTextFields.add(centerTextField);
+        this.centerFieldTexts.add(centerLabel.getText());
         GridPane centerGridPane = getCenter();
         if (centerGridPane != null) {
             centerGridPane.add(centerLabel, 0, getCenter().getChildren().size());
@@ -207,13 +241,41 @@ public class PaneBox implements Selectable {
         return this.centerLabels;
     }
 
-    public ArrayList<TextField> getCenterTextFields() {
-        return this.centerTextFields;
+    /**
+     * Returns the editor shared by all center rows, which is created on first use.
+     */
+    public TextField getCenterTextField() {
+        if (this.centerTextField == null) {
+            this.centerTextField = loadCenterTextField();
+            // this.centerTextField.setContextMenu(new ContextMenu()); // overrides the bugged default contextmenu
+            if (this.centerTextFieldSetup != null) {
+                this.centerTextFieldSetup.accept(this.centerTextField);
+            }
+        }
+        return this.centerTextField;
+    }
+
+    /**
+     * Sets the listeners to install on the shared center editor once it is created. Has no effect if the editor
+     * already exists.
+     */
+    public void setCenterTextFieldSetup(Consumer<TextField> centerTextFieldSetup) {
+        this.centerTextFieldSetup = centerTextFieldSetup;
+    }
+
+    public boolean hasCenterTextFieldSetup() {
+        return this.centerTextFieldSetup != null;
+    }
+
+    /**
+     * @return the row index currently edited with the center editor, or -1 if no row is edited
+     */
+    public int getCenterEditRow() {
+        return this.centerEditRow;
     }
 
     private void swapTopField(Node labelOrTextField) {
-        Node topNode = this.borderPane.getTop();
-        if (topNode instanceof HBox) {
+        if (this.topNode instanceof HBox) {
             HBox topHBox = (HBox) topNode;
             topHBox.getChildren().clear();
             topHBox.getChildren().add(labelOrTextField);
@@ -238,6 +300,7 @@ public class PaneBox implements Selectable {
             return;
         this.topTextField.setText(text);
         this.topLabel.setText(text);
+        refreshTitleTexture();
     }
 
     public void setTopFont(Font font) {
@@ -245,6 +308,7 @@ public class PaneBox implements Selectable {
             return;
         this.topTextField.setFont(font);
         this.topLabel.setFont(font);
+        refreshTitleTexture();
     }
 
     public Font getTopFont() {
@@ -253,10 +317,12 @@ public class PaneBox implements Selectable {
 
     public void setTopUnderline(boolean underline) {
         this.topLabel.setUnderline(underline);
+        refreshTitleTexture();
     }
 
     public void allowTopTextInput(boolean value) {
         if (value) {
+            setFarDetail(false);
             swapTopField(this.topTextField);
             Platform.runLater(() -> {
                 this.topTextField.requestFocus();
@@ -280,36 +346,66 @@ public class PaneBox implements Selectable {
             return;
         }
 
-        try {
-            TextField centerTextField = this.centerTextFields.get(rowIndex);
-            centerTextField.setDisable(!value);
-            centerTextField.setEditable(value);
-            centerTextField.setVisible(value);
-            if (value) {
-                swapCenterField(centerTextField, rowIndex);
-                Platform.runLater(() -> {
-                    centerTextField.requestFocus();
-                    centerTextField.selectAll();
-                    centerTextField.applyCss();
-                });
+        if (value) {
+            setFarDetail(false);
+            if (this.centerEditRow >= 0 && this.centerEditRow != rowIndex) {
+                finishCenterEdit();
             }
-            else {
-                swapCenterField(centerLabel, rowIndex);
-                if (isSelected()) {
-                    setLabelSelected(centerLabel, true);
-                }
+            if (rowIndex >= this.centerLabels.size()) {
+                return;
             }
+            TextField centerTextField = getCenterTextField();
+            centerTextField.setText(this.centerFieldTexts.get(rowIndex)); // before setting the row, so listeners do not treat this as an edit
+            this.centerEditRow = rowIndex;
+            centerTextField.setDisable(false);
+            centerTextField.setEditable(true);
+            centerTextField.setVisible(true);
+            swapCenterField(centerTextField, rowIndex);
+            Platform.runLater(() -> {
+                centerTextField.requestFocus();
+                centerTextField.selectAll();
+                centerTextField.applyCss();
+            });
         }
-        catch (IndexOutOfBoundsException ioobe) {
-            logger.debug("Allowing textinput failed for center field. IndexOutOfBoundsException: " + ioobe.getMessage());
+        else {
+            if (this.centerEditRow == rowIndex) {
+                this.centerEditRow = -1;
+                this.centerTextField.setDisable(true);
+                this.centerTextField.setEditable(false);
+                this.centerTextField.setVisible(false);
+            }
+            swapCenterField(centerLabel, rowIndex);
+            if (isSelected()) {
+                setLabelSelected(centerLabel, true);
+            }
         }
     }
 
+    /**
+     * Ends editing of the row the center editor is currently placed in, so the editor can move to another row.
+     */
+    private void finishCenterEdit() {
+        if (this.centerTextField.isFocused()) {
+            this.paneBox.requestFocus(); // focus listeners apply the edit and put the label back
+        }
+        int editRow = this.centerEditRow;
+        if (editRow >= 0 && editRow < this.centerLabels.size()) {
+            allowCenterFieldTextInput(this.centerLabels.get(editRow), false);
+        }
+        this.centerEditRow = -1;
+    }
+
     public double calcMinWidth() {
         // + 70px / 40px for some additional space to compensate padding, insets, borders etc.
         double retWidth = TextUtil.computeTextWidth(getTopFont(), getTopTextField().getText(), 0.0D) + 70;
-        for (TextField centerTextField : getCenterTextFields()) {
-            double newWidth = TextUtil.computeTextWidth(centerTextField.getFont(), centerTextField.getText(), 0.0D) + 40;
+        for (Label centerLabel : getCenterLabels()) {
+            double newWidth = TextUtil.computeTextWidth(centerLabel.getFont(), centerLabel.getText(), 0.0D) + 40;
+            if (newWidth > retWidth) {
+                retWidth = newWidth;
+            }
+        }
+        if (this.centerEditRow >= 0) {
+            double newWidth = TextUtil.computeTextWidth(this.centerTextField.getFont(), this.centerTextField.getText(), 0.0D) + 40;
             if (newWidth > retWidth) {
                 retWidth = newWidth;
             }
@@ -339,13 +435,67 @@ public class PaneBox implements Selectable {
     }
 
     public GridPane getCenter() {
-        Node centerNode = this.borderPane.getCenter();
-        if (centerNode instanceof GridPane) {
-            return (GridPane) centerNode;
+        if (this.centerNode instanceof GridPane) {
+            return (GridPane) this.centerNode;
         }
         return null;
     }
 
+    public boolean isFarDetail() {
+        return this.farDetail;
+    }
+
+    /**
+     * Switches between the full layout and a reduced level of detail. When far away, the top and center nodes are
+     * detached from the pane and replaced by a cached texture of the title, leaving a plain colored box.
+     *
+     * @param farDetail true to show the reduced level of detail
+     */
+    public void setFarDetail(boolean farDetail) {
+        if (this.farDetail == farDetail) {
+            return;
+        }
+        if (farDetail) {
+            ImageView title = getTitleView();
+            this.borderPane.setCenter(null);
+            this.borderPane.setTop(title);
+        }
+        else {
+            this.borderPane.setTop(this.topNode);
+            this.borderPane.setCenter(this.centerNode);
+        }
+        this.farDetail = farDetail;
+    }
+
+    private ImageView getTitleView() {
+        if (this.titleView == null) {
+            this.titleView = new ImageView();
+            this.titleView.setSmooth(true);
+            this.titleView.setMouseTransparent(true);
+            BorderPane.setAlignment(this.titleView, Pos.CENTER);
+        }
+        if (this.titleView.getImage() == null) {
+            SnapshotParameters parameters = new SnapshotParameters();
+            parameters.setFill(Color.TRANSPARENT);
+            parameters.setTransform(new Scale(TITLE_TEXTURE_SCALE, TITLE_TEXTURE_SCALE));
+            Image titleImage = this.topNode.snapshot(parameters, null);
+            this.titleView.setImage(titleImage);
+            this.titleView.setFitWidth(titleImage.getWidth() / TITLE_TEXTURE_SCALE);
+            this.titleView.setFitHeight(titleImage.getHeight() / TITLE_TEXTURE_SCALE);
+        }
+        return this.titleView;
+    }
+
+    private void refreshTitleTexture() {
+        if (this.titleView == null) {
+            return;
+        }
+        this.titleView.setImage(null);
+        if (this.farDetail) {
+            getTitleView();
+        }
+    }
+
     public boolean isAllCenterGrid() {
         return this.indexCenterGrid == 0;
     }
@@ -403,8 +553,9 @@ public class PaneBox implements Selectable {
     }
 
     public void clearCenterFields() {
+        this.centerEditRow = -1; // before removing the editor, so its focus listeners do not apply anything
         this.centerLabels.clear();
-        this.centerTextFields.clear();
+        this.centerFieldTexts.clear();
         getCenter().getChildren().clear();
     }
 
@@ -422,9 +573,11 @@ public class PaneBox implements Selectable {
     public void setCenterText(int rowIndex, String labelText, String textFieldText) {
         fillCreateCenterLabels(rowIndex);
         Label centerLabel = this.centerLabels.get(rowIndex);
-        TextField centerTextField = this.centerTextFields.get(rowIndex);
         centerLabel.setText(labelText);
-        centerTextField.setText(textFieldText);
+        this.centerFieldTexts.set(rowIndex, textFieldText);
+        if (rowIndex == this.centerEditRow) {
+            this.centerTextField.setText(textFieldText);
+        }
     }
 
     @Override
@@ -632,7 +785,20 @@ public class PaneBox implements Selectable {
     }
 
     public void setVisible(boolean visible) {
-        this.paneBox.setVisible(visible);
+        this.visible = visible;
+        this.paneBox.setVisible(this.visible && !this.culled);
+    }
+
+    public boolean isCulled() {
+        return this.culled;
+    }
+
+    /**
+     * Hides this box while it is outside of the view frustum, independent of its visibility set by {@link #setVisible}.
+     */
+    public void setCulled(boolean culled) {
+        this.culled = culled;
+        this.paneBox.setVisible(this.visible && !this.culled);
     }
 
     public void setPaneVisible(boolean visible) {
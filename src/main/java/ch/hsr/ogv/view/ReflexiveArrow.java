@@ -2,6 +2,7 @@ package ch.hsr.ogv.view;
 
 import ch.hsr.ogv.model.RelationType;
 import ch.hsr.ogv.util.GeometryUtil;
+import ch.hsr.ogv.util.MaterialCache;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
@@ -104,8 +105,7 @@ public class ReflexiveArrow extends Arrow {
 
     @Override
     protected void buildSelectionHelpers() {
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.DODGERBLUE);
+        PhongMaterial material = MaterialCache.get(Color.DODGERBLUE, null);
         this.startSelectionHelper = new Box(SELECTION_HELPER_WIDTH, SELECTION_HELPER_WIDTH / 2, this.smallPartLength);
         this.startSelectionHelper.setMaterial(material); // for debugging
         this.startSelectionHelper.translateXProperty().bind(this.smallHorizontal.translateXProperty());
@@ -159,21 +159,15 @@ public class ReflexiveArrow extends Arrow {
     }
 
     private void setArrowStart() {
-        this.arrowStart.setTranslateX(0);
-        this.arrowStart.setTranslateY(0);
-        this.arrowStart.setTranslateZ(0);
-        this.arrowStart.getTransforms().clear();
-        this.arrowStart.getTransforms().add(new Rotate(90, arrowStart.getTranslateX(), arrowStart.getTranslateY(), arrowStart.getTranslateZ(), Rotate.Y_AXIS));
+        this.arrowStartRotate.setAngle(90);
+        setSingleTransforms(this.arrowStart, this.arrowStartTransforms);
         this.arrowStart.setTranslateX(this.startPoint.getX() + EDGE_SPACING);
         this.arrowStart.setTranslateY(this.startPoint.getY());
         this.arrowStart.setTranslateZ(this.startPoint.getZ());
     }
 
     private void setArrowEnd() {
-        this.arrowEnd.setTranslateX(0);
-        this.arrowEnd.setTranslateY(0);
-        this.arrowEnd.setTranslateZ(0);
-        this.arrowEnd.getTransforms().clear();
+        setSingleTransforms(this.arrowEnd, NO_TRANSFORMS);
         this.arrowEnd.setTranslateX(this.endPoint.getX());
         this.arrowEnd.setTranslateY(this.endPoint.getY());
         this.arrowEnd.setTranslateZ(this.endPoint.getZ() + EDGE_SPACING);
@@ -1,5 +1,6 @@
 package ch.hsr.ogv.view;
 
+import ch.hsr.ogv.util.MaterialCache;
 import javafx.beans.property.DoubleProperty;
 import javafx.event.EventHandler;
 import javafx.scene.CacheHint;
@@ -7,7 +8,6 @@ import javafx.scene.DepthTest;
 import javafx.scene.Group;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Sphere;
 
 public class SphereAdapter extends Group {
@@ -44,10 +44,7 @@ public class SphereAdapter extends Group {
 
     public void setColor(Color color) {
         this.color = color;
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(this.color);
-        material.setSpecularColor(this.color.brighter());
-        sphere.setMaterial(material);
+        sphere.setMaterial(MaterialCache.get(this.color));
     }
 
     public DoubleProperty radiusProperty() {
@@ -3,6 +3,8 @@ package ch.hsr.ogv.view;
 import javafx.scene.*;
 import javafx.scene.paint.Color;
 
+import java.util.Collection;
+
 public class SubSceneAdapter implements Selectable {
 
     public final static Color DEFAULT_COLOR = Color.LIGHTCYAN;
@@ -80,6 +82,9 @@ public class SubSceneAdapter implements Selectable {
         this.subSceneCamera = new SubSceneCamera();
         this.root.getChildren().add(this.subSceneCamera.getCameraXform());
         this.subScene.setCamera(this.subSceneCamera.get());
+        this.subSceneCamera.get().localToSceneTransformProperty().addListener((observable, oldTransform, newTransform) -> {
+            this.floor.centerAt(newTransform.getTx(), newTransform.getTz()); // keep the floor under the camera
+        });
 
         // populate the root group with the world objects
         this.root.getChildren().add(world);
@@ -116,6 +121,13 @@ public class SubSceneAdapter implements Selectable {
         return this.world.getChildren().remove(node);
     }
 
+    /**
+     * Removes many nodes in one pass, pass a set for the removal to stay linear in the number of children.
+     */
+    public boolean removeAll(Collection<? extends Node> nodes) {
+        return this.world.getChildren().removeAll(nodes);
+    }
+
     @Override
     public void setSelected(boolean selected) {
         this.selected = selected;
@@ -0,0 +1,122 @@
+package ch.hsr.ogv.agent;
+
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GraphDeltaTest {
+
+    static class Node {
+        String name;
+        int count;
+        Node next;
+        List<Node> children = new ArrayList<Node>();
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private static GraphSnapshot snapshot(String... objects) {
+        GraphSnapshot snapshot = new GraphSnapshot();
+        for (int i = 0; i < objects.length; i++) {
+            snapshot.addObject(i, objects[i]);
+            snapshot.setValue(i, "name", objects[i].toLowerCase());
+        }
+        return snapshot;
+    }
+
+    private static void assertSame(GraphSnapshot expected, GraphSnapshot actual) {
+        assertEquals(expected.getObjectIds(), actual.getObjectIds());
+        for (long id : expected.getObjectIds()) {
+            assertEquals(expected.getClassName(id), actual.getClassName(id));
+            assertEquals(expected.getValues(id), actual.getValues(id));
+        }
+        assertEquals(expected.getReferences(), actual.getReferences());
+    }
+
+    @Test
+    public void testDiffApply() {
+        GraphSnapshot before = snapshot("A", "B", "C");
+        before.addReference(0, "next", 1);
+        before.addReference(1, "next", 2);
+        GraphSnapshot after = snapshot("A", "B");
+        after.setValue(1, "name", "changed");
+        after.addObject(3, "D");
+        after.addReference(0, "next", 1);
+        after.addReference(1, "next", 3);
+
+        GraphDelta delta = before.diff(after);
+        assertEquals(Collections.singletonList(new Reference(1, "next", 2)), delta.getRemovedReferences());
+        assertEquals(Collections.singleton(2L), delta.getRemovedObjects());
+        assertEquals(Collections.singleton(3L), delta.getAddedObjects().keySet());
+        assertEquals(1, delta.getValues().size());
+        assertEquals(Collections.singletonList(new Reference(1, "next", 3)), delta.getAddedReferences());
+
+        delta.applyTo(before);
+        assertSame(after, before);
+        assertTrue(before.diff(after).isEmpty());
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        GraphSnapshot first = snapshot("com.example.A", "com.example.B");
+        first.addReference(0, "next", 1);
+        GraphSnapshot second = snapshot("com.example.A");
+        second.addObject(300, "com.example.B");
+        second.setValue(300, "name", "äöü");
+        second.addReference(0, "next", 300);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaWriter writer = new DeltaWriter(bytes);
+        writer.write(new GraphSnapshot().diff(first));
+        writer.write(first.diff(second));
+
+        DeltaReader reader = new DeltaReader(new ByteArrayInputStream(bytes.toByteArray()));
+        GraphSnapshot received = new GraphSnapshot();
+        reader.read().applyTo(received);
+        assertSame(first, received);
+        reader.read().applyTo(received);
+        assertSame(second, received);
+        assertEquals(1, reader.getFrameNumber());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testWalkCyclesAndStableIds() {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        a.next = b;
+        b.next = a;
+        a.children.add(b);
+        HeapWalker walker = new HeapWalker();
+
+        GraphSnapshot first = walker.walk(Collections.singletonList(a));
+        assertEquals(4, first.getObjectCount()); // a, b and their lists, b once although referenced twice
+        a.count = 7;
+        Node c = new Node("c");
+        b.children.add(c);
+        GraphSnapshot second = walker.walk(Collections.singletonList(a));
+        assertEquals(6, second.getObjectCount());
+
+        GraphDelta delta = first.diff(second);
+        assertTrue(delta.getRemovedObjects().isEmpty()); // a, b and their lists kept their ids
+        assertEquals(2, delta.getAddedObjects().size());
+        long aId = second.getObjectIds().iterator().next();
+        assertEquals("7", second.getValues(aId).get("count"));
+        assertEquals("\"a\"", second.getValues(aId).get("name"));
+        assertTrue(second.getReferences().containsAll(first.getReferences()));
+        assertEquals("ch.hsr.ogv.agent.GraphDeltaTest$Node", second.getClassName(aId));
+    }
+
+}
@@ -0,0 +1,75 @@
+package ch.hsr.ogv.agent;
+
+import ch.hsr.ogv.agent.GraphSnapshot.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeapWalkerTest {
+
+    static class Node {
+        int index;
+        String label;
+        Node next;
+        Node[] pair = new Node[2];
+        Map<String, Node> byName = new HashMap<String, Node>();
+
+        Node(int index) {
+            this.index = index;
+            this.label = "node " + index;
+        }
+    }
+
+    private static List<Node> ring(int size) {
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 0; i < size; i++) {
+            nodes.add(new Node(i));
+        }
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            node.next = nodes.get((i + 1) % size);
+            node.pair[0] = nodes.get((i * 7) % size);
+            node.byName.put("half", nodes.get(i / 2));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testParallelWalkEqualsSequentialWalk() {
+        List<Node> nodes = ring(3000);
+        GraphSnapshot sequential = new HeapWalker(100000, 100000).walk(Collections.singletonList(nodes.get(0)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        GraphSnapshot parallel = new HeapWalker(100000, 100000).walk(Collections.singletonList(nodes.get(0)), pool);
+        pool.shutdown();
+        assertEquals(3 * 3000, sequential.getObjectCount()); // nodes, their arrays and maps
+        assertEquals(new ArrayList<Long>(sequential.getObjectIds()), new ArrayList<Long>(parallel.getObjectIds()));
+        for (long id : sequential.getObjectIds()) {
+            assertEquals(sequential.getClassName(id), parallel.getClassName(id));
+            assertEquals(new ArrayList<Map.Entry<String, String>>(sequential.getValues(id).entrySet()), new ArrayList<Map.Entry<String, String>>(parallel.getValues(id).entrySet()));
+        }
+        assertEquals(new ArrayList<Reference>(sequential.getReferences()), new ArrayList<Reference>(parallel.getReferences()));
+    }
+
+    @Test
+    public void testExcludedClassesAreValues() {
+        List<Node> nodes = ring(3);
+        HeapWalker walker = new HeapWalker(100, 100, type -> type == Node[].class || Map.class.isAssignableFrom(type));
+        GraphSnapshot snapshot = walker.walk(Collections.singletonList(nodes.get(0)));
+        assertEquals(3, snapshot.getObjectCount());
+        for (long id : snapshot.getObjectIds()) {
+            assertEquals(Node.class.getTypeName(), snapshot.getClassName(id));
+            assertTrue(snapshot.getValues(id).get("pair").startsWith("Node[]@"));
+            assertFalse(snapshot.getValues(id).containsKey("next"));
+        }
+    }
+
+}
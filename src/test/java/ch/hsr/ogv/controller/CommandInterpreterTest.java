@@ -0,0 +1,96 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandInterpreterTest {
+
+    private ModelManager mm;
+    private CommandInterpreter interpreter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        mm = new ModelManager();
+        interpreter = new CommandInterpreter(mm);
+    }
+
+    @Test
+    public void testCreateAndSet() {
+        assertEquals("ok", interpreter.execute("create class Person"));
+        assertEquals("ok", interpreter.execute("create object Person anna"));
+        assertEquals("ok", interpreter.execute("set Person anna name Anna Muster"));
+        ModelClass person = mm.getModelClass("Person");
+        assertNotNull(person);
+        ModelObject anna = person.getModelObjects().get(0);
+        assertEquals("anna", anna.getName());
+        assertEquals("Anna Muster", anna.getAttributeValue("name"));
+        assertTrue(interpreter.execute("create class Person").startsWith("error"));
+        assertTrue(interpreter.execute("set Person bob name Bob").startsWith("error"));
+        assertTrue(interpreter.execute("fly Person").startsWith("error"));
+    }
+
+    @Test
+    public void testConnectAndDelete() {
+        interpreter.execute("create class Person");
+        interpreter.execute("create class Address");
+        interpreter.execute("create object Person anna");
+        interpreter.execute("create object Address home");
+        assertEquals("ok", interpreter.execute("connect directed_association Person Address address"));
+        assertEquals("ok", interpreter.execute("connect objdiagram Person:anna Address:home"));
+        assertTrue(interpreter.execute("connect objdiagram Person Address:home").startsWith("error"));
+        assertEquals(2, mm.getRelations().size());
+        Relation association = mm.getRelations().iterator().next();
+        assertEquals(RelationType.DIRECTED_ASSOCIATION, association.getRelationType());
+        assertEquals("address", association.getEnd().getRoleName());
+        assertEquals("ok", interpreter.execute("delete object Address home"));
+        assertEquals(1, mm.getRelations().size());
+        assertEquals("ok", interpreter.execute("delete class Address"));
+        assertTrue(mm.getRelations().isEmpty());
+        assertTrue(interpreter.execute("create object Address work").startsWith("error"));
+    }
+
+    @Test
+    public void testConnectChecksRelation() {
+        interpreter.execute("create class A");
+        interpreter.execute("create class B");
+        assertTrue(interpreter.execute("connect objdiagram A B").startsWith("error"));
+        assertTrue(interpreter.execute("connect generalization A A").startsWith("error"));
+        assertEquals("ok", interpreter.execute("connect generalization A B"));
+        assertTrue(interpreter.execute("connect generalization B A").startsWith("error"), "cycle");
+        assertEquals(1, mm.getRelations().size());
+    }
+
+    @Test
+    public void testBatchStopsAtFirstError() {
+        assertEquals("ok 2", interpreter.executeBatch(Arrays.asList("create class A", "create object A a1")));
+        assertEquals("error 2: no class B", interpreter.executeBatch(Arrays.asList("create object A a2", "create object B b1", "create object A a3")));
+        assertEquals(2, mm.getModelClass("A").getModelObjects().size());
+    }
+
+    @Test
+    public void testFindsRenamedBoxes() {
+        interpreter.execute("create class A");
+        interpreter.execute("create object A a1");
+        mm.getModelClass("A").setName("B");
+        assertTrue(interpreter.execute("create object A a2").startsWith("error"));
+        assertEquals("ok", interpreter.execute("create object B a2"));
+        ModelClass created = mm.createClass(new Point3D(0, 0, 0), 100, 100, Color.BEIGE);
+        created.setName("C");
+        assertEquals("ok", interpreter.execute("create object C c1"));
+        mm.getModelClass("C").setName("D");
+        assertTrue(interpreter.execute("create class D").startsWith("error"), "renamed class found by its new name");
+        assertEquals(2, mm.getClasses().size());
+    }
+
+}
@@ -0,0 +1,109 @@
+package ch.hsr.ogv.controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends commands to a running {@link CommandServer} as fast as it accepts them and reports the throughput. Not a unit
+ * test, start OGV, enable File > Command Server and run it with
+ * {@code java -cp target/classes:target/test-classes ch.hsr.ogv.controller.CommandLoadGenerator [classes] [objects per class] [batch size] [port]}.
+ * <p>
+ * Every object gets two attribute values and a relation to the previous object of its class. A batch size of 1 sends
+ * single commands, each answered on its own. Commands are pipelined, the responses are counted on a second thread.
+ */
+public class CommandLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int classCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int objectsPerClass = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : CommandServer.DEFAULT_PORT;
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            long[] counts = new long[2]; // responses, errors
+            Thread reader = new Thread(() -> countResponses(socket, counts));
+            reader.start();
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+            Batcher batcher = new Batcher(out, batchSize);
+            long start = System.nanoTime();
+            batcher.send("clear");
+            for (int c = 0; c < classCount; c++) {
+                batcher.send("create class C" + c);
+                batcher.send("create attribute C" + c + " id");
+            }
+            for (int c = 0; c < classCount; c++) {
+                for (int o = 0; o < objectsPerClass; o++) {
+                    batcher.send("create object C" + c + " o" + o);
+                    batcher.send("set C" + c + " o" + o + " id " + o);
+                    batcher.send("set C" + c + " o" + o + " label object " + o + " of class " + c);
+                    if (o > 0) {
+                        batcher.send("connect objdiagram C" + c + ":o" + (o - 1) + " C" + c + ":o" + o);
+                    }
+                }
+            }
+            batcher.flush();
+            socket.shutdownOutput(); // the server answers the remaining commands and closes
+            reader.join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d commands in %d responses (%d errors) in %.2f s: %.0f commands/s%n", batcher.commands, counts[0], counts[1], seconds, batcher.commands / seconds);
+        }
+    }
+
+    private static void countResponses(Socket socket, long[] counts) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                counts[0]++;
+                if (line.startsWith("error")) {
+                    if (counts[1]++ == 0) {
+                        System.out.println("first error: " + line);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            System.out.println("reading responses failed: " + e.getMessage());
+        }
+    }
+
+    private static class Batcher {
+
+        private final Writer out;
+        private final int batchSize;
+        private int batched = 0;
+        private long commands = 0;
+
+        Batcher(Writer out, int batchSize) {
+            this.out = out;
+            this.batchSize = batchSize;
+        }
+
+        void send(String command) throws IOException {
+            if (this.batchSize > 1 && this.batched == 0) {
+                this.out.write(CommandServer.BATCH_START + "\n");
+            }
+            this.out.write(command);
+            this.out.write('\n');
+            this.commands++;
+            if (++this.batched >= this.batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (this.batchSize > 1 && this.batched > 0) {
+                this.out.write(CommandServer.BATCH_END + "\n");
+            }
+            this.batched = 0;
+            this.out.flush();
+        }
+    }
+
+}
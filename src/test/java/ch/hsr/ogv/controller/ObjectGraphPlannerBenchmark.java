@@ -0,0 +1,95 @@
+package ch.hsr.ogv.controller;
+
+import ch.hsr.ogv.controller.ObjectGraphPlanner.BoxPlan;
+import ch.hsr.ogv.controller.ObjectGraphPlanner.ReferencePlan;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the planning stage of the object graph with 1, 2, 4 and 8 worker threads. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> ch.hsr.ogv.controller.ObjectGraphPlannerBenchmark [objects]}.
+ */
+public class ObjectGraphPlannerBenchmark {
+
+    private final static int[] PARALLELISMS = { 1, 2, 4, 8 };
+    private final static int WARMUP_ROUNDS = 30;
+    private final static int ROUNDS = 15;
+
+    public static void main(String[] args) {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        List<ModelObject> modelObjects = createModel(objectCount, new Random(42));
+        System.out.println(objectCount + " objects, " + Runtime.getRuntime().availableProcessors() + " available processors");
+        ForkJoinPool warmupPool = new ForkJoinPool(1);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            new ObjectGraphPlanner(warmupPool).plan(modelObjects);
+        }
+        warmupPool.shutdown();
+        String reference = null;
+        for (int parallelism : PARALLELISMS) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            ObjectGraphPlanner planner = new ObjectGraphPlanner(pool);
+            long[] times = new long[ROUNDS];
+            List<BoxPlan> plans = null;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                plans = planner.plan(modelObjects);
+                times[i] = System.nanoTime() - start;
+            }
+            pool.shutdown();
+            Arrays.sort(times);
+            String digest = digest(plans);
+            if (reference == null) {
+                reference = digest;
+            }
+            System.out.printf("parallelism %d: median %.2f ms, min %.2f ms, same output: %b%n", parallelism, times[ROUNDS / 2] / 1e6, times[0] / 1e6, reference.equals(digest));
+        }
+    }
+
+    private static List<ModelObject> createModel(int objectCount, Random random) {
+        ModelManager modelManager = new ModelManager();
+        Color[] colors = { Color.BLACK, Color.RED, Color.BLUE };
+        List<ModelClass> classes = new ArrayList<ModelClass>();
+        for (int i = 0; i < 20; i++) {
+            ModelClass modelClass = modelManager.createClass(new Point3D(i * 300, 0, 0), 100, 100, Color.BEIGE);
+            modelClass.createAttribute("a" + i);
+            modelClass.createAttribute("b" + i);
+            classes.add(modelClass);
+        }
+        for (int i = 0; i < 40; i++) {
+            Relation relation = modelManager.createRelation(classes.get(random.nextInt(classes.size())), classes.get(random.nextInt(classes.size())), RelationType.DIRECTED_ASSOCIATION,
+                    colors[random.nextInt(colors.length)]);
+            relation.setEndMultiplicity(random.nextBoolean() ? "1" : "0..*");
+        }
+        List<ModelObject> modelObjects = new ArrayList<ModelObject>();
+        for (int i = 0; i < objectCount; i++) {
+            modelObjects.add(modelManager.createObject(classes.get(random.nextInt(classes.size()))));
+        }
+        for (int i = 0; i < objectCount * 2; i++) {
+            modelManager.createRelation(modelObjects.get(random.nextInt(objectCount)), modelObjects.get(random.nextInt(objectCount)), RelationType.OBJDIAGRAM, colors[random.nextInt(colors.length)]);
+        }
+        return modelObjects;
+    }
+
+    private static String digest(List<BoxPlan> plans) {
+        StringBuilder digest = new StringBuilder();
+        for (BoxPlan plan : plans) {
+            digest.append(plan.topText).append(plan.centerLabelTexts).append(plan.referenceNames);
+            for (ReferencePlan reference : plan.references) {
+                digest.append(reference.target != null ? reference.target.getName() : reference.arrayPlan.targets.size());
+            }
+        }
+        return digest.toString();
+    }
+
+}
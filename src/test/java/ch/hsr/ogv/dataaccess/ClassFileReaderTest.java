@@ -0,0 +1,96 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.ClassFileReader.ClassFile;
+import ch.hsr.ogv.dataaccess.ClassFileReader.FieldInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassFileReaderTest {
+
+    static class Base {
+    }
+
+    static class Sample<T> extends Base implements Serializable, Comparable<Sample<T>> {
+        static final long CONSTANT = 42L;
+        int count;
+        double ratio = 0.5;
+        String name = "sämple";
+        Base[][] grid;
+        List<? extends Base> bases;
+        Map<String, List<Base>> index = new HashMap<String, List<Base>>();
+        T value;
+
+        @Override
+        public int compareTo(Sample<T> other) {
+            return 0;
+        }
+    }
+
+    static ClassFile read(Class<?> type) throws IOException {
+        String resource = "/" + type.getName().replace('.', '/') + ".class";
+        try (InputStream in = ClassFileReaderTest.class.getResourceAsStream(resource)) {
+            return new ClassFileReader().read(in.readAllBytes());
+        }
+    }
+
+    private static FieldInfo field(ClassFile classFile, String name) {
+        for (FieldInfo field : classFile.getFields()) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testDeclaration() throws IOException {
+        ClassFile sample = read(Sample.class);
+        assertEquals(Sample.class.getName(), sample.getName());
+        assertEquals(Base.class.getName(), sample.getSuperName());
+        assertEquals(Arrays.asList("java.io.Serializable", "java.lang.Comparable"), sample.getInterfaces());
+        assertFalse(sample.isInterface());
+        assertFalse(sample.isGenerated());
+        assertNull(read(Object.class).getSuperName());
+        assertTrue(read(Serializable.class).isInterface());
+        assertTrue(read(new Object() {
+        }.getClass()).isGenerated());
+    }
+
+    @Test
+    public void testFields() throws IOException {
+        ClassFile sample = read(Sample.class);
+        assertTrue(field(sample, "CONSTANT").isStatic());
+        assertEquals("int", field(sample, "count").getTypeName());
+        assertNull(field(sample, "count").getElementClassName());
+        assertEquals("java.lang.String", field(sample, "name").getElementClassName());
+        assertEquals("Base[][]", field(sample, "grid").getTypeName());
+        assertEquals(2, field(sample, "grid").getDimensions());
+        assertEquals(Base.class.getName(), field(sample, "grid").getElementClassName());
+        assertEquals("List<? extends Base>", field(sample, "bases").getTypeName());
+        assertEquals(Arrays.asList(Base.class.getName()), field(sample, "bases").getTypeArgumentClassNames());
+        assertEquals("Map<String, List<Base>>", field(sample, "index").getTypeName());
+        assertEquals(Arrays.asList("java.lang.String", Base.class.getName(), "java.util.List"), field(sample, "index").getTypeArgumentClassNames());
+        assertEquals("T", field(sample, "value").getTypeName());
+        assertEquals("java.lang.Object", field(sample, "value").getElementClassName());
+    }
+
+    @Test
+    public void testNoClassFile() {
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader().read(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader().read(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0}));
+    }
+
+}
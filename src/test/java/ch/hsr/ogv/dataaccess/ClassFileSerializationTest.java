@@ -0,0 +1,121 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.model.Attribute;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class ClassFileSerializationTest {
+
+    interface Shape {
+    }
+
+    static class Point {
+        double x;
+        double y;
+    }
+
+    static class Polygon implements Shape {
+        static int instances;
+        String label;
+        Point[] points;
+        List<Shape> children = new ArrayList<Shape>();
+    }
+
+    private static File jar(Class<?>... types) throws IOException {
+        File file = Files.createTempFile("shapes", ".jar").toFile();
+        file.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (Class<?> type : types) {
+                String name = type.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new ZipEntry(name));
+                try (InputStream in = ClassFileSerializationTest.class.getResourceAsStream("/" + name)) {
+                    in.transferTo(out);
+                }
+                // a copy for a newer Java version, imported once
+                out.putNextEntry(new ZipEntry("META-INF/versions/11/" + name));
+                try (InputStream in = ClassFileSerializationTest.class.getResourceAsStream("/" + name)) {
+                    in.transferTo(out);
+                }
+            }
+        }
+        return file;
+    }
+
+    private static Relation relation(ClassFileSerialization serialization, RelationType type, String start, String end) {
+        for (Relation relation : serialization.getRelations()) {
+            if (relation.getRelationType() == type && relation.getStart().getAppendant().getName().equals(start) && relation.getEnd().getAppendant().getName().equals(end)) {
+                return relation;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testParseJar() throws IOException {
+        ClassFileSerialization serialization = new ClassFileSerialization();
+        assertEquals(true, serialization.parse(jar(Shape.class, Point.class, Polygon.class)));
+
+        Map<String, ModelClass> classes = new HashMap<String, ModelClass>();
+        for (ModelClass modelClass : serialization.getClasses()) {
+            classes.put(modelClass.getName(), modelClass);
+        }
+        assertEquals(3, classes.size());
+        List<String> pointAttributes = new ArrayList<String>();
+        for (Attribute attribute : classes.get("ClassFileSerializationTest$Point").getAttributes()) {
+            pointAttributes.add(attribute.getName());
+        }
+        assertEquals(List.of("x : double", "y : double"), pointAttributes);
+        assertEquals("label : String", classes.get("ClassFileSerializationTest$Polygon").getAttributes().get(0).getName());
+        assertEquals(1, classes.get("ClassFileSerializationTest$Polygon").getAttributes().size());
+
+        Relation points = relation(serialization, RelationType.DIRECTED_ASSOCIATION, "ClassFileSerializationTest$Polygon", "ClassFileSerializationTest$Point");
+        assertNotNull(points);
+        assertEquals("points", points.getEnd().getRoleName());
+        assertEquals("*", points.getEnd().getMultiplicity());
+        Relation children = relation(serialization, RelationType.DIRECTED_ASSOCIATION, "ClassFileSerializationTest$Polygon", "ClassFileSerializationTest$Shape");
+        assertNotNull(children);
+        assertEquals("children", children.getEnd().getRoleName());
+        assertNotNull(relation(serialization, RelationType.GENERALIZATION, "ClassFileSerializationTest$Polygon", "ClassFileSerializationTest$Shape"));
+        assertEquals(3, serialization.getRelations().size());
+    }
+
+    @Test
+    public void testSkipsMalformedClassFiles() throws IOException {
+        File file = Files.createTempFile("broken", ".jar").toFile();
+        file.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            String name = Point.class.getName().replace('.', '/') + ".class";
+            out.putNextEntry(new ZipEntry(name));
+            try (InputStream in = ClassFileSerializationTest.class.getResourceAsStream("/" + name)) {
+                in.transferTo(out);
+            }
+            out.putNextEntry(new ZipEntry("Truncated.class"));
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0});
+            out.putNextEntry(new ZipEntry("UnknownTag.class"));
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 55, 0, 2, 99, 0, 0, 0, 0});
+        }
+        ClassFileSerialization serialization = new ClassFileSerialization();
+        assertEquals(true, serialization.parse(file));
+        assertEquals(1, serialization.getClasses().size());
+        assertEquals("ClassFileSerializationTest$Point", serialization.getClasses().iterator().next().getName());
+        assertEquals(List.of("Truncated.class", "UnknownTag.class"), serialization.getSkipped());
+    }
+
+}
@@ -0,0 +1,70 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.model.ModelManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Measures importing the classes of a large JAR file with 1, 2, 4 and 8 worker threads. The JAR is built from the
+ * classes of the running JDK. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> ch.hsr.ogv.dataaccess.ClassImportBenchmark [classes]}.
+ */
+public class ClassImportBenchmark {
+
+    private final static int[] PARALLELISMS = { 1, 2, 4, 8 };
+    private final static int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int classCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        File jar = jdkJar(classCount);
+        System.out.printf("%s: %d bytes%n", jar, jar.length());
+        for (int parallelism : PARALLELISMS) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                ClassFileSerialization serialization = new ClassFileSerialization(pool);
+                if (!serialization.parse(jar)) {
+                    throw new IllegalStateException("import failed");
+                }
+                long parsed = System.nanoTime();
+                new ModelManager().addBatch(serialization.getClasses(), serialization.getRelations());
+                long added = System.nanoTime();
+                System.out.printf("%d threads: %d classes, %d relations, parse %.0f ms, add %.0f ms%n", parallelism, serialization.getClasses().size(), serialization.getRelations().size(),
+                                  (parsed - start) / 1e6, (added - parsed) / 1e6);
+            }
+            pool.shutdown();
+        }
+    }
+
+    private static File jdkJar(int classCount) throws IOException {
+        File file = Files.createTempFile("jdk", ".jar").toFile();
+        file.deleteOnExit();
+        FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        List<Path> classFiles;
+        try (Stream<Path> walk = Files.walk(jrt.getPath("/modules"))) {
+            classFiles = walk.filter(path -> path.toString().endsWith(".class") && !path.toString().endsWith("module-info.class")).limit(classCount).collect(Collectors.toList());
+        }
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (Path classFile : classFiles) {
+                // /modules/<module>/<package path>
+                out.putNextEntry(new ZipEntry(classFile.subpath(2, classFile.getNameCount()).toString()));
+                out.write(Files.readAllBytes(classFile));
+            }
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,222 @@
+package ch.hsr.ogv.dataaccess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes small HPROF heap dumps for tests, with the records {@link HprofReader} reads.
+ */
+class HprofBuilder {
+
+    private final int idSize;
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream classes = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+    private final Map<Long, int[]> fieldTypes = new HashMap<Long, int[]>(); // k: class id, with the super classes
+    private long nextId = 0x1000;
+    private int classSerial = 0;
+
+    HprofBuilder(int idSize) {
+        this.idSize = idSize;
+    }
+
+    private long nextId() {
+        this.nextId += 8;
+        return this.nextId;
+    }
+
+    long string(String text) throws IOException {
+        long id = nextId();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        DataOutputStream out = new DataOutputStream(this.strings);
+        out.writeByte(0x01);
+        out.writeInt(0);
+        out.writeInt(this.idSize + bytes.length);
+        writeId(out, id);
+        out.write(bytes);
+        return id;
+    }
+
+    /**
+     * Loads and dumps a class.
+     *
+     * @param internalName e.g. "java/lang/String" or "[Ljava/lang/Object;"
+     * @param superId      0 for none
+     * @return the class object id
+     */
+    long dumpClass(String internalName, long superId, String[] fieldNames, int[] types) throws IOException {
+        long id = nextId();
+        long nameId = string(internalName);
+        DataOutputStream load = new DataOutputStream(this.classes);
+        load.writeByte(0x02);
+        load.writeInt(0);
+        load.writeInt(4 + this.idSize + 4 + this.idSize);
+        load.writeInt(++this.classSerial);
+        writeId(load, id);
+        load.writeInt(0);
+        writeId(load, nameId);
+
+        DataOutputStream out = new DataOutputStream(this.heap);
+        out.writeByte(0x20);
+        writeId(out, id);
+        out.writeInt(0);
+        writeId(out, superId);
+        for (int i = 0; i < 5; i++) { // class loader, signers, protection domain, two reserved
+            writeId(out, 0);
+        }
+        out.writeInt(0); // instance size
+        out.writeShort(1); // one constant, skipped by the reader
+        out.writeShort(0);
+        out.writeByte(HprofReader.TYPE_INT);
+        out.writeInt(7);
+        out.writeShort(1); // one static, skipped by the reader
+        writeId(out, string("STATIC"));
+        out.writeByte(HprofReader.TYPE_LONG);
+        out.writeLong(-1);
+        out.writeShort(fieldNames.length);
+        for (int i = 0; i < fieldNames.length; i++) {
+            writeId(out, string(fieldNames[i]));
+            out.writeByte(types[i]);
+        }
+
+        int[] superTypes = superId != 0 ? this.fieldTypes.get(superId) : new int[0];
+        int[] allTypes = new int[types.length + superTypes.length];
+        System.arraycopy(types, 0, allTypes, 0, types.length);
+        System.arraycopy(superTypes, 0, allTypes, types.length, superTypes.length);
+        this.fieldTypes.put(id, allTypes);
+        return id;
+    }
+
+    /**
+     * @param values of the fields of the class and then of its super classes, references as object ids, floating point
+     *               values as raw bits
+     */
+    long instance(long classId, long... values) throws IOException {
+        long id = nextId();
+        int[] types = this.fieldTypes.get(classId);
+        ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        DataOutputStream fieldOut = new DataOutputStream(fields);
+        for (int i = 0; i < types.length; i++) {
+            writeValue(fieldOut, types[i], values[i]);
+        }
+        DataOutputStream out = new DataOutputStream(this.heap);
+        out.writeByte(0x21);
+        writeId(out, id);
+        out.writeInt(0);
+        writeId(out, classId);
+        out.writeInt(fields.size());
+        out.write(fields.toByteArray());
+        return id;
+    }
+
+    long objectArray(long arrayClassId, long... elements) throws IOException {
+        long id = nextId();
+        DataOutputStream out = new DataOutputStream(this.heap);
+        out.writeByte(0x22);
+        writeId(out, id);
+        out.writeInt(0);
+        out.writeInt(elements.length);
+        writeId(out, arrayClassId);
+        for (long element : elements) {
+            writeId(out, element);
+        }
+        return id;
+    }
+
+    long primitiveArray(int type, long... values) throws IOException {
+        long id = nextId();
+        DataOutputStream out = new DataOutputStream(this.heap);
+        out.writeByte(0x23);
+        writeId(out, id);
+        out.writeInt(0);
+        out.writeInt(values.length);
+        out.writeByte(type);
+        for (long value : values) {
+            writeValue(out, type, value);
+        }
+        return id;
+    }
+
+    /**
+     * A java.lang.String of the Java 9 layout, with Latin-1 bytes.
+     */
+    long javaString(long stringClassId, String text) throws IOException {
+        long[] bytes = new long[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = text.charAt(i);
+        }
+        return instance(stringClassId, primitiveArray(HprofReader.TYPE_BYTE, bytes), 0);
+    }
+
+    long stringClass() throws IOException {
+        return dumpClass("java/lang/String", 0, new String[]{"value", "coder"}, new int[]{HprofReader.TYPE_OBJECT, HprofReader.TYPE_BYTE});
+    }
+
+    void root(long objectId) throws IOException {
+        DataOutputStream out = new DataOutputStream(this.heap);
+        out.writeByte(0x01); // JNI global
+        writeId(out, objectId);
+        writeId(out, 0);
+    }
+
+    File write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write("JAVA PROFILE 1.0.2".getBytes(StandardCharsets.US_ASCII));
+        out.writeByte(0);
+        out.writeInt(this.idSize);
+        out.writeLong(System.currentTimeMillis());
+        out.write(this.strings.toByteArray());
+        out.write(this.classes.toByteArray());
+        out.writeByte(0x1C);
+        out.writeInt(0);
+        out.writeInt(this.heap.size());
+        out.write(this.heap.toByteArray());
+        out.writeByte(0x2C); // heap dump end
+        out.writeInt(0);
+        out.writeInt(0);
+        File file = Files.createTempFile("ogv", ".hprof").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes.toByteArray());
+        return file;
+    }
+
+    private void writeId(DataOutputStream out, long id) throws IOException {
+        if (this.idSize == 4) {
+            out.writeInt((int) id);
+        }
+        else {
+            out.writeLong(id);
+        }
+    }
+
+    private void writeValue(DataOutputStream out, int type, long value) throws IOException {
+        switch (type) {
+            case HprofReader.TYPE_OBJECT:
+                writeId(out, value);
+                break;
+            case HprofReader.TYPE_BOOLEAN:
+            case HprofReader.TYPE_BYTE:
+                out.writeByte((int) value);
+                break;
+            case HprofReader.TYPE_CHAR:
+            case HprofReader.TYPE_SHORT:
+                out.writeShort((int) value);
+                break;
+            case HprofReader.TYPE_FLOAT:
+            case HprofReader.TYPE_INT:
+                out.writeInt((int) value);
+                break;
+            default:
+                out.writeLong(value);
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.HprofFilter.Mode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HprofFilterTest {
+
+    private HprofReader reader;
+    private long[] chain = new long[4];
+    private long other;
+
+    /**
+     * A chain of four links, a rooted holder of the first link, and an unrelated object.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        HprofBuilder builder = new HprofBuilder(8);
+        long stringClass = builder.stringClass();
+        long linkClass = builder.dumpClass("com/example/Link", 0, new String[]{"name", "next"}, new int[]{HprofReader.TYPE_OBJECT, HprofReader.TYPE_OBJECT});
+        long holderClass = builder.dumpClass("org/other/Holder", 0, new String[]{"link"}, new int[]{HprofReader.TYPE_OBJECT});
+        long next = 0;
+        for (int i = this.chain.length - 1; i >= 0; i--) {
+            next = builder.instance(linkClass, builder.javaString(stringClass, "link" + i), next);
+            this.chain[i] = next;
+        }
+        long holder = builder.instance(holderClass, this.chain[0]);
+        this.other = builder.instance(holderClass, 0);
+        builder.root(holder);
+        this.reader = new HprofReader(builder.write());
+        this.reader.index();
+    }
+
+    private boolean selected(BitSet selection, long objectId) {
+        return selection.get(this.reader.getOrdinal(objectId));
+    }
+
+    @Test
+    public void testMatching() {
+        BitSet selection = new HprofFilter("com.example.*", Mode.MATCHING, 3, 1000).select(this.reader);
+        assertEquals(4, selection.cardinality(), "strings and their arrays are never selected");
+        for (long link : this.chain) {
+            assertTrue(selected(selection, link));
+        }
+        assertEquals(6, new HprofFilter("", Mode.MATCHING, 3, 1000).select(this.reader).cardinality(), "empty matches all classes");
+        assertEquals(2, new HprofFilter("com.example.Link", Mode.MATCHING, 3, 2).select(this.reader).cardinality(), "at most max objects");
+        assertTrue(new HprofFilter("com.?xample.L*", Mode.MATCHING, 3, 1000).matches("com.example.Link"));
+    }
+
+    @Test
+    public void testReachable() {
+        BitSet fromHolders = new HprofFilter("org.other.Holder", Mode.REACHABLE_FROM_MATCHING, 2, 1000).select(this.reader);
+        assertEquals(4, fromHolders.cardinality());
+        assertTrue(selected(fromHolders, this.chain[1]));
+        assertFalse(selected(fromHolders, this.chain[2]), "beyond the depth");
+
+        BitSet fromRoots = new HprofFilter("", Mode.REACHABLE_FROM_GC_ROOTS, 10, 1000).select(this.reader);
+        assertEquals(5, fromRoots.cardinality());
+        assertTrue(selected(fromRoots, this.chain[3]));
+        assertFalse(selected(fromRoots, this.other), "not reachable");
+    }
+
+}
@@ -0,0 +1,119 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.HprofReader.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HprofReaderTest {
+
+    private long node;
+    private long next;
+    private long array;
+    private long ints;
+    private long text;
+
+    /**
+     * Two nodes of a class with a super class, an object array, an int array and a string.
+     */
+    private File sample(int idSize) throws IOException {
+        HprofBuilder builder = new HprofBuilder(idSize);
+        long stringClass = builder.stringClass();
+        long base = builder.dumpClass("com/example/Base", 0, new String[]{"id"}, new int[]{HprofReader.TYPE_LONG});
+        long nodeClass = builder.dumpClass("com/example/Node$Inner", base, new String[]{"name", "next", "flag", "weight", "letter"},
+                new int[]{HprofReader.TYPE_OBJECT, HprofReader.TYPE_OBJECT, HprofReader.TYPE_BOOLEAN, HprofReader.TYPE_DOUBLE, HprofReader.TYPE_CHAR});
+        long arrayClass = builder.dumpClass("[Lcom/example/Node$Inner;", 0, new String[0], new int[0]);
+        this.text = builder.javaString(stringClass, "hello");
+        this.next = builder.instance(nodeClass, 0, 0, 0, Double.doubleToLongBits(-0.5), 'b', 2);
+        this.node = builder.instance(nodeClass, this.text, this.next, 1, Double.doubleToLongBits(1.5), 'a', 1);
+        this.array = builder.objectArray(arrayClass, this.node, 0, this.next);
+        this.ints = builder.primitiveArray(HprofReader.TYPE_INT, 1, -2, 3);
+        builder.root(this.array);
+        return builder.write();
+    }
+
+    @Test
+    public void testInstancesAndArrays() throws IOException {
+        try (HprofReader reader = new HprofReader(sample(8))) {
+            checkSample(reader);
+        }
+    }
+
+    @Test
+    public void testAcrossWindows() throws IOException {
+        // windows of 16 bytes, so most ids and values are read across a window border, as at the 1 GB borders of large dumps
+        for (int idSize : new int[]{4, 8}) {
+            try (HprofReader reader = new HprofReader(sample(idSize), 4)) {
+                assertEquals(idSize, reader.getIdSize());
+                checkSample(reader);
+            }
+        }
+    }
+
+    private void checkSample(HprofReader reader) throws IOException {
+        reader.index();
+        assertEquals(6, reader.getObjectCount()); // string, byte[], two nodes, Node[], int[]
+        int nodeOrdinal = reader.getOrdinal(this.node);
+        assertEquals(this.node, reader.getObjectId(nodeOrdinal));
+        assertEquals(-1, reader.getOrdinal(12345));
+        assertEquals("com.example.Node$Inner", reader.getClassName(nodeOrdinal));
+        assertEquals("com.example.Base", reader.getClassInfo(nodeOrdinal).getSuperClass().getName());
+
+        List<FieldValue> fields = reader.getFields(nodeOrdinal);
+        assertEquals(6, fields.size());
+        assertEquals("name", fields.get(0).name);
+        assertEquals(this.text, fields.get(0).value);
+        assertEquals(this.next, fields.get(1).value);
+        assertEquals("true", HprofReader.formatValue(fields.get(2).type, fields.get(2).value));
+        assertEquals("1.5", HprofReader.formatValue(fields.get(3).type, fields.get(3).value));
+        assertEquals("'a'", HprofReader.formatValue(fields.get(4).type, fields.get(4).value));
+        assertEquals("id", fields.get(5).name, "fields of the super class last");
+        assertEquals(1, fields.get(5).value);
+        assertArrayEquals(new long[]{this.text, this.next}, reader.getReferences(nodeOrdinal));
+
+        int arrayOrdinal = reader.getOrdinal(this.array);
+        assertTrue(reader.isObjectArray(arrayOrdinal));
+        assertEquals("com.example.Node$Inner[]", reader.getClassName(arrayOrdinal));
+        assertEquals(3, reader.getArrayLength(arrayOrdinal));
+        assertArrayEquals(new long[]{this.node, 0, this.next}, reader.getElements(arrayOrdinal));
+        assertArrayEquals(new long[]{this.node, this.next}, reader.getReferences(arrayOrdinal));
+        assertTrue(reader.getFields(arrayOrdinal).isEmpty());
+
+        int intsOrdinal = reader.getOrdinal(this.ints);
+        assertTrue(reader.isPrimitiveArray(intsOrdinal));
+        assertEquals("int[]", reader.getClassName(intsOrdinal));
+        assertEquals("[1, -2, ...]", reader.formatPrimitiveArray(intsOrdinal, 2));
+        assertNull(reader.getClassInfo(intsOrdinal));
+
+        assertEquals("hello", reader.readJavaString(reader.getOrdinal(this.text), 40));
+        assertEquals("he", reader.readJavaString(reader.getOrdinal(this.text), 2));
+        assertNull(reader.readJavaString(nodeOrdinal, 40));
+        assertArrayEquals(new long[]{this.array}, reader.getGcRoots());
+    }
+
+    @Test
+    public void testNotAHeapDump() throws IOException {
+        File file = Files.createTempFile("ogv", ".hprof").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), "JAVA PROFILX 1.0.2 and more bytes".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> new HprofReader(file));
+    }
+
+    @Test
+    public void testToSourceName() {
+        assertEquals("java.util.HashMap$Node", HprofReader.toSourceName("java/util/HashMap$Node"));
+        assertEquals("java.lang.String[][]", HprofReader.toSourceName("[[Ljava/lang/String;"));
+        assertEquals("int[]", HprofReader.toSourceName("[I"));
+    }
+
+}
@@ -0,0 +1,124 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.dataaccess.HprofFilter.Mode;
+import ch.hsr.ogv.model.Attribute;
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelObject;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HprofSerializationTest {
+
+    static class Probe {
+        int number;
+        String label;
+        Probe next;
+
+        Probe(int number, String label, Probe next) {
+            this.number = number;
+            this.label = label;
+            this.next = next;
+        }
+    }
+
+    private static Probe probes; // kept reachable for the heap dump
+
+    private static Map<String, ModelClass> byName(HprofSerialization serialization) {
+        Map<String, ModelClass> classes = new HashMap<String, ModelClass>();
+        for (ModelClass modelClass : serialization.getClasses()) {
+            classes.put(modelClass.getName(), modelClass);
+        }
+        return classes;
+    }
+
+    private static ModelObject object(ModelClass modelClass, long objectId) {
+        for (ModelObject modelObject : modelClass.getModelObjects()) {
+            if (modelObject.getName().equals("0x" + Long.toHexString(objectId))) {
+                return modelObject;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testToModel() throws IOException {
+        HprofBuilder builder = new HprofBuilder(8);
+        long stringClass = builder.stringClass();
+        long targetClass = builder.dumpClass("com/example/Target", 0, new String[]{"size"}, new int[]{HprofReader.TYPE_INT});
+        long otherClass = builder.dumpClass("org/other/Target", 0, new String[0], new int[0]);
+        long holderClass = builder.dumpClass("com/example/Holder", 0, new String[]{"target", "name"}, new int[]{HprofReader.TYPE_OBJECT, HprofReader.TYPE_OBJECT});
+        long arrayClass = builder.dumpClass("[Lcom/example/Target;", 0, new String[0], new int[0]);
+        long target = builder.instance(targetClass, 42);
+        long other = builder.instance(otherClass);
+        long toSelected = builder.instance(holderClass, target, builder.javaString(stringClass, "first"));
+        long toUnselected = builder.instance(holderClass, other, 0);
+        builder.objectArray(arrayClass, target, 0);
+        File file = builder.write();
+
+        HprofSerialization serialization = new HprofSerialization(new HprofFilter("com.example.*", Mode.MATCHING, 0, 1000));
+        assertTrue(serialization.parse(file));
+        Map<String, ModelClass> classes = byName(serialization);
+        assertEquals(3, classes.size());
+        ModelClass holder = classes.get("Holder");
+        assertEquals(2, holder.getAttributes().size());
+        Attribute targetAttribute = holder.getAttributes().get(0);
+        assertEquals("target", targetAttribute.getName());
+        // the reference is a relation for one holder and an attribute value for the other
+        assertEquals("", object(holder, toSelected).getAttributeValue(targetAttribute));
+        assertEquals("Target@" + Long.toHexString(other), object(holder, toUnselected).getAttributeValue(targetAttribute));
+        assertEquals("\"first\"", object(holder, toSelected).getAttributeValue("name"));
+        assertEquals("null", object(holder, toUnselected).getAttributeValue("name"));
+        assertEquals("42", object(classes.get("Target"), target).getAttributeValue("size"));
+        assertEquals("2", classes.get("Target[]").getModelObjects().get(0).getAttributeValue("length"));
+
+        int objectRelations = 0;
+        int classRelations = 0;
+        for (Relation relation : serialization.getRelations()) {
+            if (relation.getRelationType() == RelationType.OBJDIAGRAM) {
+                objectRelations++;
+                assertEquals(object(classes.get("Target"), target), relation.getEnd().getAppendant());
+            }
+            else {
+                classRelations++;
+            }
+        }
+        assertEquals(2, objectRelations); // from the holder and from the array
+        assertEquals(2, classRelations);
+    }
+
+    @Test
+    public void testHeapDumpOfThisVm() throws IOException {
+        probes = new Probe(1, "one", new Probe(2, "two", null));
+        File file = Files.createTempFile("ogv", ".hprof").toFile();
+        file.delete(); // the dump must not exist yet
+        file.deleteOnExit();
+        ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(file.getPath(), true);
+
+        HprofSerialization serialization = new HprofSerialization(new HprofFilter(Probe.class.getName(), Mode.MATCHING, 0, 1000));
+        assertTrue(serialization.parse(file));
+        ModelClass probeClass = byName(serialization).get("HprofSerializationTest$Probe");
+        assertNotNull(probeClass);
+        assertEquals(2, probeClass.getModelObjects().size());
+        Map<String, String> labels = new HashMap<String, String>();
+        for (ModelObject modelObject : probeClass.getModelObjects()) {
+            labels.put(modelObject.getAttributeValue("number"), modelObject.getAttributeValue("label"));
+        }
+        assertEquals("\"one\"", labels.get("1"));
+        assertEquals("\"two\"", labels.get("2"));
+        assertEquals(1, serialization.getRelations().stream().filter(relation -> relation.getRelationType() == RelationType.OBJDIAGRAM).count());
+    }
+
+}
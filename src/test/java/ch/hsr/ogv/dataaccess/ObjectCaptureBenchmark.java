@@ -0,0 +1,91 @@
+package ch.hsr.ogv.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures capturing an object graph with 1, 2, 4 and 8 worker threads. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> ch.hsr.ogv.dataaccess.ObjectCaptureBenchmark [objects]}.
+ */
+public class ObjectCaptureBenchmark {
+
+    private final static int[] PARALLELISMS = { 1, 2, 4, 8 };
+    private final static int WARMUP_ROUNDS = 5;
+    private final static int ROUNDS = 7;
+
+    static class Customer {
+        long id;
+        String name;
+        boolean active;
+        Address address;
+        Customer referrer;
+        List<Order> orders = new ArrayList<Order>();
+    }
+
+    static class Address {
+        String street;
+        int zip;
+    }
+
+    static class Order {
+        int number;
+        double total;
+        Customer customer;
+    }
+
+    public static void main(String[] args) {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Map<Long, Customer> customers = createGraph(objectCount);
+        System.out.println(objectCount + " objects, " + Runtime.getRuntime().availableProcessors() + " available processors");
+        for (int parallelism : PARALLELISMS) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long[] times = new long[ROUNDS];
+            int captured = 0;
+            for (int i = 0; i < WARMUP_ROUNDS + ROUNDS; i++) {
+                long start = System.nanoTime();
+                ObjectCapture capture = new ObjectCapture(Integer.MAX_VALUE, Integer.MAX_VALUE, "", pool).capture(Collections.singletonList(customers));
+                if (i >= WARMUP_ROUNDS) {
+                    times[i - WARMUP_ROUNDS] = System.nanoTime() - start;
+                }
+                captured = capture.getClasses().stream().mapToInt(modelClass -> modelClass.getModelObjects().size()).sum();
+            }
+            pool.shutdown();
+            Arrays.sort(times);
+            System.out.printf("parallelism %d: %d objects, median %.1f ms, min %.1f ms%n", parallelism, captured, times[ROUNDS / 2] / 1e6, times[0] / 1e6);
+        }
+    }
+
+    /**
+     * Customers with an address, an order list and two orders each, five objects per customer.
+     */
+    private static Map<Long, Customer> createGraph(int objectCount) {
+        Map<Long, Customer> customers = new HashMap<Long, Customer>();
+        Customer previous = null;
+        for (long id = 0; id < objectCount / 5; id++) {
+            Customer customer = new Customer();
+            customer.id = id;
+            customer.name = "Customer " + id;
+            customer.active = id % 3 != 0;
+            customer.address = new Address();
+            customer.address.street = "Street " + id;
+            customer.address.zip = 8640 + (int) (id % 100);
+            customer.referrer = id % 4 == 0 ? previous : null;
+            for (int i = 0; i < 2; i++) {
+                Order order = new Order();
+                order.number = (int) id * 2 + i;
+                order.total = id * 1.5;
+                order.customer = customer;
+                customer.orders.add(order);
+            }
+            customers.put(id, customer);
+            previous = customer;
+        }
+        return customers;
+    }
+
+}
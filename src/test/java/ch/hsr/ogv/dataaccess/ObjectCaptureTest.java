@@ -0,0 +1,116 @@
+package ch.hsr.ogv.dataaccess;
+
+import ch.hsr.ogv.model.ModelClass;
+import ch.hsr.ogv.model.ModelManager;
+import ch.hsr.ogv.model.Relation;
+import ch.hsr.ogv.model.RelationType;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ObjectCaptureTest {
+
+    static class Customer {
+        String name;
+        Address address;
+        Customer referrer;
+        List<Order> orders = new ArrayList<Order>();
+
+        Customer(String name, Address address) {
+            this.name = name;
+            this.address = address;
+        }
+    }
+
+    static class Address {
+        String city = "Rapperswil";
+    }
+
+    static class Order {
+        int number;
+
+        Order(int number) {
+            this.number = number;
+        }
+    }
+
+    private static Map<String, ModelClass> byName(ObjectCapture capture) {
+        Map<String, ModelClass> classes = new HashMap<String, ModelClass>();
+        for (ModelClass modelClass : capture.getClasses()) {
+            classes.put(modelClass.getName(), modelClass);
+        }
+        return classes;
+    }
+
+    private static Relation association(ObjectCapture capture, String start, String role) {
+        for (Relation relation : capture.getRelations()) {
+            if (relation.getRelationType() == RelationType.DIRECTED_ASSOCIATION && relation.getStart().getAppendant().getName().equals(start) && relation.getEnd().getRoleName().equals(role)) {
+                return relation;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testCapture() {
+        Customer anna = new Customer("Anna", new Address());
+        Customer bob = new Customer("Bob", new Address());
+        bob.referrer = anna;
+        bob.orders.addAll(Arrays.asList(new Order(1), new Order(2)));
+        ObjectCapture capture = new ObjectCapture().capture(Arrays.asList(anna, bob));
+
+        Map<String, ModelClass> classes = byName(capture);
+        assertEquals(2, classes.get("ObjectCaptureTest$Customer").getModelObjects().size());
+        assertEquals(2, classes.get("ObjectCaptureTest$Address").getModelObjects().size());
+        assertEquals(2, classes.get("ObjectCaptureTest$Order").getModelObjects().size());
+        assertEquals("\"Rapperswil\"", classes.get("ObjectCaptureTest$Address").getModelObjects().get(0).getAttributeValue("city"));
+        assertEquals("\"Anna\"", classes.get("ObjectCaptureTest$Customer").getModelObjects().get(0).getAttributeValue("name"));
+
+        assertEquals("1", association(capture, "ObjectCaptureTest$Customer", "address").getEnd().getMultiplicity());
+        assertEquals("0..1", association(capture, "ObjectCaptureTest$Customer", "referrer").getEnd().getMultiplicity());
+        assertEquals("*", association(capture, "ArrayList", "elements").getEnd().getMultiplicity());
+        int objectRelations = 0;
+        for (Relation relation : capture.getRelations()) {
+            objectRelations += relation.getRelationType() == RelationType.OBJDIAGRAM ? 1 : 0;
+        }
+        assertEquals(2 + 1 + 2 + 2, objectRelations); // addresses, referrer, order lists, orders
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Customer anna = new Customer("Anna", new Address());
+        Customer bob = new Customer("Bob", new Address());
+        bob.referrer = anna;
+        ObjectCapture capture = new ObjectCapture(10, 100, "java.*").capture(Arrays.asList(anna, bob));
+        File file = Files.createTempFile("capture", ".ogv").toFile();
+        file.deleteOnExit();
+        assertTrue(capture.serialize(file));
+        int classes = capture.getClasses().size();
+        int relations = capture.getRelations().size();
+
+        ModelManager modelManager = new ModelManager();
+        assertTrue(new Persistence(modelManager).loadOGVData(file));
+        assertEquals(classes, modelManager.getClasses().size());
+        assertEquals(relations, modelManager.getRelations().size());
+        assertEquals(2 + 2 + 1, relations); // address and referrer associations, their object relations
+    }
+
+    @Test
+    public void testExcludedClasses() {
+        Customer anna = new Customer("Anna", new Address());
+        ObjectCapture capture = new ObjectCapture(10, 100, "java.util.*, *$Address").capture(Arrays.asList(anna));
+        assertEquals(1, capture.getClasses().size());
+        assertEquals(0, capture.getRelations().size());
+    }
+
+}
@@ -0,0 +1,56 @@
+package ch.hsr.ogv.model;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+/**
+ * Measures the memory the attribute values of a large class take per object, and the time to add, move and delete an
+ * attribute of it. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes ch.hsr.ogv.model.AttributeValueBenchmark [objects] [attributes]}.
+ */
+public class AttributeValueBenchmark {
+
+    private final static int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int attributeCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        for (int round = 0; round < ROUNDS; round++) {
+            long objectsBefore = usedMemory();
+            ModelClass modelClass = new ModelClass("C", new Point3D(0, 0, 0), 100, 100, Color.BEIGE);
+            for (int i = 0; i < count; i++) {
+                modelClass.createModelObject("");
+            }
+            long valuesBefore = usedMemory();
+            for (int i = 0; i < attributeCount; i++) {
+                modelClass.createAttribute();
+            }
+            for (ModelObject modelObject : modelClass.getModelObjects()) {
+                for (Attribute attribute : modelClass.getAttributes()) {
+                    modelObject.changeAttributeValue(attribute, "v");
+                }
+            }
+            long after = usedMemory();
+            System.out.printf("%d objects, %d bytes retained per object of which %d for %d attribute values%n", count, (after - objectsBefore) / count,
+                    (after - valuesBefore) / count, attributeCount);
+
+            long start = System.nanoTime();
+            modelClass.createAttribute();
+            long added = System.nanoTime();
+            modelClass.moveAttributeUp(attributeCount);
+            long moved = System.nanoTime();
+            modelClass.deleteAttribute(0);
+            long deleted = System.nanoTime();
+            System.out.printf("add attribute %.2f ms, move %.2f ms, delete %.2f ms%n", (added - start) / 1e6, (moved - added) / 1e6, (deleted - moved) / 1e6);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
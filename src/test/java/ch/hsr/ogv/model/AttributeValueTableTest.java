@@ -0,0 +1,81 @@
+package ch.hsr.ogv.model;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class AttributeValueTableTest {
+
+    @Test
+    public void testSlotsAndColumns() {
+        AttributeValueTable table = new AttributeValueTable();
+        Attribute a = new Attribute("a");
+        Attribute b = new Attribute("b");
+        int count = 100; // more than the initial capacity
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, table.allocate());
+            table.put(i, a, "a" + i);
+        }
+        table.fillColumn(b, "");
+        assertEquals("a42", table.get(42, a));
+        assertEquals("", table.get(99, b));
+        assertEquals(a, table.find(7, "a"));
+        table.release(7);
+        assertNull(table.get(7, a));
+        assertNull(table.find(7, "a"));
+        assertEquals(count - 1, table.size());
+        assertEquals(7, table.allocate(), "slot reused");
+        table.removeColumn(a);
+        assertNull(table.get(42, a));
+        assertEquals("", table.get(42, b));
+    }
+
+    @Test
+    public void testOrderColumns() {
+        AttributeValueTable table = new AttributeValueTable();
+        Attribute a = new Attribute("a");
+        Attribute b = new Attribute("b");
+        int slot = table.allocate();
+        table.put(slot, a, "1");
+        table.put(slot, b, "2");
+        table.orderColumns(Arrays.asList(b, a));
+        assertEquals(Arrays.asList(b, a), new ArrayList<Attribute>(table.toMap(slot).keySet()));
+        assertEquals("1", table.get(slot, a));
+        assertEquals(b, table.find(slot, "b"));
+        b.setName("c");
+        table.renameColumn(b);
+        assertNull(table.find(slot, "b"));
+        assertEquals(b, table.find(slot, "c"));
+        table.removeColumn(b);
+        assertNull(table.find(slot, "c"));
+        assertEquals(a, table.find(slot, "a"));
+    }
+
+    @Test
+    public void testObjectsOfClass() {
+        ModelClass modelClass = new ModelClass("C", new Point3D(0, 0, 0), 100, 100, Color.BEIGE);
+        Attribute first = modelClass.createAttribute("first");
+        ModelObject kept = modelClass.createModelObject("kept");
+        ModelObject deleted = modelClass.createModelObject("deleted");
+        deleted.changeAttributeValue(first, "value");
+        modelClass.deleteModelObject(deleted);
+        Attribute second = modelClass.createAttribute("second");
+        assertEquals("", kept.getAttributeValue(second));
+        assertEquals("value", deleted.getAttributeValue(first), "values stay with a deleted object");
+        assertNull(deleted.getAttributeValue(second));
+        modelClass.moveAttributeUp(1);
+        Map<Attribute, String> values = kept.getAttributeValues();
+        assertEquals(Arrays.asList(second, first), new ArrayList<Attribute>(values.keySet()));
+        modelClass.deleteAttribute(0);
+        assertNull(kept.getAttributeValue(second));
+        assertEquals("", kept.getAttributeValue("first"));
+    }
+
+}
@@ -0,0 +1,124 @@
+package ch.hsr.ogv.model;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BoxGeometryTest {
+
+    @Test
+    public void testAllocateAcrossPages() {
+        BoxGeometry geometry = new BoxGeometry();
+        int count = 10000; // more than two pages
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, geometry.allocate(i, -i, 2 * i, 100 + i, 50 + i));
+        }
+        assertEquals(count, geometry.size());
+        for (int i = 0; i < count; i += 997) {
+            assertEquals(i, geometry.getX(i));
+            assertEquals(-i, geometry.getY(i));
+            assertEquals(2 * i, geometry.getZ(i));
+            assertEquals(100 + i, geometry.getWidth(i));
+            assertEquals(50 + i, geometry.getHeight(i));
+        }
+        geometry.setXYZ(count - 1, 1, 2, 3);
+        assertEquals(1, geometry.getX(count - 1));
+        assertEquals(2, geometry.getY(count - 1));
+        assertEquals(3, geometry.getZ(count - 1));
+    }
+
+    @Test
+    public void testBulk() {
+        BoxGeometry geometry = new BoxGeometry();
+        int[] ids = { geometry.allocate(0, 0, 0, 10, 20), geometry.allocate(1, 1, 1, 30, 40), geometry.allocate(2, 2, 2, 50, 60) };
+        geometry.setXZ(ids, 1, 3, new double[]{-1, 5, 6}, new double[]{-1, 7, 8});
+        double[] x = new double[3];
+        double[] z = new double[3];
+        double[] height = new double[3];
+        geometry.getBounds(ids, x, z, null, height);
+        assertArrayEquals(new double[]{0, 5, 6}, x);
+        assertArrayEquals(new double[]{0, 7, 8}, z);
+        assertArrayEquals(new double[]{20, 40, 60}, height);
+        assertEquals(1, geometry.getY(ids[1]), "y stays");
+    }
+
+    @Test
+    public void testModelBoxes() {
+        ModelManager mm = new ModelManager();
+        List<ModelClass> classes = new ArrayList<ModelClass>();
+        for (int i = 0; i < 3; i++) {
+            classes.add(mm.createClass(new Point3D(i, 10, i), 100, 100, Color.BEIGE));
+        }
+        int[] notifications = new int[1];
+        for (ModelClass modelClass : classes) {
+            modelClass.addObserver((o, arg) -> {
+                assertEquals(ModelBox.ModelBoxChange.COORDINATES, arg);
+                notifications[0]++;
+            });
+        }
+        ModelBox.setXZ(classes, 0, 2, new double[]{100, 200, 300}, new double[]{-100, -200, -300});
+        assertEquals(2, notifications[0]);
+        assertEquals(new Point3D(100, 10, -100), classes.get(0).getCoordinates());
+        assertEquals(new Point3D(200, 10, -200), classes.get(1).getCoordinates());
+        assertEquals(new Point3D(2, 10, 2), classes.get(2).getCoordinates());
+        int[] ids = ModelBox.getGeometryIds(classes);
+        assertEquals(2, ModelBox.getGeometry().getZ(ids[2]));
+    }
+
+    @Test
+    public void testReleaseReusesIds() {
+        BoxGeometry geometry = new BoxGeometry();
+        int first = geometry.allocate(1, 1, 1, 1, 1);
+        int second = geometry.allocate(2, 2, 2, 2, 2);
+        geometry.release(first);
+        assertEquals(1, geometry.size());
+        assertEquals(first, geometry.allocate(3, 3, 3, 3, 3));
+        assertEquals(3, geometry.getX(first));
+        assertEquals(2, geometry.getX(second));
+        assertEquals(2, geometry.allocate(4, 4, 4, 4, 4));
+    }
+
+    @Test
+    public void testBoxesTakeAnIdOnlyInTheModel() {
+        int size = ModelBox.getGeometry().size();
+        ModelClass loaded = new ModelClass("Loaded", new Point3D(1, 2, 3), 40, 50, Color.BEIGE);
+        ModelObject object = loaded.createModelObject("object");
+        object.setCoordinates(new Point3D(4, 5, 6));
+        assertEquals(size, ModelBox.getGeometry().size(), "loaded or captured boxes take no id");
+        assertEquals(-1, loaded.getGeometryId());
+        assertEquals(new Point3D(1, 2, 3), loaded.getCoordinates());
+        ModelManager mm = new ModelManager();
+        mm.addBatch(List.of(loaded), List.of());
+        assertEquals(size + 2, ModelBox.getGeometry().size());
+        assertEquals(new Point3D(1, 2, 3), loaded.getCoordinates());
+        assertEquals(new Point3D(4, 5, 6), object.getCoordinates());
+        assertEquals(40, object.getWidth(), "objects are as wide as their class");
+    }
+
+    @Test
+    public void testDeletedBoxesReleaseTheirGeometry() {
+        ModelManager mm = new ModelManager();
+        ModelClass modelClass = mm.createClass(new Point3D(10, 20, 30), 100, 100, Color.BEIGE);
+        ModelObject modelObject = mm.createObject(modelClass);
+        int size = ModelBox.getGeometry().size();
+        List<Boolean> released = new ArrayList<Boolean>();
+        mm.addObserver((o, arg) -> released.add(!((ModelBox) arg).hasGeometryId()));
+        mm.deleteClass(modelClass);
+        assertEquals(List.of(true, true), released, "observers can tell a deletion from an addition");
+        assertEquals(size - 2, ModelBox.getGeometry().size());
+        assertEquals(-1, modelClass.getGeometryId());
+        assertEquals(new Point3D(10, 20, 30), modelClass.getCoordinates(), "the last geometry stays readable");
+        modelObject.setX(5);
+        assertEquals(5, modelObject.getX());
+        ModelClass reusing = mm.createClass(new Point3D(0, 0, 0), 50, 50, Color.BEIGE);
+        assertEquals(50, reusing.getWidth());
+        assertEquals(size - 1, ModelBox.getGeometry().size());
+    }
+
+}
@@ -5,6 +5,8 @@ import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class EndpointTest {
@@ -53,6 +55,17 @@ public class EndpointTest {
         Endpoint endpointA = relationAB.getStart();
         Endpoint endpointB = relationAB.getEnd();
         assertNotEquals(endpointB.getUniqueID(), endpointA.getUniqueID());
+        assertTrue(endpointA.getId() < endpointB.getId());
+        assertEquals(endpointA.getUniqueID(), UUID.fromString(endpointA.getUniqueID()).toString());
+        assertSame(endpointA.getUniqueID(), endpointA.getUniqueID());
+    }
+
+    @Test
+    public void testLoadedUniqueID() {
+        Endpoint endpointA = relationAB.getStart();
+        String loaded = UUID.randomUUID().toString();
+        endpointA.setUniqueID(loaded);
+        assertEquals(loaded, endpointA.getUniqueID());
     }
 
 }
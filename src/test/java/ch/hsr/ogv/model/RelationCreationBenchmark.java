@@ -0,0 +1,59 @@
+package ch.hsr.ogv.model;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures creating relations and objects, as an import does: throughput, bytes allocated and bytes retained per
+ * relation and per object. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes ch.hsr.ogv.model.RelationCreationBenchmark [count]}.
+ */
+public class RelationCreationBenchmark {
+
+    private final static int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        ModelClass start = new ModelClass("Start", new Point3D(0, 0, 0), 100, 100, Color.BEIGE);
+        ModelClass end = new ModelClass("End", new Point3D(200, 0, 0), 100, 100, Color.BEIGE);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int round = 0; round < ROUNDS; round++) {
+            long retainedBefore = usedMemory();
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long startTime = System.nanoTime();
+            List<Relation> relations = new ArrayList<Relation>(count);
+            for (int i = 0; i < count; i++) {
+                relations.add(new Relation(start, end, RelationType.UNDIRECTED_ASSOCIATION));
+            }
+            long relationTime = System.nanoTime() - startTime;
+            long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            long retained = usedMemory() - retainedBefore;
+            System.out.printf("%d relations in %.0f ms, %.1f M/s, %d bytes allocated and %d retained per relation%n", count, relationTime / 1e6,
+                    count / (relationTime / 1e3), allocated / count, retained / count);
+
+            List<ModelObject> objects = new ArrayList<ModelObject>(count);
+            startTime = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                objects.add(new ModelObject("", start, Point3D.ZERO, 100, 100, Color.BEIGE));
+            }
+            System.out.printf("%d objects in %.0f ms%n", count, (System.nanoTime() - startTime) / 1e6);
+            if (relations.size() + objects.size() == 0) {
+                System.out.println(); // keeps the lists alive until measured
+            }
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
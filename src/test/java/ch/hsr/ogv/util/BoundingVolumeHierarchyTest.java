@@ -0,0 +1,88 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundingVolumeHierarchyTest {
+
+    @Test
+    public void testEmpty() {
+        BoundingVolumeHierarchy<String> bvh = new BoundingVolumeHierarchy<String>();
+        assertNull(bvh.getBounds());
+        assertTrue(bvh.queryRegion(-1, -1, -1, 1, 1, 1).isEmpty());
+    }
+
+    @Test
+    public void testQueryRegion() {
+        BoundingVolumeHierarchy<String> bvh = new BoundingVolumeHierarchy<String>();
+        bvh.put("a", 0, 0, 0, 10, 10, 10);
+        bvh.put("b", 100, 0, 100, 110, 10, 110);
+        bvh.put("c", -50, 0, -50, -40, 10, -40);
+        assertEquals(new HashSet<String>(List.of("a", "b")), new HashSet<String>(bvh.queryRegion(5, 5, 5, 105, 5, 105)));
+        assertEquals(List.of("c"), bvh.queryRegion(-45, 0, -45, -45, 0, -45));
+        assertArrayEquals(new double[] { -50, 0, -50, 110, 10, 110 }, bvh.getBounds(), 1e-9);
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        BoundingVolumeHierarchy<String> bvh = new BoundingVolumeHierarchy<String>();
+        bvh.put("a", 0, 0, 0, 10, 10, 10);
+        bvh.put("b", 20, 0, 20, 30, 10, 30);
+        assertEquals(List.of("a"), bvh.queryRegion(0, 0, 0, 1, 1, 1));
+        bvh.put("a", 500, 0, 500, 510, 10, 510);
+        assertTrue(bvh.queryRegion(0, 0, 0, 1, 1, 1).isEmpty());
+        assertEquals(List.of("a"), bvh.queryRegion(505, 5, 505, 505, 5, 505));
+        assertTrue(bvh.remove("a"));
+        assertFalse(bvh.remove("a"));
+        assertFalse(bvh.contains("a"));
+        assertTrue(bvh.queryRegion(505, 5, 505, 505, 5, 505).isEmpty());
+        assertEquals(1, bvh.size());
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        BoundingVolumeHierarchy<Integer> bvh = new BoundingVolumeHierarchy<Integer>();
+        double[][] bounds = new double[500][];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = randomBounds(random);
+            bvh.put(i, bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3], bounds[i][4], bounds[i][5]);
+            if (i % 3 == 0) {
+                bvh.queryRegion(0, 0, 0, 1, 1, 1); // interleave queries so later puts refit an existing tree
+            }
+        }
+        for (int i = 0; i < bounds.length; i += 2) {
+            bounds[i] = randomBounds(random);
+            bvh.put(i, bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3], bounds[i][4], bounds[i][5]);
+        }
+        for (int q = 0; q < 50; q++) {
+            double[] region = randomBounds(random);
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < bounds.length; i++) {
+                double[] b = bounds[i];
+                if (b[0] <= region[3] && b[3] >= region[0] && b[1] <= region[4] && b[4] >= region[1] && b[2] <= region[5] && b[5] >= region[2]) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(new HashSet<Integer>(expected), new HashSet<Integer>(bvh.queryRegion(region[0], region[1], region[2], region[3], region[4], region[5])));
+        }
+    }
+
+    private static double[] randomBounds(Random random) {
+        double x = random.nextDouble() * 2000 - 1000;
+        double y = random.nextDouble() * 200;
+        double z = random.nextDouble() * 2000 - 1000;
+        return new double[] { x, y, z, x + random.nextDouble() * 300, y + random.nextDouble() * 50, z + random.nextDouble() * 300 };
+    }
+
+}
@@ -0,0 +1,77 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactGraphTest {
+
+    // 0 -> 1 -> 2 -> 0, 2 -> 3 -> 4, 5 alone
+    private CompactGraph createGraph() {
+        return new CompactGraph.Builder(6).addEdge(2, 3).addEdge(0, 1).addEdge(1, 2).addEdge(3, 4).addEdge(2, 0).build();
+    }
+
+    @Test
+    public void testBuildKeepsEdgeOrder() {
+        CompactGraph graph = createGraph();
+        assertEquals(6, graph.getVertexCount());
+        assertEquals(5, graph.getEdgeCount());
+        assertArrayEquals(new int[] { 3, 0 }, graph.getSuccessors(2));
+        assertEquals(0, graph.getOutDegree(5));
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 0 }, graph.getInDegrees());
+        assertThrows(IndexOutOfBoundsException.class, () -> new CompactGraph.Builder(2).addEdge(0, 2));
+    }
+
+    @Test
+    public void testReachableFrom() {
+        CompactGraph graph = createGraph();
+        BitSet reachable = graph.reachableFrom(3);
+        assertEquals(2, reachable.cardinality());
+        assertEquals(5, graph.reachableFrom(1).cardinality());
+        assertEquals(6, graph.reachableFrom(0, 5).cardinality());
+    }
+
+    @Test
+    public void testShortestPath() {
+        CompactGraph graph = createGraph();
+        assertArrayEquals(new int[] { 1, 2, 3, 4 }, graph.shortestPath(1, 4));
+        assertArrayEquals(new int[] { 2 }, graph.shortestPath(2, 2));
+        assertArrayEquals(new int[0], graph.shortestPath(4, 0));
+    }
+
+    @Test
+    public void testDepthFirstOrder() {
+        CompactGraph graph = createGraph();
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, graph.depthFirstOrder(0));
+    }
+
+    @Test
+    public void testStronglyConnectedComponents() {
+        int[] components = createGraph().stronglyConnectedComponents();
+        assertEquals(components[0], components[1]);
+        assertEquals(components[0], components[2]);
+        assertTrue(components[4] < components[3] && components[3] < components[0]); // distinct, in reverse topological order
+        assertTrue(components[5] != components[0] && components[5] != components[3] && components[5] != components[4]);
+    }
+
+    @Test
+    public void testDeepListDoesNotOverflow() {
+        int n = 1_000_000;
+        CompactGraph.Builder builder = new CompactGraph.Builder(n);
+        for (int i = 0; i < n - 1; i++) {
+            builder.addEdge(i, i + 1);
+        }
+        builder.addEdge(n - 1, 0);
+        CompactGraph graph = builder.build();
+        int[] components = graph.stronglyConnectedComponents();
+        assertEquals(components[0], components[n - 1]);
+        assertEquals(n, graph.depthFirstOrder(0).length);
+        assertEquals(n, graph.shortestPath(0, n - 1).length);
+    }
+
+}
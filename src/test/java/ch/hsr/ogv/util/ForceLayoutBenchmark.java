@@ -0,0 +1,41 @@
+package ch.hsr.ogv.util;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the force directed layout of a random class diagram with 1, 2, 4 and 8 worker threads. All boxes start at
+ * the origin, as after an import without coordinates. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes ch.hsr.ogv.util.ForceLayoutBenchmark [boxes] [edges per box]}.
+ */
+public class ForceLayoutBenchmark {
+
+    private final static int[] PARALLELISMS = { 1, 2, 4, 8 };
+    private final static int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int boxes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        double edgesPerBox = args.length > 1 ? Double.parseDouble(args[1]) : 1.5;
+        for (int parallelism : PARALLELISMS) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            for (int round = 0; round < ROUNDS; round++) {
+                Random random = new Random(42);
+                ForceLayout layout = new ForceLayout(boxes);
+                for (int i = 0; i < boxes; i++) {
+                    layout.setBox(i, 0, 0, 150 + random.nextInt(100), 100 + random.nextInt(200));
+                }
+                for (int e = 0; e < boxes * edgesPerBox; e++) {
+                    int start = random.nextInt(boxes);
+                    // mostly local edges, like packages of a class diagram
+                    int end = random.nextInt(4) > 0 ? Math.floorMod(start + random.nextInt(40) - 20, boxes) : random.nextInt(boxes);
+                    layout.addEdge(start, end);
+                }
+                long start = System.nanoTime();
+                int iterations = layout.run(pool, ForceLayout.DEFAULT_MAX_ITERATIONS);
+                System.out.printf("%d threads: %d boxes, %d iterations in %.0f ms%n", parallelism, boxes, iterations, (System.nanoTime() - start) / 1e6);
+            }
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ForceLayoutTest {
+
+    private static boolean overlap(ForceLayout layout, int a, int b, double width, double height) {
+        return Math.abs(layout.getX(a) - layout.getX(b)) < width && Math.abs(layout.getZ(a) - layout.getZ(b)) < height;
+    }
+
+    @Test
+    public void testSpreadsCoincidentBoxesWithoutOverlap() {
+        ForceLayout layout = new ForceLayout(200);
+        for (int i = 0; i < layout.size(); i++) {
+            layout.setBox(i, 0, 0, 150, 100);
+        }
+        for (int i = 1; i < layout.size(); i++) {
+            layout.addEdge(i / 2, i); // a binary tree
+        }
+        layout.run(ForkJoinPool.commonPool(), ForceLayout.DEFAULT_MAX_ITERATIONS);
+        for (int a = 0; a < layout.size(); a++) {
+            for (int b = a + 1; b < layout.size(); b++) {
+                assertTrue(!overlap(layout, a, b, 150, 100), "boxes " + a + " and " + b + " overlap");
+            }
+        }
+    }
+
+    @Test
+    public void testPullsConnectedBoxesTogether() {
+        // two chains of 10 boxes, shuffled on a line
+        ForceLayout layout = new ForceLayout(20);
+        for (int i = 0; i < layout.size(); i++) {
+            layout.setBox(i, (i * 7 % 20) * 500.0, (i % 3) * 300.0, 100, 100);
+        }
+        for (int i = 1; i < 10; i++) {
+            layout.addEdge(i - 1, i);
+            layout.addEdge(10 + i - 1, 10 + i);
+        }
+        layout.run(ForkJoinPool.commonPool(), ForceLayout.DEFAULT_MAX_ITERATIONS);
+        double connected = 0.0;
+        for (int i = 1; i < 10; i++) {
+            connected += Math.hypot(layout.getX(i) - layout.getX(i - 1), layout.getZ(i) - layout.getZ(i - 1));
+        }
+        double unconnected = 0.0;
+        for (int i = 0; i < 9; i++) {
+            unconnected += Math.hypot(layout.getX(i) - layout.getX(10 + i), layout.getZ(i) - layout.getZ(10 + i));
+        }
+        assertTrue(connected < unconnected, connected + " < " + unconnected);
+    }
+
+    @Test
+    public void testEmptyAndSingle() {
+        assertEquals(0, new ForceLayout(0).run(ForkJoinPool.commonPool(), 10));
+        ForceLayout single = new ForceLayout(1);
+        single.setBox(0, 10, 20, 100, 100);
+        single.run(ForkJoinPool.commonPool(), 10);
+        assertEquals(10, single.getX(0), 1e-9);
+        assertEquals(20, single.getZ(0), 1e-9);
+    }
+
+}
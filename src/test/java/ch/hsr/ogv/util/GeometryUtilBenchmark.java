@@ -0,0 +1,86 @@
+package ch.hsr.ogv.util;
+
+import javafx.geometry.Point2D;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the bytes allocated and the time per intersection of a line with the four edges of a box, as arrows do for
+ * their start and end on every redraw: once through the {@link Point2D} based {@link GeometryUtil#lineIntersect} and
+ * once through the primitive {@link GeometryUtil#lineIntersectFraction}. The allocation is read from the
+ * {@link com.sun.management.ThreadMXBean} of the current thread. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> ch.hsr.ogv.util.GeometryUtilBenchmark [calls]}, with
+ * {@code -XX:-DoEscapeAnalysis} to see the allocation the JIT cannot always remove.
+ */
+public class GeometryUtilBenchmark {
+
+    private final static int LINES = 1024;
+    private final static int ROUNDS = 3;
+
+    private static double sink; // keeps the results alive
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Random random = new Random(42);
+        double[] lines = new double[LINES * 4]; // from outside the box to its center at the origin
+        for (int i = 0; i < LINES; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            lines[i * 4] = Math.cos(angle) * 500;
+            lines[i * 4 + 1] = Math.sin(angle) * 500;
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            for (boolean primitive : new boolean[]{false, true}) {
+                long bytes = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    int line = (i & (LINES - 1)) * 4;
+                    sink += primitive ? intersectFraction(lines, line, 150, 100) : intersectPoint(lines, line, 150, 100);
+                }
+                long nanos = System.nanoTime() - start;
+                bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+                System.out.printf("%s: %.1f B/call, %.1f ns/call%n", primitive ? "lineIntersectFraction" : "lineIntersect", (double) bytes / calls, (double) nanos / calls);
+            }
+        }
+        System.out.printf("checksum %.1f%n", sink);
+    }
+
+    private static double intersectPoint(double[] lines, int line, double width, double height) {
+        Point2D start = new Point2D(lines[line], lines[line + 1]);
+        Point2D end = new Point2D(lines[line + 2], lines[line + 3]);
+        Point2D northEast = new Point2D(-width / 2, height / 2);
+        Point2D southEast = new Point2D(-width / 2, -height / 2);
+        Point2D northWest = new Point2D(width / 2, height / 2);
+        Point2D southWest = new Point2D(width / 2, -height / 2);
+        Point2D intersection = GeometryUtil.lineIntersect(start, end, northEast, southEast);
+        if (intersection == null) {
+            intersection = GeometryUtil.lineIntersect(start, end, northWest, southWest);
+        }
+        if (intersection == null) {
+            intersection = GeometryUtil.lineIntersect(start, end, northEast, northWest);
+        }
+        if (intersection == null) {
+            intersection = GeometryUtil.lineIntersect(start, end, southEast, southWest);
+        }
+        return intersection != null ? intersection.getX() : 0;
+    }
+
+    private static double intersectFraction(double[] lines, int line, double width, double height) {
+        double startX = lines[line], startZ = lines[line + 1], endX = lines[line + 2], endZ = lines[line + 3];
+        double east = -width / 2, west = width / 2, north = height / 2, south = -height / 2;
+        double fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, north, east, south);
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, west, north, west, south);
+        }
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, north, west, north);
+        }
+        if (Double.isNaN(fraction)) {
+            fraction = GeometryUtil.lineIntersectFraction(startX, startZ, endX, endZ, east, south, west, south);
+        }
+        return Double.isNaN(fraction) ? 0 : startX + fraction * (endX - startX);
+    }
+
+}
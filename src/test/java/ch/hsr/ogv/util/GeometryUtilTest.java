@@ -5,6 +5,7 @@ import javafx.geometry.Point3D;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class GeometryUtilTest {
 
@@ -119,4 +120,16 @@ public class GeometryUtilTest {
         assertEquals(intersection, result);
     }
 
+    @Test
+    public void testLineIntersectFraction() {
+        double result = GeometryUtil.lineIntersectFraction(0, 0, 0, 200, -100, 50, 100, 50);
+        assertEquals(0.25, result, 0.0001);
+    }
+
+    @Test
+    public void testLineIntersectFractionNoIntersection() {
+        assertTrue(Double.isNaN(GeometryUtil.lineIntersectFraction(0, 0, 0, 200, -100, 300, 100, 300))); // beyond the segment
+        assertTrue(Double.isNaN(GeometryUtil.lineIntersectFraction(0, 0, 0, 200, 50, 0, 50, 200))); // parallel
+    }
+
 }
@@ -0,0 +1,49 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HopExpansionTest {
+
+    // 0 -> 1 -> 2 -> 3, 0 -> 4, 4 -> 0
+    private CompactGraph createGraph() {
+        return new CompactGraph.Builder(5).addEdge(0, 1).addEdge(1, 2).addEdge(2, 3).addEdge(0, 4).addEdge(4, 0).build();
+    }
+
+    @Test
+    public void testInitialHops() {
+        HopExpansion expansion = new HopExpansion(createGraph(), 0, 1);
+        assertEquals(3, expansion.getIncluded().cardinality());
+        assertTrue(expansion.isIncluded(1));
+        assertTrue(expansion.isIncluded(4));
+        assertFalse(expansion.isIncluded(2));
+        assertEquals(1, new HopExpansion(createGraph(), 0, 0).getIncluded().cardinality());
+        assertEquals(5, new HopExpansion(createGraph(), 0, 10).getIncluded().cardinality());
+    }
+
+    @Test
+    public void testFrontier() {
+        HopExpansion expansion = new HopExpansion(createGraph(), 0, 1);
+        assertFalse(expansion.isFrontier(0));
+        assertTrue(expansion.isFrontier(1));
+        assertFalse(expansion.isFrontier(4)); // only refers back to the root
+        assertFalse(expansion.isFrontier(2)); // not included
+    }
+
+    @Test
+    public void testExpand() {
+        HopExpansion expansion = new HopExpansion(createGraph(), 0, 1);
+        assertArrayEquals(new int[] { 2 }, expansion.expand(1));
+        assertArrayEquals(new int[0], expansion.expand(1));
+        assertTrue(expansion.isFrontier(2));
+        assertArrayEquals(new int[] { 3 }, expansion.expand(2));
+        assertFalse(expansion.isFrontier(2));
+        assertThrows(IllegalArgumentException.class, () -> new HopExpansion(createGraph(), 3, 0).expand(0));
+    }
+
+}
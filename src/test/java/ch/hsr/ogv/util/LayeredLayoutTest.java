@@ -0,0 +1,93 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LayeredLayoutTest {
+
+    private static boolean overlap(LayeredLayout layout, int a, int b) {
+        return Math.abs(layout.getX(a) - layout.getX(b)) < 100 && Math.abs(layout.getZ(a) - layout.getZ(b)) < 100;
+    }
+
+    private static void assertNoOverlaps(LayeredLayout layout) {
+        for (int a = 0; a < layout.size(); a++) {
+            for (int b = a + 1; b < layout.size(); b++) {
+                assertFalse(overlap(layout, a, b), "boxes " + a + " and " + b + " overlap");
+            }
+        }
+    }
+
+    /**
+     * 0 is the super class of 1 and 2, 1 of 3 and 4, 2 of 5; 6 is only associated with 5, 7 with nothing.
+     */
+    private static LayeredLayout hierarchy(int size) {
+        LayeredLayout layout = new LayeredLayout(size);
+        for (int i = 0; i < size; i++) {
+            layout.setBox(i, 0, 0, 100, 100);
+        }
+        layout.addGeneralization(1, 0);
+        layout.addGeneralization(2, 0);
+        layout.addGeneralization(3, 1);
+        layout.addGeneralization(4, 1);
+        layout.addGeneralization(5, 2);
+        layout.addAssociation(6, 5);
+        return layout;
+    }
+
+    @Test
+    public void testLayers() {
+        LayeredLayout layout = hierarchy(8);
+        layout.addGeneralization(5, 1); // 5 has super classes in layers 0 and 1
+        layout.run(ForkJoinPool.commonPool());
+        assertEquals(0, layout.getLayer(0));
+        assertEquals(1, layout.getLayer(1));
+        assertEquals(2, layout.getLayer(3));
+        assertEquals(2, layout.getLayer(5));
+        assertEquals(-1, layout.getLayer(6));
+        assertTrue(layout.getZ(0) < layout.getZ(1));
+        assertTrue(layout.getZ(1) < layout.getZ(5));
+        assertTrue(layout.getZ(5) < layout.getZ(6), "classes without generalizations below the hierarchy");
+        assertNoOverlaps(layout);
+    }
+
+    @Test
+    public void testCrossingReduction() {
+        // sub classes ordered against their super classes: 2 -> 1, 3 -> 0
+        LayeredLayout layout = new LayeredLayout(4);
+        layout.setBox(0, 0, 0, 100, 100);
+        layout.setBox(1, 200, 0, 100, 100);
+        layout.setBox(2, 0, 300, 100, 100);
+        layout.setBox(3, 200, 300, 100, 100);
+        layout.addGeneralization(2, 1);
+        layout.addGeneralization(3, 0);
+        layout.run(ForkJoinPool.commonPool());
+        assertTrue(layout.getX(3) < layout.getX(2));
+    }
+
+    @Test
+    public void testIncremental() {
+        LayeredLayout first = hierarchy(8);
+        first.run(ForkJoinPool.commonPool());
+
+        // a new sub class of 5; all others keep their place
+        LayeredLayout second = hierarchy(9);
+        second.addGeneralization(8, 5);
+        for (int i = 0; i < 8; i++) {
+            second.setBox(i, first.getX(i), first.getZ(i), 100, 100);
+            second.setPinned(i, true);
+        }
+        second.run(ForkJoinPool.commonPool());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(first.getX(i), second.getX(i), 1e-9);
+            assertEquals(first.getZ(i), second.getZ(i), 1e-9);
+        }
+        assertTrue(second.getZ(8) > second.getZ(5));
+        assertNoOverlaps(second);
+    }
+
+}
@@ -0,0 +1,49 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongLongMapTest {
+
+    @Test
+    public void testPutGet() {
+        LongLongMap map = new LongLongMap();
+        assertEquals(-1, map.get(0, -1));
+        map.put(0, 7);
+        map.put(Long.MIN_VALUE, 8);
+        assertEquals(7, map.get(0, -1));
+        assertEquals(8, map.get(Long.MIN_VALUE, -1));
+        assertEquals(7, map.put(0, 9, -1));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(Long.MIN_VALUE));
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void testGrowMatchesHashMap() {
+        Random random = new Random(3);
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(40000) * 8L + 0x7f0000000L; // aligned like object addresses
+            long value = random.nextLong();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), -1));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0x7f0000000L));
+    }
+
+}
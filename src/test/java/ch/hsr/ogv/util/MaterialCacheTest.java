@@ -0,0 +1,34 @@
+package ch.hsr.ogv.util;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MaterialCacheTest {
+
+    @Test
+    public void testSameColorSharesMaterial() {
+        PhongMaterial first = MaterialCache.get(Color.CORNSILK);
+        PhongMaterial second = MaterialCache.get(Color.rgb(255, 248, 220));
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testSpecularColorIsBrighter() {
+        PhongMaterial material = MaterialCache.get(Color.BEIGE);
+        assertEquals(Color.BEIGE, material.getDiffuseColor());
+        assertEquals(Color.BEIGE.brighter(), material.getSpecularColor());
+    }
+
+    @Test
+    public void testDifferentSpecularColor() {
+        PhongMaterial withSpecular = MaterialCache.get(Color.DODGERBLUE);
+        PhongMaterial withoutSpecular = MaterialCache.get(Color.DODGERBLUE, null);
+        assertNotSame(withSpecular, withoutSpecular);
+    }
+
+}
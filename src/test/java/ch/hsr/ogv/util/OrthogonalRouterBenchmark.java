@@ -0,0 +1,52 @@
+package ch.hsr.ogv.util;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures routing all connections of a class diagram laid out on a grid, then moving single boxes and routing only
+ * the connections the move touches. Not a unit test, run it with
+ * {@code java -cp target/classes:target/test-classes ch.hsr.ogv.util.OrthogonalRouterBenchmark [boxes] [edges per box]}.
+ */
+public class OrthogonalRouterBenchmark {
+
+    private final static int MOVES = 200;
+
+    public static void main(String[] args) {
+        int boxes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double edgesPerBox = args.length > 1 ? Double.parseDouble(args[1]) : 1.5;
+        Random random = new Random(42);
+        int columns = (int) Math.ceil(Math.sqrt(boxes));
+        OrthogonalRouter router = new OrthogonalRouter();
+        for (int i = 0; i < boxes; i++) {
+            router.putBox(i, (i % columns) * 400, (i / columns) * 400, 150 + random.nextInt(100), 100 + random.nextInt(200));
+        }
+        int routes = (int) (boxes * edgesPerBox);
+        for (int e = 0; e < routes; e++) {
+            int start = random.nextInt(boxes);
+            // mostly local edges, like packages of a class diagram
+            int end = random.nextInt(4) > 0 ? Math.floorMod(start + random.nextInt(2 * columns) - columns, boxes) : random.nextInt(boxes);
+            router.addRoute(e, start, end);
+        }
+
+        long start = System.nanoTime();
+        int routed = 0;
+        for (int e = 0; e < routes; e++) {
+            routed += router.route(e) != null ? 1 : 0;
+        }
+        System.out.printf("routed %d of %d connections between %d boxes in %.0f ms%n", routed, routes, boxes, (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        int rerouted = 0;
+        for (int move = 0; move < MOVES; move++) {
+            int box = random.nextInt(boxes);
+            Set<Integer> affected = router.putBox(box, (box % columns) * 400 + 50, (box / columns) * 400 + 50, 200, 200);
+            for (int route : affected) {
+                router.route(route);
+            }
+            rerouted += affected.size();
+        }
+        System.out.printf("%d moves, %d connections routed again, %.2f ms per move%n", MOVES, rerouted, (System.nanoTime() - start) / 1e6 / MOVES);
+    }
+
+}
@@ -0,0 +1,108 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrthogonalRouterTest {
+
+    private static void assertOrthogonal(double[] polyline) {
+        for (int i = 2; i < polyline.length; i += 2) {
+            assertTrue(polyline[i] == polyline[i - 2] || polyline[i + 1] == polyline[i - 1], "segment " + i / 2 + " is not orthogonal");
+        }
+    }
+
+    private static boolean crosses(double[] polyline, double left, double top, double right, double bottom) {
+        for (int i = 2; i < polyline.length; i += 2) {
+            double minX = Math.min(polyline[i - 2], polyline[i]);
+            double maxX = Math.max(polyline[i - 2], polyline[i]);
+            double minZ = Math.min(polyline[i - 1], polyline[i + 1]);
+            double maxZ = Math.max(polyline[i - 1], polyline[i + 1]);
+            if (minX < right && maxX > left && minZ < bottom && maxZ > top) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testStraightRoute() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.putBox(0, 0, 0, 100, 100);
+        router.putBox(1, 400, 0, 100, 100);
+        router.addRoute(0, 0, 1);
+        double[] polyline = router.route(0);
+        assertNotNull(polyline);
+        assertEquals(4, polyline.length, "no bends between boxes side by side");
+        assertEquals(50, polyline[0], 1e-9);
+        assertEquals(350, polyline[2], 1e-9);
+        assertEquals(0, polyline[1], 1e-9);
+        assertEquals(0, polyline[3], 1e-9);
+    }
+
+    @Test
+    public void testParallelRoutes() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.putBox(0, 0, 0, 100, 90);
+        router.putBox(1, 400, 0, 100, 90);
+        router.addRoute(0, 0, 1, 1, 2);
+        router.addRoute(1, 1, 0, 2, 2);
+        double[] first = router.route(0);
+        double[] second = router.route(1);
+        assertEquals(4, first.length);
+        assertEquals(4, second.length);
+        assertEquals(-15, first[1], 1e-9, "a third down the sides");
+        assertEquals(-15, first[3], 1e-9);
+        assertEquals(15, second[1], 1e-9, "two thirds down the sides");
+        assertEquals(350, second[0], 1e-9);
+    }
+
+    @Test
+    public void testRouteAroundObstacle() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.putBox(0, 0, 0, 100, 100);
+        router.putBox(1, 600, 0, 100, 100);
+        router.putBox(2, 300, 0, 100, 300); // in the way
+        router.addRoute(0, 0, 1);
+        double[] polyline = router.route(0);
+        assertNotNull(polyline);
+        assertOrthogonal(polyline);
+        assertTrue(polyline.length > 4, "bends around the obstacle");
+        assertFalse(crosses(polyline, 250, -150, 350, 150), "route crosses the obstacle");
+        assertFalse(crosses(polyline, -50, -50, 50, 50), "route crosses the start box");
+        assertFalse(crosses(polyline, 550, -50, 650, 50), "route crosses the end box");
+    }
+
+    @Test
+    public void testAffectedRoutes() {
+        OrthogonalRouter router = new OrthogonalRouter();
+        router.putBox(0, 0, 0, 100, 100);
+        router.putBox(1, 400, 0, 100, 100);
+        router.putBox(2, 0, 1000, 100, 100);
+        router.putBox(3, 400, 1000, 100, 100);
+        router.putBox(4, 2000, 2000, 100, 100);
+        router.addRoute(0, 0, 1);
+        router.addRoute(1, 2, 3);
+        router.route(0);
+        router.route(1);
+
+        assertTrue(router.putBox(4, 2100, 2000, 100, 100).isEmpty(), "far from all corridors");
+        Set<Integer> affected = router.putBox(4, 200, 0, 100, 100); // onto the first route
+        assertEquals(Set.of(0), affected);
+        double[] polyline = router.route(0);
+        assertFalse(crosses(polyline, 150, -50, 250, 50));
+        assertEquals(Set.of(0, 1), router.putBox(4, 200, 1000, 100, 100), "the new and the old corridor");
+        assertEquals(Set.of(1), router.putBox(2, -100, 1000, 100, 100), "a connected box");
+
+        assertTrue(router.removeBox(3).isEmpty());
+        assertEquals(1, router.getRouteCount());
+        assertNull(router.route(1));
+    }
+
+}
@@ -0,0 +1,63 @@
+package ch.hsr.ogv.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpatialHashTest {
+
+    @Test
+    public void testHasPointWithin() {
+        SpatialHash<String> hash = new SpatialHash<String>(50);
+        hash.put("a", 0, 0, 0);
+        assertTrue(hash.hasPointWithin(49.9, -49.9, 0, 50));
+        assertFalse(hash.hasPointWithin(50, 0, 0, 50)); // range is exclusive
+        assertFalse(hash.hasPointWithin(0, 0, -120, 50));
+    }
+
+    @Test
+    public void testPutMovesAndRemove() {
+        SpatialHash<String> hash = new SpatialHash<String>(50);
+        hash.put("a", 0, 0, 0);
+        hash.put("a", 1000, 0, 1000);
+        assertEquals(1, hash.size());
+        assertFalse(hash.hasPointWithin(0, 0, 0, 50));
+        assertTrue(hash.hasPointWithin(1010, 0, 990, 50));
+        assertTrue(hash.remove("a"));
+        assertFalse(hash.remove("a"));
+        assertFalse(hash.hasPointWithin(1010, 0, 990, 50));
+    }
+
+    @Test
+    public void testRangeAboveCellSize() {
+        SpatialHash<String> hash = new SpatialHash<String>(50);
+        assertThrows(IllegalArgumentException.class, () -> hash.hasPointWithin(0, 0, 0, 51));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(7);
+        SpatialHash<Integer> hash = new SpatialHash<Integer>(50);
+        double[][] points = new double[400][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[] { random.nextDouble() * 2000 - 1000, random.nextDouble() * 400 - 200, random.nextDouble() * 2000 - 1000 };
+            hash.put(i, points[i][0], points[i][1], points[i][2]);
+        }
+        for (int q = 0; q < 2000; q++) {
+            double x = random.nextDouble() * 2000 - 1000;
+            double y = random.nextDouble() * 400 - 200;
+            double z = random.nextDouble() * 2000 - 1000;
+            boolean expected = false;
+            for (double[] p : points) {
+                expected |= Math.abs(p[0] - x) < 50 && Math.abs(p[1] - y) < 50 && Math.abs(p[2] - z) < 50;
+            }
+            assertEquals(expected, hash.hasPointWithin(x, y, z, 50));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package ch.hsr.ogv.util;
+
+import ch.hsr.ogv.util.TimeSlicedScheduler.Job;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeSlicedSchedulerTest {
+
+    private long now = 0;
+
+    private TimeSlicedScheduler createScheduler(long budget) {
+        return new TimeSlicedScheduler(budget, () -> this.now, false);
+    }
+
+    private List<Runnable> tasks(List<Integer> log, int from, int count, long duration) {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = from; i < from + count; i++) {
+            int id = i;
+            tasks.add(() -> {
+                log.add(id);
+                this.now += duration;
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testBudgetPerSlice() {
+        TimeSlicedScheduler scheduler = createScheduler(10);
+        List<Integer> log = new ArrayList<Integer>();
+        Job job = scheduler.submit(tasks(log, 0, 10, 3));
+        assertTrue(scheduler.runSlice());
+        assertEquals(List.of(0, 1, 2, 3), log); // stops once the budget is used up
+        assertEquals(0.4, job.getProgress(), 1e-9);
+        while (scheduler.runSlice()) {
+            assertFalse(job.isDone());
+        }
+        assertEquals(10, log.size());
+        assertTrue(job.isDone());
+    }
+
+    @Test
+    public void testSlowTaskStillProgresses() {
+        TimeSlicedScheduler scheduler = createScheduler(1);
+        List<Integer> log = new ArrayList<Integer>();
+        scheduler.submit(tasks(log, 0, 2, 100));
+        scheduler.runSlice();
+        assertEquals(List.of(0), log);
+        assertFalse(scheduler.runSlice());
+        assertEquals(List.of(0, 1), log);
+    }
+
+    @Test
+    public void testFailingTasksDoNotStallTheQueue() {
+        TimeSlicedScheduler scheduler = createScheduler(100);
+        List<Integer> log = new ArrayList<Integer>();
+        List<Runnable> failing = new ArrayList<Runnable>();
+        failing.add(() -> {
+            throw new IllegalStateException("failing task");
+        });
+        failing.add(() -> {
+            throw new StackOverflowError();
+        });
+        Job job = scheduler.submit(failing);
+        scheduler.submit(tasks(log, 0, 2, 1));
+        assertFalse(scheduler.runSlice());
+        assertTrue(job.isDone());
+        assertEquals(List.of(0, 1), log);
+    }
+
+    @Test
+    public void testJobsRunInOrderWithCallbacks() {
+        TimeSlicedScheduler scheduler = createScheduler(1000);
+        List<Integer> log = new ArrayList<Integer>();
+        List<String> events = new ArrayList<String>();
+        Job first = scheduler.submit(tasks(log, 0, 2, 1)).setOnDone(() -> events.add("first done"));
+        Job second = scheduler.submit(tasks(log, 2, 2, 1)).setOnDone(() -> events.add("second done"));
+        second.setOnProgress(job -> events.add("second " + job.getDone() + "/" + job.getTotal()));
+        assertFalse(scheduler.runSlice());
+        assertEquals(List.of(0, 1, 2, 3), log);
+        assertEquals(List.of("first done", "second 2/2", "second done"), events);
+        first.setOnDone(() -> events.add("late")); // already done, runs immediately
+        assertEquals("late", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testCancel() {
+        TimeSlicedScheduler scheduler = createScheduler(5);
+        List<Integer> log = new ArrayList<Integer>();
+        List<String> events = new ArrayList<String>();
+        Job cancelled = scheduler.submit(tasks(log, 0, 10, 3)).setOnDone(() -> events.add("cancelled done"));
+        scheduler.submit(tasks(log, 10, 1, 3)).setOnDone(() -> events.add("other done"));
+        scheduler.runSlice();
+        cancelled.cancel();
+        assertFalse(scheduler.runSlice());
+        assertEquals(List.of(0, 1, 10), log);
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.isDone());
+        assertEquals(List.of("other done"), events);
+    }
+
+}